@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.hash;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+@State(Scope.Benchmark)
+public class HashingBenchmark {
+
+    private static final HashFunction MD5 = Hashing.md5();
+    private static final HashFunction MURMUR3 = HashFunctions.defaultFunction();
+
+    @Param({"64", "4096", "1048576"})
+    int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setupData() {
+        data = new byte[size];
+        new Random(1234).nextBytes(data);
+    }
+
+    @Benchmark
+    public void md5(Blackhole bh) {
+        bh.consume(MD5.hashBytes(data));
+    }
+
+    @Benchmark
+    public void murmur3(Blackhole bh) {
+        bh.consume(MURMUR3.hashBytes(data));
+    }
+
+    @Benchmark
+    public void md5Streaming(Blackhole bh) {
+        bh.consume(hashInChunks(MD5));
+    }
+
+    @Benchmark
+    public void murmur3Streaming(Blackhole bh) {
+        bh.consume(hashInChunks(MURMUR3));
+    }
+
+    private HashCode hashInChunks(HashFunction function) {
+        Hasher hasher = function.newHasher();
+        for (int offset = 0; offset < data.length; offset += 8192) {
+            hasher.putBytes(data, offset, Math.min(8192, data.length - offset));
+        }
+        return hasher.hash();
+    }
+}
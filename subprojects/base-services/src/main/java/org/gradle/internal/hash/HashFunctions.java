@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Provides the hash function used for snapshotting file contents and calculating build cache keys.
+ *
+ * <p>The hash function does not need to be cryptographically secure, but it must produce well distributed 128 bit hashes and be fast
+ * for large inputs. Hashes produced by it are persisted in the task history and are part of build cache keys, so {@link #HASH_FUNCTION_ID}
+ * must be changed whenever the hash function changes.</p>
+ */
+public class HashFunctions {
+    /**
+     * Identifies the hash function in persistent caches and build cache keys.
+     */
+    public static final String HASH_FUNCTION_ID = "murmur3_128";
+
+    private static final HashFunction DEFAULT = Hashing.murmur3_128();
+
+    private HashFunctions() {
+    }
+
+    public static HashFunction defaultFunction() {
+        return DEFAULT;
+    }
+
+    public static Hasher newHasher() {
+        return DEFAULT.newHasher();
+    }
+
+    /**
+     * Creates a hash that can be used to distinguish hashes created by the given type from hashes created elsewhere.
+     */
+    public static HashCode signature(Class<?> type) {
+        return signature(type.getName());
+    }
+
+    public static HashCode signature(String value) {
+        return DEFAULT.hashString(value, Charsets.UTF_8);
+    }
+}
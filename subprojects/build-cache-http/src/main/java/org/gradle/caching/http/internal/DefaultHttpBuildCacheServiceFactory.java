@@ -24,6 +24,7 @@ import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
+import org.gradle.internal.resource.transport.http.HttpConnectionPoolSettings;
 import org.gradle.internal.resource.transport.http.SslContextFactory;
 
 import javax.inject.Inject;
@@ -31,11 +32,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Build cache factory for HTTP backend.
  */
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
+    public static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.cache.tasks.http.maxConnections";
+    public static final String KEEP_ALIVE_PROPERTY = "org.gradle.cache.tasks.http.keepAliveSeconds";
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+
     private final SslContextFactory sslContextFactory;
 
     @Inject
@@ -62,7 +69,17 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
             authentications = Collections.<Authentication>singleton(basicAuthentication);
         }
 
-        HttpClientHelper httpClientHelper = new HttpClientHelper(new DefaultHttpSettings(authentications, sslContextFactory));
+        HttpClientHelper httpClientHelper = new HttpClientHelper(new DefaultHttpSettings(authentications, sslContextFactory), createConnectionPoolSettings());
         return new HttpBuildCacheService(httpClientHelper, url);
     }
+
+    /**
+     * Connections to the cache are reused across requests. Idle connections are closed after a while,
+     * as proxies and load balancers tend to drop them silently, which would make the next request fail.
+     */
+    private static HttpConnectionPoolSettings createConnectionPoolSettings() {
+        int maxConnections = Integer.getInteger(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS);
+        int keepAliveSeconds = Integer.getInteger(KEEP_ALIVE_PROPERTY, DEFAULT_KEEP_ALIVE_SECONDS);
+        return new HttpConnectionPoolSettings(maxConnections, maxConnections, TimeUnit.SECONDS.toMillis(keepAliveSeconds));
+    }
 }
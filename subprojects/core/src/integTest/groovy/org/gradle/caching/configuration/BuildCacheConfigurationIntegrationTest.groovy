@@ -247,7 +247,7 @@ class BuildCacheConfigurationIntegrationTest extends AbstractIntegrationSpec {
         then:
         result.assertOutputContains("Using directory (${file("local-cache")}) as local build cache, push is disabled")
         and:
-        !file("local-cache").listFiles().any { it.name ==~ /\p{XDigit}{32}/}
+        !file("local-cache").allDescendants().any { new File(it).name ==~ /\p{XDigit}{32}/ }
     }
 
     private static String customTaskCode() {
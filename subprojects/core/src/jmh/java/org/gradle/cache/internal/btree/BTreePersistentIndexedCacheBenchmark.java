@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures lookups and updates of a {@link BTreePersistentIndexedCache} from multiple threads, with and without memory mapped reads.
+ */
+@State(Scope.Benchmark)
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int ENTRY_COUNT = 10000;
+
+    @Param({"true", "false"})
+    boolean memoryMapped;
+
+    private File cacheFile;
+    private BTreePersistentIndexedCache<String, String> cache;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void createCache() throws IOException {
+        cacheFile = File.createTempFile("btree-benchmark", ".bin");
+        cacheFile.delete();
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, (short) 512, 512, memoryMapped);
+        keys = new String[ENTRY_COUNT];
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            keys[i] = "/some/path/to/a/file-" + i + ".java";
+            cache.put(keys[i], "value-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCache() {
+        cache.close();
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void get1Thread(Blackhole bh) {
+        get(bh);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void get8Threads(Blackhole bh) {
+        get(bh);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void get32Threads(Blackhole bh) {
+        get(bh);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put1Thread() {
+        put();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void put8Threads() {
+        put();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void put32Threads() {
+        put();
+    }
+
+    private void get(Blackhole bh) {
+        bh.consume(cache.get(randomKey()));
+    }
+
+    private void put() {
+        cache.put(randomKey(), "updated");
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(ENTRY_COUNT)];
+    }
+}
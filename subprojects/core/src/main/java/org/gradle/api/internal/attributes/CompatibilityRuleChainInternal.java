@@ -19,6 +19,10 @@ import org.gradle.api.Action;
 import org.gradle.api.attributes.CompatibilityCheckDetails;
 import org.gradle.api.attributes.CompatibilityRuleChain;
 
+import java.util.List;
+
 public interface CompatibilityRuleChainInternal<T> extends CompatibilityRuleChain<T>, Action<CompatibilityCheckDetails<T>> {
     boolean isCompatibleWhenMissing();
+
+    List<Action<? super CompatibilityCheckDetails<T>>> getRules();
 }
@@ -55,6 +55,11 @@ public class DefaultCompatibilityRuleChain<T> implements CompatibilityRuleChainI
         return assumeCompatibleWhenMissing;
     }
 
+    @Override
+    public List<Action<? super CompatibilityCheckDetails<T>>> getRules() {
+        return rules;
+    }
+
     @Override
     public void execute(CompatibilityCheckDetails<T> details) {
         State<T> state = new State<T>(details);
@@ -45,6 +45,11 @@ public class DefaultDisambiguationRuleChain<T> implements DisambiguationRuleChai
         add(rule);
     }
 
+    @Override
+    public List<Action<? super MultipleCandidatesDetails<T>>> getRules() {
+        return rules;
+    }
+
     @Override
     public void execute(MultipleCandidatesDetails<T> details) {
         State<T> state = new State<T>(details);
@@ -19,5 +19,8 @@ import org.gradle.api.Action;
 import org.gradle.api.attributes.DisambiguationRuleChain;
 import org.gradle.api.attributes.MultipleCandidatesDetails;
 
+import java.util.List;
+
 public interface DisambiguationRuleChainInternal<T> extends DisambiguationRuleChain<T>, Action<MultipleCandidatesDetails<T>> {
+    List<Action<? super MultipleCandidatesDetails<T>>> getRules();
 }
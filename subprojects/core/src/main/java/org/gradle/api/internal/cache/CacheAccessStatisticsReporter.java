@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.cache;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheStatistics;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.internal.CacheAccessStatistics;
+import org.gradle.cache.internal.CacheFactory;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.progress.BuildOperationDetails;
+import org.gradle.internal.progress.BuildOperationExecutor;
+
+import java.util.List;
+
+/**
+ * Reports the statistics of the caches that are open when the build finishes.
+ *
+ * <p>The statistics are the descriptor of a build operation, so that build operation listeners can retrieve them. They are also logged at info level.</p>
+ */
+public class CacheAccessStatisticsReporter extends BuildAdapter {
+    private static final Logger LOGGER = Logging.getLogger(CacheAccessStatisticsReporter.class);
+    private final CacheFactory cacheFactory;
+    private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    public CacheAccessStatisticsReporter(CacheFactory cacheFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, BuildOperationExecutor buildOperationExecutor) {
+        this.cacheFactory = cacheFactory;
+        this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        final Statistics statistics = new Statistics(cacheFactory.getStatistics(), inMemoryCacheDecoratorFactory.getStatistics());
+        BuildOperationDetails details = BuildOperationDetails.displayName("Report cache statistics").operationDescriptor(statistics).build();
+        buildOperationExecutor.run(details, new Action<BuildOperationContext>() {
+            @Override
+            public void execute(BuildOperationContext context) {
+                if (!LOGGER.isInfoEnabled()) {
+                    return;
+                }
+                for (CacheAccessStatistics cache : statistics.getCaches()) {
+                    if (cache.getOperations() > 0 || cache.getBytesWritten() > 0) {
+                        LOGGER.info("Cache statistics for {}", cache);
+                    }
+                }
+                for (InMemoryCacheStatistics inMemoryCache : statistics.getInMemoryCaches()) {
+                    LOGGER.info("In-memory cache statistics for {}", inMemoryCache);
+                }
+            }
+        });
+    }
+
+    /**
+     * The statistics of the open caches, accumulated since each cache was opened. The in-memory caches are matched to their backing caches by cache id.
+     */
+    public static class Statistics {
+        private final List<CacheAccessStatistics> caches;
+        private final List<InMemoryCacheStatistics> inMemoryCaches;
+
+        public Statistics(List<CacheAccessStatistics> caches, List<InMemoryCacheStatistics> inMemoryCaches) {
+            this.caches = caches;
+            this.inMemoryCaches = inMemoryCaches;
+        }
+
+        public List<CacheAccessStatistics> getCaches() {
+            return caches;
+        }
+
+        public List<InMemoryCacheStatistics> getInMemoryCaches() {
+            return inMemoryCaches;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
@@ -31,6 +32,7 @@ import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.SerializerRegistry;
@@ -38,6 +40,10 @@ import org.gradle.internal.serialize.SerializerRegistry;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static org.gradle.internal.nativeintegration.filesystem.FileType.*;
 
@@ -45,18 +51,28 @@ import static org.gradle.internal.nativeintegration.filesystem.FileType.*;
  * Responsible for calculating a {@link FileCollectionSnapshot} for a particular {@link FileCollection}.
  */
 public abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapshotter {
+    /**
+     * Files of directory trees with at least this many files are hashed in parallel.
+     */
+    private static final int PARALLEL_HASHING_THRESHOLD = 64;
+
     private final FileHasher hasher;
     private final StringInterner stringInterner;
     private final FileSystem fileSystem;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final FileSystemMirror fileSystemMirror;
+    private final FileHashingExecutor hashingExecutor;
 
-    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+    /**
+     * @param hashingExecutor the threads to hash the files of large directory trees with, or {@code null} to hash all files on the calling thread.
+     */
+    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, @Nullable FileHashingExecutor hashingExecutor) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.hashingExecutor = hashingExecutor != null && hashingExecutor.isParallel() ? hashingExecutor : null;
     }
 
     public void registerSerializers(SerializerRegistry registry) {
@@ -103,6 +119,47 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         return new FileHashSnapshot(hasher.hash(file, fileDetails), fileDetails.getLastModified());
     }
 
+    private List<FileHashSnapshot> fileSnapshots(List<FileVisitDetails> files) {
+        if (hashingExecutor == null || files.size() < PARALLEL_HASHING_THRESHOLD) {
+            List<FileHashSnapshot> snapshots = Lists.newArrayListWithCapacity(files.size());
+            for (FileVisitDetails file : files) {
+                snapshots.add(fileSnapshot(file));
+            }
+            return snapshots;
+        }
+
+        ExecutorService executor = hashingExecutor.getExecutor();
+        List<Future<FileHashSnapshot>> pendingSnapshots = Lists.newArrayListWithCapacity(files.size());
+        boolean completed = false;
+        try {
+            for (final FileVisitDetails file : files) {
+                pendingSnapshots.add(executor.submit(new Callable<FileHashSnapshot>() {
+                    @Override
+                    public FileHashSnapshot call() {
+                        return fileSnapshot(file);
+                    }
+                }));
+            }
+            List<FileHashSnapshot> snapshots = Lists.newArrayListWithCapacity(files.size());
+            for (Future<FileHashSnapshot> pendingSnapshot : pendingSnapshots) {
+                snapshots.add(pendingSnapshot.get());
+            }
+            completed = true;
+            return snapshots;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            if (!completed) {
+                // The threads are shared, do not leave them hashing files nobody is waiting for
+                for (Future<FileHashSnapshot> pendingSnapshot : pendingSnapshots) {
+                    pendingSnapshot.cancel(false);
+                }
+            }
+        }
+    }
+
     private String getPath(File file) {
         return stringInterner.intern(file.getAbsolutePath());
     }
@@ -182,8 +239,9 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             List<FileDetails> elements;
             if (!directoryTree.getPatterns().isEmpty()) {
                 // Currently handle only those trees where we want everything from a directory
-                elements = Lists.newArrayList();
-                directoryTree.visit(new FileVisitorImpl(elements));
+                DirectoryVisitorImpl visitor = new DirectoryVisitorImpl();
+                directoryTree.visit(visitor);
+                elements = visitor.getElements();
             } else {
                 DirectoryTreeDetails treeDetails = fileSystemMirror.getDirectoryTree(directoryTree.getDir().getAbsolutePath());
                 if (treeDetails != null) {
@@ -192,8 +250,9 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
                 } else {
                     // Scan the directory
                     String path = getPath(directoryTree.getDir());
-                    elements = Lists.newArrayList();
-                    directoryTree.visit(new FileVisitorImpl(elements));
+                    DirectoryVisitorImpl visitor = new DirectoryVisitorImpl();
+                    directoryTree.visit(visitor);
+                    elements = visitor.getElements();
                     DirectoryTreeDetails details = new DirectoryTreeDetails(path, ImmutableList.copyOf(elements));
                     fileSystemMirror.putDirectory(details);
                 }
@@ -221,4 +280,35 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
             fileTreeElements.add(new DefaultFileDetails(getPath(fileDetails.getFile()), fileDetails.getRelativePath(), RegularFile, false, fileSnapshot(fileDetails)));
         }
     }
+
+    /**
+     * Visits the elements of a directory tree and hashes its files once the whole tree has been visited, so they can be hashed in parallel.
+     */
+    private class DirectoryVisitorImpl implements FileVisitor {
+        private final List<FileDetails> fileTreeElements = Lists.newArrayList();
+        private final List<FileVisitDetails> files = Lists.newArrayList();
+        private final List<Integer> fileIndexes = Lists.newArrayList();
+
+        @Override
+        public void visitDir(FileVisitDetails dirDetails) {
+            fileTreeElements.add(new DefaultFileDetails(getPath(dirDetails.getFile()), dirDetails.getRelativePath(), Directory, false, dirSnapshot()));
+        }
+
+        @Override
+        public void visitFile(FileVisitDetails fileDetails) {
+            // Reserve the position of the file, its details are added once it has been hashed
+            fileIndexes.add(fileTreeElements.size());
+            fileTreeElements.add(null);
+            files.add(fileDetails);
+        }
+
+        List<FileDetails> getElements() {
+            List<FileHashSnapshot> snapshots = fileSnapshots(files);
+            for (int i = 0; i < files.size(); i++) {
+                FileVisitDetails fileDetails = files.get(i);
+                fileTreeElements.set(fileIndexes.get(i), new DefaultFileDetails(getPath(fileDetails.getFile()), fileDetails.getRelativePath(), RegularFile, false, snapshots.get(i)));
+            }
+            return fileTreeElements;
+        }
+    }
 }
@@ -16,13 +16,12 @@
 
 package org.gradle.api.internal.changedetection.state;
 
-import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
-import com.google.common.hash.Hashing;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashFunctions;
 
 public class CachingClasspathEntryHasher implements ClasspathEntryHasher {
-    private static final HashCode NO_SIGNATURE = Hashing.md5().hashString(CachingClasspathEntryHasher.class.getName() + " : no signature", Charsets.UTF_8);
+    private static final HashCode NO_SIGNATURE = HashFunctions.signature(CachingClasspathEntryHasher.class.getName() + " : no signature");
     private final ClasspathEntryHasher delegate;
     private final PersistentIndexedCache<HashCode, HashCode> persistentCache;
 
@@ -21,10 +21,12 @@ import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.FileLockManager;
+import org.gradle.internal.hash.HashFunctions;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
@@ -35,6 +37,7 @@ public class CrossBuildFileHashCache implements Closeable, TaskHistoryStore {
     public CrossBuildFileHashCache(CacheRepository repository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
         cache = repository.cache("fileHashes")
+            .withProperties(Collections.singletonMap("hashFunction", HashFunctions.HASH_FUNCTION_ID))
             .withDisplayName("file hash cache")
             .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
             .open();
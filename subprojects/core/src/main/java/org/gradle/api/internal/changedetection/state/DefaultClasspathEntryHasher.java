@@ -16,15 +16,14 @@
 
 package org.gradle.api.internal.changedetection.state;
 
-import com.google.common.base.Charsets;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.hash.HashFunctions;
 import org.gradle.internal.nativeintegration.filesystem.FileType;
 import org.gradle.util.DeprecationLogger;
 
@@ -40,7 +39,7 @@ import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 public class DefaultClasspathEntryHasher implements ClasspathEntryHasher {
-    private static final byte[] SIGNATURE = Hashing.md5().hashString(DefaultClasspathEntryHasher.class.getName(), Charsets.UTF_8).asBytes();
+    private static final byte[] SIGNATURE = HashFunctions.signature(DefaultClasspathEntryHasher.class).asBytes();
     private final ClasspathContentHasher classpathContentHasher;
 
     public DefaultClasspathEntryHasher(ClasspathContentHasher classpathContentHasher) {
@@ -109,7 +108,7 @@ public class DefaultClasspathEntryHasher implements ClasspathEntryHasher {
     }
 
     private HashCode hashZipEntry(InputStream inputStream, ZipEntry zipEntry, ClasspathContentHasher classpathContentHasher) throws IOException {
-        Hasher hasher = new TrackingHasher(Hashing.md5().newHasher());
+        Hasher hasher = new TrackingHasher(HashFunctions.newHasher());
         classpathContentHasher.appendContent(zipEntry.getName(), inputStream, hasher);
         return hasher.hash();
     }
@@ -128,6 +127,6 @@ public class DefaultClasspathEntryHasher implements ClasspathEntryHasher {
     }
 
     private Hasher createHasher() {
-        return new TrackingHasher(Hashing.md5().newHasher().putBytes(SIGNATURE));
+        return new TrackingHasher(HashFunctions.newHasher().putBytes(SIGNATURE));
     }
 }
@@ -38,8 +38,8 @@ public class DefaultClasspathSnapshotter extends AbstractFileCollectionSnapshott
 
     private final ClasspathEntryHasher classpathEntryHasher;
 
-    public DefaultClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ClasspathEntryHasher classpathEntryHasher) {
-        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    public DefaultClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ClasspathEntryHasher classpathEntryHasher, FileHashingExecutor hashingExecutor) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, hashingExecutor);
         this.classpathEntryHasher = classpathEntryHasher;
     }
 
@@ -39,8 +39,8 @@ public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSn
     private static final HashCode IGNORED = HashCode.fromInt((DefaultCompileClasspathSnapshotter.class.getName() + " : ignored").hashCode());
     private final ClasspathEntryHasher classpathEntryHasher;
 
-    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ClasspathEntryHasher classpathEntryHasher) {
-        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ClasspathEntryHasher classpathEntryHasher, FileHashingExecutor hashingExecutor) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, hashingExecutor);
         this.classpathEntryHasher = classpathEntryHasher;
     }
 
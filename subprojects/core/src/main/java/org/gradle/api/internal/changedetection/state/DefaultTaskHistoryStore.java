@@ -21,9 +21,11 @@ import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.FileLockManager;
+import org.gradle.internal.hash.HashFunctions;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
+import java.util.Collections;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
@@ -35,6 +37,7 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
         cache = cacheRepository
                 .cache(gradle, "taskHistory")
+                .withProperties(Collections.singletonMap("hashFunction", HashFunctions.HASH_FUNCTION_ID))
                 .withDisplayName("task history cache")
                 .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
                 .open();
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Provides the threads that hash the files of large directory trees in parallel. The threads are shared by all file collection snapshotters,
+ * they are started when first needed and stopped when this service is stopped.
+ */
+public class FileHashingExecutor implements Stoppable {
+    private static final int HASHING_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private final ExecutorFactory executorFactory;
+    private StoppableExecutor executor;
+    private boolean stopped;
+
+    public FileHashingExecutor(ExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Returns whether files can be hashed in parallel on this machine.
+     */
+    public boolean isParallel() {
+        return HASHING_THREADS > 1;
+    }
+
+    public synchronized ExecutorService getExecutor() {
+        if (stopped) {
+            throw new IllegalStateException("Cannot hash files in parallel, the hashing threads have been stopped.");
+        }
+        if (executor == null) {
+            executor = executorFactory.create("Hash files", HASHING_THREADS);
+        }
+        return executor;
+    }
+
+    @Override
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            stopped = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -16,8 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.annotations.VisibleForTesting;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.cache.CrossBuildInMemoryCache;
 import org.gradle.api.internal.cache.CrossBuildInMemoryCacheFactory;
@@ -32,7 +31,9 @@ import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.internal.serialize.Serializer;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,38 +41,77 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * The in-memory caches share a single memory budget, which is scaled according to the available heap. Entries are evicted based on their estimated size, so that a few large entries
+ * do not cause the heap to bloat and many small entries are not evicted needlessly. The maximum number of entries of each cache is also scaled according to the available heap and
+ * bounds the number of entries of that cache. The budget can be reduced when the process is running low on memory, see {@link #reduceMemoryBudget()}.
  */
 public class InMemoryCacheDecoratorFactory {
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
+    // The memory budget for all in-memory caches, given the default max heap size
+    private static final int DEFAULT_MEMORY_BUDGET_KB = 200 * 1024;
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    private final SharedInMemoryCacheStore store;
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
         this.longLivingProcess = longLivingProcess;
-        caches = cacheFactory.newCache();
+        this.caches = cacheFactory.newCache();
+        this.store = new SharedInMemoryCacheStore(1024L * cacheSizer.scaleCacheSize(DEFAULT_MEMORY_BUDGET_KB));
+    }
+
+    @VisibleForTesting
+    InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory, long memoryBudget) {
+        this.longLivingProcess = longLivingProcess;
+        this.caches = cacheFactory.newCache();
+        this.store = new SharedInMemoryCacheStore(memoryBudget);
     }
 
     public CacheDecorator decorator(final int maxEntriesToKeepInMemory, final boolean cacheInMemoryForShortLivedProcesses) {
         return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
     }
 
-    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
+    /**
+     * Returns the memory budget currently shared by all in-memory caches, in bytes.
+     */
+    public long getMemoryBudget() {
+        return store.getBudget();
+    }
+
+    /**
+     * Reduces the memory budget shared by all in-memory caches and discards their entries, to release heap when the process is running low on memory.
+     * The budget is never reduced below a fraction of the initial budget.
+     *
+     * @return true if the budget was reduced.
+     */
+    public boolean reduceMemoryBudget() {
+        return store.reduceBudget();
+    }
+
+    /**
+     * Returns a snapshot of the hit and miss counts of the in-memory caches, accumulated since each cache was created.
+     */
+    public List<InMemoryCacheStatistics> getStatistics() {
+        return store.getStatistics();
+    }
+
+    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, Serializer<V> valueSerializer, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
         if (!longLivingProcess && !cacheInMemoryForShortLivedProcesses) {
             // Short lived process, don't cache in memory
             LOG.debug("Creating cache {} without in-memory store.", cacheId);
             return backingCache;
         }
         int targetSize = cacheSizer.scaleCacheSize(maxEntriesToKeepInMemory);
-        CacheDetails cacheDetails = getCache(cacheId, targetSize);
-        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState);
+        CacheDetails cacheDetails = getCache(cacheId, targetSize, valueSerializer);
+        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheDetails.lockState);
     }
 
-    private CacheDetails getCache(final String cacheId, final int maxSize) {
+    private CacheDetails getCache(final String cacheId, final int maxSize, final Serializer<?> valueSerializer) {
         CacheDetails cacheDetails = caches.get(cacheId, new Transformer<CacheDetails, String>() {
             @Override
             public CacheDetails transform(String cacheId) {
-                Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
+                SharedInMemoryCacheStore.Region entries = store.newRegion(cacheId, maxSize, valueSerializer);
                 CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
                 LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
                 return cacheDetails;
@@ -83,14 +123,6 @@ public class InMemoryCacheDecoratorFactory {
         return cacheDetails;
     }
 
-    private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize) {
-        LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
-        Cache<Object, Object> inMemoryCache = cacheBuilder.build();
-        evictionListener.setCache(inMemoryCache);
-        return inMemoryCache;
-    }
-
     private class InMemoryCacheDecorator implements CacheDecorator {
         private final int maxEntriesToKeepInMemory;
         private final boolean cacheInMemoryForShortLivedProcesses;
@@ -118,9 +150,9 @@ public class InMemoryCacheDecoratorFactory {
         }
 
         @Override
-        public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess) {
+        public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, Serializer<V> valueSerializer, MultiProcessSafePersistentIndexedCache<K, V> persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess) {
             MultiProcessSafeAsyncPersistentIndexedCache<K, V> asyncCache = new AsyncCacheAccessDecoratedCache<K, V>(asyncCacheAccess, persistentCache);
-            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
+            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, valueSerializer, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
             return new CrossProcessSynchronizingCache<K, V>(memCache, crossProcessCacheAccess);
         }
     }
@@ -128,10 +160,10 @@ public class InMemoryCacheDecoratorFactory {
     private static class CacheDetails {
         private final String cacheId;
         private final int maxEntries;
-        private final Cache<Object, Object> entries;
+        private final SharedInMemoryCacheStore.Region entries;
         private final AtomicReference<FileLock.State> lockState;
 
-        CacheDetails(String cacheId, int maxEntries, Cache<Object, Object> entries, AtomicReference<FileLock.State> lockState) {
+        CacheDetails(String cacheId, int maxEntries, SharedInMemoryCacheStore.Region entries, AtomicReference<FileLock.State> lockState) {
             this.cacheId = cacheId;
             this.maxEntries = maxEntries;
             this.entries = entries;
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * A snapshot of the hit and miss counts of an in-memory cache created by {@link InMemoryCacheDecoratorFactory}.
+ */
+public class InMemoryCacheStatistics {
+    private final String cacheId;
+    private final long hits;
+    private final long misses;
+
+    public InMemoryCacheStatistics(String cacheId, long hits, long misses) {
+        this.cacheId = cacheId;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * The id of the decorated cache, which is the absolute path of its file.
+     */
+    public String getCacheId() {
+        return cacheId;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of lookups that had to read the entry from the backing cache, or produce it.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d hits, %d misses", cacheId, hits, misses);
+    }
+}
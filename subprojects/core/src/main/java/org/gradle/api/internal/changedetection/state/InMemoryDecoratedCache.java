@@ -16,7 +16,6 @@
 
 package org.gradle.api.internal.changedetection.state;
 
-import com.google.common.cache.Cache;
 import com.google.common.hash.HashCode;
 import com.google.common.util.concurrent.Runnables;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -34,16 +33,14 @@ import java.util.concurrent.atomic.AtomicReference;
 
 class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final static Logger LOG = Logging.getLogger(InMemoryDecoratedCache.class);
-    private final static Object NULL = new Object();
+    static final Object NULL = new Object();
     private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate;
-    private final Cache<Object, Object> inMemoryCache;
-    private final String cacheId;
+    private final SharedInMemoryCacheStore.Region inMemoryCache;
     private final AtomicReference<FileLock.State> fileLockStateReference;
 
-    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
+    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, SharedInMemoryCacheStore.Region inMemoryCache, AtomicReference<FileLock.State> fileLockStateReference) {
         this.delegate = delegate;
         this.inMemoryCache = inMemoryCache;
-        this.cacheId = cacheId;
         this.fileLockStateReference = fileLockStateReference;
     }
 
@@ -132,7 +129,7 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
         if (previousState == null) {
             outOfDate = true;
         } else if (currentCacheState.hasBeenUpdatedSince(previousState)) {
-            LOG.info("Invalidating in-memory cache of {}", cacheId);
+            LOG.info("Invalidating in-memory cache of {}", inMemoryCache.getCacheId());
             outOfDate = true;
         }
         if (outOfDate) {
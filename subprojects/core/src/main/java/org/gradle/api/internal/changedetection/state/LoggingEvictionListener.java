@@ -30,13 +30,17 @@ class LoggingEvictionListener implements RemovalListener<Object, Object> {
     volatile int evictionCounter;
     private final String cacheId;
     private Cache<Object, Object> cache;
-    private final int maxSize;
+    private final String maxSize;
     private final int logInterval;
 
     LoggingEvictionListener(String cacheId, int maxSize) {
+        this(cacheId, String.valueOf(maxSize), maxSize / 10);
+    }
+
+    LoggingEvictionListener(String cacheId, String maxSize, int logInterval) {
         this.cacheId = cacheId;
         this.maxSize = maxSize;
-        this.logInterval = maxSize / 10;
+        this.logInterval = logInterval;
     }
 
     public void setCache(Cache<Object, Object> cache) {
@@ -16,14 +16,13 @@
 
 package org.gradle.api.internal.changedetection.state;
 
-import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
-import com.google.common.hash.Hashing;
+import org.gradle.internal.hash.HashFunctions;
 import org.gradle.internal.nativeintegration.filesystem.FileType;
 
 class MissingFileSnapshot implements IncrementalFileSnapshot {
     private static final MissingFileSnapshot INSTANCE = new MissingFileSnapshot();
-    private static final HashCode SIGNATURE = Hashing.md5().hashString(MissingFileSnapshot.class.getName(), Charsets.UTF_8);
+    private static final HashCode SIGNATURE = HashFunctions.signature(MissingFileSnapshot.class);
 
     private MissingFileSnapshot() {
     }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the in-memory entries of all caches decorated by an {@link InMemoryCacheDecoratorFactory}, so that they share a single memory budget.
+ *
+ * <p>Entries are evicted based on their estimated size in bytes rather than on their count. The size of a value is estimated from the length of its serialized form.
+ * Each cache is represented by a {@link Region} of the store.</p>
+ */
+class SharedInMemoryCacheStore {
+    private static final Logger LOG = Logging.getLogger(SharedInMemoryCacheStore.class);
+    // Approximate heap used by the cache entry, the region key and the weighted value holder
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int MIN_BUDGET_DIVISOR = 8;
+    private static final int EVICTION_LOG_INTERVAL = 10000;
+
+    private final long maximumBudget;
+    private volatile long budget;
+    private volatile Cache<Object, Object> entries;
+    private final ConcurrentMap<String, Region> regions = new ConcurrentHashMap<String, Region>();
+
+    SharedInMemoryCacheStore(long budget) {
+        this.maximumBudget = budget;
+        this.budget = budget;
+        this.entries = createEntries(budget);
+    }
+
+    private static Cache<Object, Object> createEntries(long budget) {
+        LoggingEvictionListener evictionListener = new LoggingEvictionListener("all caches", (budget / 1024) + "KB", EVICTION_LOG_INTERVAL);
+        Cache<Object, Object> entries = CacheBuilder.newBuilder()
+            .maximumWeight(budget)
+            .weigher(new Weigher<Object, Object>() {
+                @Override
+                public int weigh(Object key, Object value) {
+                    return ((WeightedValue) value).weight;
+                }
+            })
+            .recordStats()
+            .removalListener(evictionListener)
+            .build();
+        evictionListener.setCache(entries);
+        return entries;
+    }
+
+    /**
+     * Returns the current budget, in bytes.
+     */
+    long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the number of entries currently held, including those of invalidated regions which have not been evicted yet.
+     */
+    long size() {
+        return entries.size();
+    }
+
+    /**
+     * Creates a new region of this store.
+     *
+     * @param maxEntries The maximum number of entries the region may hold. Each entry of the region is weighed at least the budget divided by this value.
+     */
+    <V> Region newRegion(String cacheId, int maxEntries, Serializer<V> valueSerializer) {
+        Region region = new Region(cacheId, maxEntries, valueSerializer);
+        regions.put(cacheId, region);
+        return region;
+    }
+
+    /**
+     * Returns a snapshot of the hit and miss counts of the regions of this store.
+     */
+    List<InMemoryCacheStatistics> getStatistics() {
+        List<InMemoryCacheStatistics> statistics = new ArrayList<InMemoryCacheStatistics>(regions.size());
+        for (Region region : regions.values()) {
+            statistics.add(new InMemoryCacheStatistics(region.cacheId, region.hits.get(), region.misses.get()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Halves the budget of this store, down to a fraction of the original budget, and discards all entries.
+     *
+     * @return true if the budget was reduced, false if the budget is already at its minimum.
+     */
+    synchronized boolean reduceBudget() {
+        long minimumBudget = maximumBudget / MIN_BUDGET_DIVISOR;
+        if (budget <= minimumBudget) {
+            return false;
+        }
+        budget = Math.max(minimumBudget, budget / 2);
+        Cache<Object, Object> previousEntries = entries;
+        entries = createEntries(budget);
+        previousEntries.invalidateAll();
+        LOG.info("Reduced in-memory cache budget to {}KB", budget / 1024);
+        return true;
+    }
+
+    private static int estimateKeySize(Object key) {
+        if (key instanceof String) {
+            return 2 * OBJECT_OVERHEAD + 2 * ((String) key).length();
+        }
+        if (key instanceof File) {
+            return 3 * OBJECT_OVERHEAD + 2 * ((File) key).getPath().length();
+        }
+        if (key instanceof HashCode) {
+            return 2 * OBJECT_OVERHEAD + ((HashCode) key).bits() / 8;
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    /**
+     * A region of the store that holds the entries of a single cache.
+     */
+    class Region {
+        private final String cacheId;
+        private final int maxEntries;
+        private final Serializer<Object> valueSerializer;
+        private volatile Object generation = new Object();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        private Region(String cacheId, int maxEntries, Serializer<?> valueSerializer) {
+            this.cacheId = cacheId;
+            this.maxEntries = maxEntries;
+            this.valueSerializer = Cast.uncheckedCast(valueSerializer);
+        }
+
+        public String getCacheId() {
+            return cacheId;
+        }
+
+        /**
+         * Returns the value for the given key, or null when not present. Only a present value is counted, as a hit, because a caller that finds no
+         * value is expected to load it using {@link #get(Object, Callable)}, which counts the miss.
+         */
+        public Object getIfPresent(Object key) {
+            WeightedValue value = (WeightedValue) entries.getIfPresent(new RegionKey(generation, key));
+            if (value == null) {
+                return null;
+            }
+            if (value.value != InMemoryDecoratedCache.NULL) {
+                hits.incrementAndGet();
+            }
+            return value.value;
+        }
+
+        /**
+         * Returns the value for the given key, using the given loader to calculate and store the value when not present.
+         */
+        public Object get(final Object key, final Callable<?> loader) throws ExecutionException {
+            final boolean[] loaded = new boolean[1];
+            WeightedValue value = (WeightedValue) entries.get(new RegionKey(generation, key), new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    loaded[0] = true;
+                    return weigh(key, loader.call());
+                }
+            });
+            if (loaded[0]) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return value.value;
+        }
+
+        public void put(Object key, Object value) {
+            entries.put(new RegionKey(generation, key), weigh(key, value));
+        }
+
+        public void invalidate(Object key) {
+            entries.invalidate(new RegionKey(generation, key));
+        }
+
+        /**
+         * Discards all entries of this region. The entries are not removed immediately, but are no longer reachable and are evicted first.
+         */
+        public void invalidateAll() {
+            generation = new Object();
+        }
+
+        private WeightedValue weigh(Object key, Object value) {
+            long estimatedSize = ENTRY_OVERHEAD + estimateKeySize(key) + estimateValueSize(value);
+            long weight = Math.max(estimatedSize, budget / maxEntries);
+            return new WeightedValue(value, (int) Math.min(weight, Integer.MAX_VALUE));
+        }
+
+        private int estimateValueSize(Object value) {
+            if (value == InMemoryDecoratedCache.NULL) {
+                return 0;
+            }
+            KryoBackedEncoder encoder = new KryoBackedEncoder(ByteStreams.nullOutputStream(), 512);
+            try {
+                valueSerializer.write(encoder, value);
+                encoder.flush();
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            return encoder.getWritePosition();
+        }
+    }
+
+    private static class RegionKey {
+        private final Object generation;
+        private final Object key;
+
+        RegionKey(Object generation, Object key) {
+            this.generation = generation;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            RegionKey other = (RegionKey) obj;
+            return generation == other.generation && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(generation) ^ key.hashCode();
+        }
+    }
+
+    private static class WeightedValue {
+        private final Object value;
+        private final int weight;
+
+        WeightedValue(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
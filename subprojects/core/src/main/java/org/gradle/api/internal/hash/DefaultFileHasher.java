@@ -13,14 +13,16 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.gradle.api.internal.hash;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileTreeElement;
+import org.gradle.internal.hash.HashFunctions;
 import org.gradle.internal.nativeintegration.filesystem.FileMetadataSnapshot;
 import org.gradle.internal.resource.TextResource;
 
@@ -28,19 +30,36 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
+/**
+ * Hashes file contents. Small files are read in one go, larger files are read through a direct buffer.
+ *
+ * <p>Files are not mapped into memory, as a mapping is only released when it is garbage collected. Until then it holds on to
+ * address space and to the file, which on Windows cannot be deleted.</p>
+ */
 public class DefaultFileHasher implements FileHasher {
-    private static final byte[] SIGNATURE = Hashing.md5().hashString(DefaultFileHasher.class.getName(), Charsets.UTF_8).asBytes();
+    private static final byte[] SIGNATURE = HashFunctions.signature(DefaultFileHasher.class).asBytes();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    @VisibleForTesting
+    static final long SMALL_FILE_SIZE = BUFFER_SIZE;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
-            return doHash(inputStream);
+            try {
+                return doHash(inputStream);
+            } finally {
+                inputStream.close();
+            }
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException("Failed to create hash for file content.", e);
         }
     }
 
@@ -54,31 +73,61 @@ public class DefaultFileHasher implements FileHasher {
     @Override
     public HashCode hash(File file) {
         try {
-            InputStream inputStream = new FileInputStream(file);
-            return doHash(inputStream);
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                long size = channel.size();
+                if (size <= SMALL_FILE_SIZE) {
+                    return doHash(inputStream);
+                }
+                return hashBuffered(channel);
+            } finally {
+                inputStream.close();
+            }
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s'.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create hash for file '%s'.", file), e);
         }
     }
 
     private HashCode doHash(InputStream inputStream) throws IOException {
+        byte[] buffer = takeBuffer();
         try {
-            byte[] buffer = takeBuffer();
-            try {
-                Hasher hasher = createFileHasher();
-                while (true) {
-                    int nread = inputStream.read(buffer);
-                    if (nread < 0) {
-                        break;
-                    }
-                    hasher.putBytes(buffer, 0, nread);
+            Hasher hasher = createFileHasher();
+            while (true) {
+                int nread = inputStream.read(buffer);
+                if (nread < 0) {
+                    break;
                 }
-                return hasher.hash();
-            } finally {
-                returnBuffer(buffer);
+                hasher.putBytes(buffer, 0, nread);
             }
+            return hasher.hash();
         } finally {
-            inputStream.close();
+            returnBuffer(buffer);
+        }
+    }
+
+    private HashCode hashBuffered(FileChannel channel) throws IOException {
+        ByteBuffer directBuffer = takeDirectBuffer();
+        byte[] buffer = takeBuffer();
+        try {
+            Hasher hasher = createFileHasher();
+            while (channel.read(directBuffer) >= 0) {
+                directBuffer.flip();
+                putBytes(hasher, directBuffer, buffer);
+                directBuffer.clear();
+            }
+            return hasher.hash();
+        } finally {
+            returnBuffer(buffer);
+            returnDirectBuffer(directBuffer);
+        }
+    }
+
+    private static void putBytes(Hasher hasher, ByteBuffer source, byte[] buffer) {
+        while (source.hasRemaining()) {
+            int count = Math.min(buffer.length, source.remaining());
+            source.get(buffer, 0, count);
+            hasher.putBytes(buffer, 0, count);
         }
     }
 
@@ -90,7 +139,20 @@ public class DefaultFileHasher implements FileHasher {
     private byte[] takeBuffer() {
         byte[] buffer = buffers.poll();
         if (buffer == null) {
-            buffer = new byte[8192];
+            buffer = new byte[BUFFER_SIZE];
+        }
+        return buffer;
+    }
+
+    private void returnDirectBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        directBuffers.offer(buffer);
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
         }
         return buffer;
     }
@@ -106,7 +168,7 @@ public class DefaultFileHasher implements FileHasher {
     }
 
     private static Hasher createFileHasher() {
-        Hasher hasher = Hashing.md5().newHasher();
+        Hasher hasher = HashFunctions.newHasher();
         hasher.putBytes(SIGNATURE);
         return hasher;
     }
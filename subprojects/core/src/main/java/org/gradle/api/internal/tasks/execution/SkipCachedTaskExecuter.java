@@ -28,6 +28,8 @@ import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
+import org.gradle.caching.internal.tasks.TaskOutputPackingMetrics;
+import org.gradle.caching.internal.tasks.TaskOutputPackingStatisticsCollector;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.internal.time.Timer;
 import org.gradle.internal.time.Timers;
@@ -45,15 +47,18 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
     private final TaskExecuter delegate;
     private final TaskOutputsGenerationListener taskOutputsGenerationListener;
     private final TaskOutputOriginFactory taskOutputOriginFactory;
+    private final TaskOutputPackingStatisticsCollector packingStatistics;
 
     public SkipCachedTaskExecuter(TaskOutputOriginFactory taskOutputOriginFactory,
                                   BuildCacheService buildCache,
                                   TaskOutputPacker packer,
+                                  TaskOutputPackingStatisticsCollector packingStatistics,
                                   TaskOutputsGenerationListener taskOutputsGenerationListener,
                                   TaskExecuter delegate) {
         this.taskOutputOriginFactory = taskOutputOriginFactory;
         this.buildCache = buildCache;
         this.packer = packer;
+        this.packingStatistics = packingStatistics;
         this.taskOutputsGenerationListener = taskOutputsGenerationListener;
         this.delegate = delegate;
     }
@@ -75,7 +80,9 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                         @Override
                         public void readFrom(final InputStream input) {
                             taskOutputsGenerationListener.beforeTaskOutputsGenerated();
-                            packer.unpack(taskOutputs, input, taskOutputOriginFactory.createReader(task));
+                            Timer unpackClock = Timers.startTimer();
+                            TaskOutputPackingMetrics metrics = packer.unpack(taskOutputs, input, taskOutputOriginFactory.createReader(task));
+                            packingStatistics.unpacked(task, metrics, unpackClock.getElapsedMillis());
                             LOGGER.info("Unpacked output for {} from cache (took {}).", task, clock.getElapsed());
                         }
                     });
@@ -100,7 +107,9 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                         @Override
                         public void writeTo(OutputStream output) {
                             LOGGER.info("Packing {}", task.getPath());
-                            packer.pack(taskOutputs, output, taskOutputOriginFactory.createWriter(task, clock.getElapsedMillis()));
+                            Timer packClock = Timers.startTimer();
+                            TaskOutputPackingMetrics metrics = packer.pack(taskOutputs, output, taskOutputOriginFactory.createWriter(task, clock.getElapsedMillis()));
+                            packingStatistics.packed(task, metrics, packClock.getElapsedMillis());
                         }
                     });
                 } else {
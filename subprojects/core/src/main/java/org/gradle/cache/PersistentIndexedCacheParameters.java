@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private StorageFormat storageFormat = StorageFormat.BTREE;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,38 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> storageFormat(StorageFormat storageFormat) {
+        assert storageFormat != null;
+        this.storageFormat = storageFormat;
+        return this;
+    }
+
+    /**
+     * The format of the file that backs the cache.
+     */
+    public enum StorageFormat {
+        /**
+         * A B-tree that is updated in place.
+         */
+        BTREE(".bin"),
+        /**
+         * An append-only log of updates, indexed in memory and compacted when it contains mostly stale entries.
+         */
+        APPEND_ONLY_LOG(".log.bin");
+
+        private final String fileExtension;
+
+        StorageFormat(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
 }
@@ -46,31 +46,13 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     }
 
     @Override
-    public void putLater(final K key, final V value, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    persistentCache.put(key, value);
-                } finally {
-                    completion.run();
-                }
-            }
-        });
+    public void putLater(K key, V value, Runnable completion) {
+        asyncCacheAccess.enqueue(IndexedCacheUpdate.put(persistentCache, key, value, completion));
     }
 
     @Override
-    public void removeLater(final K key, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    persistentCache.remove(key);
-                } finally {
-                    completion.run();
-                }
-            }
-        });
+    public void removeLater(K key, Runnable completion) {
+        asyncCacheAccess.enqueue(IndexedCacheUpdate.remove(persistentCache, key, completion));
     }
 
     @Override
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the statistics of a cache directory: the operations run by its cache access worker, and the bytes written to each of its indexed caches.
+ *
+ * <p>The values are accumulated from when the cache was opened, which for caches shared by the builds of a daemon may span multiple builds.</p>
+ */
+public class CacheAccessStatistics {
+    private final String displayName;
+    private final long operations;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final long enqueueWaitMillis;
+    private final long batches;
+    private final long appliedUpdates;
+    private final long coalescedUpdates;
+    private final long lockHeldMillis;
+    private final long maxLockHeldMillis;
+    private final List<IndexedCacheStatistics> indexedCaches;
+
+    public CacheAccessStatistics(String displayName, long operations, int queueDepth, int maxQueueDepth, long enqueueWaitMillis, long batches,
+                                 long appliedUpdates, long coalescedUpdates, long lockHeldMillis, long maxLockHeldMillis, List<IndexedCacheStatistics> indexedCaches) {
+        this.displayName = displayName;
+        this.operations = operations;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.enqueueWaitMillis = enqueueWaitMillis;
+        this.batches = batches;
+        this.appliedUpdates = appliedUpdates;
+        this.coalescedUpdates = coalescedUpdates;
+        this.lockHeldMillis = lockHeldMillis;
+        this.maxLockHeldMillis = maxLockHeldMillis;
+        this.indexedCaches = indexedCaches;
+    }
+
+    /**
+     * Returns the statistics of a cache that has not run any operations through a worker.
+     */
+    public static CacheAccessStatistics idle(String displayName) {
+        return new CacheAccessStatistics(displayName, 0, 0, 0, 0, 0, 0, 0, 0, 0, Collections.<IndexedCacheStatistics>emptyList());
+    }
+
+    /**
+     * Returns a copy of these statistics with the given indexed cache statistics.
+     */
+    public CacheAccessStatistics withIndexedCaches(List<IndexedCacheStatistics> indexedCaches) {
+        return new CacheAccessStatistics(displayName, operations, queueDepth, maxQueueDepth, enqueueWaitMillis, batches, appliedUpdates, coalescedUpdates, lockHeldMillis, maxLockHeldMillis, indexedCaches);
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * The number of operations submitted to the worker.
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * The number of operations waiting in the queue of the worker when the snapshot was taken.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * The total time that submitters waited for space in the queue.
+     */
+    public long getEnqueueWaitMillis() {
+        return enqueueWaitMillis;
+    }
+
+    /**
+     * The number of times that the worker acquired the cache lock to run a batch of operations.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * The number of entry updates written to the backing caches.
+     */
+    public long getAppliedUpdates() {
+        return appliedUpdates;
+    }
+
+    /**
+     * The number of entry updates that were replaced by a later update of the same entry in the same batch, and not written.
+     */
+    public long getCoalescedUpdates() {
+        return coalescedUpdates;
+    }
+
+    /**
+     * The total time spent running batches while holding the cache lock, which includes flushing the updates to the backing caches.
+     */
+    public long getLockHeldMillis() {
+        return lockHeldMillis;
+    }
+
+    public long getMaxLockHeldMillis() {
+        return maxLockHeldMillis;
+    }
+
+    public List<IndexedCacheStatistics> getIndexedCaches() {
+        return indexedCaches;
+    }
+
+    /**
+     * The total number of bytes written to the files of the indexed caches.
+     */
+    public long getBytesWritten() {
+        long bytesWritten = 0;
+        for (IndexedCacheStatistics indexedCache : indexedCaches) {
+            bytesWritten += indexedCache.getBytesWritten();
+        }
+        return bytesWritten;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d operations, queue depth %d (max %d), waited %dms to enqueue, %d batches taking %dms (max %dms), %d updates written, %d updates coalesced, %d bytes written",
+            displayName, operations, queueDepth, maxQueueDepth, enqueueWaitMillis, batches, lockHeldMillis, maxLockHeldMillis, appliedUpdates, coalescedUpdates, getBytesWritten());
+    }
+
+    /**
+     * The statistics of a single indexed cache.
+     */
+    public static class IndexedCacheStatistics {
+        private final String cacheId;
+        private final String cacheName;
+        private final long bytesWritten;
+
+        public IndexedCacheStatistics(String cacheId, String cacheName, long bytesWritten) {
+            this.cacheId = cacheId;
+            this.cacheName = cacheName;
+            this.bytesWritten = bytesWritten;
+        }
+
+        /**
+         * The id of the cache, which is the absolute path of its file. This is the id that cache decorators receive for the cache.
+         */
+        public String getCacheId() {
+            return cacheId;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        /**
+         * The number of bytes written to the file of the cache.
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Timers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -34,7 +35,15 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs the operations submitted for a cache on a single thread, holding the cache lock while operations are available.
+ *
+ * <p>Updates of indexed caches that arrive within a batch window are collected, so that only the last update of each entry is applied and
+ * the updates of each cache are applied in bulk. The collected updates are applied before any other operation runs.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
@@ -46,6 +55,15 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private boolean stopSeen;
     private final CountDownLatch doneSignal = new CountDownLatch(1);
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
+    private final AtomicLong enqueuedOperations = new AtomicLong();
+    private final AtomicLong enqueueWaitNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    // Only updated by the worker thread
+    private volatile long batches;
+    private volatile long appliedUpdates;
+    private volatile long coalescedUpdates;
+    private volatile long lockHeldNanos;
+    private volatile long maxLockHeldNanos;
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
         this.displayName = displayName;
@@ -66,11 +84,19 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         if (closed) {
             throw new IllegalStateException("The worker has already been closed. Cannot add more work to queue.");
         }
+        long start = System.nanoTime();
         try {
             workQueue.put(task);
         } catch (InterruptedException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
+        enqueueWaitNanos.addAndGet(System.nanoTime() - start);
+        enqueuedOperations.incrementAndGet();
+        int queueDepth = workQueue.size();
+        int max = maxQueueDepth.get();
+        while (queueDepth > max && !maxQueueDepth.compareAndSet(max, queueDepth)) {
+            max = maxQueueDepth.get();
+        }
     }
 
     public <T> T read(final Factory<T> task) {
@@ -170,24 +196,26 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
 
     private void flushOperations(final Runnable updateOperation) {
         final List<FlushOperationsCommand> flushOperations = new ArrayList<FlushOperationsCommand>();
+        final IndexedCacheUpdateBatch batch = new IndexedCacheUpdateBatch();
+        long start = System.nanoTime();
         try {
             cacheAccess.useCache(new Runnable() {
                 @Override
                 public void run() {
                     CountdownTimer timer = Timers.startTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
-                    if (updateOperation != null) {
-                        failureHandler.onExecute(updateOperation);
-                    }
-                    Runnable otherOperation;
                     try {
+                        if (updateOperation != null) {
+                            execute(updateOperation, batch);
+                        }
+                        Runnable otherOperation;
                         while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
-                            failureHandler.onExecute(otherOperation);
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
                             if (runnableClass == FlushOperationsCommand.class) {
                                 flushOperations.add((FlushOperationsCommand) otherOperation);
-                            }
-                            if (runnableClass == ShutdownOperationsCommand.class) {
+                            } else if (runnableClass == ShutdownOperationsCommand.class) {
                                 stopSeen = true;
+                            } else {
+                                execute(otherOperation, batch);
                             }
                             if (runnableClass == ShutdownOperationsCommand.class
                                     || runnableClass == FlushOperationsCommand.class
@@ -197,16 +225,50 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                         }
                     } catch (InterruptedException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
+                    } finally {
+                        applyUpdates(batch);
                     }
                 }
             });
         } finally {
+            long duration = System.nanoTime() - start;
+            batches++;
+            lockHeldNanos += duration;
+            maxLockHeldNanos = Math.max(maxLockHeldNanos, duration);
             for (FlushOperationsCommand flushOperation : flushOperations) {
                 flushOperation.completed();
             }
         }
     }
 
+    private void execute(Runnable operation, IndexedCacheUpdateBatch batch) {
+        if (operation instanceof IndexedCacheUpdate) {
+            batch.add((IndexedCacheUpdate<?, ?>) operation);
+        } else {
+            // Other operations may observe the state of the caches, so apply the pending updates first
+            applyUpdates(batch);
+            failureHandler.onExecute(operation);
+        }
+    }
+
+    private void applyUpdates(IndexedCacheUpdateBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        appliedUpdates += batch.size() - batch.getCoalescedUpdates();
+        coalescedUpdates += batch.getCoalescedUpdates();
+        batch.apply(failureHandler);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this worker. The statistics do not include the batch currently being run by the worker thread.
+     */
+    public CacheAccessStatistics getStatistics() {
+        return new CacheAccessStatistics(displayName, enqueuedOperations.get(), workQueue.size(), maxQueueDepth.get(), TimeUnit.NANOSECONDS.toMillis(enqueueWaitNanos.get()),
+            batches, appliedUpdates, coalescedUpdates, TimeUnit.NANOSECONDS.toMillis(lockHeldNanos), TimeUnit.NANOSECONDS.toMillis(maxLockHeldNanos),
+            Collections.<CacheAccessStatistics.IndexedCacheStatistics>emptyList());
+    }
+
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
             closed = true;
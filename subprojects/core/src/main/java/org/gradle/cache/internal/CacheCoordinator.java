@@ -31,4 +31,9 @@ public interface CacheCoordinator extends CacheAccess, Closeable {
     void close();
 
     <K, V> PersistentIndexedCache<K, V> newCache(PersistentIndexedCacheParameters<K, V> parameters);
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     */
+    CacheAccessStatistics getStatistics();
 }
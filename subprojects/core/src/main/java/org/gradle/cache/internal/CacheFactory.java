@@ -24,6 +24,7 @@ import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.filelock.LockOptions;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 
 public interface CacheFactory {
@@ -31,4 +32,9 @@ public interface CacheFactory {
      * Opens a cache with the given options. The caller must close the cache when finished with it.
      */
     PersistentCache open(File cacheDir, String displayName, @Nullable CacheValidator cacheValidator, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initializer) throws CacheOpenException;
+
+    /**
+     * Returns a snapshot of the statistics of the caches that are currently open.
+     */
+    List<CacheAccessStatistics> getStatistics();
 }
@@ -20,6 +20,8 @@ import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.internal.Factory;
 
+import java.util.Map;
+
 /**
  * Applies cross-process file locking to a backing cache, to ensure that any in-memory and on file state is kept in sync while this process is read from or writing to the cache.
  */
@@ -55,6 +57,13 @@ public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePer
         target.putLater(key, value, runnable);
     }
 
+    @Override
+    public void putAll(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     @Override
     public void remove(K key) {
         Runnable runnable = cacheAccess.acquireFileLock();
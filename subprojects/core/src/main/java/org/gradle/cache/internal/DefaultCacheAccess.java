@@ -19,12 +19,15 @@ import com.google.common.base.Objects;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.PersistentIndexedCacheParameters.StorageFormat;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.SystemProperties;
@@ -139,6 +142,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     @Override
     public synchronized void close() {
+        CacheAccessWorker worker = cacheAccessWorker;
         if (cacheAccessWorker != null) {
             cacheAccessWorker.stop();
             cacheAccessWorker = null;
@@ -163,6 +167,32 @@ public class DefaultCacheAccess implements CacheCoordinator {
             fileLockHeldByOwner = null;
             lock.unlock();
         }
+        if (worker != null && worker.getStatistics().getOperations() > 0) {
+            LOG.info("Cache operations for {}", getStatistics(worker));
+        }
+    }
+
+    @Override
+    public CacheAccessStatistics getStatistics() {
+        CacheAccessWorker worker;
+        synchronized (this) {
+            worker = cacheAccessWorker;
+        }
+        return getStatistics(worker);
+    }
+
+    private CacheAccessStatistics getStatistics(@Nullable CacheAccessWorker worker) {
+        CacheAccessStatistics statistics = worker == null ? CacheAccessStatistics.idle(cacheDisplayName) : worker.getStatistics();
+        List<CacheAccessStatistics.IndexedCacheStatistics> indexedCaches = new ArrayList<CacheAccessStatistics.IndexedCacheStatistics>();
+        lock.lock();
+        try {
+            for (IndexedCacheEntry entry : caches.values()) {
+                indexedCaches.add(new CacheAccessStatistics.IndexedCacheStatistics(entry.getCacheId(), entry.getParameters().getCacheName(), entry.getStore().getBytesWritten()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return statistics.withIndexedCaches(indexedCaches);
     }
 
     @Override
@@ -328,18 +358,19 @@ public class DefaultCacheAccess implements CacheCoordinator {
         IndexedCacheEntry entry = caches.get(parameters.getCacheName());
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final File cacheFile = new File(baseDir, parameters.getCacheName() + parameters.getStorageFormat().getFileExtension());
                 LOG.info("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-                    public BTreePersistentIndexedCache<K, V> create() {
-                        return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                Factory<PersistentIndexedStore<K, V>> indexedCacheFactory = new Factory<PersistentIndexedStore<K, V>>() {
+                    public PersistentIndexedStore<K, V> create() {
+                        return doCreateCache(cacheFile, parameters);
                     }
                 };
 
-                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                DefaultMultiProcessSafePersistentIndexedCache<K, V> store = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = store;
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
-                    indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
+                    indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), parameters.getValueSerializer(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
                     if (fileLock == null) {
                         useCache(new Runnable() {
                             @Override
@@ -349,7 +380,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         });
                     }
                 }
-                entry = new IndexedCacheEntry(parameters, indexedCache);
+                entry = new IndexedCacheEntry(parameters, cacheFile.getAbsolutePath(), store, indexedCache);
                 caches.put(parameters.getCacheName(), entry);
                 if (fileLock != null) {
                     indexedCache.afterLockAcquire(stateAtOpen);
@@ -363,8 +394,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return entry.getCache();
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    <K, V> PersistentIndexedStore<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
+        // Each format uses its own file, so a file in another format is left alone for the Gradle versions that still use it
+        if (parameters.getStorageFormat() == StorageFormat.APPEND_ONLY_LOG) {
+            return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        }
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
     }
 
     /**
@@ -473,13 +508,28 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private static class IndexedCacheEntry {
         private final MultiProcessSafePersistentIndexedCache cache;
+        private final DefaultMultiProcessSafePersistentIndexedCache store;
+        private final String cacheId;
         private final PersistentIndexedCacheParameters parameters;
 
-        IndexedCacheEntry(PersistentIndexedCacheParameters parameters, MultiProcessSafePersistentIndexedCache cache) {
+        IndexedCacheEntry(PersistentIndexedCacheParameters parameters, String cacheId, DefaultMultiProcessSafePersistentIndexedCache store, MultiProcessSafePersistentIndexedCache cache) {
             this.parameters = parameters;
+            this.cacheId = cacheId;
+            this.store = store;
             this.cache = cache;
         }
 
+        public String getCacheId() {
+            return cacheId;
+        }
+
+        /**
+         * Returns the undecorated cache, which writes to the cache file.
+         */
+        public DefaultMultiProcessSafePersistentIndexedCache getStore() {
+            return store;
+        }
+
         public MultiProcessSafePersistentIndexedCache getCache() {
             return cache;
         }
@@ -495,6 +545,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleStorageFormat(faultMessages, parameters.getStorageFormat());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -537,6 +588,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleStorageFormat(Collection<String> faultMessages, StorageFormat storageFormat) {
+            if (storageFormat != parameters.getStorageFormat()) {
+                faultMessages.add(
+                    String.format(" * Requested storage format (%s) doesn't match current storage format (%s)",
+                        storageFormat, parameters.getStorageFormat()));
+            }
+        }
     }
 
     private static class InvalidCacheReuseException extends GradleException {
@@ -32,8 +32,10 @@ import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
@@ -66,6 +68,20 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
         }
     }
 
+    @Override
+    public List<CacheAccessStatistics> getStatistics() {
+        lock.lock();
+        try {
+            List<CacheAccessStatistics> statistics = new ArrayList<CacheAccessStatistics>(dirCaches.size());
+            for (DirCacheReference dirCacheReference : dirCaches.values()) {
+                statistics.add(dirCacheReference.cache.getStatistics());
+            }
+            return statistics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void close() {
         lock.lock();
         try {
@@ -16,22 +16,25 @@
 package org.gradle.cache.internal;
 
 import org.gradle.api.Transformer;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.Map;
+
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<PersistentIndexedStore<K, V>> factory;
+    private volatile PersistentIndexedStore<K, V> cache;
+    // The bytes written by the stores that have been closed
+    private volatile long bytesWritten;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<PersistentIndexedStore<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
 
     @Override
     public V get(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
@@ -55,7 +58,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -65,9 +68,21 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         });
     }
 
+    @Override
+    public void putAll(final Map<K, V> entries) {
+        final PersistentIndexedStore<K, V> cache = getCache();
+        // Use writeFile because the cache can internally recover from datafile
+        // corruption, so we don't care at this level if it's corrupt
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                cache.putAll(entries);
+            }
+        });
+    }
+
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -91,16 +106,25 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
                     }
                 });
             } finally {
+                bytesWritten += cache.getBytesWritten();
                 cache = null;
             }
         }
     }
 
+    /**
+     * Returns the number of bytes written to the cache file through this cache, across all the times the file was opened.
+     */
+    public long getBytesWritten() {
+        PersistentIndexedStore<K, V> cache = this.cache;
+        return bytesWritten + (cache == null ? 0 : cache.getBytesWritten());
+    }
+
     @Override
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
+    private PersistentIndexedStore<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
@@ -119,6 +119,11 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
         return cacheAccess.newCache(new PersistentIndexedCacheParameters<K, V>(name, keyType, valueSerializer));
     }
 
+    @Override
+    public CacheAccessStatistics getStatistics() {
+        return cacheAccess.getStatistics();
+    }
+
     @Override
     public <T> T withFileLock(Factory<? extends T> action) {
         return cacheAccess.withFileLock(action);
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+/**
+ * An update of a single entry of an indexed cache, as submitted by {@link AsyncCacheAccessDecoratedCache}.
+ * When run, the update is applied on its own. {@link CacheAccessWorker} instead collects updates into an {@link IndexedCacheUpdateBatch}.
+ */
+class IndexedCacheUpdate<K, V> implements Runnable {
+    final MultiProcessSafePersistentIndexedCache<K, V> cache;
+    final K key;
+    final V value;
+    final boolean removal;
+    final Runnable completion;
+
+    private IndexedCacheUpdate(MultiProcessSafePersistentIndexedCache<K, V> cache, K key, V value, boolean removal, Runnable completion) {
+        this.cache = cache;
+        this.key = key;
+        this.value = value;
+        this.removal = removal;
+        this.completion = completion;
+    }
+
+    static <K, V> IndexedCacheUpdate<K, V> put(MultiProcessSafePersistentIndexedCache<K, V> cache, K key, V value, Runnable completion) {
+        return new IndexedCacheUpdate<K, V>(cache, key, value, false, completion);
+    }
+
+    static <K, V> IndexedCacheUpdate<K, V> remove(MultiProcessSafePersistentIndexedCache<K, V> cache, K key, Runnable completion) {
+        return new IndexedCacheUpdate<K, V>(cache, key, null, true, completion);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (removal) {
+                cache.remove(key);
+            } else {
+                cache.put(key, value);
+            }
+        } finally {
+            completion.run();
+        }
+    }
+}
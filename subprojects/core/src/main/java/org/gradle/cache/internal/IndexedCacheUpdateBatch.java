@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects updates of indexed caches so that they can be applied together. Only the last update of each entry is applied, and the puts to
+ * each cache are applied as a single {@link MultiProcessSafePersistentIndexedCache#putAll(Map)}.
+ *
+ * <p>Updates of different entries can be applied in any order, so the batch must be applied before any operation that may observe the
+ * state of the caches runs.</p>
+ */
+class IndexedCacheUpdateBatch {
+    private final Map<MultiProcessSafePersistentIndexedCache<?, ?>, PendingUpdates<?, ?>> pendingUpdates = new LinkedHashMap<MultiProcessSafePersistentIndexedCache<?, ?>, PendingUpdates<?, ?>>();
+    private final List<Runnable> completions = new ArrayList<Runnable>();
+    private int coalescedUpdates;
+
+    public <K, V> void add(IndexedCacheUpdate<K, V> update) {
+        PendingUpdates<K, V> updates = Cast.uncheckedCast(pendingUpdates.get(update.cache));
+        if (updates == null) {
+            updates = new PendingUpdates<K, V>(update.cache);
+            pendingUpdates.put(update.cache, updates);
+        }
+        if (updates.add(update)) {
+            coalescedUpdates++;
+        }
+        completions.add(update.completion);
+    }
+
+    public boolean isEmpty() {
+        return completions.isEmpty();
+    }
+
+    public int size() {
+        return completions.size();
+    }
+
+    /**
+     * Returns the number of updates that were replaced by a later update of the same entry.
+     */
+    public int getCoalescedUpdates() {
+        return coalescedUpdates;
+    }
+
+    /**
+     * Applies the pending updates, then runs the completion actions of all updates, including those that were replaced. Resets this batch.
+     */
+    public void apply(ExecutorPolicy.CatchAndRecordFailures failureHandler) {
+        try {
+            for (PendingUpdates<?, ?> updates : pendingUpdates.values()) {
+                failureHandler.onExecute(updates);
+            }
+        } finally {
+            for (Runnable completion : completions) {
+                failureHandler.onExecute(completion);
+            }
+            pendingUpdates.clear();
+            completions.clear();
+            coalescedUpdates = 0;
+        }
+    }
+
+    private static class PendingUpdates<K, V> implements Runnable {
+        private final MultiProcessSafePersistentIndexedCache<K, V> cache;
+        private final Map<K, IndexedCacheUpdate<K, V>> updates = new LinkedHashMap<K, IndexedCacheUpdate<K, V>>();
+
+        PendingUpdates(MultiProcessSafePersistentIndexedCache<K, V> cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Returns true when the update replaces an earlier update of the same entry.
+         */
+        boolean add(IndexedCacheUpdate<K, V> update) {
+            return updates.put(update.key, update) != null;
+        }
+
+        @Override
+        public void run() {
+            Map<K, V> puts = new LinkedHashMap<K, V>();
+            for (IndexedCacheUpdate<K, V> update : updates.values()) {
+                if (update.removal) {
+                    cache.remove(update.key);
+                } else {
+                    puts.put(update.key, update.value);
+                }
+            }
+            if (!puts.isEmpty()) {
+                cache.putAll(puts);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return updates.size() + " updates of " + cache;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.api.Action;
+import org.gradle.cache.PersistentCache;
+import org.gradle.internal.time.TimeProvider;
+import org.gradle.internal.time.Timer;
+import org.gradle.internal.time.Timers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Removes the least recently used entries from a cache directory until the cache fits into the given target size.
+ * Entries that have not been used for longer than the given maximum age are removed regardless of the size of the cache.
+ *
+ * <p>The last modified time of an entry is used as its last access time. The cache is expected to update it whenever an entry is used.</p>
+ *
+ * <p>The cleanup must be run while holding the lock of the cache.</p>
+ */
+public class LeastRecentlyUsedCacheCleanup implements Action<PersistentCache> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeastRecentlyUsedCacheCleanup.class);
+    private static final Comparator<CacheEntry> MOST_RECENTLY_USED_FIRST = new Comparator<CacheEntry>() {
+        @Override
+        public int compare(CacheEntry o1, CacheEntry o2) {
+            return o1.lastUsed < o2.lastUsed ? 1 : (o1.lastUsed == o2.lastUsed ? 0 : -1);
+        }
+    };
+
+    private final FileFilter entryFilter;
+    private final long targetSizeInBytes;
+    private final long maxAgeInMillis;
+    private final TimeProvider timeProvider;
+
+    /**
+     * @param entryFilter selects the files in the cache directory that are cache entries.
+     * @param targetSizeInBytes the size to shrink the cache to.
+     * @param maxAgeInMillis the time after which unused entries are removed, or a value {@code <= 0} to keep entries regardless of their age.
+     */
+    public LeastRecentlyUsedCacheCleanup(FileFilter entryFilter, long targetSizeInBytes, long maxAgeInMillis, TimeProvider timeProvider) {
+        this.entryFilter = entryFilter;
+        this.targetSizeInBytes = targetSizeInBytes;
+        this.maxAgeInMillis = maxAgeInMillis;
+        this.timeProvider = timeProvider;
+    }
+
+    @Override
+    public void execute(PersistentCache persistentCache) {
+        Timer timer = Timers.startTimer();
+        List<CacheEntry> entries = new ArrayList<CacheEntry>();
+        collectEntries(persistentCache.getBaseDir(), entries);
+        Collections.sort(entries, MOST_RECENTLY_USED_FIRST);
+
+        long oldestRetained = maxAgeInMillis > 0 ? timeProvider.getCurrentTime() - maxAgeInMillis : Long.MIN_VALUE;
+        long retainedBytes = 0;
+        long deletedBytes = 0;
+        int deletedEntries = 0;
+        boolean full = false;
+        for (CacheEntry entry : entries) {
+            if (!full && entry.lastUsed >= oldestRetained && retainedBytes + entry.length <= targetSizeInBytes) {
+                retainedBytes += entry.length;
+                continue;
+            }
+            // Everything used less recently than the first entry that does not fit is removed as well
+            full = true;
+            if (entry.file.delete()) {
+                deletedBytes += entry.length;
+                deletedEntries++;
+            } else {
+                LOGGER.debug("Could not delete {} from {}.", entry.file, persistentCache);
+            }
+        }
+
+        LOGGER.info("{} cleanup removed {} entries ({} bytes), retained {} entries ({} bytes) in {}.", persistentCache, deletedEntries, deletedBytes, entries.size() - deletedEntries, retainedBytes, timer.getElapsed());
+    }
+
+    private void collectEntries(File dir, List<CacheEntry> entries) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectEntries(file, entries);
+            } else if (entryFilter.accept(file)) {
+                entries.add(new CacheEntry(file, file.lastModified(), file.length()));
+            }
+        }
+    }
+
+    private static class CacheEntry {
+        private final File file;
+        private final long lastUsed;
+        private final long length;
+
+        private CacheEntry(File file, long lastUsed, long length) {
+            this.file = file;
+            this.lastUsed = lastUsed;
+            this.length = length;
+        }
+    }
+}
@@ -17,8 +17,14 @@ package org.gradle.cache.internal;
 
 import org.gradle.cache.PersistentIndexedCache;
 
+import java.util.Map;
+
 /**
  * A {@link PersistentIndexedCache} implementation that is aware of file locking.
  */
 public interface MultiProcessSafePersistentIndexedCache<K, V> extends PersistentIndexedCache<K, V>, UnitOfWorkParticipant {
+    /**
+     * Maps each of the given keys to its value, replacing any existing values. The backing store may apply the entries as a single update.
+     */
+    void putAll(Map<K, V> entries);
 }
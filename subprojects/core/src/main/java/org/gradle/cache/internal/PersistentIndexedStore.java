@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.api.Nullable;
+
+import java.util.Map;
+
+/**
+ * The file backed store of key-value pairs behind a {@link MultiProcessSafePersistentIndexedCache}. Implementations do not deal with file locking.
+ */
+public interface PersistentIndexedStore<K, V> {
+    @Nullable
+    V get(K key);
+
+    void put(K key, V value);
+
+    void putAll(Map<K, V> entries);
+
+    void remove(K key);
+
+    /**
+     * Returns the number of bytes written to the backing file since this store was opened.
+     */
+    long getBytesWritten();
+
+    void close();
+}
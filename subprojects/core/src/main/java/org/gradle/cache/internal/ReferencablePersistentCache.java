@@ -25,4 +25,9 @@ public interface ReferencablePersistentCache extends PersistentCache, Closeable
     void close();
 
     ReferencablePersistentCache open();
+
+    /**
+     * Returns a snapshot of the statistics of this cache. The cache must be open.
+     */
+    CacheAccessStatistics getStatistics();
 }
@@ -16,6 +16,8 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedStore;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.io.StreamByteBuffer;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
@@ -32,26 +34,35 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
 // todo - don't store null links to child blocks in leaf index blocks
 // todo - align block boundaries
-// todo - thread safety control
 // todo - merge small values into a single data block
 // todo - discard when file corrupt
 // todo - include data directly in index entry when serializer can guarantee small fixed sized data
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
-public class BTreePersistentIndexedCache<K, V> {
+/**
+ * A persistent B-tree backed by a single file. Multiple threads may call {@link #get(Object)} concurrently; all other operations are exclusive.
+ */
+public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedStore<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    // Mapped files cannot be truncated on Windows
+    private static final boolean MEMORY_MAPPING_SUPPORTED = !OperatingSystem.current().isWindows();
     private final File cacheFile;
     private final KeyHasher<K> keyHasher;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final FileBackedBlockStore fileStore;
     private final StateCheckBlockStore store;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private HeaderBlock header;
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
@@ -60,12 +71,18 @@ public class BTreePersistentIndexedCache<K, V> {
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, MEMORY_MAPPING_SUPPORTED);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped) {
         this.cacheFile = cacheFile;
         this.keyHasher = new KeyHasher<K>(keySerializer);
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        fileStore = new FileBackedBlockStore(cacheFile, memoryMapped);
+        BlockStore cachingStore = new CachingBlockStore(fileStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -118,6 +135,7 @@ public class BTreePersistentIndexedCache<K, V> {
 
     public V get(K key) {
         try {
+            lock.readLock().lock();
             try {
                 DataBlock block = header.getRoot().get(key);
                 if (block != null) {
@@ -125,8 +143,16 @@ public class BTreePersistentIndexedCache<K, V> {
                 }
                 return null;
             } catch (CorruptedCacheException e) {
+                // Fall through to rebuild, which requires exclusive access
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
                 rebuild();
                 return null;
+            } finally {
+                lock.writeLock().unlock();
             }
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
@@ -134,31 +160,56 @@ public class BTreePersistentIndexedCache<K, V> {
     }
 
     public void put(K key, V value) {
+        lock.writeLock().lock();
         try {
-            long hashCode = keyHasher.getHashCode(key);
-            Lookup lookup = header.getRoot().find(hashCode);
-            DataBlock newBlock = null;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                DataBlockUpdateResult updateResult = block.useNewValue(value);
-                if (updateResult.isFailed()) {
-                    store.remove(block);
-                    newBlock = new DataBlock(value, updateResult.getSerializedValue());
-                }
-            } else {
-                newBlock = new DataBlock(value);
-            }
-            if (newBlock != null) {
-                store.write(newBlock);
-                lookup.indexBlock.put(hashCode, newBlock.getPos());
-            }
+            doPut(key, value);
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given entries, writing the modified blocks once all entries have been added.
+     */
+    public void putAll(Map<K, V> entries) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<K, V> entry : entries.entrySet()) {
+                doPut(entry.getKey(), entry.getValue());
+            }
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add %d entries to %s.", entries.size(), this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doPut(K key, V value) throws Exception {
+        long hashCode = keyHasher.getHashCode(key);
+        Lookup lookup = header.getRoot().find(hashCode);
+        DataBlock newBlock = null;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            DataBlockUpdateResult updateResult = block.useNewValue(value);
+            if (updateResult.isFailed()) {
+                store.remove(block);
+                newBlock = new DataBlock(value, updateResult.getSerializedValue());
+            }
+        } else {
+            newBlock = new DataBlock(value);
+        }
+        if (newBlock != null) {
+            store.write(newBlock);
+            lookup.indexBlock.put(hashCode, newBlock.getPos());
         }
     }
 
     public void remove(K key) {
+        lock.writeLock().lock();
         try {
             Lookup lookup = header.getRoot().find(key);
             if (lookup.entry == null) {
@@ -170,6 +221,8 @@ public class BTreePersistentIndexedCache<K, V> {
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -182,25 +235,42 @@ public class BTreePersistentIndexedCache<K, V> {
     }
 
     public void reset() {
-        close();
+        lock.writeLock().lock();
         try {
-            open();
-        } catch (Exception e) {
-            throw new UncheckedIOException(e);
+            close();
+            try {
+                open();
+            } catch (Exception e) {
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
+    public long getBytesWritten() {
+        return fileStore.getBytesWritten();
+    }
+
     public void close() {
         LOGGER.debug("Closing {}", this);
+        lock.writeLock().lock();
         try {
             store.close();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public boolean isOpen() {
-        return store.isOpen();
+        lock.readLock().lock();
+        try {
+            return store.isOpen();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     private void rebuild() throws Exception {
@@ -211,11 +281,14 @@ public class BTreePersistentIndexedCache<K, V> {
     }
 
     public void verify() {
+        lock.writeLock().lock();
         try {
             doVerify();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Some problems were found when checking the integrity of %s.",
                     this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
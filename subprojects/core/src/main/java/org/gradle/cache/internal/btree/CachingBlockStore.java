@@ -25,6 +25,10 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Caches blocks of the given types in memory, and keeps written blocks in memory until the store is flushed.
+ * Reads may happen concurrently, but not concurrently with writes.
+ */
 public class CachingBlockStore implements BlockStore {
     private final BlockStore store;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
@@ -81,11 +85,7 @@ public class CachingBlockStore implements BlockStore {
     }
 
     public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
-        T block = payloadType.cast(dirty.get(pos));
-        if (block != null) {
-            return block;
-        }
-        block = maybeGetFromCache(pos, payloadType);
+        T block = maybeGetFromCache(pos, payloadType);
         if (block != null) {
             return block;
         }
@@ -95,7 +95,11 @@ public class CachingBlockStore implements BlockStore {
     }
 
     @Nullable
-    private <T extends BlockPayload> T maybeGetFromCache(BlockPointer pos, Class<T> payloadType) {
+    private synchronized <T extends BlockPayload> T maybeGetFromCache(BlockPointer pos, Class<T> payloadType) {
+        T block = payloadType.cast(dirty.get(pos));
+        if (block != null) {
+            return block;
+        }
         if (cachableTypes.contains(payloadType)) {
             return payloadType.cast(indexBlockCache.get(pos));
         }
@@ -108,7 +112,7 @@ public class CachingBlockStore implements BlockStore {
         dirty.put(block.getPos(), block);
     }
 
-    private <T extends BlockPayload> void maybeCache(T block) {
+    private synchronized <T extends BlockPayload> void maybeCache(T block) {
         if (isCacheable(block)) {
             indexBlockCache.put(block.getPos(), block);
         }
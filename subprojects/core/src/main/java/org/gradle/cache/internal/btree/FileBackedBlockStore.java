@@ -19,21 +19,42 @@ import org.gradle.api.UncheckedIOException;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
+/**
+ * A {@link BlockStore} backed by a single file. Blocks are written through a {@link RandomAccessFile}.
+ *
+ * <p>When memory mapping is enabled, blocks are read from a read-only mapping of the file, so that multiple threads can read blocks concurrently
+ * without sharing a file position. The mapping is replaced when a block beyond its end is read. Otherwise, reads are serialized.</p>
+ *
+ * <p>Reads may happen concurrently with each other, but not with writes or with opening, clearing or closing the store.</p>
+ */
 public class FileBackedBlockStore implements BlockStore {
     private final File cacheFile;
+    private final boolean memoryMapped;
     private RandomAccessFile file;
     private ByteOutput output;
     private ByteInput input;
     private long nextBlock;
     private Factory factory;
-    private long currentFileSize;
+    private volatile long currentFileSize;
+    private volatile long totalBytesWritten;
+    private volatile ByteBuffer mappedFile;
 
     public FileBackedBlockStore(File cacheFile) {
+        this(cacheFile, false);
+    }
+
+    public FileBackedBlockStore(File cacheFile, boolean memoryMapped) {
         this.cacheFile = cacheFile;
+        this.memoryMapped = memoryMapped;
     }
 
     @Override
@@ -59,6 +80,7 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void close() {
+        mappedFile = null;
         try {
             file.close();
         } catch (IOException e) {
@@ -67,6 +89,7 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void clear() {
+        mappedFile = null;
         try {
             file.setLength(0);
             currentFileSize = 0;
@@ -90,6 +113,13 @@ public class FileBackedBlockStore implements BlockStore {
     public void flush() {
     }
 
+    /**
+     * Returns the number of bytes of blocks written to the file since this store was created.
+     */
+    public long getBytesWritten() {
+        return totalBytesWritten;
+    }
+
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
         return read(new BlockPointer(0), payloadType);
     }
@@ -119,6 +149,32 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    /**
+     * Returns a buffer containing the file contents up to at least the given position, or null when the file cannot be mapped.
+     */
+    private ByteBuffer mappedFileContaining(long end) throws IOException {
+        if (!memoryMapped) {
+            return null;
+        }
+        ByteBuffer mapped = mappedFile;
+        if (mapped != null && mapped.capacity() >= end) {
+            return mapped;
+        }
+        synchronized (this) {
+            mapped = mappedFile;
+            if (mapped != null && mapped.capacity() >= end) {
+                return mapped;
+            }
+            long size = currentFileSize;
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer newMapping = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedFile = newMapping;
+            return newMapping;
+        }
+    }
+
     private long alloc(long length) {
         long pos = nextBlock;
         nextBlock += length;
@@ -198,6 +254,7 @@ public class FileBackedBlockStore implements BlockStore {
             }
             outputStream.writeInt((int) bytesWritten);
             output.done();
+            totalBytesWritten += HEADER_SIZE + bytesWritten + TAIL_SIZE;
 
             // Pad
             if (currentFileSize < finalSize) {
@@ -213,6 +270,15 @@ public class FileBackedBlockStore implements BlockStore {
                 throw blockCorruptedException();
             }
 
+            ByteBuffer mapped = mappedFileContaining(pos + HEADER_SIZE);
+            if (mapped == null || !readMapped(mapped, pos)) {
+                synchronized (input) {
+                    readFromFile(pos);
+                }
+            }
+        }
+
+        private void readFromFile(long pos) throws Exception {
             DataInputStream inputStream = input.start(pos);
 
             BlockPayload payload = getPayload();
@@ -239,10 +305,91 @@ public class FileBackedBlockStore implements BlockStore {
             input.done();
         }
 
+        /**
+         * Reads this block from the given mapping. Returns false when the block extends beyond the region of the file that can be mapped.
+         */
+        private boolean readMapped(ByteBuffer mapped, long pos) throws Exception {
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) pos);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = buffer.get();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+            payloadSize = buffer.getInt();
+            long end = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            if (end > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            if (end > buffer.capacity()) {
+                ByteBuffer remapped = mappedFileContaining(end);
+                if (remapped == null) {
+                    return false;
+                }
+                buffer = remapped.duplicate();
+                buffer.position((int) pos + HEADER_SIZE);
+            }
+            buffer.limit((int) end);
+
+            // Read body
+            try {
+                payload.read(new DataInputStream(new ByteBufferInputStream(buffer)));
+            } catch (EOFException e) {
+                throw blockCorruptedException();
+            }
+
+            // Read and verify count
+            long actualCount = buffer.position() - pos;
+            if (buffer.remaining() < TAIL_SIZE) {
+                throw blockCorruptedException();
+            }
+            long count = buffer.getInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+            return true;
+        }
+
         public RuntimeException blockCorruptedException() {
             return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
                     FileBackedBlockStore.this));
         }
     }
 
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedStore;
+import org.gradle.cache.internal.logstructured.jdk7.Jdk7FileReplacer;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent store that appends every update to the end of a log file and keeps an in-memory index from each key to the location of its latest value.
+ *
+ * <p>The file starts with a header, followed by a sequence of records. Each record consists of the key length, the value length (or -1 when the entry was removed),
+ * a CRC32 checksum of the key and value, then the serialized key and value. The index is rebuilt by scanning the file when it is opened. A record with a bad checksum,
+ * for example one that was partially written when the process was killed, and everything after it are discarded.</p>
+ *
+ * <p>When an update leaves most of the file taken up by stale records, the live entries are copied to a new file which replaces the log. Updates are
+ * only made while holding the lock of the cache, so no other process accesses the file during compaction.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements PersistentIndexedStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final int MAGIC = 0x474c4f47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int REMOVED = -1;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final File cacheFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Map<KeyBytes, Entry> index = new HashMap<KeyBytes, Entry>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long endOfLog;
+    private long staleBytes;
+    private volatile long bytesWritten;
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.cacheFile = cacheFile;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        cacheFile.getParentFile().mkdirs();
+        file = new RandomAccessFile(cacheFile, "rw");
+        channel = file.getChannel();
+        long length = channel.size();
+        if (length >= HEADER_SIZE && file.readInt() == MAGIC && file.readInt() == VERSION) {
+            readLog(length);
+        } else {
+            if (length > 0) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+            }
+            file.setLength(0);
+            file.seek(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            endOfLog = HEADER_SIZE;
+        }
+    }
+
+    private void readLog(long length) throws IOException {
+        long pos = HEADER_SIZE;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(pos))));
+        CRC32 checksum = new CRC32();
+        try {
+            while (pos < length) {
+                if (pos + RECORD_HEADER_SIZE > length) {
+                    break;
+                }
+                int keyLength = input.readInt();
+                int valueLength = input.readInt();
+                int expectedChecksum = input.readInt();
+                // Check the lengths against the rest of the file before allocating anything, a corrupt header can contain any value
+                long remaining = length - pos - RECORD_HEADER_SIZE;
+                if (keyLength < 0 || valueLength < REMOVED || keyLength > remaining || Math.max(valueLength, 0) > remaining - keyLength) {
+                    break;
+                }
+                long recordSize = recordSize(keyLength, valueLength);
+                byte[] key = new byte[keyLength];
+                input.readFully(key);
+                byte[] value = new byte[Math.max(valueLength, 0)];
+                input.readFully(value);
+                checksum.reset();
+                checksum.update(key);
+                checksum.update(value);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    break;
+                }
+                if (valueLength == REMOVED) {
+                    discard(index.remove(new KeyBytes(key)));
+                    staleBytes += recordSize;
+                } else {
+                    discard(index.put(new KeyBytes(key), new Entry(pos + RECORD_HEADER_SIZE + keyLength, valueLength, recordSize)));
+                }
+                pos += recordSize;
+            }
+        } catch (EOFException e) {
+            // Truncated record, discard below
+        }
+        if (pos < length) {
+            LOGGER.warn("{} contains a corrupt entry. Discarding the entries after it.", this);
+            file.setLength(pos);
+        }
+        endOfLog = pos;
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        try {
+            Entry entry = index.get(new KeyBytes(serialize(keySerializer, key)));
+            if (entry == null) {
+                return null;
+            }
+            byte[] value = new byte[entry.valueLength];
+            readFully(channel, ByteBuffer.wrap(value), entry.valuePos);
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            long pos = append(keyBytes, valueBytes, valueBytes.length);
+            discard(index.put(new KeyBytes(keyBytes), new Entry(pos + RECORD_HEADER_SIZE + keyBytes.length, valueBytes.length, recordSize(keyBytes.length, valueBytes.length))));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+        compactIfMostlyStale();
+    }
+
+    @Override
+    public synchronized void putAll(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            Entry removed = index.remove(new KeyBytes(keyBytes));
+            if (removed == null) {
+                return;
+            }
+            discard(removed);
+            append(keyBytes, new byte[0], REMOVED);
+            staleBytes += recordSize(keyBytes.length, REMOVED);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+        compactIfMostlyStale();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            file.close();
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            index.clear();
+        }
+    }
+
+    private void compactIfMostlyStale() {
+        if (endOfLog < MIN_COMPACTION_SIZE || staleBytes * 2 <= endOfLog) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            // Carry on with the current log and try again on the next update
+            LOGGER.warn("Could not compact {}.", this, e);
+        }
+    }
+
+    /**
+     * Writes the live entries to a new file, then replaces the log with it and continues with the new file.
+     */
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}, {} of {} bytes are stale", this, staleBytes, endOfLog);
+        File compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compacting");
+        Map<KeyBytes, Entry> compactedIndex = new HashMap<KeyBytes, Entry>(index.size());
+        long pos = HEADER_SIZE;
+        boolean replaced = false;
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                for (Map.Entry<KeyBytes, Entry> entry : index.entrySet()) {
+                    byte[] key = entry.getKey().bytes;
+                    byte[] value = new byte[entry.getValue().valueLength];
+                    readFully(channel, ByteBuffer.wrap(value), entry.getValue().valuePos);
+                    writeRecord(output, key, value, value.length);
+                    long recordSize = recordSize(key.length, value.length);
+                    compactedIndex.put(entry.getKey(), new Entry(pos + RECORD_HEADER_SIZE + key.length, value.length, recordSize));
+                    pos += recordSize;
+                }
+            } finally {
+                output.close();
+            }
+            file.close();
+            try {
+                replace(compactedFile, cacheFile);
+                replaced = true;
+            } finally {
+                if (!replaced) {
+                    // Continue with whatever is left of the log
+                    index.clear();
+                    staleBytes = 0;
+                    open();
+                }
+            }
+        } finally {
+            if (!replaced) {
+                GFileUtils.deleteQuietly(compactedFile);
+            }
+        }
+        file = new RandomAccessFile(cacheFile, "rw");
+        channel = file.getChannel();
+        index.clear();
+        index.putAll(compactedIndex);
+        endOfLog = pos;
+        staleBytes = 0;
+        bytesWritten += pos;
+    }
+
+    /**
+     * Replaces the log with the compacted file. Uses an atomic move where possible, so the log is never missing or partially written.
+     */
+    private static void replace(File compactedFile, File cacheFile) throws IOException {
+        if (JavaVersion.current().isJava7Compatible()) {
+            Jdk7FileReplacer.replace(compactedFile, cacheFile);
+        } else if (!cacheFile.delete() || !compactedFile.renameTo(cacheFile)) {
+            throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile, compactedFile));
+        }
+    }
+
+    private long append(byte[] key, byte[] value, int valueLength) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream((int) recordSize(key.length, valueLength));
+        DataOutputStream output = new DataOutputStream(record);
+        writeRecord(output, key, value, valueLength);
+        output.flush();
+        long pos = endOfLog;
+        ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, pos + buffer.position());
+        }
+        endOfLog = pos + buffer.capacity();
+        bytesWritten += buffer.capacity();
+        return pos;
+    }
+
+    private static void writeRecord(DataOutputStream output, byte[] key, byte[] value, int valueLength) throws IOException {
+        CRC32 checksum = new CRC32();
+        checksum.update(key);
+        checksum.update(value);
+        output.writeInt(key.length);
+        output.writeInt(valueLength);
+        output.writeInt((int) checksum.getValue());
+        output.write(key);
+        output.write(value);
+    }
+
+    private void discard(Entry entry) {
+        if (entry != null) {
+            staleBytes += entry.recordSize;
+        }
+    }
+
+    private static long recordSize(int keyLength, int valueLength) {
+        return (long) RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(output);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return output.toByteArray();
+    }
+
+    private static class Entry {
+        private final long valuePos;
+        private final int valueLength;
+        private final long recordSize;
+
+        private Entry(long valuePos, int valueLength, long recordSize) {
+            this.valuePos = valuePos;
+            this.valueLength = valueLength;
+            this.recordSize = recordSize;
+        }
+    }
+
+    private static class KeyBytes {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        private KeyBytes(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            return Arrays.equals(bytes, ((KeyBytes) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Transformer;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.progress.BuildOperationDetails;
+import org.gradle.internal.progress.BuildOperationExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the work the build cache does in the background while tasks are executing, such as pushing entries to the remote cache.
+ *
+ * <p>Background work runs as build operations that are children of the operation running the build. Registered work is
+ * finished when the build finishes, while that operation is still running.</p>
+ */
+public class BuildCacheBackgroundWork extends BuildAdapter {
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final List<Stoppable> pendingWork = new CopyOnWriteArrayList<Stoppable>();
+    private volatile BuildOperationExecutor.Operation buildOperation;
+
+    public BuildCacheBackgroundWork(BuildOperationExecutor buildOperationExecutor) {
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    @Override
+    public void buildStarted(Gradle gradle) {
+        try {
+            buildOperation = buildOperationExecutor.getCurrentOperation();
+        } catch (IllegalStateException e) {
+            // The build is not running as a build operation
+            buildOperation = null;
+        }
+    }
+
+    /**
+     * Registers background work that is finished when the build finishes.
+     */
+    public void register(Stoppable work) {
+        pendingWork.add(work);
+    }
+
+    /**
+     * Runs the given background work as a build operation that is a child of the operation running the build.
+     */
+    public <T> T run(String displayName, Transformer<T, ? super BuildOperationContext> work) {
+        BuildOperationDetails.Builder details = BuildOperationDetails.displayName(displayName);
+        BuildOperationExecutor.Operation parent = buildOperation;
+        if (parent != null) {
+            details.parent(parent);
+        }
+        return buildOperationExecutor.run(details.build(), work);
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        try {
+            CompositeStoppable.stoppable(pendingWork).stop();
+        } finally {
+            pendingWork.clear();
+            buildOperation = null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import com.google.common.io.Files;
+import org.gradle.api.Transformer;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.time.Timer;
+import org.gradle.internal.time.Timers;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores cache entries in a build cache in the background.
+ *
+ * <p>At most a given number of entries can be waiting to be stored. When the queue is full, further entries are dropped instead of
+ * blocking the caller. Entries are passed as files, which are deleted once the entry has been stored or dropped.</p>
+ *
+ * <p>{@link #flush()} waits for all queued entries to be stored. The queue is flushed when the build finishes, entries pushed
+ * afterwards are stored on the calling thread. Entries stored in the background are stored as build operations that are
+ * children of the operation running the build.</p>
+ */
+class BuildCachePushQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildCachePushQueue.class);
+
+    private final BuildCacheService target;
+    private final ExecutorFactory executorFactory;
+    private final BuildCacheBackgroundWork backgroundWork;
+    private final int threads;
+    private final int maxQueuedEntries;
+    private final AtomicInteger queuedEntries = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicInteger storedEntries = new AtomicInteger();
+    private final AtomicInteger droppedEntries = new AtomicInteger();
+    private final AtomicInteger failedEntries = new AtomicInteger();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicBoolean disabled = new AtomicBoolean();
+    private StoppableExecutor executor;
+    private boolean flushed;
+
+    BuildCachePushQueue(BuildCacheService target, ExecutorFactory executorFactory, BuildCacheBackgroundWork backgroundWork, int threads, int maxQueuedEntries) {
+        this.target = target;
+        this.executorFactory = executorFactory;
+        this.backgroundWork = backgroundWork;
+        this.threads = threads;
+        this.maxQueuedEntries = maxQueuedEntries;
+        backgroundWork.register(new Stoppable() {
+            @Override
+            public void stop() {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Queues the given entry to be stored. Takes ownership of the file.
+     */
+    public void push(BuildCacheKey key, File entry) {
+        if (disabled.get()) {
+            droppedEntries.incrementAndGet();
+            GFileUtils.deleteQuietly(entry);
+            return;
+        }
+        if (!enqueue(key, entry)) {
+            // The queue has already been flushed, nothing would wait for a background push
+            try {
+                store(key, entry);
+            } finally {
+                GFileUtils.deleteQuietly(entry);
+            }
+        }
+    }
+
+    private synchronized boolean enqueue(final BuildCacheKey key, final File entry) {
+        if (flushed) {
+            return false;
+        }
+        int depth = queuedEntries.incrementAndGet();
+        if (depth > maxQueuedEntries) {
+            queuedEntries.decrementAndGet();
+            droppedEntries.incrementAndGet();
+            LOGGER.info("Not storing entry {} in {}, too many entries are waiting to be stored.", key, target.getDescription());
+            GFileUtils.deleteQuietly(entry);
+            return true;
+        }
+        updateMaxQueueDepth(depth);
+        if (executor == null) {
+            executor = executorFactory.create("Build cache push", threads);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    storeInBackground(key, entry);
+                } finally {
+                    queuedEntries.decrementAndGet();
+                    GFileUtils.deleteQuietly(entry);
+                }
+            }
+        });
+        return true;
+    }
+
+    private void storeInBackground(final BuildCacheKey key, final File entry) {
+        backgroundWork.run("Push entry " + key + " to " + target.getDescription(), new Transformer<Void, BuildOperationContext>() {
+            @Override
+            public Void transform(BuildOperationContext context) {
+                store(key, entry);
+                return null;
+            }
+        });
+    }
+
+    private void store(BuildCacheKey key, final File entry) {
+        if (disabled.get()) {
+            droppedEntries.incrementAndGet();
+            return;
+        }
+        try {
+            target.store(key, new BuildCacheEntryWriter() {
+                @Override
+                public void writeTo(OutputStream output) throws IOException {
+                    Files.copy(entry, output);
+                }
+            });
+            storedEntries.incrementAndGet();
+            storedBytes.addAndGet(entry.length());
+        } catch (BuildCacheException e) {
+            failedEntries.incrementAndGet();
+            LOGGER.info("Could not store entry {} in {}.", key, target.getDescription(), e);
+        } catch (RuntimeException e) {
+            // Non-recoverable problem, like an authentication failure: stop pushing
+            failedEntries.incrementAndGet();
+            if (disabled.compareAndSet(false, true)) {
+                LOGGER.warn("Could not store entry {} in {}, no further entries will be stored: {}", key, target.getDescription(), e.getMessage());
+            }
+        }
+    }
+
+    private void updateMaxQueueDepth(int depth) {
+        int max;
+        do {
+            max = maxQueueDepth.get();
+        } while (depth > max && !maxQueueDepth.compareAndSet(max, depth));
+    }
+
+    /**
+     * Waits for all queued entries to be stored. Entries pushed afterwards are stored right away.
+     */
+    public void flush() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            flushed = true;
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        int pending = queuedEntries.get();
+        Timer timer = Timers.startTimer();
+        executor.stop();
+        LOGGER.info("Waited {} for {} entries to be stored in {}.", timer.getElapsed(), pending, target.getDescription());
+        LOGGER.info("Stored {} entries ({} bytes) in {} in the background, dropped {} entries, {} entries failed, maximum queue depth was {}.",
+            storedEntries.get(), storedBytes.get(), target.getDescription(), droppedEntries.get(), failedEntries.get(), maxQueueDepth.get());
+    }
+
+    int getStoredEntries() {
+        return storedEntries.get();
+    }
+
+    long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    int getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+}
@@ -24,6 +24,7 @@ import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.configuration.BuildCache;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.progress.BuildOperationExecutor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.util.SingleMessageLogger;
@@ -35,20 +36,26 @@ import javax.inject.Inject;
 public class BuildCacheServiceProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildCacheServiceProvider.class);
     private static final int MAX_ERROR_COUNT_FOR_BUILD_CACHE = 3;
+    private static final int REMOTE_PUSH_THREADS = 2;
+    private static final int MAX_QUEUED_REMOTE_PUSHES = 32;
 
     private final BuildCacheConfigurationInternal buildCacheConfiguration;
     private final BuildOperationExecutor buildOperationExecutor;
     private final Instantiator instantiator;
     private final StartParameter startParameter;
     private final TemporaryFileProvider temporaryFileProvider;
+    private final ExecutorFactory executorFactory;
+    private final BuildCacheBackgroundWork backgroundWork;
 
     @Inject
-    public BuildCacheServiceProvider(BuildCacheConfigurationInternal buildCacheConfiguration, StartParameter startParameter, Instantiator instantiator, BuildOperationExecutor buildOperationExecutor, TemporaryFileProvider temporaryFileProvider) {
+    public BuildCacheServiceProvider(BuildCacheConfigurationInternal buildCacheConfiguration, StartParameter startParameter, Instantiator instantiator, BuildOperationExecutor buildOperationExecutor, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, BuildCacheBackgroundWork backgroundWork) {
         this.buildCacheConfiguration = buildCacheConfiguration;
         this.startParameter = startParameter;
         this.instantiator = instantiator;
         this.buildOperationExecutor = buildOperationExecutor;
         this.temporaryFileProvider = temporaryFileProvider;
+        this.executorFactory = executorFactory;
+        this.backgroundWork = backgroundWork;
     }
 
     public BuildCacheService createBuildCacheService() {
@@ -61,14 +68,15 @@ public class BuildCacheServiceProvider {
         BuildCache local = buildCacheConfiguration.getLocal();
         BuildCache remote = buildCacheConfiguration.getRemote();
 
+        boolean remoteEnabled = remote != null && remote.isEnabled();
         RoleAwareBuildCacheService buildCacheService;
         if (local.isEnabled()) {
-            if (remote != null && remote.isEnabled()) {
+            if (remoteEnabled) {
                 buildCacheService = createDispatchingBuildCacheService(local, remote);
             } else {
                 buildCacheService = createStandaloneLocalBuildService(local);
             }
-        } else if (remote != null && remote.isEnabled()) {
+        } else if (remoteEnabled) {
             buildCacheService = createStandaloneRemoteBuildService(remote);
         } else {
             LOGGER.warn("Task output caching is enabled, but no build caches are configured or enabled.");
@@ -97,7 +105,11 @@ public class BuildCacheServiceProvider {
         return new DispatchingBuildCacheService(
             createDecoratedBuildCacheService("local", local), local.isPush(),
             createDecoratedBuildCacheService("remote", remote), remote.isPush(),
-            temporaryFileProvider
+            temporaryFileProvider,
+            executorFactory,
+            backgroundWork,
+            REMOTE_PUSH_THREADS,
+            MAX_QUEUED_REMOTE_PUSHES
         );
     }
 
@@ -117,7 +129,8 @@ public class BuildCacheServiceProvider {
 
     @VisibleForTesting
     RoleAwareBuildCacheService createDecoratedBuildCacheService(String role, BuildCache buildCache) {
-        RoleAwareBuildCacheService buildCacheService = new BuildCacheServiceWithRole(role, createRawBuildCacheService(buildCache));
+        BuildCacheService rawBuildCacheService = createRawBuildCacheService(buildCache);
+        RoleAwareBuildCacheService buildCacheService = new BuildCacheServiceWithRole(role, rawBuildCacheService);
         LOGGER.warn("Using {} as {} build cache, push is {}.", buildCacheService.getDescription(), role, buildCache.isPush() ? "enabled" : "disabled");
         buildCacheService = new BuildOperationFiringBuildCacheServiceDecorator(buildOperationExecutor, buildCacheService);
         buildCacheService = new LoggingBuildCacheServiceDecorator(buildCacheService);
@@ -17,6 +17,7 @@
 package org.gradle.caching.internal;
 
 import com.google.common.io.Closer;
+import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
@@ -26,27 +27,65 @@ import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
-import org.gradle.internal.Factory;
+import org.gradle.internal.time.TimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.None;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DirectoryBuildCacheService implements BuildCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryBuildCacheService.class);
+    private static final int SHARD_PREFIX_LENGTH = 2;
+    private static final String TEMP_FILE_SUFFIX = ".part";
+    private static final String CLEANUP_MARKER_FILE_NAME = "gc.properties";
+    private static final long CLEANUP_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long TEMP_FILE_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+    private static final Pattern CACHE_ENTRY_NAME = Pattern.compile("\\p{XDigit}+");
+    private static final Pattern TEMP_FILE_NAME = Pattern.compile("\\p{XDigit}+\\d+" + Pattern.quote(TEMP_FILE_SUFFIX));
+
+    /**
+     * Selects the cache entries in the cache directory, skipping the lock and properties files and the temporary files of stores.
+     */
+    public static final FileFilter CACHE_ENTRY_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return CACHE_ENTRY_NAME.matcher(file.getName()).matches();
+        }
+    };
+
+    /**
+     * Selects the temporary files of stores, which are either still being written by another process or left over by an interrupted store.
+     */
+    static final FileFilter TEMP_FILE_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return TEMP_FILE_NAME.matcher(file.getName()).matches();
+        }
+    };
+
     private final PersistentCache persistentCache;
+    private final Action<? super PersistentCache> cleanupAction;
+    private final TimeProvider timeProvider;
 
-    public DirectoryBuildCacheService(CacheRepository cacheRepository, File baseDir) {
+    public DirectoryBuildCacheService(CacheRepository cacheRepository, File baseDir, Action<? super PersistentCache> cleanupAction, TimeProvider timeProvider) {
         this.persistentCache = cacheRepository
             .cache(checkDirectory(baseDir))
             .withDisplayName("Build cache")
             .withLockOptions(mode(None))
             .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
             .open();
+        this.cleanupAction = cleanupAction;
+        this.timeProvider = timeProvider;
     }
 
     private static File checkDirectory(File directory) {
@@ -69,28 +108,30 @@ public class DirectoryBuildCacheService implements BuildCacheService {
     }
 
     @Override
-    public boolean load(final BuildCacheKey key, final BuildCacheEntryReader reader) throws BuildCacheException {
-        return persistentCache.useCache(new Factory<Boolean>() {
-            @Override
-            public Boolean create() {
-                File file = getFile(key.getHashCode());
-                if (file.isFile()) {
-                    try {
-                        Closer closer = Closer.create();
-                        FileInputStream stream = closer.register(new FileInputStream(file));
-                        try {
-                            reader.readFrom(stream);
-                            return true;
-                        } finally {
-                            closer.close();
-                        }
-                    } catch (IOException ex) {
-                        throw new UncheckedIOException(ex);
-                    }
-                }
-                return false;
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        // Entries are only ever made visible by an atomic rename, so they can be read without holding the cache lock
+        File file = getFile(key.getHashCode());
+        FileInputStream stream;
+        try {
+            stream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            // Either the entry does not exist, or it has just been removed by cleanup
+            return false;
+        }
+        // Mark the entry as recently used, so it is retained during cleanup
+        file.setLastModified(timeProvider.getCurrentTime());
+        try {
+            Closer closer = Closer.create();
+            closer.register(stream);
+            try {
+                reader.readFrom(stream);
+                return true;
+            } finally {
+                closer.close();
             }
-        });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     @Override
@@ -99,13 +140,33 @@ public class DirectoryBuildCacheService implements BuildCacheService {
             @Override
             public void run() {
                 File file = getFile(key.getHashCode());
+                File shardDir = file.getParentFile();
+                if (!shardDir.isDirectory() && !shardDir.mkdirs() && !shardDir.isDirectory()) {
+                    throw new UncheckedIOException(String.format("Could not create cache directory: %s", shardDir));
+                }
                 try {
-                    Closer closer = Closer.create();
-                    OutputStream output = closer.register(new FileOutputStream(file));
+                    File tempFile = File.createTempFile(key.getHashCode(), TEMP_FILE_SUFFIX, shardDir);
                     try {
-                        result.writeTo(output);
+                        Closer closer = Closer.create();
+                        FileOutputStream output = closer.register(new FileOutputStream(tempFile));
+                        try {
+                            result.writeTo(output);
+                            output.flush();
+                            output.getFD().sync();
+                        } finally {
+                            closer.close();
+                        }
+                        // Make the complete entry visible to readers in one step
+                        if (!tempFile.renameTo(file)) {
+                            // Some file systems do not allow replacing an existing file by renaming
+                            if ((file.exists() && !file.delete()) || !tempFile.renameTo(file)) {
+                                throw new UncheckedIOException(String.format("Could not move temporary file %s to %s", tempFile, file));
+                            }
+                        }
                     } finally {
-                        closer.close();
+                        if (tempFile.exists() && !tempFile.delete()) {
+                            LOGGER.debug("Could not delete temporary file {}", tempFile);
+                        }
                     }
                 } catch (IOException ex) {
                     throw new UncheckedIOException(ex);
@@ -114,8 +175,14 @@ public class DirectoryBuildCacheService implements BuildCacheService {
         });
     }
 
+    /**
+     * Entries are sharded into two levels of directories by the first characters of their key,
+     * so that no single directory contains a huge number of files.
+     */
     private File getFile(String key) {
-        return new File(persistentCache.getBaseDir(), key);
+        File firstLevel = new File(persistentCache.getBaseDir(), key.substring(0, SHARD_PREFIX_LENGTH));
+        File secondLevel = new File(firstLevel, key.substring(SHARD_PREFIX_LENGTH, 2 * SHARD_PREFIX_LENGTH));
+        return new File(secondLevel, key);
     }
 
     @Override
@@ -125,6 +192,55 @@ public class DirectoryBuildCacheService implements BuildCacheService {
 
     @Override
     public void close() throws IOException {
-        persistentCache.close();
+        try {
+            // Cleanup happens at the end of the build, so it does not hold up any task execution
+            persistentCache.useCache(new Runnable() {
+                @Override
+                public void run() {
+                    cleanupIfDue();
+                }
+            });
+        } finally {
+            persistentCache.close();
+        }
+    }
+
+    /**
+     * Runs the cleanup at most once per {@link #CLEANUP_INTERVAL}, recording the time of the last cleanup as the last modified time of a marker file in the cache directory.
+     */
+    private void cleanupIfDue() {
+        File markerFile = new File(persistentCache.getBaseDir(), CLEANUP_MARKER_FILE_NAME);
+        long now = timeProvider.getCurrentTime();
+        if (markerFile.exists() && now - markerFile.lastModified() < CLEANUP_INTERVAL) {
+            return;
+        }
+        deleteStaleTempFiles(persistentCache.getBaseDir(), now - TEMP_FILE_MAX_AGE);
+        cleanupAction.execute(persistentCache);
+        try {
+            markerFile.createNewFile();
+        } catch (IOException e) {
+            LOGGER.debug("Could not create cleanup marker file {}", markerFile, e);
+        }
+        if (!markerFile.setLastModified(now)) {
+            LOGGER.debug("Could not update cleanup marker file {}", markerFile);
+        }
+    }
+
+    /**
+     * Deletes the temporary files that have not been written to since the given time. The cache is not locked while storing entries,
+     * so more recent temporary files may belong to a store that is still in progress in another process.
+     */
+    private static void deleteStaleTempFiles(File dir, long oldestRetained) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                deleteStaleTempFiles(file, oldestRetained);
+            } else if (TEMP_FILE_FILTER.accept(file) && file.lastModified() < oldestRetained && !file.delete()) {
+                LOGGER.debug("Could not delete temporary file {}", file);
+            }
+        }
     }
 }
@@ -19,27 +19,33 @@ package org.gradle.caching.internal;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheScopeMapping;
+import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.VersionStrategy;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.internal.time.TimeProvider;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
-    
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
     private final CacheRepository cacheRepository;
     private final CacheScopeMapping cacheScopeMapping;
     private final FileResolver resolver;
+    private final TimeProvider timeProvider;
 
     @Inject
-    public DirectoryBuildCacheServiceFactory(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, FileResolver resolver) {
+    public DirectoryBuildCacheServiceFactory(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, FileResolver resolver, TimeProvider timeProvider) {
         this.cacheRepository = cacheRepository;
         this.cacheScopeMapping = cacheScopeMapping;
         this.resolver = resolver;
+        this.timeProvider = timeProvider;
     }
 
     @Override
@@ -51,6 +57,12 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
         } else {
             target = cacheScopeMapping.getBaseDirectory(null, BUILD_CACHE_KEY, VersionStrategy.SharedCache);
         }
-        return new DirectoryBuildCacheService(cacheRepository, target);
+        LeastRecentlyUsedCacheCleanup cleanup = new LeastRecentlyUsedCacheCleanup(
+            DirectoryBuildCacheService.CACHE_ENTRY_FILTER,
+            configuration.getTargetSizeInMB() * BYTES_PER_MB,
+            TimeUnit.DAYS.toMillis(configuration.getRemoveUnusedEntriesAfterDays()),
+            timeProvider
+        );
+        return new DirectoryBuildCacheService(cacheRepository, target, cleanup, timeProvider);
     }
 }
@@ -25,59 +25,122 @@ import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Combines a local and a remote build cache.
+ *
+ * <p>Entries are loaded from the local cache first. Entries found in the remote cache are copied to the local cache,
+ * so the next build finds them locally. Entries are stored in the local cache right away, and in the remote cache
+ * in the background, so that tasks do not have to wait for the upload. Pending uploads are finished when the build finishes.</p>
+ */
 public class DispatchingBuildCacheService implements RoleAwareBuildCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DispatchingBuildCacheService.class);
+
     private final RoleAwareBuildCacheService local;
     private final boolean pushToLocal;
     private final RoleAwareBuildCacheService remote;
     private final boolean pushToRemote;
     private final TemporaryFileProvider temporaryFileProvider;
+    private final BuildCachePushQueue remotePushQueue;
     private final String role;
+    private final AtomicInteger promotedEntries = new AtomicInteger();
+    private final AtomicLong promotedBytes = new AtomicLong();
 
-    DispatchingBuildCacheService(RoleAwareBuildCacheService local, boolean pushToLocal, RoleAwareBuildCacheService remote, boolean pushToRemote, TemporaryFileProvider temporaryFileProvider) {
+    DispatchingBuildCacheService(RoleAwareBuildCacheService local, boolean pushToLocal, RoleAwareBuildCacheService remote, boolean pushToRemote, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, BuildCacheBackgroundWork backgroundWork, int pushThreads, int maxQueuedPushes) {
         this.local = local;
         this.pushToLocal = pushToLocal;
         this.remote = remote;
         this.pushToRemote = pushToRemote;
         this.temporaryFileProvider = temporaryFileProvider;
+        this.remotePushQueue = new BuildCachePushQueue(remote, executorFactory, backgroundWork, pushThreads, maxQueuedPushes);
         this.role = local.getRole() + " and " + remote.getRole();
     }
 
     @Override
     public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
-        return local.load(key, reader) || remote.load(key, reader);
+        if (local.load(key, reader)) {
+            return true;
+        }
+        if (!pushToLocal) {
+            return remote.load(key, reader);
+        }
+        return loadFromRemoteAndPromote(key, reader);
+    }
+
+    private boolean loadFromRemoteAndPromote(BuildCacheKey key, BuildCacheEntryReader reader) {
+        final File destination = temporaryFileProvider.createTemporaryFile("gradle_cache", "entry");
+        try {
+            boolean found = remote.load(key, new BuildCacheEntryReader() {
+                @Override
+                public void readFrom(InputStream input) throws IOException {
+                    Files.asByteSink(destination).writeFrom(input);
+                }
+            });
+            if (!found) {
+                return false;
+            }
+            readCacheEntryLocally(reader, destination);
+            local.store(key, new CopyBuildCacheEntryWriter(destination));
+            promotedEntries.incrementAndGet();
+            promotedBytes.addAndGet(destination.length());
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            GFileUtils.deleteQuietly(destination);
+        }
+    }
+
+    private static void readCacheEntryLocally(BuildCacheEntryReader reader, File source) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(source));
+        try {
+            reader.readFrom(input);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
     }
 
     @Override
     public void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
-        if (pushToLocal && pushToRemote) {
-            pushToLocalAndRemote(key, writer);
+        if (pushToRemote) {
+            pushToRemote(key, writer);
         } else if (pushToLocal) {
             local.store(key, writer);
-        } else if (pushToRemote) {
-            remote.store(key, writer);
         }
     }
 
-    private void pushToLocalAndRemote(BuildCacheKey key, BuildCacheEntryWriter writer) {
+    private void pushToRemote(BuildCacheKey key, BuildCacheEntryWriter writer) {
         File destination = temporaryFileProvider.createTemporaryFile("gradle_cache", "entry");
+        boolean queued = false;
         try {
             writeCacheEntryLocally(writer, destination);
-            BuildCacheEntryWriter copier = new CopyBuildCacheEntryWriter(destination);
-            local.store(key, copier);
-            remote.store(key, copier);
+            if (pushToLocal) {
+                local.store(key, new CopyBuildCacheEntryWriter(destination));
+            }
+            remotePushQueue.push(key, destination);
+            queued = true;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } finally {
-            GFileUtils.deleteQuietly(destination);
+            if (!queued) {
+                GFileUtils.deleteQuietly(destination);
+            }
         }
     }
 
@@ -105,10 +168,15 @@ public class DispatchingBuildCacheService implements RoleAwareBuildCacheService
 
     @Override
     public void close() throws IOException {
-        CompositeStoppable.stoppable(local, remote).stop();
+        try {
+            remotePushQueue.flush();
+            LOGGER.info("Copied {} entries ({} bytes) from the {} to the {} build cache.", promotedEntries.get(), promotedBytes.get(), remote.getRole(), local.getRole());
+        } finally {
+            CompositeStoppable.stoppable(local, remote).stop();
+        }
     }
 
-    private class CopyBuildCacheEntryWriter implements BuildCacheEntryWriter {
+    private static class CopyBuildCacheEntryWriter implements BuildCacheEntryWriter {
         private final File source;
 
         private CopyBuildCacheEntryWriter(File source) {
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.caching.internal.tasks.compression.GZipCompressionCodec;
+import org.gradle.caching.internal.tasks.compression.TaskOutputCompressionCodec;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Compresses the packed task output with a {@link TaskOutputCompressionCodec}.
+ *
+ * <p>Entries compressed with GZip are written without a header, as before codecs were introduced.
+ * Entries compressed with any other codec start with a header identifying the codec.
+ * As this changes the layout of the entries, {@link TaskOutputPacker#CACHE_ENTRY_FORMAT} is part of the cache key.
+ * When reading, the codec is chosen based on the header of the entry, so a cache can contain entries written with different codecs.</p>
+ */
+public class CompressingTaskOutputPacker implements TaskOutputPacker, Stoppable {
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int HEADER_MAGIC_1 = 'G';
+    private static final int HEADER_MAGIC_2 = 'C';
+
+    private final TaskOutputPacker delegate;
+    private final TaskOutputCompressionCodec codec;
+    private final TaskOutputCompressionCodec gzipCodec;
+    private final ImmutableMap<Byte, TaskOutputCompressionCodec> codecsById;
+
+    /**
+     * @param codec the codec to compress packed output with.
+     * @param readableCodecs the codecs to accept when unpacking.
+     */
+    public CompressingTaskOutputPacker(TaskOutputPacker delegate, TaskOutputCompressionCodec codec, Iterable<? extends TaskOutputCompressionCodec> readableCodecs) {
+        this.delegate = delegate;
+        this.codec = codec;
+        ImmutableMap.Builder<Byte, TaskOutputCompressionCodec> codecsById = ImmutableMap.builder();
+        TaskOutputCompressionCodec gzipCodec = null;
+        for (TaskOutputCompressionCodec readableCodec : readableCodecs) {
+            codecsById.put(readableCodec.getId(), readableCodec);
+            if (readableCodec.getId() == GZipCompressionCodec.ID) {
+                gzipCodec = readableCodec;
+            }
+        }
+        this.codecsById = codecsById.build();
+        this.gzipCodec = gzipCodec;
+    }
+
+    @Override
+    public TaskOutputPackingMetrics pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin) {
+        CountingOutputStream countingOutput = new CountingOutputStream(output);
+        OutputStream compressedOutput = createCompressedOutput(countingOutput);
+        TaskOutputPackingMetrics metrics;
+        try {
+            metrics = delegate.pack(taskOutputs, compressedOutput, writeOrigin);
+        } finally {
+            IOUtils.closeQuietly(compressedOutput);
+        }
+        return metrics.withCompression(codec.getName(), countingOutput.getCount());
+    }
+
+    private OutputStream createCompressedOutput(OutputStream output) {
+        try {
+            if (codec.getId() != GZipCompressionCodec.ID) {
+                output.write(HEADER_MAGIC_1);
+                output.write(HEADER_MAGIC_2);
+                output.write(codec.getId());
+            }
+            return codec.compress(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public TaskOutputPackingMetrics unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin) {
+        CountingInputStream countingInput = new CountingInputStream(input);
+        PushbackInputStream headerInput = new PushbackInputStream(countingInput, 2);
+        TaskOutputCompressionCodec entryCodec = readCodec(headerInput);
+        InputStream decompressedInput = createDecompressedInput(entryCodec, headerInput);
+        TaskOutputPackingMetrics metrics;
+        try {
+            metrics = delegate.unpack(taskOutputs, decompressedInput, readOrigin);
+        } finally {
+            IOUtils.closeQuietly(decompressedInput);
+        }
+        return metrics.withCompression(entryCodec.getName(), countingInput.getCount());
+    }
+
+    private TaskOutputCompressionCodec readCodec(PushbackInputStream input) {
+        try {
+            int magic1 = input.read();
+            int magic2 = input.read();
+            if (magic1 == GZIP_MAGIC_1 && magic2 == GZIP_MAGIC_2 && gzipCodec != null) {
+                input.unread(magic2);
+                input.unread(magic1);
+                return gzipCodec;
+            }
+            if (magic1 == HEADER_MAGIC_1 && magic2 == HEADER_MAGIC_2) {
+                int id = input.read();
+                TaskOutputCompressionCodec entryCodec = id < 0 ? null : codecsById.get((byte) id);
+                if (entryCodec == null) {
+                    throw new IllegalStateException("Cached result format error, unknown compression: " + id);
+                }
+                return entryCodec;
+            }
+            throw new IllegalStateException("Cached result format error, unknown compression header.");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(delegate).stop();
+    }
+
+    private static InputStream createDecompressedInput(TaskOutputCompressionCodec codec, InputStream input) {
+        try {
+            return codec.decompress(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.google.common.hash.HashCode;
 import org.gradle.api.Nullable;
 import org.gradle.caching.internal.BuildCacheHasher;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.internal.hash.HashFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +41,13 @@ public class DefaultTaskOutputCachingBuildCacheKeyBuilder {
     private final ImmutableSortedMap.Builder<String, HashCode> inputHashes = ImmutableSortedMap.naturalOrder();
     private final ImmutableSortedSet.Builder<String> outputPropertyNames = ImmutableSortedSet.naturalOrder();
 
+    public DefaultTaskOutputCachingBuildCacheKeyBuilder() {
+        // Entries created with a different hash function must never match
+        hasher.putString(HashFunctions.HASH_FUNCTION_ID);
+        // Entries with a different layout must never match, as they cannot be unpacked
+        hasher.putInt(TaskOutputPacker.CACHE_ENTRY_FORMAT);
+    }
+
     public DefaultTaskOutputCachingBuildCacheKeyBuilder appendTaskClass(String taskClass) {
         this.taskClass = taskClass;
         hasher.putString(taskClass);
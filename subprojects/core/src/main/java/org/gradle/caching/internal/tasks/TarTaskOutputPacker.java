@@ -20,6 +20,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.CloseShieldInputStream;
@@ -30,6 +32,7 @@ import org.apache.tools.zip.UnixStat;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.JavaVersion;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -44,6 +47,9 @@ import org.gradle.api.specs.Specs;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
 import org.gradle.internal.IoActions;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 
 import java.io.ByteArrayOutputStream;
@@ -61,23 +67,70 @@ import java.util.regex.Pattern;
  * Packages task output to a POSIX TAR file. Because Ant's TAR implementation
  * supports only 1 second precision for file modification times, we encode the
  * fractional nanoseconds into the group ID of the file.
+ *
+ * <p>When unpacking, files are written by a {@link TaskOutputFileWriter}, which
+ * writes small files in parallel while the TAR file is being read. All unpacks share
+ * a single pool of writer threads, which is created when first needed and shut down
+ * when the packer is stopped.</p>
  */
-public class TarTaskOutputPacker implements TaskOutputPacker {
+public class TarTaskOutputPacker implements TaskOutputPacker, Stoppable {
+    public static final String UNPACK_THREADS_PROPERTY = "org.gradle.cache.tasks.unpack.threads";
+    public static final int DEFAULT_UNPACK_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern PROPERTY_PATH = Pattern.compile("(missing-)?property-([^/]+)(?:/(.*))?");
     private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
 
     private final DefaultDirectoryWalkerFactory directoryWalkerFactory;
     private final FileSystem fileSystem;
+    private final ExecutorFactory executorFactory;
+    private final int unpackThreads;
+    private StoppableExecutor unpackExecutor;
+    private boolean stopped;
 
     public TarTaskOutputPacker(FileSystem fileSystem) {
+        this(fileSystem, null, 1);
+    }
+
+    /**
+     * @param executorFactory used to write unpacked files in parallel, or {@code null} to unpack files on the calling thread.
+     * @param unpackThreads the maximum number of threads to write unpacked files with.
+     */
+    public TarTaskOutputPacker(FileSystem fileSystem, @Nullable ExecutorFactory executorFactory, int unpackThreads) {
         this.directoryWalkerFactory = new DefaultDirectoryWalkerFactory(JavaVersion.current(), fileSystem);
         this.fileSystem = fileSystem;
+        this.executorFactory = unpackThreads > 1 ? executorFactory : null;
+        this.unpackThreads = unpackThreads;
+    }
+
+    @Override
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            stopped = true;
+            executor = unpackExecutor;
+            unpackExecutor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Nullable
+    private synchronized StoppableExecutor getUnpackExecutor() {
+        if (executorFactory == null || stopped) {
+            return null;
+        }
+        if (unpackExecutor == null) {
+            unpackExecutor = executorFactory.create("Unpack task output", unpackThreads);
+        }
+        return unpackExecutor;
     }
 
     @Override
-    public void pack(final TaskOutputsInternal taskOutputs, OutputStream output, final TaskOutputOriginWriter writeOrigin) {
-        IoActions.withResource(new TarOutputStream(output, "utf-8"), new Action<TarOutputStream>() {
+    public TaskOutputPackingMetrics pack(final TaskOutputsInternal taskOutputs, OutputStream output, final TaskOutputOriginWriter writeOrigin) {
+        CountingOutputStream countingOutput = new CountingOutputStream(output);
+        IoActions.withResource(new TarOutputStream(countingOutput, "utf-8"), new Action<TarOutputStream>() {
             @Override
             public void execute(TarOutputStream outputStream) {
                 outputStream.setLongFileMode(TarOutputStream.LONGFILE_POSIX);
@@ -91,6 +144,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
                 }
             }
         });
+        return new TaskOutputPackingMetrics(null, countingOutput.getCount(), countingOutput.getCount());
     }
 
     private void packMetadata(TaskOutputOriginWriter writeMetadata, TarOutputStream outputStream) throws IOException {
@@ -207,8 +261,9 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     }
 
     @Override
-    public void unpack(final TaskOutputsInternal taskOutputs, InputStream input, final TaskOutputOriginReader readOrigin) {
-        IoActions.withResource(new TarInputStream(input), new Action<TarInputStream>() {
+    public TaskOutputPackingMetrics unpack(final TaskOutputsInternal taskOutputs, InputStream input, final TaskOutputOriginReader readOrigin) {
+        CountingInputStream countingInput = new CountingInputStream(input);
+        IoActions.withResource(new TarInputStream(countingInput), new Action<TarInputStream>() {
             @Override
             public void execute(TarInputStream tarInput) {
                 try {
@@ -218,6 +273,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
                 }
             }
         });
+        return new TaskOutputPackingMetrics(null, countingInput.getCount(), countingInput.getCount());
     }
 
     private void unpack(TaskOutputsInternal taskOutputs, TarInputStream tarInput, TaskOutputOriginReader readOriginAction) throws IOException {
@@ -227,6 +283,16 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
                 return propertySpec.getPropertyName();
             }
         });
+        TaskOutputFileWriter fileWriter = new TaskOutputFileWriter(fileSystem, getUnpackExecutor());
+        try {
+            unpack(propertySpecs, tarInput, readOriginAction, fileWriter);
+            fileWriter.finish();
+        } finally {
+            fileWriter.close();
+        }
+    }
+
+    private void unpack(Map<String, TaskOutputFilePropertySpec> propertySpecs, TarInputStream tarInput, TaskOutputOriginReader readOriginAction, TaskOutputFileWriter fileWriter) throws IOException {
         boolean originSeen = false;
         TarEntry entry;
         while ((entry = tarInput.getNextEntry()) != null) {
@@ -251,7 +317,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
 
                 boolean outputMissing = matcher.group(1) != null;
                 String childPath = matcher.group(3);
-                unpackPropertyEntry(propertySpec, tarInput, entry, childPath, outputMissing);
+                unpackPropertyEntry(propertySpec, tarInput, entry, childPath, outputMissing, fileWriter);
             }
         }
         if (!originSeen) {
@@ -259,7 +325,7 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
-    private void unpackPropertyEntry(CacheableTaskOutputFilePropertySpec propertySpec, InputStream input, TarEntry entry, String childPath, boolean missing) throws IOException {
+    private void unpackPropertyEntry(CacheableTaskOutputFilePropertySpec propertySpec, InputStream input, TarEntry entry, String childPath, boolean missing, TaskOutputFileWriter fileWriter) throws IOException {
         File propertyRoot = propertySpec.getOutputFile();
         if (propertyRoot == null) {
             throw new IllegalStateException("Optional property should have a value: " + propertySpec.getPropertyName());
@@ -269,6 +335,8 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         boolean isDirEntry = entry.isDirectory();
         if (Strings.isNullOrEmpty(childPath)) {
             // We are handling the root of the property here
+            // Files of other properties might still be written to an overlapping location
+            fileWriter.awaitPendingWrites();
             if (missing) {
                 if (!makeDirectory(propertyRoot.getParentFile())) {
                     // Make sure output is removed if it exists already
@@ -295,17 +363,13 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
             outputFile = new File(propertyRoot, childPath);
         }
 
-        if (isDirEntry) {
-            FileUtils.forceMkdir(outputFile);
-        } else {
-            Files.asByteSink(outputFile).writeFrom(input);
-        }
-
         //noinspection OctalInteger
-        fileSystem.chmod(outputFile, entry.getMode() & 0777);
+        int mode = entry.getMode() & 0777;
         long lastModified = getModificationTime(entry);
-        if (!outputFile.setLastModified(lastModified)) {
-            throw new UnsupportedOperationException(String.format("Could not set modification time for '%s'", outputFile));
+        if (isDirEntry) {
+            fileWriter.createDirectory(outputFile, mode, lastModified);
+        } else {
+            fileWriter.writeFile(outputFile, input, entry.getSize(), mode, lastModified);
         }
     }
 
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeplatform.filesystem.FileSystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the files of an unpacked cache entry.
+ *
+ * <p>The entry is read on the calling thread. Once an entry contains more than a handful of files, the contents of small files
+ * are buffered and written to disk by a shared, bounded pool of writer threads, while the calling thread continues to decompress the entry.
+ * Large files are streamed to disk on the calling thread. Directories are created on the calling thread, before any of their contents
+ * are written.</p>
+ *
+ * <p>File permissions and modification times are restored by {@link #finish()}, once all files have been written,
+ * so that writing the contents of a directory does not change the modification time restored for the directory.
+ * When {@link #finish()} returns, all files have been written completely. When {@link #close()} returns, no more writes are pending.</p>
+ */
+class TaskOutputFileWriter implements Closeable {
+    private static final int PARALLEL_WRITE_THRESHOLD = 16;
+    private static final int MAX_BUFFERED_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_BUFFERED_BYTES = 32 * 1024 * 1024;
+
+    private final FileSystem fileSystem;
+    private final ExecutorService executor;
+    private final List<FileAttributes> deferredAttributes = Lists.newArrayList();
+    private final List<Future<?>> pendingWrites = Lists.newArrayList();
+    private final Semaphore bufferedBytes = new Semaphore(MAX_BUFFERED_BYTES);
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private int filesWritten;
+
+    /**
+     * @param executor the executor to write files with, or {@code null} to write all files on the calling thread.
+     */
+    TaskOutputFileWriter(FileSystem fileSystem, @Nullable ExecutorService executor) {
+        this.fileSystem = fileSystem;
+        this.executor = executor;
+    }
+
+    public void createDirectory(File directory, int mode, long lastModified) throws IOException {
+        FileUtils.forceMkdir(directory);
+        deferredAttributes.add(new FileAttributes(directory, mode, lastModified));
+    }
+
+    public void writeFile(final File file, InputStream input, long size, int mode, long lastModified) throws IOException {
+        rethrowFailure();
+        deferredAttributes.add(new FileAttributes(file, mode, lastModified));
+        if (executor == null || ++filesWritten <= PARALLEL_WRITE_THRESHOLD || size > MAX_BUFFERED_FILE_SIZE) {
+            Files.asByteSink(file).writeFrom(input);
+            return;
+        }
+
+        final int length = (int) size;
+        acquireBuffer(length);
+        final byte[] contents;
+        try {
+            contents = new byte[length];
+            ByteStreams.readFully(input, contents);
+        } catch (IOException e) {
+            bufferedBytes.release(length);
+            throw e;
+        }
+        pendingWrites.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (failure.get() == null) {
+                        Files.write(contents, file);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    bufferedBytes.release(length);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Waits for all files written so far to be completely written.
+     */
+    public void awaitPendingWrites() {
+        try {
+            for (Future<?> pendingWrite : pendingWrites) {
+                pendingWrite.get();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            pendingWrites.clear();
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Waits for all files to be written, then restores permissions and modification times.
+     */
+    public void finish() {
+        awaitPendingWrites();
+        // Restore children before their parents
+        for (FileAttributes attributes : Lists.reverse(deferredAttributes)) {
+            attributes.restore(fileSystem);
+        }
+        deferredAttributes.clear();
+    }
+
+    /**
+     * Skips the writes that have not started yet and waits for the others to complete, ignoring their failures.
+     */
+    @Override
+    public void close() {
+        failure.compareAndSet(null, new IllegalStateException("Unpacking was aborted."));
+        for (Future<?> pendingWrite : pendingWrites) {
+            try {
+                pendingWrite.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                // Ignore, the unpacking has already completed or failed
+            }
+        }
+        pendingWrites.clear();
+    }
+
+    private void acquireBuffer(int length) {
+        try {
+            bufferedBytes.acquire(length);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable writeFailure = failure.get();
+        if (writeFailure instanceof IOException) {
+            throw new UncheckedIOException(writeFailure);
+        }
+        if (writeFailure != null) {
+            throw UncheckedException.throwAsUncheckedException(writeFailure);
+        }
+    }
+
+    private static class FileAttributes {
+        private final File file;
+        private final int mode;
+        private final long lastModified;
+
+        private FileAttributes(File file, int mode, long lastModified) {
+            this.file = file;
+            this.mode = mode;
+            this.lastModified = lastModified;
+        }
+
+        void restore(FileSystem fileSystem) {
+            fileSystem.chmod(file, mode);
+            if (!file.setLastModified(lastModified)) {
+                throw new UnsupportedOperationException(String.format("Could not set modification time for '%s'", file));
+            }
+        }
+    }
+}
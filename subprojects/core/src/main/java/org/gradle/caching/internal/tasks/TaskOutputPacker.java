@@ -24,15 +24,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 public interface TaskOutputPacker {
-    // Initial format version
+    // Format version, which is part of the cache key
+    // 1: Initial format version
+    // 2: Entries compressed with a codec other than gzip start with a header identifying the codec
     // NOTE: This should be changed whenever we change the way we pack a cache entry, such as
     // - changing from gzip to bzip2.
     // - adding/removing properties to the origin metadata
     // - using a different format for the origin metadata
     // - any major changes of the layout of a cache entry
-    int CACHE_ENTRY_FORMAT = 1;
+    int CACHE_ENTRY_FORMAT = 2;
 
-    void pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin);
+    TaskOutputPackingMetrics pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin);
 
-    void unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin);
+    TaskOutputPackingMetrics unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.gradle.api.Nullable;
+
+/**
+ * Size information about a packed or unpacked cache entry.
+ */
+public class TaskOutputPackingMetrics {
+    private final String compression;
+    private final long contentSize;
+    private final long entrySize;
+
+    public TaskOutputPackingMetrics(@Nullable String compression, long contentSize, long entrySize) {
+        this.compression = compression;
+        this.contentSize = contentSize;
+        this.entrySize = entrySize;
+    }
+
+    /**
+     * The name of the compression codec used for the entry, or {@code null} if the entry is not compressed.
+     */
+    @Nullable
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * The number of bytes of the uncompressed entry.
+     */
+    public long getContentSize() {
+        return contentSize;
+    }
+
+    /**
+     * The number of bytes of the entry as stored in the build cache.
+     */
+    public long getEntrySize() {
+        return entrySize;
+    }
+
+    public TaskOutputPackingMetrics withCompression(String compression, long entrySize) {
+        return new TaskOutputPackingMetrics(compression, contentSize, entrySize);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bytes (%s %d bytes)", contentSize, compression, entrySize);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.Task;
+import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.initialization.BuildCompletionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Collects compression ratio and time spent packing and unpacking cache entries per task type, and reports them at the end of the build.
+ */
+public class TaskOutputPackingStatisticsCollector implements BuildCompletionListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskOutputPackingStatisticsCollector.class);
+
+    private final Map<String, PackingStatistics> statisticsByTaskType = Maps.newTreeMap();
+
+    public synchronized void packed(Task task, TaskOutputPackingMetrics metrics, long elapsedMillis) {
+        getStatistics(task, metrics).pack.add(metrics, elapsedMillis);
+    }
+
+    public synchronized void unpacked(Task task, TaskOutputPackingMetrics metrics, long elapsedMillis) {
+        getStatistics(task, metrics).unpack.add(metrics, elapsedMillis);
+    }
+
+    private PackingStatistics getStatistics(Task task, TaskOutputPackingMetrics metrics) {
+        String key = new DslObject(task).getDeclaredType().getName() + " (" + metrics.getCompression() + ")";
+        PackingStatistics statistics = statisticsByTaskType.get(key);
+        if (statistics == null) {
+            statistics = new PackingStatistics();
+            statisticsByTaskType.put(key, statistics);
+        }
+        return statistics;
+    }
+
+    @Override
+    public synchronized void completed() {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        for (Map.Entry<String, PackingStatistics> entry : statisticsByTaskType.entrySet()) {
+            PackingStatistics statistics = entry.getValue();
+            LOGGER.info("Build cache packing statistics for {}: packed {}, unpacked {}", entry.getKey(), statistics.pack, statistics.unpack);
+        }
+    }
+
+    private static class PackingStatistics {
+        private final OperationStatistics pack = new OperationStatistics();
+        private final OperationStatistics unpack = new OperationStatistics();
+    }
+
+    private static class OperationStatistics {
+        private int count;
+        private long contentSize;
+        private long entrySize;
+        private long elapsedMillis;
+
+        void add(TaskOutputPackingMetrics metrics, long elapsedMillis) {
+            count++;
+            contentSize += metrics.getContentSize();
+            entrySize += metrics.getEntrySize();
+            this.elapsedMillis += elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "0 entries";
+            }
+            int ratio = contentSize == 0 ? 100 : (int) (entrySize * 100 / contentSize);
+            return String.format("%d entries, %d bytes to %d bytes (%d%%) in %d ms", count, contentSize, entrySize, ratio, elapsedMillis);
+        }
+    }
+}
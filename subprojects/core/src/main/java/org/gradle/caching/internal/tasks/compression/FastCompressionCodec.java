@@ -0,0 +1,366 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A pure Java LZ77 codec using the LZ4 block format, trading compression ratio for speed.
+ *
+ * <p>The stream is split into blocks of at most {@value #BLOCK_SIZE} bytes. Each block is written as its compressed length,
+ * its uncompressed length and the block data. Blocks that do not compress are stored as is, flagged by a negative compressed length.
+ * A zero length marks the end of the stream.</p>
+ */
+public class FastCompressionCodec implements TaskOutputCompressionCodec {
+    public static final String NAME = "fast";
+    public static final byte ID = 2;
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MIN_LENGTH_FOR_MATCH = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int HASH_LOG = 14;
+    private static final int RUN_MASK = 0x0F;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) {
+        return new BlockCompressingOutputStream(output);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) {
+        return new BlockDecompressingInputStream(input);
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code src[0..length)} into {@code dest}, returning the number of bytes written.
+     */
+    static int compressBlock(byte[] src, int length, byte[] dest, int[] hashTable) {
+        Arrays.fill(hashTable, -1);
+        int destPos = 0;
+        int anchor = 0;
+        if (length >= MIN_LENGTH_FOR_MATCH) {
+            int matchLimit = length - LAST_LITERALS;
+            int searchLimit = length - MIN_LENGTH_FOR_MATCH;
+            int pos = 0;
+            while (pos < searchLimit) {
+                int sequence = readInt(src, pos);
+                int hash = hash(sequence);
+                int candidate = hashTable[hash];
+                hashTable[hash] = pos;
+                if (candidate < 0 || pos - candidate > MAX_DISTANCE || readInt(src, candidate) != sequence) {
+                    pos++;
+                    continue;
+                }
+                int matchLength = MIN_MATCH;
+                while (pos + matchLength < matchLimit && src[candidate + matchLength] == src[pos + matchLength]) {
+                    matchLength++;
+                }
+                destPos = writeSequence(src, anchor, pos - anchor, pos - candidate, matchLength - MIN_MATCH, dest, destPos);
+                pos += matchLength;
+                anchor = pos;
+            }
+        }
+        return writeLastLiterals(src, anchor, length - anchor, dest, destPos);
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength, byte[] dest, int destPos) {
+        int tokenPos = destPos++;
+        int token = Math.min(matchLength, RUN_MASK);
+        if (literalLength >= RUN_MASK) {
+            token |= RUN_MASK << 4;
+            destPos = writeLength(literalLength - RUN_MASK, dest, destPos);
+        } else {
+            token |= literalLength << 4;
+        }
+        dest[tokenPos] = (byte) token;
+        System.arraycopy(src, literalStart, dest, destPos, literalLength);
+        destPos += literalLength;
+        dest[destPos++] = (byte) offset;
+        dest[destPos++] = (byte) (offset >>> 8);
+        if (matchLength >= RUN_MASK) {
+            destPos = writeLength(matchLength - RUN_MASK, dest, destPos);
+        }
+        return destPos;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalStart, int literalLength, byte[] dest, int destPos) {
+        if (literalLength >= RUN_MASK) {
+            dest[destPos++] = (byte) (RUN_MASK << 4);
+            destPos = writeLength(literalLength - RUN_MASK, dest, destPos);
+        } else {
+            dest[destPos++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalStart, dest, destPos, literalLength);
+        return destPos + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dest, int destPos) {
+        while (length >= 0xFF) {
+            dest[destPos++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[destPos++] = (byte) length;
+        return destPos;
+    }
+
+    /**
+     * Decompresses {@code src[0..length)} into {@code dest}, returning the number of bytes written.
+     */
+    static int decompressBlock(byte[] src, int length, byte[] dest) throws IOException {
+        int srcPos = 0;
+        int destPos = 0;
+        try {
+            while (true) {
+                int token = src[srcPos++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int next;
+                    do {
+                        next = src[srcPos++] & 0xFF;
+                        literalLength += next;
+                    } while (next == 0xFF);
+                }
+                System.arraycopy(src, srcPos, dest, destPos, literalLength);
+                srcPos += literalLength;
+                destPos += literalLength;
+                if (srcPos >= length) {
+                    return destPos;
+                }
+                int offset = (src[srcPos++] & 0xFF) | ((src[srcPos++] & 0xFF) << 8);
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int next;
+                    do {
+                        next = src[srcPos++] & 0xFF;
+                        matchLength += next;
+                    } while (next == 0xFF);
+                }
+                matchLength += MIN_MATCH;
+                int matchPos = destPos - offset;
+                if (offset == 0 || matchPos < 0) {
+                    throw new IOException("Corrupt compressed block: invalid match offset " + offset);
+                }
+                // Matches can overlap with the bytes being written, so copy byte by byte
+                for (int i = 0; i < matchLength; i++) {
+                    dest[destPos++] = dest[matchPos++];
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt compressed block", e);
+        }
+    }
+
+    private static int readInt(byte[] buffer, int pos) {
+        return (buffer[pos] & 0xFF) | ((buffer[pos + 1] & 0xFF) << 8) | ((buffer[pos + 2] & 0xFF) << 16) | ((buffer[pos + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static class BlockCompressingOutputStream extends FilterOutputStream {
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final int[] hashTable = new int[1 << HASH_LOG];
+        private int count;
+        private boolean closed;
+
+        BlockCompressingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                int chunk = Math.min(len, BLOCK_SIZE - count);
+                System.arraycopy(b, off, buffer, count, chunk);
+                count += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int compressedLength = compressBlock(buffer, count, compressed, hashTable);
+            if (compressedLength < count) {
+                writeInt(compressedLength);
+                writeInt(count);
+                out.write(compressed, 0, compressedLength);
+            } else {
+                writeInt(-count);
+                writeInt(count);
+                out.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+                writeInt(0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static class BlockDecompressingInputStream extends InputStream {
+        private final DataInputStream input;
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private int pos;
+        private int count;
+        private boolean finished;
+
+        BlockDecompressingInputStream(InputStream input) {
+            this.input = new DataInputStream(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return buffer[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int chunk = Math.min(len, count - pos);
+            System.arraycopy(buffer, pos, b, off, chunk);
+            pos += chunk;
+            return chunk;
+        }
+
+        @Override
+        public int available() {
+            return count - pos;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (pos == count) {
+                if (finished || !readBlock()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean readBlock() throws IOException {
+            int compressedLength;
+            try {
+                compressedLength = input.readInt();
+            } catch (EOFException e) {
+                throw new IOException("Unexpected end of compressed stream", e);
+            }
+            if (compressedLength == 0) {
+                finished = true;
+                return false;
+            }
+            int length = input.readInt();
+            if (length <= 0 || length > BLOCK_SIZE) {
+                throw new IOException("Corrupt compressed stream: invalid block length " + length);
+            }
+            boolean stored = compressedLength < 0;
+            if (stored ? compressedLength != -length : compressedLength > compressed.length) {
+                throw new IOException("Corrupt compressed stream: invalid compressed length " + compressedLength + " for block of length " + length);
+            }
+            if (stored) {
+                input.readFully(buffer, 0, length);
+            } else {
+                input.readFully(compressed, 0, compressedLength);
+                if (decompressBlock(compressed, compressedLength, buffer) != length) {
+                    throw new IOException("Corrupt compressed stream: unexpected block length");
+                }
+            }
+            pos = 0;
+            count = length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
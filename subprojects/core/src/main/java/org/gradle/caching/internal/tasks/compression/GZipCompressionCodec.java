@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses task output with GZip at a configurable deflate level. Adds CRC32 checks to the packed task output.
+ */
+public class GZipCompressionCodec implements TaskOutputCompressionCodec {
+    public static final String NAME = "gzip";
+    public static final byte ID = 0;
+
+    private final int level;
+
+    public GZipCompressionCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public GZipCompressionCodec(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(String.format("Invalid compression level %d, must be between %d and %d", level, Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION));
+        }
+        this.level = level;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException {
+        return new LevelAwareGZIPOutputStream(output, level);
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) throws IOException {
+        return new GZIPInputStream(input);
+    }
+
+    @Override
+    public String toString() {
+        return level == Deflater.DEFAULT_COMPRESSION ? NAME : NAME + " (level " + level + ")";
+    }
+
+    private static class LevelAwareGZIPOutputStream extends GZIPOutputStream {
+        LevelAwareGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out);
+            def.setLevel(level);
+        }
+    }
+}
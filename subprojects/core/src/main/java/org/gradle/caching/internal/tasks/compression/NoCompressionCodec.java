@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stores packed task output as is. Useful when the build cache is backed by fast storage or the outputs are already compressed.
+ */
+public class NoCompressionCodec implements TaskOutputCompressionCodec {
+    public static final String NAME = "none";
+    public static final byte ID = 1;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) {
+        return output;
+    }
+
+    @Override
+    public InputStream decompress(InputStream input) {
+        return input;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
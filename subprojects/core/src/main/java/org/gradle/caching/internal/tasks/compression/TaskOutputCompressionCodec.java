@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses and decompresses packed task output.
+ *
+ * <p>The identifier of the codec is recorded in the header of each cache entry, so entries written with different codecs can be read from the same cache.</p>
+ */
+public interface TaskOutputCompressionCodec {
+    /**
+     * The name used to select the codec.
+     */
+    String getName();
+
+    /**
+     * The identifier of the codec recorded in the cache entry header.
+     */
+    byte getId();
+
+    OutputStream compress(OutputStream output) throws IOException;
+
+    InputStream decompress(InputStream input) throws IOException;
+}
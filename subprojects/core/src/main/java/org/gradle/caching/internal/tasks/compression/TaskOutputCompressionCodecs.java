@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.InvalidUserDataException;
+import org.gradle.api.Nullable;
+
+import java.util.List;
+
+/**
+ * The built-in compression codecs for task output.
+ */
+public abstract class TaskOutputCompressionCodecs {
+    public static final String COMPRESSION_PROPERTY = "org.gradle.cache.tasks.compression";
+    public static final String COMPRESSION_LEVEL_PROPERTY = "org.gradle.cache.tasks.compression.level";
+
+    private static final List<TaskOutputCompressionCodec> ALL = ImmutableList.of(
+        new GZipCompressionCodec(),
+        new NoCompressionCodec(),
+        new FastCompressionCodec()
+    );
+
+    private TaskOutputCompressionCodecs() {
+    }
+
+    /**
+     * Returns all codecs that can be used to read cache entries.
+     */
+    public static List<TaskOutputCompressionCodec> all() {
+        return ALL;
+    }
+
+    /**
+     * Selects the codec to write cache entries with. Defaults to GZip with the default compression level.
+     *
+     * @param name the name of the codec, or {@code null} for the default.
+     * @param level the compression level for GZip, or {@code null} for the default.
+     */
+    public static TaskOutputCompressionCodec select(@Nullable String name, @Nullable String level) {
+        String codecName = name == null ? GZipCompressionCodec.NAME : name.trim().toLowerCase();
+        if (codecName.equals(GZipCompressionCodec.NAME)) {
+            if (level == null) {
+                return new GZipCompressionCodec();
+            }
+            try {
+                return new GZipCompressionCodec(Integer.parseInt(level.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidUserDataException(String.format("Invalid value '%s' for %s: %s", level, COMPRESSION_LEVEL_PROPERTY, e.getMessage()), e);
+            }
+        }
+        for (TaskOutputCompressionCodec codec : ALL) {
+            if (codec.getName().equals(codecName)) {
+                return codec;
+            }
+        }
+        throw new InvalidUserDataException(String.format("Unknown build cache compression '%s' specified by %s. Supported values are: %s, %s, %s.",
+            name, COMPRESSION_PROPERTY, GZipCompressionCodec.NAME, FastCompressionCodec.NAME, NoCompressionCodec.NAME));
+    }
+}
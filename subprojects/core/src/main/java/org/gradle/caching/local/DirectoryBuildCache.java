@@ -27,7 +27,12 @@ import org.gradle.caching.configuration.AbstractBuildCache;
  */
 @Incubating
 public class DirectoryBuildCache extends AbstractBuildCache {
+    private static final long DEFAULT_TARGET_SIZE_IN_MB = 5 * 1024;
+    private static final int DEFAULT_REMOVE_UNUSED_ENTRIES_AFTER_DAYS = 7;
+
     private Object directory;
+    private long targetSizeInMB = DEFAULT_TARGET_SIZE_IN_MB;
+    private int removeUnusedEntriesAfterDays = DEFAULT_REMOVE_UNUSED_ENTRIES_AFTER_DAYS;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -45,4 +50,45 @@ public class DirectoryBuildCache extends AbstractBuildCache {
     public void setDirectory(Object directory) {
         this.directory = directory;
     }
+
+    /**
+     * Returns the target size of the build cache in megabytes.
+     *
+     * <p>When the build cache grows beyond this size, the least recently used entries are removed at the end of the build.</p>
+     *
+     * @since 3.6
+     */
+    public long getTargetSizeInMB() {
+        return targetSizeInMB;
+    }
+
+    /**
+     * Sets the target size of the build cache in megabytes. Defaults to 5 GB.
+     *
+     * @since 3.6
+     */
+    public void setTargetSizeInMB(long targetSizeInMB) {
+        this.targetSizeInMB = targetSizeInMB;
+    }
+
+    /**
+     * Returns the number of days after which unused entries are removed from the build cache.
+     *
+     * @since 3.6
+     */
+    public int getRemoveUnusedEntriesAfterDays() {
+        return removeUnusedEntriesAfterDays;
+    }
+
+    /**
+     * Sets the number of days after which unused entries are removed from the build cache. Defaults to 7 days.
+     *
+     * <p>Entries are removed regardless of the target size once they have not been used for this many days.
+     * A value of zero or less disables removal based on age.</p>
+     *
+     * @since 3.6
+     */
+    public void setRemoveUnusedEntriesAfterDays(int removeUnusedEntriesAfterDays) {
+        this.removeUnusedEntriesAfterDays = removeUnusedEntriesAfterDays;
+    }
 }
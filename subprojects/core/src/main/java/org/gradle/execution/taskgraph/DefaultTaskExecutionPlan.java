@@ -18,7 +18,6 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
@@ -40,7 +39,6 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.internal.logging.text.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -61,12 +59,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskReady = lock.newCondition();
+    private final Condition allTasksCompleted = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Map<TaskInfo, SchedulingState> schedulingStates = Maps.newIdentityHashMap();
+    private final TreeSet<SchedulingState> readyQueue = new TreeSet<SchedulingState>();
+    private int queuedTasks;
+    private int waitingWorkers;
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -75,6 +77,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
+    private final Set<TaskInternal> runningTasksWithIndexedOutputs = Sets.newIdentityHashSet();
+    private final OutputPathTrie runningTaskOutputs = new OutputPathTrie();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
@@ -307,8 +311,41 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        initialiseScheduling();
+    }
+
+    /**
+     * Determines for each task in the plan how many of the tasks it has to wait for are not complete yet.
+     * Tasks that are ready to run and do not have to wait for any other task are put into the ready queue, in the order of the execution plan.
+     */
+    private void initialiseScheduling() {
+        schedulingStates.clear();
+        readyQueue.clear();
+        queuedTasks = 0;
+        int position = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            schedulingStates.put(taskInfo, new SchedulingState(taskInfo, position++));
+        }
+        for (SchedulingState state : schedulingStates.values()) {
+            TaskInfo taskInfo = state.taskInfo;
+            for (TaskInfo dependency : Sets.union(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors())) {
+                SchedulingState dependencyState = schedulingStates.get(dependency);
+                if (dependencyState == null) {
+                    // Not part of the plan, so its state does not change during execution
+                    continue;
+                }
+                dependencyState.dependents.add(state);
+                if (!dependency.isComplete()) {
+                    state.incompleteDependencies++;
+                }
+            }
+            if (taskInfo.isReady()) {
+                queuedTasks++;
+                if (state.incompleteDependencies == 0) {
+                    readyQueue.add(state);
+                }
+            }
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -451,13 +488,17 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            schedulingStates.clear();
+            readyQueue.clear();
+            queuedTasks = 0;
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            runningTasksWithIndexedOutputs.clear();
+            runningTaskOutputs.clear();
         } finally {
             lock.unlock();
         }
@@ -484,35 +525,36 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                         tasksCancelled = true;
                     }
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
+                if (queuedTasks == 0) {
+                    return null;
+                }
+                SchedulingState nextMatching = null;
+                for (SchedulingState candidate : readyQueue) {
+                    if (canRunWithWithCurrentlyExecutedTasks(candidate.taskInfo)) {
+                        nextMatching = candidate;
                         break;
                     }
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
                 if (nextMatching == null) {
+                    waitingWorkers++;
                     try {
-                        condition.await();
+                        taskReady.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        waitingWorkers--;
                     }
                 } else {
-                    if (nextMatching.allDependenciesSuccessful()) {
-                        nextMatching.startExecution();
-                        recordTaskStarted(nextMatching);
-                        return nextMatching;
+                    readyQueue.remove(nextMatching);
+                    queuedTasks--;
+                    TaskInfo taskInfo = nextMatching.taskInfo;
+                    if (taskInfo.allDependenciesSuccessful()) {
+                        taskInfo.startExecution();
+                        recordTaskStarted(taskInfo);
+                        return taskInfo;
                     } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
+                        taskInfo.skipExecution();
+                        taskFinished(nextMatching);
                     }
                 }
             }
@@ -572,35 +614,30 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             return null;
         }
 
+        indexOutputsOfRunningTasks();
         for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlap(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
             }
         }
 
         return null;
     }
 
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
+    /**
+     * The outputs of running tasks are only indexed once another task needs to be checked against them,
+     * so builds that never run tasks in parallel do not need to resolve the outputs of every task.
+     */
+    private void indexOutputsOfRunningTasks() {
+        if (runningTasksWithIndexedOutputs.size() == runningTasks.size()) {
+            return;
         }
-
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
+        for (TaskInternal runningTask : runningTasks) {
+            if (runningTasksWithIndexedOutputs.add(runningTask)) {
+                runningTaskOutputs.add(runningTask, canonicalizedOutputPaths(runningTask));
+            }
         }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -646,6 +683,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
+        if (runningTasksWithIndexedOutputs.remove(task)) {
+            runningTaskOutputs.remove(task, canonicalizedOutputPaths(task));
+        }
         canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
@@ -661,7 +701,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            taskFinished(schedulingStates.get(taskInfo));
         } finally {
             lock.unlock();
         }
@@ -686,7 +726,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 candidateNodes.addAll(node.getDependencySuccessors());
 
-                if (node.isMustNotRun() || node.isRequired()) {
+                if (node.isMustNotRun()) {
+                    node.enforceRun();
+                    taskRequeued(schedulingStates.get(node));
+                } else if (node.isRequired()) {
                     node.enforceRun();
                 }
             }
@@ -719,18 +762,73 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                SchedulingState state = schedulingStates.get(taskInfo);
+                readyQueue.remove(state);
+                queuedTasks--;
+                taskFinished(state);
                 aborted = true;
             }
         }
         return aborted;
     }
 
+    /**
+     * Called when a task has moved into a complete state. Makes those dependents ready that do not need to wait for any other task and wakes up workers to pick them up.
+     */
+    private void taskFinished(@Nullable SchedulingState state) {
+        if (state != null) {
+            for (SchedulingState dependent : state.dependents) {
+                dependent.incompleteDependencies--;
+                if (dependent.incompleteDependencies == 0 && dependent.taskInfo.isReady()) {
+                    readyQueue.add(dependent);
+                }
+            }
+        }
+        signalWorkers();
+    }
+
+    /**
+     * Called when a task that was considered complete without running, such as a finalizer that was not required, is required to run after all.
+     */
+    private void taskRequeued(@Nullable SchedulingState state) {
+        if (state == null) {
+            return;
+        }
+        queuedTasks++;
+        for (SchedulingState dependent : state.dependents) {
+            if (dependent.incompleteDependencies == 0) {
+                readyQueue.remove(dependent);
+            }
+            dependent.incompleteDependencies++;
+        }
+        if (state.incompleteDependencies == 0) {
+            readyQueue.add(state);
+        }
+    }
+
+    private void signalWorkers() {
+        if (queuedTasks == 0) {
+            // Nothing left to start, let all workers finish
+            taskReady.signalAll();
+            if (allTasksComplete()) {
+                allTasksCompleted.signalAll();
+            }
+            return;
+        }
+        // A waiting worker may not be able to run a ready task yet, for example when a task of the same project is running.
+        // Completion of that task will signal again.
+        int workersToWake = Math.min(readyQueue.size(), waitingWorkers);
+        for (int i = 0; i < workersToWake; i++) {
+            taskReady.signal();
+        }
+    }
+
     public void awaitCompletion() {
         lock.lock();
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    allTasksCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -757,12 +855,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
+        // Tasks that are not complete are either waiting to be started or running
+        return queuedTasks == 0 && runningTasks.isEmpty();
     }
 
     private static class GraphEdge {
@@ -785,6 +879,23 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private static class SchedulingState implements Comparable<SchedulingState> {
+        private final TaskInfo taskInfo;
+        private final int position;
+        private final List<SchedulingState> dependents = new ArrayList<SchedulingState>();
+        private int incompleteDependencies;
+
+        private SchedulingState(TaskInfo taskInfo, int position) {
+            this.taskInfo = taskInfo;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(SchedulingState other) {
+            return position < other.position ? -1 : (position == other.position ? 0 : 1);
+        }
+    }
+
     private static class RethrowingFailureHandler implements TaskFailureHandler {
         public void onTaskFailure(Task task) {
             task.getState().rethrowFailure();
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the output paths of running tasks by their path segments, so that finding a running task with an output that is the same as,
+ * inside or containing a given path only requires a lookup proportional to the depth of the path.
+ */
+class OutputPathTrie {
+    private static final Splitter PATH_SPLITTER = Splitter.on(File.separatorChar).omitEmptyStrings();
+
+    private final Node root = new Node();
+
+    public void add(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            Node node = root;
+            node.subtreeOwnerCount++;
+            for (String segment : PATH_SPLITTER.split(path)) {
+                node = node.child(segment);
+                node.subtreeOwnerCount++;
+            }
+            node.path = path;
+            node.owners.add(task);
+        }
+    }
+
+    public void remove(TaskInternal task, Iterable<String> paths) {
+        for (String path : paths) {
+            Node node = find(path);
+            if (node == null || !node.owners.remove(task)) {
+                continue;
+            }
+            node = root;
+            node.subtreeOwnerCount--;
+            for (String segment : PATH_SPLITTER.split(path)) {
+                Node child = node.children.get(segment);
+                child.subtreeOwnerCount--;
+                if (child.subtreeOwnerCount == 0) {
+                    // Nothing left below this node
+                    node.children.remove(segment);
+                    break;
+                }
+                node = child;
+            }
+        }
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.subtreeOwnerCount = 0;
+    }
+
+    /**
+     * Returns a task with an output that overlaps the given path, together with the shorter of the two overlapping paths, or {@code null} when there is no such task.
+     */
+    @Nullable
+    public Pair<TaskInternal, String> findOverlap(String path) {
+        Node node = root;
+        Iterator<String> segments = PATH_SPLITTER.split(path).iterator();
+        while (true) {
+            if (!node.owners.isEmpty()) {
+                // The same path or one of its parents is the output of a running task
+                return Pair.of(node.owners.get(0), node.path);
+            }
+            if (!segments.hasNext()) {
+                break;
+            }
+            node = node.children.get(segments.next());
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.subtreeOwnerCount == 0) {
+            return null;
+        }
+        // There is a running task with an output inside the given path
+        while (node.owners.isEmpty()) {
+            node = node.anyChild();
+        }
+        return Pair.of(node.owners.get(0), path);
+    }
+
+    @Nullable
+    private Node find(String path) {
+        Node node = root;
+        for (String segment : PATH_SPLITTER.split(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = Maps.newHashMap();
+        private final List<TaskInternal> owners = Lists.newArrayListWithCapacity(1);
+        private String path;
+        private int subtreeOwnerCount;
+
+        Node child(String segment) {
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        Node anyChild() {
+            return children.values().iterator().next();
+        }
+    }
+}
@@ -20,11 +20,14 @@ import com.google.common.collect.ImmutableList;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.cache.CacheAccessStatisticsReporter;
 import org.gradle.api.internal.changedetection.state.GlobalScopeFileTimeStampInspector;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.api.logging.configuration.ShowStacktrace;
+import org.gradle.caching.internal.BuildCacheBackgroundWork;
 import org.gradle.caching.internal.tasks.TaskExecutionStatisticsEventAdapter;
+import org.gradle.caching.internal.tasks.TaskOutputPackingStatisticsCollector;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.deployment.internal.DeploymentRegistry;
 import org.gradle.execution.BuildConfigurationActionExecuter;
@@ -136,11 +139,15 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         LoggerProvider loggerProvider = (parent == null) ? buildProgressLogger : LoggerProvider.NO_OP;
         listenerManager.useLogger(new TaskExecutionLogger(serviceRegistry.get(ProgressLoggerFactory.class), loggerProvider));
         if (parent == null) {
+            // The caches are shared by all builds in the build tree, so only report their statistics once
+            listenerManager.addListener(serviceRegistry.get(CacheAccessStatisticsReporter.class));
             listenerManager.useLogger(new BuildLogger(Logging.getLogger(BuildLogger.class), serviceRegistry.get(StyledTextOutputFactory.class), startParameter, requestMetaData));
         }
 
         if (startParameter.isBuildCacheEnabled()) {
+            listenerManager.addListener(serviceRegistry.get(BuildCacheBackgroundWork.class));
             listenerManager.addListener(serviceRegistry.get(TaskExecutionStatisticsEventAdapter.class));
+            listenerManager.addListener(serviceRegistry.get(TaskOutputPackingStatisticsCollector.class));
             listenerManager.addListener(new CacheStatisticsReporter(serviceRegistry.get(StyledTextOutputFactory.class)));
         }
 
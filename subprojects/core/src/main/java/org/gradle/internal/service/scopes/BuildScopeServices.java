@@ -31,6 +31,8 @@ import org.gradle.api.internal.artifacts.DefaultModule;
 import org.gradle.api.internal.artifacts.DependencyManagementServices;
 import org.gradle.api.internal.artifacts.Module;
 import org.gradle.api.internal.artifacts.configurations.DependencyMetaDataProvider;
+import org.gradle.api.internal.cache.CacheAccessStatisticsReporter;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.api.internal.component.ComponentTypeRegistry;
@@ -69,13 +71,16 @@ import org.gradle.api.logging.configuration.LoggingConfiguration;
 import org.gradle.api.logging.configuration.ShowStacktrace;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
+import org.gradle.cache.internal.CacheFactory;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.configuration.internal.BuildCacheServiceRegistration;
 import org.gradle.caching.configuration.internal.DefaultBuildCacheConfiguration;
 import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistration;
+import org.gradle.caching.internal.BuildCacheBackgroundWork;
 import org.gradle.caching.internal.BuildCacheServiceProvider;
 import org.gradle.caching.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.caching.internal.tasks.TaskExecutionStatisticsEventAdapter;
+import org.gradle.caching.internal.tasks.TaskOutputPackingStatisticsCollector;
 import org.gradle.caching.internal.tasks.statistics.TaskExecutionStatisticsListener;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.configuration.BuildConfigurer;
@@ -393,6 +398,10 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return new TaskExecutionStatisticsEventAdapter(listenerManager.getBroadcaster(TaskExecutionStatisticsListener.class));
     }
 
+    protected TaskOutputPackingStatisticsCollector createTaskOutputPackingStatisticsCollector() {
+        return new TaskOutputPackingStatisticsCollector();
+    }
+
     protected PluginRegistry createPluginRegistry(ClassLoaderScopeRegistry scopeRegistry, PluginInspector pluginInspector) {
         return new DefaultPluginRegistry(pluginInspector, scopeRegistry.getCoreAndPluginsScope());
     }
@@ -448,13 +457,23 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return instantiator.newInstance(DefaultBuildCacheConfiguration.class, instantiator, allBuildCacheServiceFactories, startParameter);
     }
 
-    BuildCacheServiceProvider createBuildCacheServiceProvider(BuildCacheConfigurationInternal buildCacheConfiguration, StartParameter startParameter, BuildOperationExecutor buildOperationExecutor, TemporaryFileProvider temporaryFileProvider) {
+    CacheAccessStatisticsReporter createCacheAccessStatisticsReporter(CacheFactory cacheFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, BuildOperationExecutor buildOperationExecutor) {
+        return new CacheAccessStatisticsReporter(cacheFactory, inMemoryCacheDecoratorFactory, buildOperationExecutor);
+    }
+
+    BuildCacheBackgroundWork createBuildCacheBackgroundWork(BuildOperationExecutor buildOperationExecutor) {
+        return new BuildCacheBackgroundWork(buildOperationExecutor);
+    }
+
+    BuildCacheServiceProvider createBuildCacheServiceProvider(BuildCacheConfigurationInternal buildCacheConfiguration, StartParameter startParameter, BuildOperationExecutor buildOperationExecutor, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, BuildCacheBackgroundWork backgroundWork) {
         return new BuildCacheServiceProvider(
             buildCacheConfiguration,
             startParameter,
             new DependencyInjectingInstantiator(this, new DependencyInjectingInstantiator.ConstructorCache()),
             buildOperationExecutor,
-            temporaryFileProvider);
+            temporaryFileProvider,
+            executorFactory,
+            backgroundWork);
     }
 
     BuildCacheServiceRegistration createDirectoryBuildCacheServiceRegistration() {
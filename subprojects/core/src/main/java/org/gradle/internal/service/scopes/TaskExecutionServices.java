@@ -44,6 +44,7 @@ import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotterRegistry;
+import org.gradle.api.internal.changedetection.state.FileHashingExecutor;
 import org.gradle.api.internal.changedetection.state.FileSystemMirror;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
@@ -77,11 +78,14 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.BuildCacheServiceProvider;
-import org.gradle.caching.internal.tasks.GZipTaskOutputPacker;
+import org.gradle.caching.internal.tasks.CompressingTaskOutputPacker;
 import org.gradle.caching.internal.tasks.TarTaskOutputPacker;
 import org.gradle.caching.internal.tasks.TaskCacheKeyCalculator;
 import org.gradle.caching.internal.tasks.TaskOutputCachingListener;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
+import org.gradle.caching.internal.tasks.TaskOutputPackingStatisticsCollector;
+import org.gradle.caching.internal.tasks.compression.TaskOutputCompressionCodec;
+import org.gradle.caching.internal.tasks.compression.TaskOutputCompressionCodecs;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
@@ -112,6 +116,7 @@ public class TaskExecutionServices {
 
     TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository,
                                     TaskOutputPacker packer,
+                                    TaskOutputPackingStatisticsCollector packingStatistics,
                                     BuildCacheService buildCacheService,
                                     StartParameter startParameter,
                                     ListenerManager listenerManager,
@@ -144,6 +149,7 @@ public class TaskExecutionServices {
                 taskOutputOriginFactory,
                 buildCacheService,
                 packer,
+                packingStatistics,
                 taskOutputsGenerationListener,
                 executer
             );
@@ -177,18 +183,18 @@ public class TaskExecutionServices {
         return new CachingFileHasher(new DefaultFileHasher(), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem);
     }
 
-    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory,  fileSystemMirror);
+    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, FileHashingExecutor hashingExecutor) {
+        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, hashingExecutor);
     }
 
-    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ClasspathEntryHasher classpathEntryHasher, FileSystemMirror fileSystemMirror) {
-        return new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathEntryHasher);
+    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ClasspathEntryHasher classpathEntryHasher, FileSystemMirror fileSystemMirror, FileHashingExecutor hashingExecutor) {
+        return new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathEntryHasher, hashingExecutor);
     }
 
-    CompileClasspathSnapshotter createCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, TaskHistoryStore store, FileSystemMirror fileSystemMirror) {
+    CompileClasspathSnapshotter createCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, TaskHistoryStore store, FileSystemMirror fileSystemMirror, FileHashingExecutor hashingExecutor) {
         PersistentIndexedCache<HashCode, HashCode> signatureCache = store.createCache("jvmClassSignatures", HashCode.class, new HashCodeSerializer(), 400000, true);
         ClasspathEntryHasher classpathEntryHasher = new CachingClasspathEntryHasher(new DefaultClasspathEntryHasher(new AbiExtractingClasspathContentHasher(new DefaultClasspathContentHasher())), signatureCache);
-        return new DefaultCompileClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathEntryHasher);
+        return new DefaultCompileClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathEntryHasher, hashingExecutor);
     }
 
     FileCollectionSnapshotterRegistry createFileCollectionSnapshotterRegistry(ServiceRegistry serviceRegistry) {
@@ -240,9 +246,15 @@ public class TaskExecutionServices {
         return new TaskPlanExecutorFactory(parallelThreads, executorFactory, buildOperationWorkerRegistry).create();
     }
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem) {
-        return new GZipTaskOutputPacker(
-            new TarTaskOutputPacker(fileSystem)
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, ExecutorFactory executorFactory) {
+        TaskOutputCompressionCodec codec = TaskOutputCompressionCodecs.select(
+            System.getProperty(TaskOutputCompressionCodecs.COMPRESSION_PROPERTY),
+            System.getProperty(TaskOutputCompressionCodecs.COMPRESSION_LEVEL_PROPERTY)
+        );
+        return new CompressingTaskOutputPacker(
+            new TarTaskOutputPacker(fileSystem, executorFactory, Integer.getInteger(TarTaskOutputPacker.UNPACK_THREADS_PROPERTY, TarTaskOutputPacker.DEFAULT_UNPACK_THREADS)),
+            codec,
+            TaskOutputCompressionCodecs.all()
         );
     }
 
@@ -24,6 +24,7 @@ import org.gradle.cache.CacheValidator;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.CacheAccessStatistics;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.filelock.LockOptions;
 import org.gradle.internal.Cast;
@@ -33,6 +34,8 @@ import org.gradle.internal.serialize.Serializer;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class InMemoryCacheFactory implements CacheFactory {
@@ -52,6 +55,11 @@ public class InMemoryCacheFactory implements CacheFactory {
         return new InMemoryCache(cacheDir);
     }
 
+    @Override
+    public List<CacheAccessStatistics> getStatistics() {
+        return Collections.emptyList();
+    }
+
     private class InMemoryCache implements PersistentCache {
         private final File cacheDir;
         private boolean closed;
@@ -23,10 +23,13 @@ import org.gradle.api.internal.changedetection.rules.FileChange
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.hash.DefaultFileHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ChangeListener
 import org.junit.Rule
+import spock.lang.IgnoreIf
 import spock.lang.Specification
 
 import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.*
@@ -38,16 +41,18 @@ class AbstractFileCollectionSnapshotterTest extends Specification {
         getFile(_) >> null
         getDirectoryTree(_) >> null
     }
-    def snapshotter = new AbstractFileCollectionSnapshotter(new DefaultFileHasher(), stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror) {
-        @Override
-        Class<? extends FileCollectionSnapshotter> getRegisteredType() {
-            FileCollectionSnapshotter
-        }
-    }
+    def executorFactory = new DefaultExecutorFactory()
+    def hashingExecutor = new FileHashingExecutor(executorFactory)
+    def snapshotter = createSnapshotter(hashingExecutor)
     def listener = Mock(ChangeListener)
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
+    def cleanup() {
+        hashingExecutor.stop()
+        executorFactory.stop()
+    }
+
     def getFilesReturnsOnlyTheFilesWhichExisted() {
         given:
         TestFile file = tmpDir.createFile('file1')
@@ -299,6 +304,54 @@ class AbstractFileCollectionSnapshotterTest extends Specification {
         0 * listener._
     }
 
+    def "hashes files of large directory trees in parallel"() {
+        given:
+        TestFile dir = tmpDir.createDir('dir')
+        200.times { dir.file("sub${it % 7}/file$it").text = "content $it" }
+
+        when:
+        def snapshot = snapshotter.snapshot(files(dir), ORDERED, ABSOLUTE)
+        def sequentialSnapshot = createSnapshotter(null).snapshot(files(dir), ORDERED, ABSOLUTE)
+
+        then:
+        snapshot.files.size() == 200
+        snapshot.elements == sequentialSnapshot.elements
+        snapshot.snapshots.collect { it.value.snapshot.contentMd5 } == sequentialSnapshot.snapshots.collect { it.value.snapshot.contentMd5 }
+    }
+
+    @IgnoreIf({ Runtime.runtime.availableProcessors() < 2 })
+    def "shares hashing threads between directory trees"() {
+        def countingExecutorFactory = Mock(ExecutorFactory)
+        def sharedHashingExecutor = new FileHashingExecutor(countingExecutorFactory)
+        def sharingSnapshotter = createSnapshotter(sharedHashingExecutor)
+
+        given:
+        TestFile dir1 = tmpDir.createDir('dir1')
+        TestFile dir2 = tmpDir.createDir('dir2')
+        100.times {
+            dir1.file("file$it").text = "content $it"
+            dir2.file("file$it").text = "other content $it"
+        }
+
+        when:
+        sharingSnapshotter.snapshot(files(dir1), ORDERED, ABSOLUTE)
+        sharingSnapshotter.snapshot(files(dir2), ORDERED, ABSOLUTE)
+        sharedHashingExecutor.stop()
+
+        then:
+        1 * countingExecutorFactory.create("Hash files", _) >> { String name, int threads -> executorFactory.create(name, threads) }
+        0 * countingExecutorFactory._
+    }
+
+    private AbstractFileCollectionSnapshotter createSnapshotter(FileHashingExecutor hashingExecutor) {
+        new AbstractFileCollectionSnapshotter(new DefaultFileHasher(), stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), fileSystemMirror, hashingExecutor) {
+            @Override
+            Class<? extends FileCollectionSnapshotter> getRegisteredType() {
+                FileCollectionSnapshotter
+            }
+        }
+    }
+
     private static void changes(FileCollectionSnapshot newSnapshot, FileCollectionSnapshot oldSnapshot, ChangeListener<String> listener) {
         newSnapshot.iterateContentChangesSince(oldSnapshot, "TYPE").each { FileChange change ->
             switch (change.type) {
@@ -50,7 +50,7 @@ class DefaultClasspathSnapshotterTest extends Specification {
     def directoryFileTreeFactory = Mock(DirectoryFileTreeFactory)
     def fileSystemMirror = Mock(FileSystemMirror)
     def classpathHasher = new DefaultClasspathEntryHasher(new DefaultClasspathContentHasher())
-    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathHasher)
+    def snapshotter = new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, classpathHasher, null)
 
     def "root elements are unsorted, non-root elements are sorted amongst themselves"() {
         given:
@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentCache
 import org.gradle.cache.internal.FileLockManager
 import org.gradle.cache.internal.filelock.LockOptionsBuilder
 import org.gradle.internal.event.DefaultListenerManager
+import org.gradle.internal.hash.HashFunctions
 import spock.lang.Specification
 
 class DefaultTaskHistoryStoreTest extends Specification {
@@ -38,6 +39,7 @@ class DefaultTaskHistoryStoreTest extends Specification {
 
         then:
         1 * cacheRepository.cache(gradle, "taskHistory") >> cacheBuilder
+        1 * cacheBuilder.withProperties([hashFunction: HashFunctions.HASH_FUNCTION_ID]) >> cacheBuilder
         1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
         1 * cacheBuilder.withLockOptions(LockOptionsBuilder.mode(FileLockManager.LockMode.None)) >> cacheBuilder
         1 * cacheBuilder.open() >> backingCache
@@ -22,6 +22,7 @@ import org.gradle.cache.internal.CrossProcessCacheAccess
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
 import org.gradle.internal.Factory
 import org.gradle.internal.event.DefaultListenerManager
+import org.gradle.internal.serialize.BaseSerializerFactory
 import spock.lang.Specification
 
 class InMemoryCacheDecoratorFactoryTest extends Specification {
@@ -32,7 +33,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
 
     def "caches result from backing cache and reuses for other instances with the same cache id"() {
         given:
-        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
 
         when:
         def result = cache.get("key")
@@ -57,7 +58,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
 
         when:
-        def cache2 = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache2 = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
         result = cache2.get("key")
 
         then:
@@ -70,7 +71,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
 
     def "does not cache result when not long running process"() {
         given:
-        def cache = cacheFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache = cacheFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
 
         when:
         def result = cache.get("key")
@@ -99,7 +100,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
 
     def "caches null result from backing cache"() {
         given:
-        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
 
         when:
         def result = cache.get("key")
@@ -124,11 +125,34 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "counts hits and misses of each cache"() {
+        given:
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        target.get("key") >> "result"
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+        cacheFactory.decorator(100, true).decorate("path/other.bin", "other", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        cache.get("key")
+        cache.get("missing")
+
+        then:
+        def statistics = cacheFactory.statistics.collectEntries { [it.cacheId, it] }
+        statistics.size() == 2
+        statistics["path/fileSnapshots.bin"].hits == 2
+        statistics["path/fileSnapshots.bin"].misses == 2
+        statistics["path/other.bin"].hits == 0
+        statistics["path/other.bin"].misses == 0
+    }
+
     def "caches result of putting item"() {
         def lock = Mock(Runnable)
 
         given:
-        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
 
         when:
         def result = cache.get("key")
@@ -167,7 +191,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         def lock = Mock(Runnable)
 
         given:
-        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
 
         when:
         def result = cache.get("key")
@@ -202,4 +226,87 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "evicts entries when the shared memory budget is exceeded"() {
+        given:
+        def factory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 200 * 1024)
+        def cache1 = factory.decorator(100000, true).decorate("path/cache1.bin", "cache1", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+        def cache2 = factory.decorator(100000, true).decorate("path/cache2.bin", "cache2", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+        def value = "x" * 10000
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+
+        when:
+        50.times {
+            cache1.get("key" + it)
+            cache2.get("key" + it)
+        }
+
+        then:
+        100 * target.get(_) >> value
+
+        when:
+        50.times {
+            cache1.get("key" + it)
+            cache2.get("key" + it)
+        }
+
+        then:
+        (80..100) * target.get(_) >> value
+    }
+
+    def "retains many small entries"() {
+        given:
+        def factory = new InMemoryCacheDecoratorFactory(false, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 1024 * 1024)
+        def cache = factory.decorator(100000, true).decorate("path/cache.bin", "cache", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+
+        when:
+        1000.times {
+            cache.get("key" + it)
+        }
+
+        then:
+        1000 * target.get(_) >> "value"
+
+        when:
+        1000.times {
+            cache.get("key" + it)
+        }
+
+        then:
+        0 * target.get(_)
+    }
+
+    def "discards entries and halves budget when budget is reduced"() {
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", BaseSerializerFactory.STRING_SERIALIZER, target, crossProcessCacheAccess, asyncCacheAccess)
+        def budget = cacheFactory.memoryBudget
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+
+        when:
+        cache.get("key")
+
+        then:
+        1 * target.get("key") >> "result"
+
+        when:
+        def reduced = cacheFactory.reduceMemoryBudget()
+        def result = cache.get("key")
+
+        then:
+        reduced
+        cacheFactory.memoryBudget == budget.intdiv(2)
+        result == "result 2"
+        1 * target.get("key") >> "result 2"
+
+        when:
+        cacheFactory.reduceMemoryBudget()
+        cacheFactory.reduceMemoryBudget()
+
+        then:
+        cacheFactory.memoryBudget == budget.intdiv(8)
+        !cacheFactory.reduceMemoryBudget()
+    }
 }
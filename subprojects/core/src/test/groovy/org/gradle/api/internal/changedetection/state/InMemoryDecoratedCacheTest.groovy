@@ -16,17 +16,17 @@
 
 package org.gradle.api.internal.changedetection.state
 
-import com.google.common.cache.CacheBuilder
 import org.gradle.api.Transformer
 import org.gradle.cache.internal.FileLock
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache
+import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
 import java.util.concurrent.atomic.AtomicReference
 
 class InMemoryDecoratedCacheTest extends ConcurrentSpec {
     def target = Mock(MultiProcessSafeAsyncPersistentIndexedCache)
-    def cache = new InMemoryDecoratedCache(target, CacheBuilder.newBuilder().build(), "id", new AtomicReference<FileLock.State>())
+    def cache = new InMemoryDecoratedCache(target, new SharedInMemoryCacheStore(1024 * 1024).newRegion("id", 100, BaseSerializerFactory.STRING_SERIALIZER), new AtomicReference<FileLock.State>())
 
     def "does not produce value when present in memory and marks completed"() {
         def producer = Mock(Transformer)
@@ -30,6 +30,8 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.internal.tasks.TaskOutputCachingBuildCacheKey
 import org.gradle.caching.internal.tasks.TaskOutputPacker
+import org.gradle.caching.internal.tasks.TaskOutputPackingMetrics
+import org.gradle.caching.internal.tasks.TaskOutputPackingStatisticsCollector
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
 import spock.lang.Specification
@@ -50,12 +52,14 @@ class SkipCachedTaskExecuterTest extends Specification {
         _ * getDescription() >> "test"
     }
     def taskOutputPacker = Mock(TaskOutputPacker)
+    def packingStatistics = Mock(TaskOutputPackingStatisticsCollector)
+    def packingMetrics = new TaskOutputPackingMetrics("gzip", 100, 50)
     def cacheKey = Mock(TaskOutputCachingBuildCacheKey)
     def taskOutputOriginFactory = Mock(TaskOutputOriginFactory)
     def originReader = Mock(TaskOutputOriginReader)
     def internalTaskExecutionListener = Mock(TaskOutputsGenerationListener)
 
-    def executer = new SkipCachedTaskExecuter(taskOutputOriginFactory, buildCache, taskOutputPacker, internalTaskExecutionListener, delegate)
+    def executer = new SkipCachedTaskExecuter(taskOutputOriginFactory, buildCache, taskOutputPacker, packingStatistics, internalTaskExecutionListener, delegate)
 
     def "skip task when cached results exist"() {
         def inputStream = Mock(InputStream)
@@ -78,7 +82,8 @@ class SkipCachedTaskExecuterTest extends Specification {
         }
         1 * internalTaskExecutionListener.beforeTaskOutputsGenerated()
         1 * taskOutputOriginFactory.createReader(task) >> originReader
-        1 * taskOutputPacker.unpack(outputs, inputStream, originReader)
+        1 * taskOutputPacker.unpack(outputs, inputStream, originReader) >> packingMetrics
+        1 * packingStatistics.unpacked(task, packingMetrics, _)
 
         then:
         1 * taskState.setOutcome(TaskExecutionOutcome.FROM_CACHE)
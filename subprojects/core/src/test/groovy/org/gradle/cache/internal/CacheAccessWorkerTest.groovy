@@ -47,6 +47,81 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         cacheAccessWorker?.stop()
     }
 
+    def "applies only the last queued update of each entry and applies puts in bulk"() {
+        given:
+        def cache = Mock(MultiProcessSafePersistentIndexedCache)
+        def completion = Mock(Runnable)
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "a", 1, completion))
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "b", 2, completion))
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "a", 3, completion))
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.remove(cache, "c", completion))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        1 * cache.putAll([a: 3, b: 2])
+        1 * cache.remove("c")
+        0 * cache._
+        4 * completion.run()
+
+        when:
+        cacheAccessWorker.stop()
+
+        then:
+        cacheAccessWorker.statistics.appliedUpdates == 3
+        cacheAccessWorker.statistics.coalescedUpdates == 1
+    }
+
+    def "statistics can be retrieved while the worker is running"() {
+        given:
+        def cache = Mock(MultiProcessSafePersistentIndexedCache)
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "a", 1, {} as Runnable))
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "a", 2, {} as Runnable))
+
+        expect:
+        def queued = cacheAccessWorker.statistics
+        queued.displayName == "<cache>"
+        queued.operations == 2
+        queued.queueDepth == 2
+        queued.maxQueueDepth == 2
+        queued.batches == 0
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+        def flushed = cacheAccessWorker.statistics
+
+        then:
+        flushed.operations == 3
+        flushed.queueDepth == 0
+        flushed.batches == 1
+        flushed.appliedUpdates == 1
+        flushed.coalescedUpdates == 1
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "applies queued updates before running a read"() {
+        given:
+        def cache = Mock(MultiProcessSafePersistentIndexedCache)
+        def applied = [:]
+        cache.putAll(_) >> { Map entries -> applied.putAll(entries) }
+        start(cacheAccessWorker)
+
+        when:
+        cacheAccessWorker.enqueue(IndexedCacheUpdate.put(cache, "a", 1, {} as Runnable))
+        def result = cacheAccessWorker.read { applied.a }
+
+        then:
+        result == 1
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
     def "read propagates failure"() {
         given:
         def failure = new RuntimeException()
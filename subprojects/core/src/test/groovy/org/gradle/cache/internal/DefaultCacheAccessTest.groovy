@@ -17,7 +17,6 @@ package org.gradle.cache.internal
 
 import org.gradle.cache.PersistentIndexedCacheParameters
 import org.gradle.cache.internal.FileLockManager.LockMode
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.internal.Factory
 import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.internal.serialize.Serializer
@@ -38,12 +37,12 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     final File lockFile = tmpDir.file('lock.bin')
     final File cacheDir = tmpDir.file('caches')
     final FileLock lock = Mock()
-    final BTreePersistentIndexedCache<String, Integer> backingCache = Mock()
+    final PersistentIndexedStore<String, Integer> backingCache = Mock()
 
     private DefaultCacheAccess newAccess(LockMode lockMode) {
         new DefaultCacheAccess("<display-name>", lockFile, mode(lockMode), cacheDir, lockManager, initializationAction, executorFactory) {
             @Override
-            def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+            def <K, V> PersistentIndexedStore<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
                 return backingCache
             }
         }
@@ -554,6 +553,31 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         0 * _._
     }
 
+    def "statistics include the bytes written to each indexed cache"() {
+        def access = newAccess(None)
+
+        given:
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
+        lock.writeFile(_) >> { Runnable r -> r.run() }
+        backingCache.getBytesWritten() >> 123
+        access.open()
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.useCache { cache.put("key", 1) }
+
+        when:
+        def statistics = access.statistics
+
+        then:
+        statistics.displayName == "<display-name>"
+        statistics.indexedCaches.size() == 1
+        statistics.indexedCaches[0].cacheName == "cache"
+        statistics.indexedCaches[0].cacheId == new File(cacheDir, "cache.bin").absolutePath
+        statistics.bytesWritten == 123
+
+        cleanup:
+        access?.close()
+    }
+
     def "contended action safely closes the lock when cache is not busy"() {
         Factory<String> action = Mock()
         def access = newAccess(None)
@@ -683,7 +707,7 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
 
         given:
         CrossProcessCacheAccess cpAccess
-        decorator.decorate(_, _, _, _, _) >> { String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
+        decorator.decorate(_, _, _, _, _, _) >> { String cacheId, String cacheName, Serializer valueSerializer, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
             cpAccess = crossProcessCacheAccess
             persistentCache
         }
@@ -755,11 +779,25 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         access?.close()
     }
 
+    def "throws InvalidCacheReuseException when storage format differs"() {
+        def access = newAccess(None)
+
+        when:
+        access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class).storageFormat(PersistentIndexedCacheParameters.StorageFormat.APPEND_ONLY_LOG))
+
+        then:
+        thrown(DefaultCacheAccess.InvalidCacheReuseException)
+
+        cleanup:
+        access?.close()
+    }
+
     def "throws InvalidCacheReuseException when cache decorator differs"() {
         def access = newAccess(None)
         def decorator = Mock(CacheDecorator)
         lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
-        decorator.decorate(_, _, _, _, _) >> { String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
+        decorator.decorate(_, _, _, _, _, _) >> { String cacheId, String cacheName, Serializer valueSerializer, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
             persistentCache
         }
 
@@ -778,7 +816,7 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         def access = newAccess(None)
         def decorator = Mock(CacheDecorator)
         lockManager.lock(lockFile, mode(Exclusive), "<display-name>") >> lock
-        decorator.decorate(_, _, _, _, _) >> { String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
+        decorator.decorate(_, _, _, _, _, _) >> { String cacheId, String cacheName, Serializer valueSerializer, MultiProcessSafePersistentIndexedCache persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess ->
             persistentCache
         }
 
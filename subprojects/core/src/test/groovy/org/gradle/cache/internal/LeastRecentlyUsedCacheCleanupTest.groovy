@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.time.TimeProvider
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LeastRecentlyUsedCacheCleanupTest extends Specification {
+    static final long NOW = TimeUnit.DAYS.toMillis(100)
+
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheDir = tmpDir.createDir("cache")
+    def persistentCache = Stub(PersistentCache) {
+        getBaseDir() >> cacheDir
+    }
+    def timeProvider = Stub(TimeProvider) {
+        getCurrentTime() >> NOW
+    }
+    def entryFilter = new FileFilter() {
+        @Override
+        boolean accept(File file) {
+            return file.name.startsWith("entry")
+        }
+    }
+
+    def "keeps all entries when cache is below target size"() {
+        def entries = [createEntry("entry1", 10, 1), createEntry("entry2", 10, 2)]
+
+        when:
+        cleanup(100, 0).execute(persistentCache)
+
+        then:
+        entries.every { it.exists() }
+    }
+
+    def "removes least recently used entries until cache fits target size"() {
+        def oldest = createEntry("entry1", 10, 1)
+        def older = createEntry("entry2", 10, 2)
+        def newer = createEntry("entry3", 10, 3)
+        def newest = createEntry("entry4", 10, 4)
+
+        when:
+        cleanup(25, 0).execute(persistentCache)
+
+        then:
+        newest.exists()
+        newer.exists()
+        !older.exists()
+        !oldest.exists()
+    }
+
+    def "removes entries older than a smaller entry that does not fit"() {
+        def newest = createEntry("entry1", 20, 3)
+        def large = createEntry("entry2", 20, 2)
+        def small = createEntry("entry3", 1, 1)
+
+        when:
+        cleanup(30, 0).execute(persistentCache)
+
+        then:
+        newest.exists()
+        !large.exists()
+        !small.exists()
+    }
+
+    def "removes entries that have not been used within max age"() {
+        def recent = createEntry("entry1", 10, 99)
+        def unused = createEntry("entry2", 10, 90)
+
+        when:
+        cleanup(100, TimeUnit.DAYS.toMillis(7)).execute(persistentCache)
+
+        then:
+        recent.exists()
+        !unused.exists()
+    }
+
+    def "only removes files accepted by the entry filter"() {
+        def lockFile = cacheDir.file("cache.lock").createFile()
+        lockFile.lastModified = 0
+        def entry = createEntry("entry1", 10, 1)
+
+        when:
+        cleanup(0, 0).execute(persistentCache)
+
+        then:
+        lockFile.exists()
+        !entry.exists()
+    }
+
+    def "finds entries in nested directories"() {
+        def nested = createEntry("a/b/entry1", 10, 1)
+        def topLevel = createEntry("entry2", 10, 2)
+
+        when:
+        cleanup(10, 0).execute(persistentCache)
+
+        then:
+        topLevel.exists()
+        !nested.exists()
+    }
+
+    private LeastRecentlyUsedCacheCleanup cleanup(long targetSize, long maxAge) {
+        new LeastRecentlyUsedCacheCleanup(entryFilter, targetSize, maxAge, timeProvider)
+    }
+
+    private TestFile createEntry(String path, int size, int lastUsedInDays) {
+        def file = cacheDir.file(path)
+        file.parentFile.mkdirs()
+        file.bytes = new byte[size]
+        file.lastModified = TimeUnit.DAYS.toMillis(lastUsedInDays)
+        return file
+    }
+}
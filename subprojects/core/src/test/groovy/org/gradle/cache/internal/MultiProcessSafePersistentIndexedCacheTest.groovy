@@ -16,14 +16,13 @@
 package org.gradle.cache.internal
 
 import org.gradle.internal.Factory
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import spock.lang.Specification
 
 class MultiProcessSafePersistentIndexedCacheTest extends Specification {
     final FileAccess fileAccess = Mock()
-    final Factory<BTreePersistentIndexedCache<String, String>> factory = Mock()
+    final Factory<PersistentIndexedStore<String, String>> factory = Mock()
     final cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
-    final BTreePersistentIndexedCache<String, String> backingCache = Mock()
+    final PersistentIndexedStore<String, String> backingCache = Mock()
 
     def "opens cache on first access"() {
         when:
@@ -63,6 +62,19 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds write lock while putting entries into cache"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.putAll([key: "value", other: "value"])
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.putAll([key: "value", other: "value"])
+        0 * _._
+    }
+
     def "holds write lock while removing entry from cache"() {
         given:
         cacheOpened()
@@ -86,6 +98,7 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
+        1 * backingCache.getBytesWritten()
         0 * _._
     }
 
@@ -99,6 +112,7 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
+        1 * backingCache.getBytesWritten()
         0 * _._
     }
 
@@ -119,6 +133,7 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         then:
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * backingCache.close()
+        1 * backingCache.getBytesWritten()
         0 * _._
 
         when:
@@ -128,6 +143,30 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "accumulates bytes written across store instances"() {
+        def reopenedCache = Mock(PersistentIndexedStore)
+
+        given:
+        cacheOpened()
+
+        when:
+        cache.finishWork()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.getBytesWritten() >> 100
+        cache.bytesWritten == 100
+
+        when:
+        cache.get("something")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> reopenedCache
+        _ * reopenedCache.getBytesWritten() >> 20
+        cache.bytesWritten == 120
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
@@ -34,6 +34,10 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertNull;
@@ -161,6 +165,65 @@ public class BTreePersistentIndexedCacheTest {
         cache.close();
     }
 
+    @Test
+    public void persistsAddedEntriesWithoutMemoryMapping() {
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, false);
+        checkAddsAndRemoves(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
+        verifyAndCloseCache();
+    }
+
+    @Test
+    public void canReadEntriesFromMultipleThreadsConcurrently() throws Exception {
+        createCache();
+        final int count = 500;
+        for (int i = 0; i < count; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int i = 0; i < count; i++) {
+                            if (!Integer.valueOf(i).equals(cache.get(String.format("key_%d", i)))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (int i = count; i < 2 * count; i++) {
+                cache.put(String.format("key_%d", i), i);
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), equalTo(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        verifyAndCloseCache();
+    }
+
+    @Test
+    public void persistsEntriesAddedInBulk() {
+        createCache();
+        Map<String, Integer> entries = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            entries.put(String.format("key_%d", i), i);
+        }
+        cache.putAll(entries);
+        cache.reset();
+
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            assertThat(cache.get(entry.getKey()), equalTo(entry.getValue()));
+        }
+        verifyAndCloseCache();
+    }
+
     @Test
     public void persistsAddedEntriesAfterReopen() {
         createCache();
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log.bin")
+
+    def "returns null for missing entry"() {
+        def cache = createCache()
+
+        expect:
+        cache.get("missing") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "persists added, replaced and removed entries"() {
+        def cache = createCache()
+
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("a", "3")
+        cache.put("c", "4")
+        cache.remove("c")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == "2"
+        cache.get("c") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "counts the bytes appended to the log"() {
+        def cache = createCache()
+
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.remove("a")
+
+        then:
+        cache.bytesWritten == cacheFile.length() - 8
+
+        when:
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.bytesWritten == 0
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards partially written entry at the end of the file"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.close()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.length = file.length() - 1
+        file.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+
+        when:
+        cache.put("b", "3")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "3"
+
+        cleanup:
+        cache.close()
+    }
+
+    @Unroll
+    def "discards entry with corrupt lengths #keyLength and #valueLength"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.close()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        def validLength = file.length()
+        file.seek(validLength)
+        file.writeInt(keyLength)
+        file.writeInt(valueLength)
+        file.writeInt(0)
+        file.write(new byte[16])
+        file.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cacheFile.length() == validLength
+
+        cleanup:
+        cache.close()
+
+        where:
+        keyLength         | valueLength
+        Integer.MAX_VALUE | 0
+        0                 | Integer.MAX_VALUE
+        8                 | Integer.MAX_VALUE - 4
+        Integer.MAX_VALUE | Integer.MAX_VALUE
+        -1                | 0
+        0                 | -2
+    }
+
+    def "discards file with unknown header"() {
+        cacheFile.text = "not a cache file"
+
+        when:
+        def cache = createCache()
+
+        then:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", "1")
+
+        then:
+        cache.get("a") == "1"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "compacts file while open when most entries are stale"() {
+        def cache = createCache()
+        def value = "x" * 1000
+
+        when:
+        10.times { round ->
+            200.times { cache.put("key" + it, value + "-" + round) }
+        }
+
+        then:
+        // 2MB have been written, but the file has been compacted whenever most of it was stale
+        cacheFile.length() < 1024 * 1024
+        !tmpDir.file("cache.log.bin.compacting").exists()
+        (0..<200).every { cache.get("key" + it) == value + "-9" }
+
+        when:
+        cache.put("key0", "updated")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("key0") == "updated"
+        (1..<200).every { cache.get("key" + it) == value + "-9" }
+
+        cleanup:
+        cache.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> createCache() {
+        new LogStructuredPersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER)
+    }
+}
@@ -22,11 +22,17 @@ import org.gradle.caching.configuration.AbstractBuildCache
 import org.gradle.caching.configuration.BuildCache
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal
 import org.gradle.caching.local.DirectoryBuildCache
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.progress.BuildOperationExecutor
 import org.gradle.internal.reflect.Instantiator
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Specification
 
 class BuildCacheServiceProviderTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
     List<BuildCache> sensedBuildCaches = []
 
     boolean buildCacheEnabled = true
@@ -53,7 +59,9 @@ class BuildCacheServiceProviderTest extends Specification {
     }
     def buildOperationExecuter = Mock(BuildOperationExecutor)
     def temporaryFileProvider = Mock(TemporaryFileProvider)
-    def provider = new BuildCacheServiceProvider(buildCacheConfiguration, startParameter, instantiator, buildOperationExecuter, temporaryFileProvider) {
+    def executorFactory = Mock(ExecutorFactory)
+    def backgroundWork = new BuildCacheBackgroundWork(buildOperationExecuter)
+    def provider = new BuildCacheServiceProvider(buildCacheConfiguration, startParameter, instantiator, buildOperationExecuter, temporaryFileProvider, executorFactory, backgroundWork) {
         @Override
         RoleAwareBuildCacheService createDecoratedBuildCacheService(String role, BuildCache buildCache) {
             sensedBuildCaches += buildCache
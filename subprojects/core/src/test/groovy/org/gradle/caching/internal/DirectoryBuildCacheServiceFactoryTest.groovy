@@ -22,6 +22,7 @@ import org.gradle.cache.CacheRepository
 import org.gradle.cache.internal.CacheScopeMapping
 import org.gradle.cache.internal.VersionStrategy
 import org.gradle.caching.local.DirectoryBuildCache
+import org.gradle.internal.time.TimeProvider
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -32,7 +33,8 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
     def cacheRepository = Mock(CacheRepository)
     def cacheScopeMapping = Mock(CacheScopeMapping)
     def resolver = Mock(FileResolver)
-    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, cacheScopeMapping, resolver)
+    def timeProvider = Stub(TimeProvider)
+    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, cacheScopeMapping, resolver, timeProvider)
     def cacheBuilder = Stub(CacheBuilder)
     def config = Mock(DirectoryBuildCache)
 
@@ -48,6 +50,8 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
         1 * config.getDirectory() >> null
         1 * cacheScopeMapping.getBaseDirectory(null, "build-cache-1", VersionStrategy.SharedCache) >> cacheDir
         1 * cacheRepository.cache(cacheDir) >> cacheBuilder
+        1 * config.getTargetSizeInMB() >> 1024
+        1 * config.getRemoveUnusedEntriesAfterDays() >> 7
         0 * _
     }
 
@@ -61,6 +65,8 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
         1 * config.getDirectory() >> cacheDir
         1 * resolver.resolve(cacheDir) >> cacheDir
         1 * cacheRepository.cache(cacheDir) >> cacheBuilder
+        1 * config.getTargetSizeInMB() >> 1024
+        1 * config.getRemoveUnusedEntriesAfterDays() >> 7
         0 * _
     }
 }
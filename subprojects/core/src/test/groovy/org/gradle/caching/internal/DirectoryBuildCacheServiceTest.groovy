@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.api.Action
+import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.cache.internal.DefaultCacheScopeMapping
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryCacheFactory
+import org.gradle.util.MockTimeProvider
+import org.gradle.util.GradleVersion
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+@CleanupTestDirectory
+class DirectoryBuildCacheServiceTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def cacheDir = temporaryFolder.file("cache-dir")
+    def cacheRepository = new DefaultCacheRepository(new DefaultCacheScopeMapping(temporaryFolder.file("user-home"), temporaryFolder.file("build-dir"), GradleVersion.current()), new InMemoryCacheFactory())
+    def cleanup = Mock(Action)
+    def timeProvider = new MockTimeProvider()
+    def service = new DirectoryBuildCacheService(cacheRepository, cacheDir, cleanup, timeProvider)
+    def hashCode = "0123456789abcdef0123456789abcdef"
+    def key = Stub(BuildCacheKey) {
+        getHashCode() >> hashCode
+    }
+
+    def "stores entries in sharded directories"() {
+        when:
+        service.store(key, writer("content"))
+
+        then:
+        def entry = cacheDir.file("01/23/$hashCode")
+        entry.text == "content"
+        cacheDir.file("01/23").list() as List == [hashCode]
+    }
+
+    def "can load stored entry"() {
+        given:
+        service.store(key, writer("content"))
+
+        when:
+        def reader = new CapturingReader()
+        def found = service.load(key, reader)
+
+        then:
+        found
+        reader.content == "content"
+    }
+
+    def "does not find missing entry"() {
+        expect:
+        !service.load(key, new CapturingReader())
+    }
+
+    def "replaces existing entry"() {
+        given:
+        service.store(key, writer("old"))
+
+        when:
+        service.store(key, writer("new"))
+
+        then:
+        cacheDir.file("01/23/$hashCode").text == "new"
+        cacheDir.file("01/23").list() as List == [hashCode]
+    }
+
+    def "does not leave partial entry behind when writing fails"() {
+        when:
+        service.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output.write("partial".bytes)
+                throw new IOException("failure")
+            }
+        })
+
+        then:
+        thrown(RuntimeException)
+        cacheDir.file("01/23").list() as List == []
+    }
+
+    def "runs cleanup when closed"() {
+        when:
+        service.close()
+
+        then:
+        1 * cleanup.execute(_)
+    }
+
+    def "runs cleanup at most once a day"() {
+        given:
+        service.close()
+
+        when:
+        timeProvider.increment(TimeUnit.HOURS.toMillis(23))
+        newService().close()
+
+        then:
+        0 * cleanup.execute(_)
+
+        when:
+        timeProvider.increment(TimeUnit.HOURS.toMillis(2))
+        newService().close()
+
+        then:
+        1 * cleanup.execute(_)
+    }
+
+    def "marks loaded entry as used at the current time"() {
+        given:
+        service.store(key, writer("content"))
+        def loadTime = TimeUnit.DAYS.toMillis(1000)
+        timeProvider.current = loadTime
+
+        when:
+        service.load(key, new CapturingReader())
+
+        then:
+        Math.abs(cacheDir.file("01/23/$hashCode").lastModified() - loadTime) < 2000
+    }
+
+    def "cache entry filter selects entries but not temporary files"() {
+        expect:
+        DirectoryBuildCacheService.CACHE_ENTRY_FILTER.accept(new File(hashCode))
+        !DirectoryBuildCacheService.CACHE_ENTRY_FILTER.accept(new File(hashCode + "1234567.part"))
+        !DirectoryBuildCacheService.CACHE_ENTRY_FILTER.accept(new File("cache-dir.lock"))
+        !DirectoryBuildCacheService.CACHE_ENTRY_FILTER.accept(new File("cache.properties"))
+    }
+
+    def "cleanup deletes stale temporary files and keeps recent ones"() {
+        given:
+        def now = TimeUnit.DAYS.toMillis(1000)
+        timeProvider.current = now
+        def stale = cacheDir.file("01/23/${hashCode}1234567.part").createFile()
+        stale.lastModified = now - TimeUnit.HOURS.toMillis(2)
+        def recent = cacheDir.file("01/23/${hashCode}7654321.part").createFile()
+        recent.lastModified = now - TimeUnit.MINUTES.toMillis(10)
+
+        when:
+        service.close()
+
+        then:
+        !stale.exists()
+        recent.exists()
+    }
+
+    private DirectoryBuildCacheService newService() {
+        return new DirectoryBuildCacheService(cacheRepository, cacheDir, cleanup, timeProvider)
+    }
+
+    private static BuildCacheEntryWriter writer(String content) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output.write(content.bytes)
+            }
+        }
+    }
+
+    private static class CapturingReader implements BuildCacheEntryReader {
+        String content
+
+        @Override
+        void readFrom(InputStream input) throws IOException {
+            content = input.text
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.progress.TestBuildOperationExecutor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class DispatchingBuildCacheServiceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def key = Stub(BuildCacheKey) {
+        getHashCode() >> "0123"
+        toString() >> "0123"
+    }
+    def local = Mock(RoleAwareBuildCacheService) {
+        getRole() >> "local"
+    }
+    def remote = Mock(RoleAwareBuildCacheService) {
+        getRole() >> "remote"
+    }
+    def temporaryFileProvider = Stub(TemporaryFileProvider) {
+        createTemporaryFile(*_) >> { File.createTempFile("entry", "tmp", temporaryFolder.testDirectory) }
+    }
+    def executorFactory = new DefaultExecutorFactory()
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def backgroundWork = new BuildCacheBackgroundWork(buildOperationExecutor)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "loads from local cache first"() {
+        def service = createService(true, true)
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        def found = service.load(key, reader)
+
+        then:
+        found
+        1 * local.load(key, reader) >> true
+        0 * remote.load(_, _)
+    }
+
+    def "copies entry found in remote cache to local cache"() {
+        def service = createService(true, true)
+        def reader = new CapturingReader()
+        String promoted = null
+
+        when:
+        def found = service.load(key, reader)
+
+        then:
+        found
+        reader.content == "content"
+        1 * local.load(key, reader) >> false
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader remoteReader ->
+            remoteReader.readFrom(new ByteArrayInputStream("content".bytes))
+            true
+        }
+        1 * local.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            promoted = write(writer)
+        }
+        promoted == "content"
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "does not copy entry to local cache when pushing to local cache is disabled"() {
+        def service = createService(false, true)
+        def reader = Mock(BuildCacheEntryReader)
+
+        when:
+        def found = service.load(key, reader)
+
+        then:
+        found
+        1 * local.load(key, reader) >> false
+        1 * remote.load(key, reader) >> true
+        0 * local.store(_, _)
+    }
+
+    def "reports miss when neither cache has the entry"() {
+        def service = createService(true, true)
+
+        when:
+        def found = service.load(key, new CapturingReader())
+
+        then:
+        !found
+        1 * local.load(key, _) >> false
+        1 * remote.load(key, _) >> false
+        0 * local.store(_, _)
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "stores entry in local and remote cache"() {
+        def service = createService(true, true)
+        def localContent = null
+        def remoteContent = null
+
+        when:
+        service.store(key, writer("content"))
+        service.close()
+
+        then:
+        1 * local.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            localContent = write(writer)
+        }
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            remoteContent = write(writer)
+        }
+        1 * local.close()
+        1 * remote.close()
+        localContent == "content"
+        remoteContent == "content"
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "does not wait for remote push"() {
+        def service = createService(false, true)
+        def pushStarted = new CountDownLatch(1)
+        def releasePush = new CountDownLatch(1)
+        remote.store(key, _) >> {
+            pushStarted.countDown()
+            releasePush.await()
+        }
+
+        when:
+        service.store(key, writer("content"))
+        pushStarted.await()
+
+        then:
+        temporaryFolder.testDirectory.list().length == 1
+
+        when:
+        releasePush.countDown()
+        service.close()
+
+        then:
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "drops remote pushes when too many are pending"() {
+        def service = createService(false, true, 1)
+        def releasePush = new CountDownLatch(1)
+        def pushed = []
+        remote.store(_, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            releasePush.await()
+            pushed << write(writer)
+        }
+
+        when:
+        service.store(key, writer("first"))
+        service.store(key, writer("second"))
+        releasePush.countDown()
+        service.close()
+
+        then:
+        pushed == ["first"]
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "stops pushing to remote cache after non-recoverable failure"() {
+        def service = createService(false, true)
+
+        when:
+        service.store(key, writer("first"))
+        service.close()
+        service.store(key, writer("second"))
+
+        then:
+        1 * remote.store(key, _) >> { throw new RuntimeException("unauthorized") }
+        0 * remote.store(_, _)
+        temporaryFolder.testDirectory.list().length == 0
+    }
+
+    def "finishes remote pushes when the build finishes"() {
+        def service = createService(false, true)
+        remote.getDescription() >> "remote cache"
+        def pushed = []
+
+        when:
+        service.store(key, writer("first"))
+        backgroundWork.buildFinished(null)
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            pushed << write(writer)
+        }
+        pushed == ["first"]
+        buildOperationExecutor.operations*.displayName == ["Push entry 0123 to remote cache"]
+        temporaryFolder.testDirectory.list().length == 0
+
+        when:
+        service.store(key, writer("second"))
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            pushed << write(writer)
+        }
+        pushed == ["first", "second"]
+        temporaryFolder.testDirectory.list().length == 0
+
+        cleanup:
+        service.close()
+    }
+
+    private DispatchingBuildCacheService createService(boolean pushToLocal, boolean pushToRemote, int maxQueuedPushes = 10) {
+        new DispatchingBuildCacheService(local, pushToLocal, remote, pushToRemote, temporaryFileProvider, executorFactory, backgroundWork, 1, maxQueuedPushes)
+    }
+
+    private static BuildCacheEntryWriter writer(String content) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output.write(content.bytes)
+            }
+        }
+    }
+
+    private static String write(BuildCacheEntryWriter writer) {
+        def output = new ByteArrayOutputStream()
+        writer.writeTo(output)
+        return new String(output.toByteArray())
+    }
+
+    private static class CapturingReader implements BuildCacheEntryReader {
+        String content
+
+        @Override
+        void readFrom(InputStream input) throws IOException {
+            content = input.text
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.caching.internal.tasks.compression.FastCompressionCodec
+import org.gradle.caching.internal.tasks.compression.GZipCompressionCodec
+import org.gradle.caching.internal.tasks.compression.NoCompressionCodec
+import org.gradle.caching.internal.tasks.compression.TaskOutputCompressionCodecs
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPInputStream
+
+class CompressingTaskOutputPackerTest extends Specification {
+    def taskOutputs = Stub(TaskOutputsInternal)
+    def readOrigin = Stub(TaskOutputOriginReader)
+    def writeOrigin = Stub(TaskOutputOriginWriter)
+    def content = ("some repetitive task output " * 1000).bytes
+    def delegate = new TaskOutputPacker() {
+        byte[] unpacked
+
+        @Override
+        TaskOutputPackingMetrics pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin) {
+            output.write(content)
+            output.close()
+            return new TaskOutputPackingMetrics(null, content.length, content.length)
+        }
+
+        @Override
+        TaskOutputPackingMetrics unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin) {
+            unpacked = input.bytes
+            return new TaskOutputPackingMetrics(null, unpacked.length, unpacked.length)
+        }
+    }
+
+    @Unroll
+    def "can unpack entry packed with #codec"() {
+        def packer = new CompressingTaskOutputPacker(delegate, codec, TaskOutputCompressionCodecs.all())
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def packMetrics = packer.pack(taskOutputs, output, writeOrigin)
+        then:
+        packMetrics.compression == codec.name
+        packMetrics.contentSize == content.length
+        packMetrics.entrySize == output.size()
+
+        when:
+        def unpackMetrics = packer.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+        then:
+        delegate.unpacked == content
+        unpackMetrics.compression == codec.name
+        unpackMetrics.entrySize == output.size()
+
+        where:
+        codec << [new GZipCompressionCodec(), new GZipCompressionCodec(1), new FastCompressionCodec(), new NoCompressionCodec()]
+    }
+
+    def "writes plain gzip entries that can be read by previous versions"() {
+        def packer = new CompressingTaskOutputPacker(delegate, new GZipCompressionCodec(9), TaskOutputCompressionCodecs.all())
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output, writeOrigin)
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).bytes == content
+    }
+
+    def "can read entries written with a different codec"() {
+        def fastPacker = new CompressingTaskOutputPacker(delegate, new FastCompressionCodec(), TaskOutputCompressionCodecs.all())
+        def gzipPacker = new CompressingTaskOutputPacker(delegate, new GZipCompressionCodec(), TaskOutputCompressionCodecs.all())
+        def fastOutput = new ByteArrayOutputStream()
+        def gzipOutput = new ByteArrayOutputStream()
+        fastPacker.pack(taskOutputs, fastOutput, writeOrigin)
+        gzipPacker.pack(taskOutputs, gzipOutput, writeOrigin)
+
+        when:
+        gzipPacker.unpack(taskOutputs, new ByteArrayInputStream(fastOutput.toByteArray()), readOrigin)
+        then:
+        delegate.unpacked == content
+
+        when:
+        fastPacker.unpack(taskOutputs, new ByteArrayInputStream(gzipOutput.toByteArray()), readOrigin)
+        then:
+        delegate.unpacked == content
+    }
+
+    def "fails on unknown compression"() {
+        def packer = new CompressingTaskOutputPacker(delegate, new GZipCompressionCodec(), TaskOutputCompressionCodecs.all())
+
+        when:
+        packer.unpack(taskOutputs, new ByteArrayInputStream([0x47, 0x43, 0x7f] as byte[]), readOrigin)
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message == "Cached result format error, unknown compression: 127"
+
+        when:
+        packer.unpack(taskOutputs, new ByteArrayInputStream("garbage".bytes), readOrigin)
+        then:
+        ex = thrown(IllegalStateException)
+        ex.message == "Cached result format error, unknown compression header."
+    }
+}
@@ -19,6 +19,8 @@ package org.gradle.caching.internal.tasks
 import com.google.common.collect.ImmutableSortedSet
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.nativeplatform.filesystem.FileSystem
 import spock.lang.Unroll
 
@@ -322,4 +324,76 @@ class TarTaskOutputPackerTest extends AbstractTaskOutputPackerSpec {
         then:
         targetOutputFile.parentFile.assertIsEmptyDir()
     }
+
+    def "can unpack task output directory with many files in parallel"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def parallelPacker = new TarTaskOutputPacker(fileSystem, executorFactory, 4)
+        def sourceOutputDir = tempDir.file("source").createDir()
+        (1..10).each { dir ->
+            (1..50).each { file ->
+                sourceOutputDir.file("dir$dir/file${file}.txt") << "output $dir/$file"
+            }
+        }
+        def targetOutputDir = tempDir.file("target")
+        def output = new ByteArrayOutputStream()
+        taskOutputs.getFileProperties() >> ImmutableSortedSet.of(
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        )
+        parallelPacker.pack(taskOutputs, output, writeOrigin)
+
+        when:
+        def input = new ByteArrayInputStream(output.toByteArray())
+        parallelPacker.unpack(taskOutputs, input, readOrigin)
+
+        then:
+        taskOutputs.getFileProperties() >> ImmutableSortedSet.of(
+            new TestProperty(propertyName: "test", outputFile: targetOutputDir)
+        )
+        11 * fileSystem.chmod({ it.directory }, _)
+        500 * fileSystem.chmod({ it.file }, _)
+        (1..10).each { dir ->
+            (1..50).each { file ->
+                def targetFile = targetOutputDir.file("dir$dir/file${file}.txt")
+                assert targetFile.text == "output $dir/$file"
+                assert targetFile.lastModified() == sourceOutputDir.file("dir$dir/file${file}.txt").lastModified()
+            }
+        }
+
+        cleanup:
+        parallelPacker.stop()
+        executorFactory.stop()
+    }
+
+    def "shares one unpack thread pool between unpacks and stops it when stopped"() {
+        def realExecutorFactory = new DefaultExecutorFactory()
+        def executorFactory = Mock(ExecutorFactory)
+        def parallelPacker = new TarTaskOutputPacker(fileSystem, executorFactory, 4)
+        def sourceOutputDir = tempDir.file("source").createDir()
+        (1..50).each { file ->
+            sourceOutputDir.file("file${file}.txt") << "output $file"
+        }
+        def output = new ByteArrayOutputStream()
+        taskOutputs.getFileProperties() >> ImmutableSortedSet.of(
+            new TestProperty(propertyName: "test", outputFile: sourceOutputDir)
+        )
+        parallelPacker.pack(taskOutputs, output, writeOrigin)
+        def executor = null
+
+        when:
+        2.times { parallelPacker.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()), readOrigin) }
+
+        then:
+        1 * executorFactory.create("Unpack task output", 4) >> { executor = realExecutorFactory.create("Unpack task output", 4) }
+        sourceOutputDir.file("file50.txt").text == "output 50"
+
+        when:
+        parallelPacker.stop()
+
+        then:
+        executor.shutdown
+        0 * executorFactory._
+
+        cleanup:
+        realExecutorFactory.stop()
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks.compression
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class FastCompressionCodecTest extends Specification {
+    def codec = new FastCompressionCodec()
+
+    @Unroll
+    def "can compress and decompress #description"() {
+        when:
+        def compressed = compress(data)
+        then:
+        decompress(compressed) == data
+
+        where:
+        description                   | data
+        "empty input"                 | new byte[0]
+        "single byte"                 | [42] as byte[]
+        "short input"                 | "hello".bytes
+        "repetitive input"            | ("abcdefgh" * 100000).bytes
+        "random input"                | randomBytes(200000)
+        "input of exactly one block"  | ("0123456789abcdef" * (FastCompressionCodec.BLOCK_SIZE / 16)).bytes
+    }
+
+    def "compresses repetitive input"() {
+        def data = ("public class Foo { }\n" * 10000).bytes
+
+        expect:
+        compress(data).length < data.length / 10
+    }
+
+    def "stores incompressible blocks as is"() {
+        def data = randomBytes(FastCompressionCodec.BLOCK_SIZE)
+
+        expect:
+        // Block header, data and end marker
+        compress(data).length == data.length + 12
+    }
+
+    def "fails on truncated input"() {
+        def compressed = compress(("abcdefgh" * 100000).bytes)
+        def truncated = Arrays.copyOf(compressed, compressed.length - 10)
+
+        when:
+        decompress(truncated)
+        then:
+        thrown(IOException)
+    }
+
+    @Unroll
+    def "fails with clear error on corrupt block header #compressedLength/#length"() {
+        def header = new ByteArrayOutputStream()
+        def output = new DataOutputStream(header)
+        output.writeInt(compressedLength)
+        output.writeInt(length)
+        output.write(new byte[16])
+
+        when:
+        decompress(header.toByteArray())
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Corrupt compressed stream")
+
+        where:
+        compressedLength  | length
+        Integer.MIN_VALUE | 16
+        -17               | 16
+        -16               | FastCompressionCodec.BLOCK_SIZE + 1
+        Integer.MAX_VALUE | 16
+        16                | -1
+    }
+
+    private byte[] compress(byte[] data) {
+        def output = new ByteArrayOutputStream()
+        def compressed = codec.compress(output)
+        compressed.write(data)
+        compressed.close()
+        return output.toByteArray()
+    }
+
+    private byte[] decompress(byte[] data) {
+        def input = codec.decompress(new ByteArrayInputStream(data))
+        try {
+            return input.bytes
+        } finally {
+            input.close()
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        def bytes = new byte[length]
+        new Random(1234).nextBytes(bytes)
+        return bytes
+    }
+}
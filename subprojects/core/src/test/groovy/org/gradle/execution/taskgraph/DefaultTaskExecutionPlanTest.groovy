@@ -885,6 +885,41 @@ public class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
         t3.task.project != t4.task.project
     }
 
+    def "task becomes available once the tasks it depends on are complete"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+        def projectC = createChildProject(root, "c")
+
+        def a = projectA.task("a").doLast {}
+        def b = projectB.task("b").dependsOn(a).doLast {}
+        def c = projectC.task("c").doLast {}
+
+        addToGraphAndPopulate([b, c])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == a
+        t2.task == c
+
+        when:
+        executionPlan.taskComplete(t1)
+        def t3 = executionPlan.getTaskToExecute()
+
+        then:
+        t3.task == b
+
+        when:
+        executionPlan.taskComplete(t2)
+        executionPlan.taskComplete(t3)
+
+        then:
+        executionPlan.getTaskToExecute() == null
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class OutputPathTrieTest extends Specification {
+    def trie = new OutputPathTrie()
+    def task1 = Stub(TaskInternal)
+    def task2 = Stub(TaskInternal)
+
+    def "finds running task with the same output path"() {
+        given:
+        trie.add(task1, [path("a", "b")])
+
+        expect:
+        def overlap = trie.findOverlap(path("a", "b"))
+        overlap.left == task1
+        overlap.right == path("a", "b")
+    }
+
+    def "finds running task with an output containing the path"() {
+        given:
+        trie.add(task1, [path("a")])
+
+        expect:
+        def overlap = trie.findOverlap(path("a", "b", "c"))
+        overlap.left == task1
+        overlap.right == path("a")
+    }
+
+    def "finds running task with an output inside the path"() {
+        given:
+        trie.add(task1, [path("a", "b", "c")])
+        trie.add(task2, [path("d")])
+
+        expect:
+        def overlap = trie.findOverlap(path("a"))
+        overlap.left == task1
+        overlap.right == path("a")
+    }
+
+    def "does not treat paths sharing a name prefix as overlapping"() {
+        given:
+        trie.add(task1, [path("a", "bc")])
+
+        expect:
+        trie.findOverlap(path("a", "b")) == null
+        trie.findOverlap(path("a", "bcd")) == null
+        trie.findOverlap(path("e")) == null
+    }
+
+    def "does not find outputs of tasks that have been removed"() {
+        given:
+        trie.add(task1, [path("a", "b"), path("c")])
+        trie.add(task2, [path("a", "d")])
+
+        when:
+        trie.remove(task1, [path("a", "b"), path("c")])
+
+        then:
+        trie.findOverlap(path("a", "b")) == null
+        trie.findOverlap(path("c")) == null
+        trie.findOverlap(path("a")).left == task2
+    }
+
+    def "does not find any outputs after clearing"() {
+        given:
+        trie.add(task1, [path("a")])
+
+        when:
+        trie.clear()
+
+        then:
+        trie.findOverlap(path("a")) == null
+    }
+
+    private static String path(String... segments) {
+        File.separator + segments.join(File.separator)
+    }
+}
@@ -23,7 +23,17 @@ public interface ComponentMetadataProcessor {
         public ModuleComponentResolveMetadata processMetadata(ModuleComponentResolveMetadata metadata) {
             return metadata;
         }
+
+        @Override
+        public boolean hasRules() {
+            return false;
+        }
     };
 
     ModuleComponentResolveMetadata processMetadata(ModuleComponentResolveMetadata metadata);
+
+    /**
+     * Returns true if this processor may change the meta-data it is given.
+     */
+    boolean hasRules();
 }
@@ -52,11 +52,13 @@ import org.gradle.api.internal.artifacts.ivyservice.publisher.IvyBackedArtifactP
 import org.gradle.api.internal.artifacts.ivyservice.publisher.IvyXmlModuleDescriptorWriter;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.mvnsettings.LocalMavenRepositoryLocator;
 import org.gradle.api.internal.artifacts.query.ArtifactResolutionQueryFactory;
 import org.gradle.api.internal.artifacts.query.DefaultArtifactResolutionQueryFactory;
 import org.gradle.api.internal.artifacts.repositories.DefaultBaseRepositoryFactory;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
+import org.gradle.api.internal.artifacts.transform.CrossBuildVariantMatchingCache;
 import org.gradle.api.internal.artifacts.transform.DefaultArtifactTransforms;
 import org.gradle.api.internal.artifacts.transform.DefaultVariantTransformRegistry;
 import org.gradle.api.internal.artifacts.transform.TransformedFileCache;
@@ -221,7 +223,11 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        VariantTransformRegistry variantTransforms,
                                                        ImmutableModuleIdentifierFactory moduleIdentifierFactory,
                                                        ImmutableAttributesFactory attributesFactory,
-                                                       ModuleExclusions moduleExclusions) {
+                                                       ModuleExclusions moduleExclusions,
+                                                       ResolvedGraphCache resolvedGraphCache,
+                                                       BuildOperationExecutor buildOperationExecutor,
+                                                       CrossBuildVariantMatchingCache crossBuildVariantMatchingCache,
+                                                       ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
             return new ErrorHandlingConfigurationResolver(
                     new ShortCircuitEmptyConfigurationResolver(
                         new DefaultConfigurationResolver(
@@ -237,10 +243,14 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                 new VariantAttributeMatchingCache(
                                     variantTransforms,
                                     attributesSchema,
-                                    attributesFactory)),
+                                    attributesFactory,
+                                    crossBuildVariantMatchingCache,
+                                    classLoaderHierarchyHasher),
+                                buildOperationExecutor),
                             attributesFactory,
                             moduleIdentifierFactory,
-                            moduleExclusions),
+                            moduleExclusions,
+                            resolvedGraphCache),
                         componentIdentifierFactory,
                         moduleIdentifierFactory));
         }
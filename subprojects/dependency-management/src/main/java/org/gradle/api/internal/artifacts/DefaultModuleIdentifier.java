@@ -21,12 +21,14 @@ import org.gradle.api.artifacts.ModuleIdentifier;
 public class DefaultModuleIdentifier implements ModuleIdentifier {
     private final String group;
     private final String name;
+    private final int hashCode;
 
     private DefaultModuleIdentifier(String group, String name) {
         assert group != null : "group cannot be null";
         assert name != null : "name cannot be null";
         this.group = group;
         this.name = name;
+        this.hashCode = 31 * group.hashCode() ^ name.hashCode();
     }
 
     public static ModuleIdentifier newId(ModuleIdentifier other) {
@@ -62,6 +64,9 @@ public class DefaultModuleIdentifier implements ModuleIdentifier {
             return false;
         }
         DefaultModuleIdentifier other = (DefaultModuleIdentifier) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
         if (!name.equals(other.name)) {
             return false;
         }
@@ -73,6 +78,6 @@ public class DefaultModuleIdentifier implements ModuleIdentifier {
 
     @Override
     public int hashCode() {
-        return 31 * group.hashCode() ^ name.hashCode();
+        return hashCode;
     }
 }
@@ -23,6 +23,7 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
 
     private final ModuleIdentifier id;
     private final String version;
+    private final int hashCode;
 
     public DefaultModuleVersionIdentifier(String group, String name, String version) {
         assert group != null : "group cannot be null";
@@ -30,12 +31,14 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
         assert version != null : "version cannot be null";
         this.id = DefaultModuleIdentifier.newId(group, name);
         this.version = version;
+        this.hashCode = id.hashCode() ^ version.hashCode();
     }
 
     public DefaultModuleVersionIdentifier(ModuleIdentifier id, String version) {
         assert version != null : "version cannot be null";
         this.id = id;
         this.version = version;
+        this.hashCode = id.hashCode() ^ version.hashCode();
     }
 
     public String getGroup() {
@@ -66,6 +69,9 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
             return false;
         }
         DefaultModuleVersionIdentifier other = (DefaultModuleVersionIdentifier) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
         if (!id.equals(other.id)) {
             return false;
         }
@@ -77,7 +83,7 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
 
     @Override
     public int hashCode() {
-        return id.hashCode() ^ version.hashCode();
+        return hashCode;
     }
 
     public ModuleIdentifier getModule() {
@@ -29,6 +29,23 @@ public class DefaultResolverResults implements ResolverResults {
     private ResolvedLocalComponentsResult resolvedLocalComponentsResult;
     private Object artifactResolveState;
     private VisitedArtifactSet visitedArtifacts;
+    private final boolean artifactResolutionRequested;
+
+    public DefaultResolverResults() {
+        this(true);
+    }
+
+    /**
+     * @param artifactResolutionRequested whether the artifacts are going to be resolved after the dependency graph.
+     */
+    public DefaultResolverResults(boolean artifactResolutionRequested) {
+        this.artifactResolutionRequested = artifactResolutionRequested;
+    }
+
+    @Override
+    public boolean isArtifactResolutionRequested() {
+        return artifactResolutionRequested;
+    }
 
     @Override
     public boolean hasError() {
@@ -57,6 +57,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublica
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultLocalMavenRepositoryLocator;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultMavenFileLocations;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultMavenSettingsProvider;
@@ -289,6 +290,12 @@ class DependencyManagementBuildScopeServices {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
 
+    ResolvedGraphCache createResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme,
+                                                ImmutableModuleIdentifierFactory moduleIdentifierFactory, StartParameter startParameter) {
+        return new ResolvedGraphCache(cacheLockingManager, timeProvider, versionSelectorScheme, moduleIdentifierFactory,
+            Boolean.getBoolean(ResolvedGraphCache.ENABLED_PROPERTY), startParameter.isRefreshDependencies());
+    }
+
     ProjectPublicationRegistry createProjectPublicationRegistry() {
         return new DefaultProjectPublicationRegistry();
     }
@@ -28,6 +28,8 @@ import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.ExcludeRuleConverter;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.ExternalModuleIvyDependencyDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.ProjectIvyDependencyDescriptorFactory;
+import org.gradle.api.internal.artifacts.transform.CrossBuildVariantMatchingCache;
+import org.gradle.api.internal.cache.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.DefaultProducerGuard;
 import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
@@ -75,4 +77,8 @@ class DependencyManagementGlobalScopeServices {
     ProducerGuard<URI> createProducerAccess() {
         return new DefaultProducerGuard<URI>();
     }
+
+    CrossBuildVariantMatchingCache createCrossBuildVariantMatchingCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        return new CrossBuildVariantMatchingCache(cacheFactory);
+    }
 }
@@ -24,6 +24,11 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.
 public interface ResolverResults {
     boolean hasError();
 
+    /**
+     * Returns whether the artifacts are going to be resolved after the dependency graph. When they are not, only the dependency graph resolve result is required.
+     */
+    boolean isArtifactResolutionRequested();
+
     /**
      * Returns the old model, slowly being replaced by the new model represented by {@link ResolutionResult}. Requires artifacts to be resolved.
      */
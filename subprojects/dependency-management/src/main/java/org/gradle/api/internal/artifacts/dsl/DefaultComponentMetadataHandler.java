@@ -125,6 +125,10 @@ public class DefaultComponentMetadataHandler implements ComponentMetadataHandler
         return addRule(createSpecRuleActionForModule(id, ruleActionAdapter.createFromRuleSource(ComponentMetadataDetails.class, ruleSource)));
     }
 
+    public boolean hasRules() {
+        return !rules.isEmpty();
+    }
+
     public ModuleComponentResolveMetadata processMetadata(ModuleComponentResolveMetadata metadata) {
         ModuleComponentResolveMetadata updatedMetadata;
         if (rules.isEmpty()) {
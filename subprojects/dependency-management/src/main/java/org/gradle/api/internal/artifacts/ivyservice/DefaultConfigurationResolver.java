@@ -17,6 +17,9 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.FileCollectionDependency;
 import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
@@ -28,9 +31,12 @@ import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
 import org.gradle.api.internal.artifacts.ResolverResults;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.BuildDependenciesOnlyVisitedArtifactSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultVisitedArtifactResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.FileDependencyArtifactSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactsResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedFileDependencyResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
@@ -44,9 +50,11 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.Tran
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResultsBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResultsLoader;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.ResolvedLocalComponentsResultGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultVisitedFileDependencyResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.FileDependencyCollectingGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.StoreSet;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.artifacts.transform.ArtifactTransforms;
@@ -59,8 +67,11 @@ import org.gradle.internal.Transformers;
 import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.serialize.Encoder;
 import org.gradle.util.CollectionUtils;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 public class DefaultConfigurationResolver implements ConfigurationResolver {
@@ -82,13 +93,15 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
     private final ModuleExclusions moduleExclusions;
     private final BuildOperationProcessor buildOperationProcessor;
+    private final ResolvedGraphCache resolvedGraphCache;
+    private final ResolvedGraphCacheKeyCalculator resolvedGraphCacheKeyCalculator;
 
     public DefaultConfigurationResolver(ArtifactDependencyResolver resolver, RepositoryHandler repositories,
                                         GlobalDependencyResolutionRules metadataHandler, CacheLockingManager cacheLockingManager,
                                         ResolutionResultsStoreFactory storeFactory, boolean buildProjectDependencies,
                                         AttributesSchema attributesSchema, BuildOperationProcessor buildOperationProcessor, ArtifactTransforms artifactTransforms,
                                         ImmutableAttributesFactory attributesFactory, ImmutableModuleIdentifierFactory moduleIdentifierFactory,
-                                        ModuleExclusions moduleExclusions) {
+                                        ModuleExclusions moduleExclusions, ResolvedGraphCache resolvedGraphCache) {
         this.resolver = resolver;
         this.repositories = repositories;
         this.metadataHandler = metadataHandler;
@@ -101,6 +114,8 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         this.attributesFactory = attributesFactory;
         this.moduleIdentifierFactory = moduleIdentifierFactory;
         this.moduleExclusions = moduleExclusions;
+        this.resolvedGraphCache = resolvedGraphCache;
+        this.resolvedGraphCacheKeyCalculator = new ResolvedGraphCacheKeyCalculator(metadataHandler);
     }
 
     @Override
@@ -114,6 +129,39 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
 
     public void resolveGraph(ConfigurationInternal configuration, ResolverResults results) {
         List<ResolutionAwareRepository> resolutionAwareRepositories = CollectionUtils.collect(repositories, Transformers.cast(ResolutionAwareRepository.class));
+        String cacheKey = resolvedGraphCache.isEnabled() ? resolvedGraphCacheKeyCalculator.calculateKey(configuration, resolutionAwareRepositories) : null;
+        // A cached graph holds only the resolution result. When the artifacts are requested as well, resolve the graph, which is required for the artifacts anyway
+        if (cacheKey != null && !results.isArtifactResolutionRequested()) {
+            byte[] cachedGraph = resolvedGraphCache.load(cacheKey, configuration.getResolutionStrategy().getCachePolicy());
+            if (cachedGraph != null) {
+                loadGraph(cachedGraph, results);
+                return;
+            }
+        }
+        resolveGraph(configuration, resolutionAwareRepositories, cacheKey, results);
+    }
+
+    /**
+     * Uses a cached dependency graph, which contains only external module components. Used only when the artifacts have not been requested.
+     * Should they be requested later, they are resolved by resolving the graph again.
+     */
+    private void loadGraph(final byte[] cachedGraph, ResolverResults results) {
+        StoreSet stores = storeFactory.createStoreSet();
+        BinaryStore newModelStore = stores.nextBinaryStore();
+        StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, stores.newModelCache(), moduleIdentifierFactory);
+        newModelStore.write(new BinaryStore.WriteAction() {
+            @Override
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(cachedGraph);
+            }
+        });
+
+        VisitedArtifactsResults artifactsResults = new DefaultVisitedArtifactResults(Collections.<Long, ArtifactSet>emptyMap(), Collections.<Long>emptySet(), buildOperationProcessor);
+        VisitedFileDependencyResults fileDependencyResults = new DefaultVisitedFileDependencyResults(ImmutableSetMultimap.<Long, FileDependencyArtifactSet>of(), Collections.<FileCollectionDependency, FileDependencyArtifactSet>emptyMap(), buildOperationProcessor);
+        results.graphResolved(newModelBuilder.complete(), new ResolvedLocalComponentsResultGraphVisitor(), new BuildDependenciesOnlyVisitedArtifactSet(artifactsResults, fileDependencyResults, artifactTransforms));
+    }
+
+    private void resolveGraph(ConfigurationInternal configuration, List<ResolutionAwareRepository> resolutionAwareRepositories, @Nullable String cacheKey, ResolverResults results) {
         StoreSet stores = storeFactory.createStoreSet();
 
         BinaryStore oldModelStore = stores.nextBinaryStore();
@@ -123,6 +171,11 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         ResolvedConfigurationDependencyGraphVisitor oldModelVisitor = new ResolvedConfigurationDependencyGraphVisitor(oldModelBuilder);
 
         BinaryStore newModelStore = stores.nextBinaryStore();
+        ResolvedGraphCache.Recorder graphRecorder = null;
+        if (cacheKey != null) {
+            graphRecorder = resolvedGraphCache.createRecorder(newModelStore);
+            newModelStore = graphRecorder;
+        }
         Store<ResolvedComponentResult> newModelCache = stores.newModelCache();
         StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, newModelCache, moduleIdentifierFactory);
 
@@ -132,10 +185,17 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         FileDependencyCollectingGraphVisitor fileDependencyVisitor = new FileDependencyCollectingGraphVisitor(attributesFactory, buildOperationProcessor);
 
         DependencyGraphVisitor graphVisitor = new CompositeDependencyGraphVisitor(oldModelVisitor, newModelBuilder, localComponentsVisitor, fileDependencyVisitor);
+        if (graphRecorder != null) {
+            graphVisitor = new CompositeDependencyGraphVisitor(graphVisitor, graphRecorder);
+        }
         DependencyArtifactsVisitor artifactsVisitor = new CompositeDependencyArtifactsVisitor(oldModelVisitor, artifactsBuilder);
 
         resolver.resolve(configuration, resolutionAwareRepositories, metadataHandler, Specs.<DependencyMetadata>satisfyAll(), graphVisitor, artifactsVisitor, attributesSchema, moduleIdentifierFactory, moduleExclusions);
 
+        if (graphRecorder != null) {
+            resolvedGraphCache.store(cacheKey, graphRecorder);
+        }
+
         VisitedArtifactsResults artifactsResults = artifactsBuilder.complete();
         VisitedFileDependencyResults fileDependencyResults = fileDependencyVisitor.complete();
         results.graphResolved(newModelBuilder.complete(), localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(artifactsResults, fileDependencyResults, artifactTransforms));
@@ -144,6 +204,11 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     }
 
     public void resolveArtifacts(ConfigurationInternal configuration, ResolverResults results) {
+        if (results.getArtifactResolveState() == null) {
+            // The graph was loaded from the cache, so resolve it again to determine the artifacts
+            List<ResolutionAwareRepository> resolutionAwareRepositories = CollectionUtils.collect(repositories, Transformers.cast(ResolutionAwareRepository.class));
+            resolveGraph(configuration, resolutionAwareRepositories, null, results);
+        }
         ArtifactResolveState resolveState = (ArtifactResolveState) results.getArtifactResolveState();
         ResolvedGraphResults graphResults = resolveState.graphResults;
         VisitedArtifactsResults artifactResults = resolveState.artifactsResults;
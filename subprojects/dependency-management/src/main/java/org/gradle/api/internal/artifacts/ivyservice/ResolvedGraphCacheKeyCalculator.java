@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.util.GradleVersion;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Calculates the key used to cache the dependency graph of a configuration in a {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache}.
+ * The key is a hash of the declared dependencies and excludes, the repositories and the resolution strategy of the configuration.
+ *
+ * <p>The key does not cover the content of the repositories. Remote repositories are covered by the expiry of cached entries, which follows
+ * the cache policy of the configuration. Local repositories, such as {@code mavenLocal()} or a flat directory, can change at any time without
+ * being checked, so graphs resolved from them are not cached.</p>
+ */
+class ResolvedGraphCacheKeyCalculator {
+    private final GlobalDependencyResolutionRules metadataHandler;
+
+    ResolvedGraphCacheKeyCalculator(GlobalDependencyResolutionRules metadataHandler) {
+        this.metadataHandler = metadataHandler;
+    }
+
+    /**
+     * Returns the key for the given configuration, or null when the dependency graph of the configuration cannot be cached.
+     * This is the case when the configuration has dependencies other than external module dependencies, when rules are used that may change the result of resolution,
+     * or when a local repository is used.
+     */
+    @Nullable
+    String calculateKey(ConfigurationInternal configuration, List<ResolutionAwareRepository> repositories) {
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (!resolutionStrategy.getDependencySubstitution().isEmpty()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getDependencySubstitutionRules().hasRules()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()
+            || metadataHandler.getModuleMetadataProcessor().getModuleReplacements().hasReplacements()) {
+            return null;
+        }
+
+        DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        hasher.putString(GradleVersion.current().getVersion());
+
+        hasher.putString(configuration.getPath());
+        Module module = configuration.getModule();
+        hasher.putString(module.getGroup());
+        hasher.putString(module.getName());
+        hasher.putString(module.getVersion());
+        hasher.putString(module.getStatus());
+        hasher.putString(configuration.getAttributes().asImmutable().toString());
+
+        for (Configuration hierarchyConfiguration : configuration.getHierarchy()) {
+            hasher.putString(hierarchyConfiguration.getName());
+            hasher.putBoolean(hierarchyConfiguration.isTransitive());
+            putExcludeRules(hasher, hierarchyConfiguration.getExcludeRules());
+            for (Dependency dependency : hierarchyConfiguration.getDependencies()) {
+                if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                    return null;
+                }
+                putDependency(hasher, (ExternalModuleDependency) dependency);
+            }
+        }
+
+        hasher.putString(resolutionStrategy.getConflictResolution().getClass().getName());
+        Set<String> forcedModules = new TreeSet<String>();
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            forcedModules.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        putStrings(hasher, forcedModules);
+
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (resolver.isLocal()) {
+                return null;
+            }
+            hasher.putString(resolver.getId());
+        }
+
+        return hasher.hash().toString();
+    }
+
+    private static void putDependency(DefaultBuildCacheHasher hasher, ExternalModuleDependency dependency) {
+        putNullableString(hasher, dependency.getGroup());
+        hasher.putString(dependency.getName());
+        putNullableString(hasher, dependency.getVersion());
+        putNullableString(hasher, dependency.getTargetConfiguration());
+        hasher.putBoolean(dependency.isChanging());
+        hasher.putBoolean(dependency.isForce());
+        hasher.putBoolean(dependency.isTransitive());
+        putExcludeRules(hasher, dependency.getExcludeRules());
+        hasher.putInt(dependency.getArtifacts().size());
+        for (DependencyArtifact artifact : dependency.getArtifacts()) {
+            putNullableString(hasher, artifact.getName());
+            putNullableString(hasher, artifact.getType());
+            putNullableString(hasher, artifact.getExtension());
+            putNullableString(hasher, artifact.getClassifier());
+            putNullableString(hasher, artifact.getUrl());
+        }
+    }
+
+    private static void putExcludeRules(DefaultBuildCacheHasher hasher, Collection<ExcludeRule> excludeRules) {
+        Set<String> excludes = new TreeSet<String>();
+        for (ExcludeRule excludeRule : excludeRules) {
+            excludes.add(excludeRule.getGroup() + ":" + excludeRule.getModule());
+        }
+        putStrings(hasher, excludes);
+    }
+
+    private static void putStrings(DefaultBuildCacheHasher hasher, Collection<String> values) {
+        hasher.putInt(values.size());
+        for (String value : values) {
+            hasher.putString(value);
+        }
+    }
+
+    private static void putNullableString(DefaultBuildCacheHasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+}
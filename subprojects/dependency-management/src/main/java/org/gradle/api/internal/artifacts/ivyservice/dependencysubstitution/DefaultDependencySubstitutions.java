@@ -94,6 +94,11 @@ public class DefaultDependencySubstitutions implements DependencySubstitutionsIn
         return hasDependencySubstitutionRule;
     }
 
+    @Override
+    public boolean isEmpty() {
+        return substitutionRules.isEmpty();
+    }
+
     @Override
     public Action<DependencySubstitution> getRuleAction() {
         return Actions.composite(substitutionRules);
@@ -24,6 +24,11 @@ import org.gradle.api.internal.artifacts.configurations.MutationValidator;
 public interface DependencySubstitutionsInternal extends DependencySubstitutions, DependencySubstitutionRules {
     DependencySubstitutions allWithDependencyResolveDetails(Action<? super DependencyResolveDetails> rule);
 
+    /**
+     * Returns true if no substitution rules or dependency resolve rules have been added.
+     */
+    boolean isEmpty();
+
     void setMutationValidator(MutationValidator validator);
 
     DependencySubstitutionsInternal copy();
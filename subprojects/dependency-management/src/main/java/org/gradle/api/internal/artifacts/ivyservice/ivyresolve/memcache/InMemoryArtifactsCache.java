@@ -31,6 +31,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Caches the artifacts resolved from a repository, so that later resolutions do not resolve them again.
+ *
+ * <p>Not thread-safe. The cache is only accessed while the cache lock is held, which is held by a single thread at a time, including when
+ * the meta-data of components is resolved concurrently by {@code ComponentMetaDataPrefetcher}.</p>
+ */
 class InMemoryArtifactsCache {
     private final Map<ComponentArtifactIdentifier, File> artifacts = new HashMap<ComponentArtifactIdentifier, File>();
     private final Map<ComponentIdentifier, ComponentArtifacts> componentArtifacts = new HashMap<ComponentIdentifier, ComponentArtifacts>();
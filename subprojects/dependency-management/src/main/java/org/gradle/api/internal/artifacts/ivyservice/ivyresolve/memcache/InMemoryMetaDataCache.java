@@ -27,6 +27,12 @@ import java.util.Set;
 
 import static org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult.State.Listed;
 
+/**
+ * Caches the meta-data resolved from a repository, so that later resolutions do not resolve them again.
+ *
+ * <p>Not thread-safe. The cache is only accessed while the cache lock is held, which is held by a single thread at a time, including when
+ * the meta-data of components is resolved concurrently by {@code ComponentMetaDataPrefetcher}.</p>
+ */
 class InMemoryMetaDataCache {
     private final Map<ModuleVersionSelector, Set<String>> moduleVersionListing = new HashMap<ModuleVersionSelector, Set<String>>();
     private final Map<ModuleComponentIdentifier, CachedModuleVersionResult> metaData = new HashMap<ModuleComponentIdentifier, CachedModuleVersionResult>();
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * Resolves the meta-data for a batch of components concurrently, ahead of the graph traversal that requires it.
+ *
+ * <p>The cache lock is released by the calling thread while the batch is resolved. Each worker takes the cache lock while it resolves a component,
+ * and the repositories release the lock again while they access remote resources, so that remote requests are made concurrently.</p>
+ *
+ * <p>The in-memory repository caches, such as {@code InMemoryMetaDataCache} and {@code InMemoryArtifactsCache}, are not thread-safe. They are safe to use from
+ * the workers because they sit in front of {@code CacheLockReleasingModuleComponentsRepository} in the repository chain, so they are only accessed by a worker
+ * while it holds the cache lock, and the cache lock is held by a single thread at a time.</p>
+ */
+public class ComponentMetaDataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentMetaDataPrefetcher.class);
+    private final ComponentMetaDataResolver resolver;
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final CacheLockingManager cacheLockingManager;
+    private final VersionSelectorScheme versionSelectorScheme;
+
+    public ComponentMetaDataPrefetcher(ComponentMetaDataResolver resolver, BuildOperationProcessor buildOperationProcessor, CacheLockingManager cacheLockingManager, VersionSelectorScheme versionSelectorScheme) {
+        this.resolver = resolver;
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.cacheLockingManager = cacheLockingManager;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    /**
+     * Returns true when the meta-data of the target of the given dependency may be prefetched. Only dependencies on a fixed module version are prefetched,
+     * so that versions are not listed ahead of the traversal for dynamic selectors, whose target is only known once they are resolved.
+     */
+    public boolean canPrefetch(DependencyMetadata dependency) {
+        ComponentSelector selector = dependency.getSelector();
+        return selector instanceof ModuleComponentSelector && !versionSelectorScheme.parseSelector(((ModuleComponentSelector) selector).getVersion()).isDynamic();
+    }
+
+    /**
+     * Resolves the meta-data for the given components, blocking until all have been resolved. A request whose resolution fails unexpectedly is left without a result.
+     */
+    public void prefetch(final Collection<Request> requests) {
+        cacheLockingManager.longRunningOperation(new Runnable() {
+            @Override
+            public void run() {
+                buildOperationProcessor.run(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                    @Override
+                    public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                        for (Request request : requests) {
+                            queue.add(new PrefetchOperation(request));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * A request to resolve the meta-data of a component.
+     */
+    public static class Request {
+        private final ComponentIdentifier componentId;
+        private final ComponentOverrideMetadata overrideMetadata;
+        private volatile DefaultBuildableComponentResolveResult result;
+
+        public Request(ComponentIdentifier componentId, ComponentOverrideMetadata overrideMetadata) {
+            this.componentId = componentId;
+            this.overrideMetadata = overrideMetadata;
+        }
+
+        public ComponentIdentifier getComponentId() {
+            return componentId;
+        }
+
+        /**
+         * Returns the result of resolving the meta-data, or null when the meta-data has not been resolved.
+         */
+        public DefaultBuildableComponentResolveResult getResult() {
+            return result;
+        }
+    }
+
+    private class PrefetchOperation implements RunnableBuildOperation {
+        private final Request request;
+
+        PrefetchOperation(Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                cacheLockingManager.useCache(new Runnable() {
+                    @Override
+                    public void run() {
+                        resolver.resolve(request.componentId, request.overrideMetadata, result);
+                    }
+                });
+                if (result.hasResult()) {
+                    request.result = result;
+                }
+            } catch (Throwable t) {
+                // Leave the request without a result, so that the meta-data is resolved again by the graph traversal and the failure reported from there
+                LOGGER.debug("Failed to prefetch meta-data for {}.", request.componentId, t);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            return "Resolve meta-data for " + request.componentId;
+        }
+    }
+}
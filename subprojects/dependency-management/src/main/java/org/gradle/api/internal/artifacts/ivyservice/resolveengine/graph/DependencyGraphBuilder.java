@@ -16,12 +16,14 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.attributes.AttributesSchema;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
@@ -78,11 +80,22 @@ public class DependencyGraphBuilder {
     private final AttributesSchema attributesSchema;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
     private final ModuleExclusions moduleExclusions;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
                                   ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
                                   ImmutableModuleIdentifierFactory moduleIdentifierFactory, ModuleExclusions moduleExclusions) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, conflictHandler, edgeFilter, attributesSchema, moduleIdentifierFactory, moduleExclusions, null);
+    }
+
+    /**
+     * @param metaDataPrefetcher Used to resolve the meta-data of the components reachable from a node concurrently, before the node is traversed. May be null, in which case the meta-data of each component is resolved as the component is reached.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
+                                  ImmutableModuleIdentifierFactory moduleIdentifierFactory, ModuleExclusions moduleExclusions, @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -91,6 +104,7 @@ public class DependencyGraphBuilder {
         this.attributesSchema = attributesSchema;
         this.moduleIdentifierFactory = moduleIdentifierFactory;
         this.moduleExclusions = moduleExclusions;
+        this.metaDataPrefetcher = metaDataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -122,6 +136,9 @@ public class DependencyGraphBuilder {
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                if (metaDataPrefetcher != null) {
+                    prefetchMetaData(resolveState, dependencies);
+                }
 
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
@@ -184,6 +201,47 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Resolves the target component ids of the given dependencies on fixed versions, then resolves concurrently the meta-data of those components that will be selected without conflict.
+     * The prefetched meta-data is attached to the selector of the dependency and is used when the component is traversed, so the traversal itself remains sequential.
+     *
+     * <p>Dependencies on dynamic versions are left to the traversal. The ids resolved here are kept by the selectors and are the ones the traversal uses, so any
+     * substitution is applied once. A prefetched component that is later excluded or evicted is simply not traversed.</p>
+     */
+    private void prefetchMetaData(ResolveState resolveState, List<DependencyEdge> dependencies) {
+        Set<ModuleIdentifier> newModules = new HashSet<ModuleIdentifier>();
+        List<ComponentMetaDataPrefetcher.Request> requests = new ArrayList<ComponentMetaDataPrefetcher.Request>();
+        List<ModuleVersionSelectorResolveState> selectors = new ArrayList<ModuleVersionSelectorResolveState>();
+        for (DependencyEdge dependency : dependencies) {
+            ModuleVersionSelectorResolveState selector = dependency.selector;
+            if (!metaDataPrefetcher.canPrefetch(selector.dependencyMetadata)) {
+                continue;
+            }
+            ComponentIdResolveResult idResolveResult = selector.resolveComponentId();
+            if (idResolveResult == null || idResolveResult.getMetaData() != null || !(idResolveResult.getId() instanceof ModuleComponentIdentifier)) {
+                // Failed, or already has meta-data
+                continue;
+            }
+            ModuleIdentifier moduleId = idResolveResult.getModuleVersionId().getModule();
+            if (resolveState.hasModuleVersions(moduleId) || !newModules.add(moduleId)) {
+                // Only prefetch the meta-data for modules not seen before, as other versions may be evicted without being traversed
+                continue;
+            }
+            requests.add(new ComponentMetaDataPrefetcher.Request(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(selector.dependencyMetadata)));
+            selectors.add(selector);
+        }
+        if (requests.size() < 2) {
+            // Not worth doing concurrently
+            return;
+        }
+
+        LOGGER.debug("Prefetching meta-data for {} components.", requests.size());
+        metaDataPrefetcher.prefetch(requests);
+        for (int i = 0; i < requests.size(); i++) {
+            selectors.get(i).prefetchedMetaData = requests.get(i).getResult();
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -371,13 +429,12 @@ public class DependencyGraphBuilder {
     private static class ResolveState {
         private final Spec<? super DependencyMetadata> edgeFilter;
         private final Map<ModuleIdentifier, ModuleResolveState> modules = new LinkedHashMap<ModuleIdentifier, ModuleResolveState>();
-        private final Map<ResolvedConfigurationIdentifier, ConfigurationNode> nodes = new LinkedHashMap<ResolvedConfigurationIdentifier, ConfigurationNode>();
+        private final List<ConfigurationNode> nodes = new ArrayList<ConfigurationNode>();
         private final Map<ModuleVersionSelector, ModuleVersionSelectorResolveState> selectors = new LinkedHashMap<ModuleVersionSelector, ModuleVersionSelectorResolveState>();
         private final RootConfigurationNode root;
         private final IdGenerator<Long> idGenerator;
         private final DependencyToComponentIdResolver idResolver;
         private final ComponentMetaDataResolver metaDataResolver;
-        private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
         private final AttributesSchema attributesSchema;
         private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
@@ -396,10 +453,18 @@ public class DependencyGraphBuilder {
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(idGenerator.generateId(), rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
-            nodes.put(root.id, root);
+            nodes.add(root);
             root.moduleRevision.module.select(root.moduleRevision);
         }
 
+        /**
+         * Returns true if some version of the given module has been reached.
+         */
+        public boolean hasModuleVersions(ModuleIdentifier id) {
+            ModuleResolveState module = modules.get(id);
+            return module != null && !module.versions.isEmpty();
+        }
+
         public ModuleResolveState getModule(ModuleIdentifier id) {
             ModuleResolveState module = modules.get(id);
             if (module == null) {
@@ -414,15 +479,17 @@ public class DependencyGraphBuilder {
         }
 
         public Collection<ConfigurationNode> getConfigurationNodes() {
-            return nodes.values();
+            return nodes;
         }
 
         public ConfigurationNode getConfigurationNode(ModuleVersionResolveState module, ConfigurationMetadata configurationMetadata) {
-            ResolvedConfigurationIdentifier id = new ResolvedConfigurationIdentifier(module.id, configurationMetadata.getName());
-            ConfigurationNode configuration = nodes.get(id);
+            // Nodes are owned by their module version, so look them up there rather than allocating an identifier per edge
+            String configurationName = configurationMetadata.getName();
+            ConfigurationNode configuration = module.findConfiguration(configurationName);
             if (configuration == null) {
+                ResolvedConfigurationIdentifier id = new ResolvedConfigurationIdentifier(module.id, configurationName);
                 configuration = new ConfigurationNode(idGenerator.generateId(), id, module, this, configurationMetadata);
-                nodes.put(id, configuration);
+                nodes.add(configuration);
             }
             return configuration;
         }
@@ -447,7 +514,7 @@ public class DependencyGraphBuilder {
 
         public ConfigurationNode pop() {
             ConfigurationNode next = queue.removeFirst();
-            queued.remove(next);
+            next.queued = false;
             return next;
         }
 
@@ -457,7 +524,8 @@ public class DependencyGraphBuilder {
         public void onMoreSelected(ConfigurationNode configuration) {
             // Add to the end of the queue, so that we traverse the graph in breadth-wise order to pick up as many conflicts as
             // possible before attempting to resolve them
-            if (queued.add(configuration)) {
+            if (!configuration.queued) {
+                configuration.queued = true;
                 queue.addLast(configuration);
             }
         }
@@ -467,7 +535,8 @@ public class DependencyGraphBuilder {
          */
         public void onFewerSelected(ConfigurationNode configuration) {
             // Add to the front of the queue, to flush out configurations that are no longer required.
-            if (queued.add(configuration)) {
+            if (!configuration.queued) {
+                configuration.queued = true;
                 queue.addFirst(configuration);
             }
         }
@@ -580,7 +649,8 @@ public class DependencyGraphBuilder {
     public static class ModuleVersionResolveState implements ComponentResolutionState, ComponentResult, DependencyGraphComponent {
         public final ModuleVersionIdentifier id;
         private final ComponentMetaDataResolver resolver;
-        private final Set<ConfigurationNode> configurations = new LinkedHashSet<ConfigurationNode>();
+        // Usually holds a single node, so a list with a linear lookup is cheaper than a map keyed by configuration name
+        private final List<ConfigurationNode> configurations = new ArrayList<ConfigurationNode>(1);
         private final Long resultId;
         private final ModuleResolveState module;
         private ComponentResolveMetadata metaData;
@@ -657,8 +727,11 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata), result);
+            DefaultBuildableComponentResolveResult result = firstReference.takePrefetchedMetaData();
+            if (result == null) {
+                result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetadata), result);
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -683,6 +756,16 @@ public class DependencyGraphBuilder {
             configurations.add(configurationNode);
         }
 
+        @Nullable
+        public ConfigurationNode findConfiguration(String name) {
+            for (ConfigurationNode configuration : configurations) {
+                if (configuration.id.getConfiguration().equals(name)) {
+                    return configuration;
+                }
+            }
+            return null;
+        }
+
         @Override
         public ComponentSelectionReason getSelectionReason() {
             return selectionReason;
@@ -723,6 +806,7 @@ public class DependencyGraphBuilder {
         private final ConfigurationMetadata metaData;
         private final ResolveState resolveState;
         private ModuleExclusion previousTraversalExclusions;
+        private boolean queued;
 
         private ConfigurationNode(Long resultId, ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
             this(resultId, id, moduleRevision, resolveState, moduleRevision.metaData.getConfiguration(id.getConfiguration()));
@@ -928,6 +1012,7 @@ public class DependencyGraphBuilder {
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
+        DefaultBuildableComponentResolveResult prefetchedMetaData;
 
         private ModuleVersionSelectorResolveState(Long id, DependencyMetadata dependencyMetadata, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
             this.id = id;
@@ -968,6 +1053,33 @@ public class DependencyGraphBuilder {
             return targetModule;
         }
 
+        /**
+         * Resolves the id of the target component, without selecting a module version.
+         *
+         * @return The result, or null if there is a failure to resolve this selector.
+         */
+        @Nullable
+        public ComponentIdResolveResult resolveComponentId() {
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetadata, idResolveResult);
+                if (idResolveResult.getFailure() != null) {
+                    failure = idResolveResult.getFailure();
+                }
+            }
+            return failure != null ? null : idResolveResult;
+        }
+
+        /**
+         * Returns the meta-data prefetched for the target component, if any, and discards it.
+         */
+        @Nullable
+        public DefaultBuildableComponentResolveResult takePrefetchedMetaData() {
+            DefaultBuildableComponentResolveResult result = prefetchedMetaData;
+            prefetchedMetaData = null;
+            return result;
+        }
+
         /**
          * @return The module version, or null if there is a failure to resolve this selector.
          */
@@ -975,14 +1087,7 @@ public class DependencyGraphBuilder {
             if (targetModuleRevision != null) {
                 return targetModuleRevision;
             }
-            if (failure != null) {
-                return null;
-            }
-
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetadata, idResolveResult);
-            if (idResolveResult.getFailure() != null) {
-                failure = idResolveResult.getFailure();
+            if (resolveComponentId() == null) {
                 return null;
             }
 
@@ -57,10 +57,9 @@ class ConflictContainer<K, T> {
             }
         }
 
-        Collection<K> replacementSource = targetToSource.get(target);
-        if (!replacementSource.isEmpty()) {
+        if (targetToSource.containsKey(target)) {
             //2) new module is a replacement to a module we've seen already, register conflict and return
-            return registerConflict(replacementSource, target);
+            return registerConflict(targetToSource.get(target), target);
         }
 
         if (candidates.size() > 1) {
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.cache.BinaryStore;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.BuildCommencedTimeProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
+
+/**
+ * A persistent cache of dependency graph resolution results, keyed by a hash of the inputs to the resolution.
+ *
+ * <p>An entry holds the resolution result in the format written by {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder}, along with the module versions that were selected. An entry is discarded when the {@link CachePolicy} of the configuration would have refreshed any of these module versions, or the version list for any dynamic version, had the graph been resolved.</p>
+ *
+ * <p>Only graphs that contain external module components and no failures are cached.</p>
+ */
+public class ResolvedGraphCache {
+    /**
+     * The system property used to enable this cache.
+     */
+    public static final String ENABLED_PROPERTY = "org.gradle.resolution.cacheResolvedGraphs";
+
+    private static final Logger LOGGER = Logging.getLogger(ResolvedGraphCache.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final boolean enabled;
+    private final boolean refreshDependencies;
+    private PersistentIndexedCache<String, CachedGraph> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme,
+                              ImmutableModuleIdentifierFactory moduleIdentifierFactory, boolean enabled, boolean refreshDependencies) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+        this.enabled = enabled;
+        this.refreshDependencies = refreshDependencies;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private synchronized PersistentIndexedCache<String, CachedGraph> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", BaseSerializerFactory.STRING_SERIALIZER, new CachedGraphSerializer(new ModuleVersionIdentifierSerializer(moduleIdentifierFactory)));
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the resolution result cached for the given key, or null when there is no such result or the result has expired according to the given cache policy.
+     */
+    @Nullable
+    public byte[] load(final String key, CachePolicy cachePolicy) {
+        if (refreshDependencies) {
+            return null;
+        }
+        CachedGraph entry = cacheLockingManager.useCache(new Factory<CachedGraph>() {
+            @Override
+            public CachedGraph create() {
+                return getCache().get(key);
+            }
+        });
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, cachePolicy)) {
+            LOGGER.debug("Cached resolution result for {} has expired.", key);
+            return null;
+        }
+        return entry.data;
+    }
+
+    private boolean isExpired(CachedGraph entry, CachePolicy cachePolicy) {
+        long ageMillis = timeProvider.getCurrentTime() - entry.createTimestamp;
+        for (ModuleVersionIdentifier id : entry.modules) {
+            if (cachePolicy.mustRefreshModule(DefaultModuleComponentIdentifier.newId(id), new DefaultResolvedModuleVersion(id), ageMillis)) {
+                return true;
+            }
+        }
+        for (ModuleVersionIdentifier id : entry.changingModules) {
+            if (cachePolicy.mustRefreshChangingModule(DefaultModuleComponentIdentifier.newId(id), new DefaultResolvedModuleVersion(id), ageMillis)) {
+                return true;
+            }
+        }
+        for (ModuleVersionIdentifier id : entry.dynamicVersions) {
+            if (cachePolicy.mustRefreshVersionList(id.getModule(), Collections.singleton(id), ageMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a recorder for the resolution result written to the given store. The recorder should receive the same graph events as the builder that writes to the store.
+     */
+    public Recorder createRecorder(BinaryStore store) {
+        return new Recorder(store, versionSelectorScheme);
+    }
+
+    /**
+     * Stores the resolution result captured by the given recorder, if the result can be cached.
+     */
+    public void store(final String key, Recorder recorder) {
+        if (!recorder.isCacheable()) {
+            LOGGER.debug("Not caching resolution result for {}, as the graph contains failures or local components.", key);
+            return;
+        }
+        final CachedGraph entry = recorder.toEntry(timeProvider.getCurrentTime());
+        cacheLockingManager.useCache(new Runnable() {
+            @Override
+            public void run() {
+                getCache().put(key, entry);
+            }
+        });
+    }
+
+    /**
+     * Captures the resolution result written to a {@link BinaryStore}, and the details needed to expire the result.
+     */
+    public static class Recorder implements BinaryStore, DependencyGraphVisitor {
+        private final BinaryStore delegate;
+        private final VersionSelectorScheme versionSelectorScheme;
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        private final KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        private final Map<Long, ModuleVersionIdentifier> components = new HashMap<Long, ModuleVersionIdentifier>();
+        private final Set<Long> changingComponents = new LinkedHashSet<Long>();
+        private final Set<Long> dynamicallySelectedComponents = new LinkedHashSet<Long>();
+        private ComponentIdentifier rootId;
+        private boolean cacheable = true;
+
+        Recorder(BinaryStore delegate, VersionSelectorScheme versionSelectorScheme) {
+            this.delegate = delegate;
+            this.versionSelectorScheme = versionSelectorScheme;
+        }
+
+        boolean isCacheable() {
+            return cacheable;
+        }
+
+        @Override
+        public void write(WriteAction write) {
+            delegate.write(write);
+            if (cacheable) {
+                try {
+                    write.write(encoder);
+                } catch (Exception e) {
+                    throw throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        @Override
+        public BinaryData done() {
+            return delegate.done();
+        }
+
+        @Override
+        public void start(DependencyGraphNode root) {
+            rootId = root.getOwner().getComponentId();
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            DependencyGraphComponent component = node.getOwner();
+            if (component.getComponentId().equals(rootId)) {
+                return;
+            }
+            if (!(component.getComponentId() instanceof ModuleComponentIdentifier)) {
+                cacheable = false;
+                return;
+            }
+            components.put(component.getResultId(), component.getModuleVersion());
+            if (component.getMetadata().isChanging()) {
+                changingComponents.add(component.getResultId());
+            }
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                if (edge.getFailure() != null || edge.getSelected() == null) {
+                    cacheable = false;
+                    return;
+                }
+                ComponentSelector requested = edge.getRequested();
+                if (requested instanceof ModuleComponentSelector && versionSelectorScheme.parseSelector(((ModuleComponentSelector) requested).getVersion()).isDynamic()) {
+                    dynamicallySelectedComponents.add(edge.getSelected());
+                }
+                ModuleDependency moduleDependency = edge.getModuleDependency();
+                if (moduleDependency instanceof ExternalModuleDependency && ((ExternalModuleDependency) moduleDependency).isChanging()) {
+                    changingComponents.add(edge.getSelected());
+                }
+            }
+        }
+
+        @Override
+        public void finish(DependencyGraphNode root) {
+        }
+
+        CachedGraph toEntry(long createTimestamp) {
+            encoder.flush();
+            List<ModuleVersionIdentifier> modules = new ArrayList<ModuleVersionIdentifier>();
+            List<ModuleVersionIdentifier> changingModules = new ArrayList<ModuleVersionIdentifier>();
+            for (Map.Entry<Long, ModuleVersionIdentifier> entry : components.entrySet()) {
+                if (changingComponents.contains(entry.getKey())) {
+                    changingModules.add(entry.getValue());
+                } else {
+                    modules.add(entry.getValue());
+                }
+            }
+            List<ModuleVersionIdentifier> dynamicVersions = new ArrayList<ModuleVersionIdentifier>();
+            for (Long id : dynamicallySelectedComponents) {
+                ModuleVersionIdentifier moduleVersion = components.get(id);
+                if (moduleVersion != null) {
+                    dynamicVersions.add(moduleVersion);
+                }
+            }
+            return new CachedGraph(createTimestamp, modules, changingModules, dynamicVersions, outputStream.toByteArray());
+        }
+    }
+
+    private static class CachedGraph {
+        final long createTimestamp;
+        final List<ModuleVersionIdentifier> modules;
+        final List<ModuleVersionIdentifier> changingModules;
+        final List<ModuleVersionIdentifier> dynamicVersions;
+        final byte[] data;
+
+        CachedGraph(long createTimestamp, List<ModuleVersionIdentifier> modules, List<ModuleVersionIdentifier> changingModules, List<ModuleVersionIdentifier> dynamicVersions, byte[] data) {
+            this.createTimestamp = createTimestamp;
+            this.modules = modules;
+            this.changingModules = changingModules;
+            this.dynamicVersions = dynamicVersions;
+            this.data = data;
+        }
+    }
+
+    private static class CachedGraphSerializer extends AbstractSerializer<CachedGraph> {
+        private final ModuleVersionIdentifierSerializer moduleVersionIdentifierSerializer;
+
+        private CachedGraphSerializer(ModuleVersionIdentifierSerializer moduleVersionIdentifierSerializer) {
+            this.moduleVersionIdentifierSerializer = moduleVersionIdentifierSerializer;
+        }
+
+        @Override
+        public void write(Encoder encoder, CachedGraph value) throws Exception {
+            encoder.writeLong(value.createTimestamp);
+            writeModules(encoder, value.modules);
+            writeModules(encoder, value.changingModules);
+            writeModules(encoder, value.dynamicVersions);
+            encoder.writeBinary(value.data);
+        }
+
+        @Override
+        public CachedGraph read(Decoder decoder) throws Exception {
+            long createTimestamp = decoder.readLong();
+            List<ModuleVersionIdentifier> modules = readModules(decoder);
+            List<ModuleVersionIdentifier> changingModules = readModules(decoder);
+            List<ModuleVersionIdentifier> dynamicVersions = readModules(decoder);
+            byte[] data = decoder.readBinary();
+            return new CachedGraph(createTimestamp, modules, changingModules, dynamicVersions, data);
+        }
+
+        private void writeModules(Encoder encoder, List<ModuleVersionIdentifier> modules) throws Exception {
+            encoder.writeSmallInt(modules.size());
+            for (ModuleVersionIdentifier module : modules) {
+                moduleVersionIdentifierSerializer.write(encoder, module);
+            }
+        }
+
+        private List<ModuleVersionIdentifier> readModules(Decoder decoder) throws Exception {
+            int size = decoder.readSmallInt();
+            List<ModuleVersionIdentifier> modules = new ArrayList<ModuleVersionIdentifier>(size);
+            for (int i = 0; i < size; i++) {
+                modules.add(moduleVersionIdentifierSerializer.read(decoder));
+            }
+            return modules;
+        }
+    }
+}
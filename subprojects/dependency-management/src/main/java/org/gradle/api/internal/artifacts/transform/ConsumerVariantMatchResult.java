@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.transform;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.attributes.AttributeContainerInternal;
 import org.gradle.api.internal.attributes.ImmutableAttributes;
@@ -34,6 +35,17 @@ public class ConsumerVariantMatchResult {
     }
 
     public void matched(ImmutableAttributes output, Transformer<List<File>, File> transform, int depth) {
+        matched(output, transform, depth, null);
+    }
+
+    /**
+     * Records a match produced by the given chain of transform registrations, identified by their index in the registry.
+     */
+    public void matched(ImmutableAttributes output, Transformer<List<File>, File> transform, int[] transformChain) {
+        matched(output, transform, transformChain.length, transformChain);
+    }
+
+    private void matched(ImmutableAttributes output, Transformer<List<File>, File> transform, int depth, @Nullable int[] transformChain) {
         // Collect only the shortest paths
         if (minDepth == 0) {
             minDepth = depth;
@@ -43,7 +55,7 @@ public class ConsumerVariantMatchResult {
         } else if (depth > minDepth) {
             return;
         }
-        matches.add(new ConsumerVariant(output, transform, depth));
+        matches.add(new ConsumerVariant(output, transform, depth, transformChain));
     }
 
     public boolean hasMatches() {
@@ -58,11 +70,17 @@ public class ConsumerVariantMatchResult {
         final AttributeContainerInternal attributes;
         final Transformer<List<File>, File> transformer;
         final int depth;
+        final int[] transformChain;
 
         public ConsumerVariant(AttributeContainerInternal attributes, Transformer<List<File>, File> transformer, int depth) {
+            this(attributes, transformer, depth, null);
+        }
+
+        ConsumerVariant(AttributeContainerInternal attributes, Transformer<List<File>, File> transformer, int depth, @Nullable int[] transformChain) {
             this.attributes = attributes;
             this.transformer = transformer;
             this.depth = depth;
+            this.transformChain = transformChain;
         }
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.transform;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.cache.CrossBuildInMemoryCache;
+import org.gradle.api.internal.cache.CrossBuildInMemoryCacheFactory;
+
+import java.util.List;
+
+/**
+ * Retains variant matching results across builds in the same process, so that builds with unchanged attribute schemas and transform registrations do not repeat the matching work.
+ *
+ * <p>Entries are keyed by a hash of the schema, the transform registrations and the queried attributes. Values are indexes into the candidates or the transform registrations of the query,
+ * so that an entry does not reference any object of the build that created it. Entries that are not used in the current or previous build may be discarded when memory is required.</p>
+ */
+public class CrossBuildVariantMatchingCache {
+    private final CrossBuildInMemoryCache<HashCode, int[]> matches;
+    private final CrossBuildInMemoryCache<HashCode, List<int[]>> transformChains;
+
+    public CrossBuildVariantMatchingCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        matches = cacheFactory.newCache();
+        transformChains = cacheFactory.newCache();
+    }
+
+    /**
+     * Returns the indexes of the matching candidates for the given key, or null when not known.
+     */
+    @Nullable
+    public int[] getMatches(HashCode key) {
+        return matches.get(key);
+    }
+
+    public void putMatches(HashCode key, int[] candidates) {
+        matches.put(key, candidates);
+    }
+
+    /**
+     * Returns the chains of transform registration indexes that can produce a matching variant for the given key, or null when not known.
+     */
+    @Nullable
+    public List<int[]> getTransformChains(HashCode key) {
+        return transformChains.get(key);
+    }
+
+    public void putTransformChains(HashCode key, List<int[]> chains) {
+        transformChains.put(key, chains);
+    }
+}
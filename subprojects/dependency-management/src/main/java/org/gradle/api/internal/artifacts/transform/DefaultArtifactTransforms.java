@@ -36,8 +36,11 @@ import org.gradle.internal.Pair;
 import org.gradle.internal.component.local.model.ComponentFileArtifactIdentifier;
 import org.gradle.internal.component.model.DefaultIvyArtifactName;
 import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDetails;
+import org.gradle.internal.progress.BuildOperationExecutor;
 import org.gradle.internal.text.TreeFormatter;
 
 import java.io.File;
@@ -48,9 +51,11 @@ import java.util.Map;
 
 public class DefaultArtifactTransforms implements ArtifactTransforms {
     private final VariantAttributeMatchingCache matchingCache;
+    private final BuildOperationExecutor buildOperationExecutor;
 
-    public DefaultArtifactTransforms(VariantAttributeMatchingCache matchingCache) {
+    public DefaultArtifactTransforms(VariantAttributeMatchingCache matchingCache, BuildOperationExecutor buildOperationExecutor) {
         this.matchingCache = matchingCache;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
     public VariantSelector variantSelector(AttributeContainerInternal requested) {
@@ -143,11 +148,13 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
         private final Transformer<List<File>, File> transform;
         private final Map<ResolvedArtifact, Throwable> artifactFailures = Maps.newConcurrentMap();
         private final Map<File, Throwable> fileFailures = Maps.newConcurrentMap();
+        private final Map<ResolvedArtifact, List<File>> artifactResults = Maps.newConcurrentMap();
+        private final Map<File, List<File>> fileResults = Maps.newConcurrentMap();
 
         public ConsumerProvidedResolvedVariant(ResolvedVariant delegate, AttributeContainerInternal target, Transformer<List<File>, File> transform) {
             this.delegate = delegate;
             this.attributes = target;
-            this.transform = transform;
+            this.transform = new BuildOperationTransformer(transform, target);
         }
 
         @Override
@@ -176,7 +183,7 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
         }
         @Override
         public void visit(ArtifactVisitor visitor) {
-            delegate.visit(new ArtifactTransformingVisitor(visitor, attributes, transform, artifactFailures, fileFailures));
+            delegate.visit(new ArtifactTransformingVisitor(visitor, attributes, transform, artifactFailures, fileFailures, artifactResults, fileResults));
         }
 
         @Override
@@ -199,7 +206,7 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
             @Override
             public void run() {
                 try {
-                    transform.transform(artifact.getFile());
+                    artifactResults.put(artifact, transform.transform(artifact.getFile()));
                 } catch (Throwable t) {
                     artifactFailures.put(artifact, t);
                 }
@@ -221,7 +228,7 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
             @Override
             public void run() {
                 try {
-                    transform.transform(file);
+                    fileResults.put(file, transform.transform(file));
                 } catch (Throwable t) {
                     fileFailures.put(file, t);
                 }
@@ -240,13 +247,18 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
         private final Transformer<List<File>, File> transform;
         private final Map<ResolvedArtifact, Throwable> artifactFailures;
         private final Map<File, Throwable> fileFailures;
+        private final Map<ResolvedArtifact, List<File>> artifactResults;
+        private final Map<File, List<File>> fileResults;
 
-        private ArtifactTransformingVisitor(ArtifactVisitor visitor, AttributeContainerInternal target, Transformer<List<File>, File> transform, Map<ResolvedArtifact, Throwable> artifactFailures, Map<File, Throwable> fileFailures) {
+        private ArtifactTransformingVisitor(ArtifactVisitor visitor, AttributeContainerInternal target, Transformer<List<File>, File> transform, Map<ResolvedArtifact, Throwable> artifactFailures, Map<File, Throwable> fileFailures,
+                                            Map<ResolvedArtifact, List<File>> artifactResults, Map<File, List<File>> fileResults) {
             this.visitor = visitor;
             this.target = target;
             this.transform = transform;
             this.artifactFailures = artifactFailures;
             this.fileFailures = fileFailures;
+            this.artifactResults = artifactResults;
+            this.fileResults = fileResults;
         }
 
         @Override
@@ -256,12 +268,15 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
                 return;
             }
 
-            List<File> transformedFiles;
-            try {
-                transformedFiles = transform.transform(artifact.getFile());
-            } catch (Throwable t) {
-                visitor.visitFailure(t);
-                return;
+            // Use the result of the prepare step, if any. The result is used only once, so that a later visit picks up changes to the input
+            List<File> transformedFiles = artifactResults.remove(artifact);
+            if (transformedFiles == null) {
+                try {
+                    transformedFiles = transform.transform(artifact.getFile());
+                } catch (Throwable t) {
+                    visitor.visitFailure(t);
+                    return;
+                }
             }
 
             TaskDependency buildDependencies = ((Buildable) artifact).getBuildDependencies();
@@ -291,12 +306,14 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
                 return;
             }
 
-            List<File> result;
-            try {
-                result = transform.transform(file);
-            } catch (Throwable t) {
-                visitor.visitFailure(t);
-                return;
+            List<File> result = fileResults.remove(file);
+            if (result == null) {
+                try {
+                    result = transform.transform(file);
+                } catch (Throwable t) {
+                    visitor.visitFailure(t);
+                    return;
+                }
             }
             if (!result.isEmpty()) {
                 for (File outputFile : result) {
@@ -306,6 +323,34 @@ public class DefaultArtifactTransforms implements ArtifactTransforms {
         }
     }
 
+    /**
+     * Runs a transform as a build operation, so that transforms running in parallel are reported as progress.
+     */
+    private class BuildOperationTransformer implements Transformer<List<File>, File> {
+        private final Transformer<List<File>, File> delegate;
+        private final AttributeContainerInternal target;
 
+        BuildOperationTransformer(Transformer<List<File>, File> delegate, AttributeContainerInternal target) {
+            this.delegate = delegate;
+            this.target = target;
+        }
 
+        @Override
+        public List<File> transform(final File file) {
+            BuildOperationDetails operationDetails = BuildOperationDetails.displayName("Transform " + file.getName() + " to match attributes " + target)
+                .progressDisplayName("Transforming " + file.getName())
+                .build();
+            return buildOperationExecutor.run(operationDetails, new Transformer<List<File>, BuildOperationContext>() {
+                @Override
+                public List<File> transform(BuildOperationContext context) {
+                    return delegate.transform(file);
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
 }
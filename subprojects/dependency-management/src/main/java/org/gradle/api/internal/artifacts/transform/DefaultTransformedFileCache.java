@@ -16,9 +16,11 @@
 
 package org.gradle.api.internal.artifacts.transform;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashCode;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.CacheBuilder;
@@ -39,20 +41,24 @@ import org.gradle.internal.serialize.ListSerializer;
 import org.gradle.internal.util.BiFunction;
 
 import java.io.File;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_META_DATA;
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_STORE;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTransformedFileCache implements TransformedFileCache, Stoppable {
+    private static final int MAX_IN_MEMORY_RESULTS = 1000;
+
     private final PersistentCache cache;
     private final PersistentIndexedCache<HashCode, List<File>> indexedCache;
     private final FileStore<String> fileStore;
-    private final Object lock = new Object();
-    private final Set<HashCode> transforming = new HashSet<HashCode>();
+    // The results produced or loaded by this process, served without taking the file lock. Bounded, as this cache lives as long as the daemon
+    private final Cache<HashCode, List<File>> results = com.google.common.cache.CacheBuilder.newBuilder().maximumSize(MAX_IN_MEMORY_RESULTS).build();
+    private final ConcurrentMap<HashCode, TransformInProgress> transforming = new ConcurrentHashMap<HashCode, TransformInProgress>();
 
     public DefaultTransformedFileCache(ArtifactCacheMetaData artifactCacheMetaData, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory) {
         File transformsStoreDirectory = artifactCacheMetaData.getTransformsStoreDirectory();
@@ -77,61 +83,89 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
 
     @Override
     public List<File> getResult(final File inputFile, final HashCode inputsHash, final BiFunction<List<File>, File, File> transformer) {
-        // Apply locking so that only this process is writing to the file store and only a single thread is running this particular transform
-        transforming(inputsHash);
-        try {
-            return cache.withFileLock(new Factory<List<File>>() {
-                @Override
-                public List<File> create() {
-                    List<File> files = indexedCache.get(inputsHash);
-                    if (files != null) {
-                        boolean allExist = true;
-                        for (File file : files) {
-                            if (!file.exists()) {
-                                allExist = false;
-                                break;
-                            }
-                        }
-                        if (allExist) {
-                            return files;
-                        }
-                        // Else, recreate outputs
-                    }
-
-                    // File store takes care of cleaning up on failure/crash
-                    String key = inputFile.getName() + "/" + inputsHash;
-                    TransformAction action = new TransformAction(transformer, inputFile);
-                    try {
-                        fileStore.add(key, action);
-                    } catch (FileStoreAddActionException e) {
-                        throw UncheckedException.throwAsUncheckedException(e.getCause());
-                    }
-
-                    indexedCache.put(inputsHash, action.result);
-                    return action.result;
+        List<File> files = results.getIfPresent(inputsHash);
+        if (files != null && allExist(files)) {
+            return files;
+        }
+
+        // Only a single thread runs a particular transform, other threads requesting the same transform wait for its result
+        while (true) {
+            TransformInProgress inProgress = new TransformInProgress();
+            TransformInProgress existing = transforming.putIfAbsent(inputsHash, inProgress);
+            if (existing == null) {
+                List<File> result = null;
+                try {
+                    result = transform(inputFile, inputsHash, transformer);
+                    results.put(inputsHash, result);
+                    return result;
+                } finally {
+                    transforming.remove(inputsHash, inProgress);
+                    inProgress.completed(result);
                 }
-            });
-        } finally {
-            notTransforming(inputsHash);
+            }
+            files = existing.await();
+            if (files != null) {
+                return files;
+            }
+            // Else, the transform failed in the other thread, so try again
         }
     }
 
-    private void transforming(HashCode inputsHash) {
-        synchronized (lock) {
-            while (!transforming.add(inputsHash)) {
+    private List<File> transform(final File inputFile, final HashCode inputsHash, final BiFunction<List<File>, File, File> transformer) {
+        // Apply locking so that only this process is writing to the file store
+        return cache.withFileLock(new Factory<List<File>>() {
+            @Override
+            public List<File> create() {
+                List<File> files = indexedCache.get(inputsHash);
+                if (files != null && allExist(files)) {
+                    return files;
+                }
+                // Else, recreate outputs
+
+                // File store takes care of cleaning up on failure/crash
+                String key = inputFile.getName() + "/" + inputsHash;
+                TransformAction action = new TransformAction(transformer, inputFile);
                 try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
+                    fileStore.add(key, action);
+                } catch (FileStoreAddActionException e) {
+                    throw UncheckedException.throwAsUncheckedException(e.getCause());
                 }
+
+                indexedCache.put(inputsHash, action.result);
+                return action.result;
+            }
+        });
+    }
+
+    private static boolean allExist(List<File> files) {
+        for (File file : files) {
+            if (!file.exists()) {
+                return false;
             }
         }
+        return true;
     }
 
-    private void notTransforming(HashCode inputsHash) {
-        synchronized (lock) {
-            transforming.remove(inputsHash);
-            lock.notifyAll();
+    /**
+     * A transform that is currently running in some thread. Completed with a null result when the transform fails.
+     */
+    private static class TransformInProgress {
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private List<File> result;
+
+        void completed(@Nullable List<File> result) {
+            this.result = result;
+            completed.countDown();
+        }
+
+        @Nullable
+        List<File> await() {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            return result;
         }
     }
 
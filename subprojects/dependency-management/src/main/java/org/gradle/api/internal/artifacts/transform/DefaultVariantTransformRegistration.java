@@ -87,6 +87,13 @@ class DefaultVariantTransformRegistration implements VariantTransformRegistry.Re
         return this;
     }
 
+    /**
+     * Returns a hash of the transform's implementation and configuration parameters.
+     */
+    HashCode getInputsHash() {
+        return inputsHash;
+    }
+
     @Override
     public List<File> transform(File input) {
         try {
@@ -16,7 +16,10 @@
 
 package org.gradle.api.internal.artifacts.transform;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.attributes.AttributeContainer;
 import org.gradle.api.attributes.HasAttributes;
@@ -25,10 +28,12 @@ import org.gradle.api.internal.attributes.AttributeContainerInternal;
 import org.gradle.api.internal.attributes.AttributesSchemaInternal;
 import org.gradle.api.internal.attributes.ImmutableAttributes;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
 import org.gradle.internal.component.model.AttributeMatcher;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -38,12 +43,18 @@ public class VariantAttributeMatchingCache {
     private final VariantTransformRegistry variantTransforms;
     private final AttributesSchemaInternal schema;
     private final ImmutableAttributesFactory attributesFactory;
+    private final CrossBuildVariantMatchingCache crossBuildCache;
+    private final VariantMatchingFingerprinter fingerprinter;
     private final Map<AttributeContainer, AttributeSpecificCache> attributeSpecificCache = Maps.newConcurrentMap();
+    private CrossBuildState crossBuildState;
 
-    public VariantAttributeMatchingCache(VariantTransformRegistry variantTransforms, AttributesSchemaInternal schema, ImmutableAttributesFactory attributesFactory) {
+    public VariantAttributeMatchingCache(VariantTransformRegistry variantTransforms, AttributesSchemaInternal schema, ImmutableAttributesFactory attributesFactory,
+                                         CrossBuildVariantMatchingCache crossBuildCache, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
         this.variantTransforms = variantTransforms;
         this.schema = schema;
         this.attributesFactory = attributesFactory;
+        this.crossBuildCache = crossBuildCache;
+        this.fingerprinter = new VariantMatchingFingerprinter(classLoaderHierarchyHasher);
     }
 
     public <T extends HasAttributes> List<T> selectMatches(Collection<T> candidates, AttributeContainerInternal requested) {
@@ -59,7 +70,7 @@ public class VariantAttributeMatchingCache {
         AttributeSpecificCache toCache = getCache(requested);
         List<AttributeContainer> matching = toCache.matching.get(candidateAttributes);
         if (matching == null) {
-            matching = schema.ignoreAdditionalProducerAttributes().matches(candidateAttributes, requested);
+            matching = findMatches(candidateAttributes, requested);
             toCache.matching.put(candidateAttributes, matching);
         }
         if (matching.size() == 0) {
@@ -74,12 +85,50 @@ public class VariantAttributeMatchingCache {
         return result;
     }
 
+    private List<AttributeContainer> findMatches(List<AttributeContainer> candidateAttributes, AttributeContainerInternal requested) {
+        HashCode key = crossBuildKey("matches", requested, candidateAttributes);
+        if (key != null) {
+            int[] indexes = crossBuildCache.getMatches(key);
+            if (indexes != null) {
+                List<AttributeContainer> matching = new ArrayList<AttributeContainer>(indexes.length);
+                for (int index : indexes) {
+                    matching.add(candidateAttributes.get(index));
+                }
+                return matching;
+            }
+        }
+
+        List<AttributeContainer> matching = schema.ignoreAdditionalProducerAttributes().matches(candidateAttributes, requested);
+        if (key != null) {
+            int[] indexes = new int[matching.size()];
+            int count = 0;
+            for (int i = 0; i < candidateAttributes.size() && count < indexes.length; i++) {
+                if (matching.contains(candidateAttributes.get(i))) {
+                    indexes[count++] = i;
+                }
+            }
+            if (count == indexes.length) {
+                crossBuildCache.putMatches(key, indexes);
+            }
+        }
+        return matching;
+    }
+
     public void collectConsumerVariants(AttributeContainerInternal actual, AttributeContainerInternal requested, ConsumerVariantMatchResult result) {
         AttributeSpecificCache toCache = getCache(requested);
         ConsumerVariantMatchResult cachedResult = toCache.transforms.get(actual);
         if (cachedResult == null) {
             cachedResult = new ConsumerVariantMatchResult();
-            findProducersFor(actual, requested, cachedResult);
+            HashCode key = crossBuildKey("transforms", requested, Collections.<AttributeContainer>singletonList(actual));
+            List<int[]> chains = key == null ? null : crossBuildCache.getTransformChains(key);
+            if (chains != null) {
+                applyTransformChains(actual, chains, cachedResult);
+            } else {
+                findProducersFor(actual, requested, cachedResult);
+                if (key != null) {
+                    storeTransformChains(key, cachedResult);
+                }
+            }
             toCache.transforms.put(actual, cachedResult);
         }
         cachedResult.applyTo(result);
@@ -87,41 +136,87 @@ public class VariantAttributeMatchingCache {
 
     private void findProducersFor(AttributeContainerInternal actual, AttributeContainerInternal requested, ConsumerVariantMatchResult result) {
         // Prefer direct transformation over indirect transformation
-        List<VariantTransformRegistry.Registration> candidates = new ArrayList<VariantTransformRegistry.Registration>();
-        for (VariantTransformRegistry.Registration transform : variantTransforms.getTransforms()) {
+        List<VariantTransformRegistry.Registration> registrations = getCrossBuildState().registrations;
+        List<Integer> candidates = new ArrayList<Integer>();
+        for (int i = 0; i < registrations.size(); i++) {
+            VariantTransformRegistry.Registration transform = registrations.get(i);
             if (matchAttributes(transform.getTo(), requested, false)) {
                 if (matchAttributes(actual, transform.getFrom(), true)) {
                     ImmutableAttributes variantAttributes = attributesFactory.concat(actual.asImmutable(), transform.getTo().asImmutable());
-                    result.matched(variantAttributes, transform.getArtifactTransform(), 1);
+                    result.matched(variantAttributes, transform.getArtifactTransform(), new int[]{i});
                 }
-                candidates.add(transform);
+                candidates.add(i);
             }
         }
         if (result.hasMatches()) {
             return;
         }
 
-        for (final VariantTransformRegistry.Registration candidate : candidates) {
+        for (int index : candidates) {
+            VariantTransformRegistry.Registration candidate = registrations.get(index);
             ConsumerVariantMatchResult inputVariants = new ConsumerVariantMatchResult();
             collectConsumerVariants(actual, candidate.getFrom(), inputVariants);
             if (!inputVariants.hasMatches()) {
                 continue;
             }
-            for (final ConsumerVariantMatchResult.ConsumerVariant inputVariant : inputVariants.getMatches()) {
+            for (ConsumerVariantMatchResult.ConsumerVariant inputVariant : inputVariants.getMatches()) {
                 ImmutableAttributes variantAttributes = attributesFactory.concat(inputVariant.attributes.asImmutable(), candidate.getTo().asImmutable());
-                Transformer<List<File>, File> transformer = new Transformer<List<File>, File>() {
-                    @Override
-                    public List<File> transform(File file) {
-                        List<File> result = new ArrayList<File>();
-                        for (File intermediate : inputVariant.transformer.transform(file)) {
-                            result.addAll(candidate.getArtifactTransform().transform(intermediate));
-                        }
-                        return result;
-                    }
-                };
-                result.matched(variantAttributes, transformer, inputVariant.depth + 1);
+                Transformer<List<File>, File> transformer = new ChainedTransformer(inputVariant.transformer, candidate.getArtifactTransform());
+                if (inputVariant.transformChain != null) {
+                    int[] chain = Arrays.copyOf(inputVariant.transformChain, inputVariant.transformChain.length + 1);
+                    chain[chain.length - 1] = index;
+                    result.matched(variantAttributes, transformer, chain);
+                } else {
+                    result.matched(variantAttributes, transformer, inputVariant.depth + 1);
+                }
+            }
+        }
+    }
+
+    private void applyTransformChains(AttributeContainerInternal actual, List<int[]> chains, ConsumerVariantMatchResult result) {
+        List<VariantTransformRegistry.Registration> registrations = getCrossBuildState().registrations;
+        for (int[] chain : chains) {
+            ImmutableAttributes variantAttributes = actual.asImmutable();
+            Transformer<List<File>, File> transformer = null;
+            for (int index : chain) {
+                VariantTransformRegistry.Registration registration = registrations.get(index);
+                variantAttributes = attributesFactory.concat(variantAttributes, registration.getTo().asImmutable());
+                transformer = transformer == null ? registration.getArtifactTransform() : new ChainedTransformer(transformer, registration.getArtifactTransform());
+            }
+            result.matched(variantAttributes, transformer, chain);
+        }
+    }
+
+    private void storeTransformChains(HashCode key, ConsumerVariantMatchResult result) {
+        List<int[]> chains = new ArrayList<int[]>(result.getMatches().size());
+        for (ConsumerVariantMatchResult.ConsumerVariant variant : result.getMatches()) {
+            if (variant.transformChain == null) {
+                return;
             }
+            chains.add(variant.transformChain);
+        }
+        crossBuildCache.putTransformChains(key, chains);
+    }
+
+    @Nullable
+    private HashCode crossBuildKey(String queryType, AttributeContainer requested, List<AttributeContainer> candidates) {
+        HashCode configurationHash = getCrossBuildState().configurationHash;
+        if (configurationHash == null) {
+            return null;
         }
+        List<AttributeContainer> attributes = new ArrayList<AttributeContainer>(candidates.size() + 1);
+        attributes.add(requested);
+        attributes.addAll(candidates);
+        return fingerprinter.hashQuery(configurationHash, queryType, attributes);
+    }
+
+    private synchronized CrossBuildState getCrossBuildState() {
+        // The results cached for this build already assume that the schema no longer changes, so only recalculate when transforms are registered
+        List<VariantTransformRegistry.Registration> registrations = ImmutableList.copyOf(variantTransforms.getTransforms());
+        if (crossBuildState == null || !crossBuildState.registrations.equals(registrations)) {
+            crossBuildState = new CrossBuildState(fingerprinter.hashConfiguration(schema, registrations), registrations);
+        }
+        return crossBuildState;
     }
 
     private AttributeSpecificCache getCache(AttributeContainer attributes) {
@@ -158,6 +253,36 @@ public class VariantAttributeMatchingCache {
         return match;
     }
 
+    private static class ChainedTransformer implements Transformer<List<File>, File> {
+        private final Transformer<List<File>, File> first;
+        private final Transformer<List<File>, File> second;
+
+        ChainedTransformer(Transformer<List<File>, File> first, Transformer<List<File>, File> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public List<File> transform(File file) {
+            List<File> result = new ArrayList<File>();
+            for (File intermediate : first.transform(file)) {
+                result.addAll(second.transform(intermediate));
+            }
+            return result;
+        }
+    }
+
+    private static class CrossBuildState {
+        @Nullable
+        private final HashCode configurationHash;
+        private final List<VariantTransformRegistry.Registration> registrations;
+
+        CrossBuildState(@Nullable HashCode configurationHash, List<VariantTransformRegistry.Registration> registrations) {
+            this.configurationHash = configurationHash;
+            this.registrations = registrations;
+        }
+    }
+
     private static class AttributeSpecificCache {
         private final Map<AttributeContainer, Boolean> ignoreExtraRequested = Maps.newConcurrentMap();
         private final Map<AttributeContainer, Boolean> ignoreExtraActual = Maps.newConcurrentMap();
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.transform;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.HashCode;
+import org.gradle.api.Action;
+import org.gradle.api.Named;
+import org.gradle.api.Nullable;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.AttributeMatchingStrategy;
+import org.gradle.api.internal.artifacts.VariantTransformRegistry;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.CompatibilityRuleChainInternal;
+import org.gradle.api.internal.attributes.DisambiguationRuleChainInternal;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.internal.Cast;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Calculates hashes for the inputs of variant matching, for use as keys in the {@link CrossBuildVariantMatchingCache}.
+ *
+ * <p>Only inputs whose behaviour is fully described by their state can be hashed: attribute values must be strings, booleans, numbers, enums or {@link Named} values,
+ * matching rules must be stateless and loaded by a class loader with a known hash, and transforms must be registered through {@link DefaultVariantTransformRegistry}.
+ * A null hash is returned for anything else, and the result is then not cached across builds.</p>
+ */
+class VariantMatchingFingerprinter {
+    private static final Ordering<Attribute<?>> ATTRIBUTE_ORDER = Ordering.<String>natural().onResultOf(new Function<Attribute<?>, String>() {
+        @Override
+        public String apply(Attribute<?> attribute) {
+            return attribute.getName();
+        }
+    });
+
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+
+    VariantMatchingFingerprinter(ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+    }
+
+    /**
+     * Calculates a hash of the given schema and transform registrations, or null when these cannot be hashed.
+     */
+    @Nullable
+    HashCode hashConfiguration(AttributesSchemaInternal schema, List<VariantTransformRegistry.Registration> registrations) {
+        BuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        for (Attribute<?> attribute : ATTRIBUTE_ORDER.sortedCopy(schema.getAttributes())) {
+            appendAttribute(hasher, attribute);
+            AttributeMatchingStrategy<Object> strategy = Cast.uncheckedCast(schema.getMatchingStrategy(attribute));
+            CompatibilityRuleChainInternal<Object> compatibilityRules = Cast.uncheckedCast(strategy.getCompatibilityRules());
+            hasher.putBoolean(compatibilityRules.isCompatibleWhenMissing());
+            if (!appendRules(hasher, compatibilityRules.getRules())) {
+                return null;
+            }
+            DisambiguationRuleChainInternal<Object> disambiguationRules = Cast.uncheckedCast(strategy.getDisambiguationRules());
+            if (!appendRules(hasher, disambiguationRules.getRules())) {
+                return null;
+            }
+        }
+        hasher.putInt(registrations.size());
+        for (VariantTransformRegistry.Registration registration : registrations) {
+            if (!(registration instanceof DefaultVariantTransformRegistration)) {
+                return null;
+            }
+            hasher.putBytes(((DefaultVariantTransformRegistration) registration).getInputsHash().asBytes());
+            if (!appendAttributes(hasher, registration.getFrom()) || !appendAttributes(hasher, registration.getTo())) {
+                return null;
+            }
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Calculates a hash of the given configuration hash, query type and attributes, or null when any of the attributes cannot be hashed.
+     */
+    @Nullable
+    HashCode hashQuery(HashCode configurationHash, String queryType, List<? extends AttributeContainer> attributes) {
+        BuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        hasher.putBytes(configurationHash.asBytes());
+        hasher.putString(queryType);
+        hasher.putInt(attributes.size());
+        for (AttributeContainer container : attributes) {
+            if (!appendAttributes(hasher, container)) {
+                return null;
+            }
+        }
+        return hasher.hash();
+    }
+
+    private boolean appendAttributes(BuildCacheHasher hasher, AttributeContainer container) {
+        List<Attribute<?>> attributes = ATTRIBUTE_ORDER.sortedCopy(container.keySet());
+        hasher.putInt(attributes.size());
+        for (Attribute<?> attribute : attributes) {
+            appendAttribute(hasher, attribute);
+            if (!appendValue(hasher, container.getAttribute(attribute))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendAttribute(BuildCacheHasher hasher, Attribute<?> attribute) {
+        hasher.putString(attribute.getName());
+        hasher.putString(attribute.getType().getName());
+    }
+
+    private static boolean appendValue(BuildCacheHasher hasher, Object value) {
+        if (value instanceof String) {
+            hasher.putString("string");
+            hasher.putString((String) value);
+        } else if (value instanceof Boolean) {
+            hasher.putString("boolean");
+            hasher.putBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            hasher.putString("integer");
+            hasher.putLong(((Number) value).longValue());
+        } else if (value instanceof Enum) {
+            hasher.putString(((Enum<?>) value).getDeclaringClass().getName());
+            hasher.putString(((Enum<?>) value).name());
+        } else if (value instanceof Named) {
+            hasher.putString("named");
+            hasher.putString(((Named) value).getName());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean appendRules(BuildCacheHasher hasher, List<? extends Action<?>> rules) {
+        hasher.putInt(rules.size());
+        for (Action<?> rule : rules) {
+            Class<?> ruleClass = rule.getClass();
+            if (!isStateless(ruleClass)) {
+                return false;
+            }
+            HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(ruleClass.getClassLoader());
+            if (classLoaderHash == null) {
+                return false;
+            }
+            hasher.putString(ruleClass.getName());
+            hasher.putBytes(classLoaderHash.asBytes());
+        }
+        return true;
+    }
+
+    private static boolean isStateless(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -57,6 +57,13 @@ class DefaultResolverResultsSpec extends Specification {
         ex3 == fatalFailure
     }
 
+    def "assumes artifacts are resolved unless told otherwise"() {
+        expect:
+        results.artifactResolutionRequested
+        new DefaultResolverResults(true).artifactResolutionRequested
+        !new DefaultResolverResults(false).artifactResolutionRequested
+    }
+
     def "provides resolve results"() {
         when:
         results.graphResolved(resolutionResult, projectConfigurationResult, visitedArtifactsSet)
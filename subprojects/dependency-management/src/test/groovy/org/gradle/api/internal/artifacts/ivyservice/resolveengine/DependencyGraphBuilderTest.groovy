@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine
 
 import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.gradle.api.Action
 import org.gradle.api.artifacts.ModuleDependency
 import org.gradle.api.artifacts.ModuleVersionIdentifier
 import org.gradle.api.artifacts.ModuleVersionSelector
@@ -26,7 +27,11 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphPathResolver
@@ -47,6 +52,9 @@ import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
@@ -65,6 +73,8 @@ class DependencyGraphBuilderTest extends Specification {
     def conflictResolver = Mock(ModuleConflictResolver)
     def idResolver = Mock(DependencyToComponentIdResolver)
     def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def buildOperationProcessor = Mock(BuildOperationProcessor)
+    def prefetched = []
     def attributesSchema = Mock(AttributesSchemaInternal)
     def attributes = Mock(AttributeContainerInternal) {
         isEmpty() >> true
@@ -951,6 +961,98 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, forced, b)
     }
 
+    def "prefetches meta-data of new modules reachable from a node"() {
+        given:
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a
+        traverses root, b
+        traverses root, c
+        traverses a, d
+
+        when:
+        def result = resolve(prefetchingBuilder())
+        result.rethrowFailure()
+
+        then:
+        prefetched == [a, b, c].collect { "Resolve meta-data for " + it.componentId }
+
+        and:
+        result.components == ids(root, a, b, c, d)
+    }
+
+    def "does not prefetch meta-data for dependencies on dynamic versions"() {
+        given:
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c", "1.2")
+        traverses root, a
+        traverses root, b
+        traverses root, c, revision: "1.+"
+
+        when:
+        def result = resolve(prefetchingBuilder())
+        result.rethrowFailure()
+
+        then:
+        prefetched == [a, b].collect { "Resolve meta-data for " + it.componentId }
+
+        and:
+        result.components == ids(root, a, b, c)
+    }
+
+    def "does not prefetch meta-data of module version evicted before it is traversed"() {
+        given:
+        def selected = revision('a', '1.2')
+        def evicted = revision('a', '1.1')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        def e = revision('e')
+        traverses root, selected
+        traverses selected, c
+        traverses root, b
+        traverses b, d
+        doesNotTraverse d, evicted
+        doesNotResolve evicted, e
+
+        when:
+        def result = resolve(prefetchingBuilder())
+        result.rethrowFailure()
+
+        then:
+        1 * conflictResolver.select(!null) >> {
+            Collection<ComponentResolutionState> candidates = it[0]
+            return candidates.find { it.version == '1.2' }
+        }
+        0 * conflictResolver._
+
+        and:
+        prefetched == [selected, b].collect { "Resolve meta-data for " + it.componentId }
+
+        and:
+        result.components == ids(root, selected, b, c, d)
+    }
+
+    private DependencyGraphBuilder prefetchingBuilder() {
+        def cacheLockingManager = Stub(CacheLockingManager) {
+            longRunningOperation(_ as Runnable) >> { Runnable action -> action.run() }
+            useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        }
+        _ * buildOperationProcessor.run(_) >> { Action<BuildOperationQueue<RunnableBuildOperation>> generator ->
+            generator.execute(Stub(BuildOperationQueue) {
+                add(_) >> { RunnableBuildOperation operation ->
+                    prefetched << operation.description
+                    operation.run()
+                }
+            })
+        }
+        def prefetcher = new ComponentMetaDataPrefetcher(metaDataResolver, buildOperationProcessor, cacheLockingManager, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+        return new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), attributesSchema, moduleIdentifierFactory, moduleExclusions, prefetcher)
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.locks.ReentrantLock
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier.newId
+
+class ComponentMetaDataPrefetcherTest extends ConcurrentSpec {
+    // Stands in for the cache lock, which is held by a single thread at a time and is released by long running operations
+    final cacheLock = new ReentrantLock()
+    // Stands in for the in-memory repository caches, which are not thread-safe
+    final inMemoryCache = new HashMap<ComponentIdentifier, Thread>()
+    final inMemoryCacheAccessedWithoutLock = new CopyOnWriteArrayList<ComponentIdentifier>()
+    final metaData = Stub(ComponentResolveMetadata)
+
+    // Uses coerced maps rather than Spock mocks, as the mocks synchronize their invocations
+    final CacheLockingManager cacheLockingManager = [
+        useCache: { Runnable action -> withCacheLock(action) },
+        longRunningOperation: { Runnable action -> withoutCacheLock(action) }
+    ] as CacheLockingManager
+    final BuildOperationProcessor buildOperationProcessor = [
+        run: { Action<BuildOperationQueue> generator ->
+            def operations = []
+            generator.execute([add: { operations << it }] as BuildOperationQueue)
+            async {
+                operations.each { operation -> start { operation.run() } }
+            }
+        }
+    ] as BuildOperationProcessor
+    final ComponentMetaDataResolver resolver = [
+        resolve: { ComponentIdentifier id, ComponentOverrideMetadata overrideMetadata, BuildableComponentResolveResult result ->
+            accessInMemoryCache(id)
+            // The repository chain releases the cache lock while it accesses a remote repository
+            cacheLockingManager.longRunningOperation({
+                instant."${id.module}Requested"
+                thread.blockUntil.aRequested
+                thread.blockUntil.bRequested
+            } as Runnable)
+            accessInMemoryCache(id)
+            result.resolved(metaData)
+        }
+    ] as ComponentMetaDataResolver
+    final prefetcher = new ComponentMetaDataPrefetcher(resolver, buildOperationProcessor, cacheLockingManager, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+
+    def "resolves meta-data concurrently and accesses the in-memory repository caches only while holding the cache lock"() {
+        def requests = [newId("org", "a", "1.0"), newId("org", "b", "1.0")].collect { new ComponentMetaDataPrefetcher.Request(it, new DefaultComponentOverrideMetadata()) }
+
+        when:
+        withCacheLock {
+            prefetcher.prefetch(requests)
+        }
+
+        then:
+        requests.every { it.result.metaData == metaData }
+        inMemoryCache.keySet() == requests*.componentId as Set
+        inMemoryCacheAccessedWithoutLock.empty
+
+        and:
+        instant.aRequested
+        instant.bRequested
+    }
+
+    def "prefetches only dependencies on fixed versions"() {
+        expect:
+        prefetcher.canPrefetch(dependency("1.0"))
+        !prefetcher.canPrefetch(dependency("1.+"))
+        !prefetcher.canPrefetch(dependency("[1.0,2.0)"))
+        !prefetcher.canPrefetch(dependency("latest.release"))
+    }
+
+    def dependency(String version) {
+        Stub(DependencyMetadata) {
+            getSelector() >> DefaultModuleComponentSelector.newSelector("org", "a", version)
+        }
+    }
+
+    void accessInMemoryCache(ComponentIdentifier id) {
+        if (!cacheLock.heldByCurrentThread) {
+            inMemoryCacheAccessedWithoutLock << id
+        }
+        inMemoryCache[id] = Thread.currentThread()
+    }
+
+    void withCacheLock(Runnable action) {
+        cacheLock.lock()
+        try {
+            action.run()
+        } finally {
+            cacheLock.unlock()
+        }
+    }
+
+    void withoutCacheLock(Runnable action) {
+        int holdCount = cacheLock.holdCount
+        holdCount.times { cacheLock.unlock() }
+        try {
+            action.run()
+        } finally {
+            holdCount.times { cacheLock.lock() }
+        }
+    }
+}
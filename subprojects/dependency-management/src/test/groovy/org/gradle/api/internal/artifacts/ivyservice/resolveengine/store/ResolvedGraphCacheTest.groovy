@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DummyBinaryStore
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DummyStore
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.api.internal.cache.BinaryStore
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentResolveMetadata
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.serialize.Serializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import org.gradle.util.BuildCommencedTimeProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultPrinter.printGraph
+import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
+
+class ResolvedGraphCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+
+    def moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory()
+    def time = 1000L
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> { time }
+    }
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        useCache(_) >> { args ->
+            def action = args[0]
+            if (action instanceof org.gradle.internal.Factory) {
+                return action.create()
+            } else {
+                action.run()
+            }
+        }
+        createCache(_, _, _) >> { String name, Serializer keySerializer, Serializer valueSerializer ->
+            return new InMemoryIndexedCache<>(valueSerializer)
+        }
+    }
+    def cachePolicy = Mock(CachePolicy)
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator())
+    def cache = new ResolvedGraphCache(cacheLockingManager, timeProvider, versionSelectorScheme, moduleIdentifierFactory, true, false)
+
+    def "loads stored resolution result"() {
+        def root = node(1, "org", "root", "1.0")
+        def dep1 = node(2, "org", "dep1", "2.0")
+        root.outgoingEdges >> [dep(selector(10, "org", "dep1", "2.0"), 2)]
+
+        when:
+        recordGraph("key", root, dep1)
+        def data = cache.load("key", cachePolicy)
+
+        then:
+        printGraph(readGraph(data).root) == """org:root:1.0
+  org:dep1:2.0 [root]
+"""
+        cache.load("unknown", cachePolicy) == null
+    }
+
+    def "does not store resolution result that contains failures"() {
+        def root = node(1, "org", "root", "1.0")
+        def selector = selector(10, "org", "dep1", "2.0")
+        def edge = Stub(DependencyGraphEdge) {
+            getSelector() >> selector
+            getRequested() >> selector.requested
+            getReason() >> VersionSelectionReasons.REQUESTED
+            getFailure() >> new ModuleVersionResolveException(selector.requested, new RuntimeException("broken"))
+        }
+        root.outgoingEdges >> [edge]
+
+        when:
+        recordGraph("key", root)
+
+        then:
+        cache.load("key", cachePolicy) == null
+    }
+
+    def "does not store resolution result that contains local components"() {
+        def root = node(1, "org", "root", "1.0")
+        def project = node(2, "org", "other", "1.0", newProjectId(":other"))
+        root.outgoingEdges >> [dep(selector(10, "org", "other", "1.0"), 2)]
+
+        when:
+        recordGraph("key", root, project)
+
+        then:
+        cache.load("key", cachePolicy) == null
+    }
+
+    def "discards resolution result when the cache policy requires a module to be refreshed"() {
+        def root = node(1, "org", "root", "1.0")
+        def dep1 = node(2, "org", "dep1", "2.0")
+        root.outgoingEdges >> [dep(selector(10, "org", "dep1", "2.0"), 2)]
+        recordGraph("key", root, dep1)
+        time = 1500L
+
+        when:
+        def data = cache.load("key", cachePolicy)
+
+        then:
+        1 * cachePolicy.mustRefreshModule(DefaultModuleComponentIdentifier.newId("org", "dep1", "2.0"), _, 500) >> true
+        0 * cachePolicy._
+        data == null
+    }
+
+    def "discards resolution result when the cache policy requires a dynamic version to be refreshed"() {
+        def root = node(1, "org", "root", "1.0")
+        def dep1 = node(2, "org", "dep1", "2.3")
+        root.outgoingEdges >> [dep(selector(10, "org", "dep1", "2.+"), 2)]
+        recordGraph("key", root, dep1)
+
+        when:
+        def data = cache.load("key", cachePolicy)
+
+        then:
+        1 * cachePolicy.mustRefreshModule(DefaultModuleComponentIdentifier.newId("org", "dep1", "2.3"), _, 0) >> false
+        1 * cachePolicy.mustRefreshVersionList(moduleIdentifierFactory.module("org", "dep1"), [DefaultModuleVersionIdentifier.newId("org", "dep1", "2.3")] as Set, 0) >> false
+        data != null
+
+        when:
+        data = cache.load("key", cachePolicy)
+
+        then:
+        1 * cachePolicy.mustRefreshVersionList(moduleIdentifierFactory.module("org", "dep1"), _, 0) >> true
+        data == null
+    }
+
+    def "discards resolution result when the cache policy requires a changing module to be refreshed"() {
+        def root = node(1, "org", "root", "1.0")
+        def dep1 = node(2, "org", "dep1", "2.0-SNAPSHOT")
+        dep1.owner.metadata.changing >> true
+        root.outgoingEdges >> [dep(selector(10, "org", "dep1", "2.0-SNAPSHOT"), 2)]
+        recordGraph("key", root, dep1)
+
+        when:
+        def data = cache.load("key", cachePolicy)
+
+        then:
+        1 * cachePolicy.mustRefreshChangingModule(DefaultModuleComponentIdentifier.newId("org", "dep1", "2.0-SNAPSHOT"), _, 0) >> true
+        0 * cachePolicy.mustRefreshModule(_, _, _)
+        data == null
+    }
+
+    def "does not load resolution result when refreshing dependencies"() {
+        def root = node(1, "org", "root", "1.0")
+        recordGraph("key", root)
+
+        expect:
+        cache.load("key", cachePolicy) != null
+        new ResolvedGraphCache(cacheLockingManager, timeProvider, versionSelectorScheme, moduleIdentifierFactory, true, true).load("key", cachePolicy) == null
+    }
+
+    private void recordGraph(String key, DependencyGraphNode root, DependencyGraphNode... nodes) {
+        def recorder = cache.createRecorder(new DummyBinaryStore())
+        def builder = new StreamingResolutionResultBuilder(recorder, new DummyStore(), moduleIdentifierFactory)
+        [builder, recorder].each { visitor ->
+            visitor.start(root)
+            visitor.visitNode(root)
+            nodes.each { visitor.visitNode(it) }
+            root.outgoingEdges.each { visitor.visitSelector(it.selector) }
+            visitor.visitEdges(root)
+            visitor.finish(root)
+        }
+        cache.store(key, recorder)
+    }
+
+    private readGraph(byte[] data) {
+        def store = new DefaultBinaryStore(temp.file("graph.bin"))
+        store.write({ it.writeBytes(data) } as BinaryStore.WriteAction)
+        return new StreamingResolutionResultBuilder(store, new DummyStore(), moduleIdentifierFactory).complete()
+    }
+
+    private DependencyGraphEdge dep(DependencyGraphSelector selector, Long selectedId) {
+        def edge = Stub(DependencyGraphEdge)
+        _ * edge.selector >> selector
+        _ * edge.requested >> selector.requested
+        _ * edge.selected >> selectedId
+        _ * edge.failure >> null
+        _ * edge.moduleDependency >> null
+        return edge
+    }
+
+    private DependencyGraphNode node(Long resultId, String org, String name, String ver, ComponentIdentifier componentId = DefaultModuleComponentIdentifier.newId(org, name, ver)) {
+        def component = Stub(DependencyGraphComponent)
+        _ * component.resultId >> resultId
+        _ * component.moduleVersion >> DefaultModuleVersionIdentifier.newId(org, name, ver)
+        _ * component.componentId >> componentId
+        _ * component.selectionReason >> VersionSelectionReasons.REQUESTED
+        _ * component.metadata >> Stub(ComponentResolveMetadata)
+
+        def node = Stub(DependencyGraphNode)
+        _ * node.owner >> component
+        return node
+    }
+
+    private DependencyGraphSelector selector(Long resultId, String org, String name, String ver) {
+        def selector = Stub(DependencyGraphSelector)
+        selector.resultId >> resultId
+        selector.requested >> DefaultModuleComponentSelector.newSelector(org, name, ver)
+        return selector
+    }
+}
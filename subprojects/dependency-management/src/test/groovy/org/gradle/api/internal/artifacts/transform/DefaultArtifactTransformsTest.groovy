@@ -27,6 +27,9 @@ import org.gradle.api.internal.attributes.AttributeContainerInternal
 import org.gradle.api.internal.attributes.DefaultImmutableAttributesFactory
 import org.gradle.api.internal.attributes.DefaultMutableAttributeContainer
 import org.gradle.internal.component.local.model.ComponentFileArtifactIdentifier
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.progress.TestBuildOperationExecutor
 import spock.lang.Specification
 
 import static org.gradle.api.internal.artifacts.ArtifactAttributes.ARTIFACT_FORMAT
@@ -34,7 +37,8 @@ import static org.gradle.util.TextUtil.toPlatformLineSeparators
 
 class DefaultArtifactTransformsTest extends Specification {
     def matchingCache = Mock(VariantAttributeMatchingCache)
-    def transforms = new DefaultArtifactTransforms(matchingCache)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def transforms = new DefaultArtifactTransforms(matchingCache, buildOperationExecutor)
 
     def "selects variant with requested attributes"() {
         def variant1 = Stub(ResolvedVariant)
@@ -95,6 +99,56 @@ class DefaultArtifactTransformsTest extends Specification {
         0 * transformer._
     }
 
+    def "applies transforms as build operations when preparing and reuses the results when visiting"() {
+        def variant1 = Stub(ResolvedVariant)
+        def id = Stub(ComponentIdentifier)
+        def sourceArtifact = Stub(TestArtifact)
+        def sourceArtifactFile = new File("thing-1.0.jar")
+        def sourceFile = new File("thing-file.jar")
+        def outFile1 = new File("out1.classes")
+        def outFile2 = new File("out2.classes")
+        def transformer = Mock(Transformer)
+        def visitor = Mock(ArtifactVisitor)
+        def queue = Mock(BuildOperationQueue)
+        def targetAttributes = typeAttributes("classes")
+
+        given:
+        variant1.attributes >> typeAttributes("jar")
+        sourceArtifact.file >> sourceArtifactFile
+        _ * variant1.visit(_) >> { ArtifactVisitor v ->
+            v.visitArtifact(targetAttributes, sourceArtifact)
+            v.visitFile(new ComponentFileArtifactIdentifier(id, sourceFile.name), targetAttributes, sourceFile)
+        }
+
+        matchingCache.selectMatches(_, _) >> []
+        matchingCache.collectConsumerVariants(typeAttributes("jar"), targetAttributes, _) >> { AttributeContainerInternal from, AttributeContainerInternal to, ConsumerVariantMatchResult result ->
+            result.matched(to, transformer, 1)
+        }
+
+        def result = transforms.variantSelector(targetAttributes).select([variant1])
+
+        when:
+        result.addPrepareActions(queue, visitor)
+
+        then:
+        2 * queue.add(_) >> { RunnableBuildOperation operation -> operation.run() }
+        1 * transformer.transform(sourceArtifactFile) >> [outFile1]
+        1 * transformer.transform(sourceFile) >> [outFile2]
+        _ * visitor.includeFiles() >> true
+        0 * transformer._
+
+        and:
+        buildOperationExecutor.operations*.progressDisplayName == ["Transforming thing-1.0.jar", "Transforming thing-file.jar"]
+
+        when:
+        result.visit(visitor)
+
+        then:
+        1 * visitor.visitArtifact(targetAttributes, {it.file == outFile1})
+        1 * visitor.visitFile(new ComponentFileArtifactIdentifier(id, outFile2.name), targetAttributes, outFile2)
+        0 * transformer._
+    }
+
     def "fails when multiple transforms match"() {
         def variant1 = Stub(ResolvedVariant)
         def variant2 = Stub(ResolvedVariant)
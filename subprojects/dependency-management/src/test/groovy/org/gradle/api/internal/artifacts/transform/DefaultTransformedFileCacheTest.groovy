@@ -128,6 +128,41 @@ class DefaultTransformedFileCacheTest extends ConcurrentSpec {
         0 * transform._
     }
 
+    def "runs transform in waiting thread when transform fails in another thread"() {
+        def failure = new RuntimeException()
+        def inputFile = tmpDir.file("a")
+
+        when:
+        def result
+        async {
+            start {
+                try {
+                    cache.getResult(inputFile, HashCode.fromInt(123)) { file, outDir ->
+                        instant.first
+                        thread.block()
+                        instant.first_failed
+                        throw failure
+                    }
+                } catch (RuntimeException e) {
+                    assert e.is(failure)
+                }
+            }
+            start {
+                thread.blockUntil.first
+                result = cache.getResult(inputFile, HashCode.fromInt(123)) { file, outDir ->
+                    instant.second
+                    def r = new File(outDir, "a.1")
+                    r.text = "result"
+                    [r]
+                }
+            }
+        }
+
+        then:
+        result*.name == ["a.1"]
+        instant.second > instant.first_failed
+    }
+
     def "multiple threads can transform files concurrently"() {
         when:
         async {
@@ -16,7 +16,9 @@
 
 package org.gradle.api.internal.artifacts.transform
 
+import com.google.common.hash.HashCode
 import junit.framework.AssertionFailedError
+import org.gradle.api.Action
 import org.gradle.api.Transformer
 import org.gradle.api.artifacts.transform.ArtifactTransform
 import org.gradle.api.attributes.Attribute
@@ -26,7 +28,13 @@ import org.gradle.api.internal.artifacts.VariantTransformRegistry
 import org.gradle.api.internal.attributes.DefaultAttributesSchema
 import org.gradle.api.internal.attributes.DefaultImmutableAttributesFactory
 import org.gradle.api.internal.attributes.DefaultMutableAttributeContainer
+import org.gradle.api.internal.cache.CrossBuildInMemoryCacheFactory
+import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter
+import org.gradle.api.internal.changedetection.state.ValueSnapshot
+import org.gradle.api.internal.changedetection.state.ValueSnapshotter
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
 import org.gradle.internal.component.model.ComponentAttributeMatcher
+import org.gradle.internal.event.DefaultListenerManager
 import spock.lang.Specification
 
 class VariantAttributeMatchingCacheTest extends Specification {
@@ -34,7 +42,11 @@ class VariantAttributeMatchingCacheTest extends Specification {
     def schema = new DefaultAttributesSchema(matcher)
     def immutableAttributesFactory = new DefaultImmutableAttributesFactory()
     def transformRegistrations = Mock(VariantTransformRegistry)
-    def matchingCache = new VariantAttributeMatchingCache(transformRegistrations, schema, new DefaultImmutableAttributesFactory())
+    def crossBuildCache = new CrossBuildVariantMatchingCache(new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()))
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> HashCode.fromInt(123)
+    }
+    def matchingCache = newMatchingCache()
 
     def a1 = Attribute.of("a1", String)
     def a2 = Attribute.of("a2", Integer)
@@ -59,6 +71,7 @@ class VariantAttributeMatchingCacheTest extends Specification {
         variant2.attributes >> c2
         variant3.attributes >> c1
         variant4.attributes >> c2
+        transformRegistrations.transforms >> []
 
         when:
         def result = matchingCache.selectMatches([variant1, variant2], c1)
@@ -359,6 +372,7 @@ class VariantAttributeMatchingCacheTest extends Specification {
 
     def "multiple candidates are forwarded when empty requested attributes to matcher to disambiguate"() {
         def empty = attributes()
+        transformRegistrations.transforms >> []
 
         when:
         def result1 = matchingCache.selectMatches([c1, c2], empty)
@@ -369,10 +383,114 @@ class VariantAttributeMatchingCacheTest extends Specification {
         matcher.match(schema, schema, [c1, c2], empty) >> [c1]
     }
 
+    def "reuses matches from a previous build with the same schema"() {
+        def variant1 = Stub(HasAttributes)
+        def variant2 = Stub(HasAttributes)
+        def variant3 = Stub(HasAttributes)
+        def variant4 = Stub(HasAttributes)
+        variant1.attributes >> c1
+        variant2.attributes >> c2
+        variant3.attributes >> c1
+        variant4.attributes >> c2
+        transformRegistrations.transforms >> []
+
+        when:
+        def result = matchingCache.selectMatches([variant1, variant2], c1)
+
+        then:
+        result == [variant1]
+        1 * matcher.ignoreAdditionalProducerAttributes() >> matcher
+        1 * matcher.match(schema, schema, [c1, c2], c1) >> [c1]
+        0 * matcher._
+
+        when:
+        result = newMatchingCache().selectMatches([variant3, variant4], c1)
+
+        then:
+        result == [variant3]
+        0 * matcher._
+    }
+
+    def "does not reuse matches from a previous build when schema uses a rule with state"() {
+        def variant1 = Stub(HasAttributes)
+        def variant2 = Stub(HasAttributes)
+        variant1.attributes >> c1
+        variant2.attributes >> c2
+        transformRegistrations.transforms >> []
+        schema.attribute(a1).compatibilityRules.add({} as Action)
+
+        when:
+        def result = matchingCache.selectMatches([variant1, variant2], c1)
+
+        then:
+        result == [variant1]
+        1 * matcher.ignoreAdditionalProducerAttributes() >> matcher
+        1 * matcher.match(schema, schema, [c1, c2], c1) >> [c1]
+        0 * matcher._
+
+        when:
+        result = newMatchingCache().selectMatches([variant1, variant2], c1)
+
+        then:
+        result == [variant1]
+        1 * matcher.ignoreAdditionalProducerAttributes() >> matcher
+        1 * matcher.match(schema, schema, [c1, c2], c1) >> [c1]
+        0 * matcher._
+    }
+
+    def "reuses transform selected in a previous build with the same schema and registrations"() {
+        def reg1 = transformRegistration(c1, c3)
+        def reg2 = transformRegistration(c1, c2)
+        def requested = attributes().attribute(a1, "requested")
+        def source = attributes().attribute(a1, "source")
+
+        given:
+        transformRegistrations.transforms >> [reg1, reg2]
+
+        when:
+        def result = new ConsumerVariantMatchResult()
+        matchingCache.collectConsumerVariants(source, requested, result)
+
+        then:
+        result.matches.size() == 1
+        result.matches.first().transformer.is(reg2)
+
+        and:
+        1 * matcher.ignoreAdditionalProducerAttributes() >> matcher
+        1 * matcher.isMatching(schema, source, c1) >> true
+        2 * matcher.ignoreAdditionalConsumerAttributes() >> matcher
+        1 * matcher.isMatching(schema, c3, requested) >> false
+        1 * matcher.isMatching(schema, c2, requested) >> true
+        0 * matcher._
+
+        when:
+        def result2 = new ConsumerVariantMatchResult()
+        newMatchingCache().collectConsumerVariants(source, requested, result2)
+
+        then:
+        result2.matches.size() == 1
+        result2.matches.first().attributes == result.matches.first().attributes
+        result2.matches.first().transformer.is(reg2)
+
+        and:
+        0 * matcher._
+    }
+
     private DefaultMutableAttributeContainer attributes() {
         new DefaultMutableAttributeContainer(immutableAttributesFactory)
     }
 
+    private VariantAttributeMatchingCache newMatchingCache() {
+        new VariantAttributeMatchingCache(transformRegistrations, schema, immutableAttributesFactory, crossBuildCache, classLoaderHierarchyHasher)
+    }
+
+    private VariantTransformRegistry.Registration transformRegistration(AttributeContainer from, AttributeContainer to) {
+        def valueSnapshotter = Stub(ValueSnapshotter) {
+            snapshot(_) >> Stub(ValueSnapshot)
+        }
+        new DefaultVariantTransformRegistration(from, to, Transform, [] as Object[], Stub(TransformedFileCache), Stub(GenericFileCollectionSnapshotter), valueSnapshotter, classLoaderHierarchyHasher)
+    }
+
     private VariantTransformRegistry.Registration registration(AttributeContainer from, AttributeContainer to, Transformer transformer) {
         def reg = Stub(VariantTransformRegistry.Registration)
         reg.from >> from
@@ -16,6 +16,7 @@
 
 package org.gradle.integtests.fixtures
 
+import groovy.io.FileType
 import groovy.transform.SelfType
 import org.gradle.integtests.fixtures.executer.GradleExecuter
 import org.gradle.test.fixtures.file.TestFile
@@ -60,6 +61,12 @@ trait LocalBuildCacheFixture {
     }
 
     static List<TestFile> listCacheFiles(TestFile cacheDir) {
-        cacheDir.listFiles().findAll { it.name ==~ /\p{XDigit}{32}/}.sort()
+        List<TestFile> cacheFiles = []
+        cacheDir.eachFileRecurse(FileType.FILES) { File file ->
+            if (file.name ==~ /\p{XDigit}{32}/) {
+                cacheFiles << new TestFile(file)
+            }
+        }
+        cacheFiles.sort()
     }
 }
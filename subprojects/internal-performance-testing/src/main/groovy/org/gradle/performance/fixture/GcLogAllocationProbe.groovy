@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.fixture
+
+import groovy.transform.CompileStatic
+import org.gradle.performance.measure.Amount
+import org.gradle.performance.measure.DataAmount
+import org.gradle.performance.measure.DataSeries
+import org.gradle.performance.measure.MeasuredOperation
+import org.gradle.performance.results.CrossVersionPerformanceResults
+
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * Measures the memory the daemon allocates during each measured build, based on the garbage collection log of the daemon.
+ *
+ * <p>The allocation of a build is the growth of the young generation between the collections that happen during the build.
+ * Objects allocated directly in the old generation are not counted, so the heap of the daemon should be small enough
+ * for the young generation to be collected several times per build.</p>
+ */
+@CompileStatic
+class GcLogAllocationProbe implements InvocationCustomizer, BuildExperimentListener {
+    private static final Pattern YOUNG_GENERATION_COLLECTION = ~/\[(?:PSYoungGen|ParNew|DefNew): (\d+)K->(\d+)K\(/
+    private static final String GC_LOG_FILE_NAME = "gc.log"
+    private static final int NEW_LINE = (int) ('\n' as char)
+
+    // Allow some variance, as collections do not happen at the same points in every build
+    BigDecimal maxRegression = new BigDecimal("0.1")
+
+    private final Map<String, List<Amount<DataAmount>>> allocations = new LinkedHashMap<String, List<Amount<DataAmount>>>()
+    private File gcLog
+    private long gcLogOffset
+    private long youngGenerationAfterLastCollection
+
+    @Override
+    def <T extends InvocationSpec> T customize(BuildExperimentInvocationInfo invocationInfo, T invocationSpec) {
+        def gcLogOptions = ["-Xloggc:${gcLogFile(invocationInfo).absolutePath}".toString(), "-XX:+PrintGCDetails"]
+        (T) ((GradleInvocationSpec) invocationSpec).withAdditionalJvmOpts(gcLogOptions)
+    }
+
+    @Override
+    void beforeInvocation(BuildExperimentInvocationInfo invocationInfo) {
+        def file = gcLogFile(invocationInfo)
+        if (file != gcLog || file.length() < gcLogOffset) {
+            // A new daemon has been started
+            gcLog = file
+            gcLogOffset = 0
+            youngGenerationAfterLastCollection = 0
+        }
+        allocatedDuring(readNewLines())
+    }
+
+    @Override
+    void afterInvocation(BuildExperimentInvocationInfo invocationInfo, MeasuredOperation operation, BuildExperimentListener.MeasurementCallback measurementCallback) {
+        long allocatedKiloBytes = allocatedDuring(readNewLines())
+        if (invocationInfo.phase == BuildExperimentRunner.Phase.MEASUREMENT && operation.valid) {
+            def version = invocationInfo.buildExperimentSpec.displayName
+            def amounts = allocations[version]
+            if (amounts == null) {
+                amounts = []
+                allocations[version] = amounts
+            }
+            amounts << DataAmount.kbytes(BigDecimal.valueOf(allocatedKiloBytes))
+        }
+    }
+
+    DataSeries<DataAmount> getAllocations(String version) {
+        new DataSeries<DataAmount>(allocations[version] ?: Collections.<Amount<DataAmount>>emptyList())
+    }
+
+    void assertCurrentVersionHasNotRegressed(CrossVersionPerformanceResults results) {
+        def current = getAllocations(results.versionUnderTest)
+        println "Allocation per build of current version: median ${current.median?.format()}, min ${current.min?.format()}, max ${current.max?.format()}"
+        results.baselineVersions.each { baselineVersion ->
+            def baseline = getAllocations(baselineVersion.version)
+            println "Allocation per build of ${baselineVersion.version}: median ${baseline.median?.format()}, min ${baseline.min?.format()}, max ${baseline.max?.format()}"
+            if (current.empty || baseline.empty) {
+                return
+            }
+            def limit = baseline.median.multiply(BigDecimal.ONE + maxRegression)
+            if (current.median > limit) {
+                throw new AssertionError("Current version allocates more memory per build than ${baselineVersion.version}: ${current.median.format()} compared to ${baseline.median.format()}".toString())
+            }
+        }
+    }
+
+    /**
+     * Returns the kilobytes allocated in the young generation between the previously seen collection and the last of the given collections.
+     */
+    long allocatedDuring(Iterable<String> gcLogLines) {
+        long allocated = 0
+        for (String line : gcLogLines) {
+            Matcher matcher = YOUNG_GENERATION_COLLECTION.matcher(line)
+            if (matcher.find()) {
+                long before = Long.parseLong(matcher.group(1))
+                long after = Long.parseLong(matcher.group(2))
+                allocated += Math.max(0, before - youngGenerationAfterLastCollection)
+                youngGenerationAfterLastCollection = after
+            }
+        }
+        allocated
+    }
+
+    private List<String> readNewLines() {
+        if (gcLog == null || !gcLog.file) {
+            return Collections.emptyList()
+        }
+        RandomAccessFile file = new RandomAccessFile(gcLog, "r")
+        try {
+            byte[] content = new byte[(int) (file.length() - gcLogOffset)]
+            file.seek(gcLogOffset)
+            file.readFully(content)
+            // Only consume complete lines, the daemon may still be writing the last one
+            int end = content.length
+            while (end > 0 && content[end - 1] != NEW_LINE) {
+                end--
+            }
+            gcLogOffset += end
+            new String(content, 0, end, "UTF-8").readLines()
+        } finally {
+            file.close()
+        }
+    }
+
+    private static File gcLogFile(BuildExperimentInvocationInfo invocationInfo) {
+        new File(invocationInfo.projectDir, GC_LOG_FILE_NAME)
+    }
+}
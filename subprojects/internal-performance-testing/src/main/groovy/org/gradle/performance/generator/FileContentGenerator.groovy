@@ -66,6 +66,14 @@ class FileContentGenerator {
             outputs.upToDateWhen { false }
             outputFile = new File(buildDir, "dependencies.txt")
         }
+
+        task resolveDependencies {
+            doLast {
+                ['compileClasspath', 'runtimeClasspath', 'testCompileClasspath', 'testRuntimeClasspath'].each {
+                    configurations.getByName(it).incoming.resolutionResult.allComponents
+                }
+            }
+        }
         """
     }
 
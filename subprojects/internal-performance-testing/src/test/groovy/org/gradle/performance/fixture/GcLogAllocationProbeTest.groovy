@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.fixture
+
+import org.gradle.performance.measure.DataAmount
+import org.gradle.performance.measure.Duration
+import org.gradle.performance.measure.MeasuredOperation
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.joda.time.DateTime
+import org.junit.Rule
+import spock.lang.Specification
+
+class GcLogAllocationProbeTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def probe = new GcLogAllocationProbe()
+
+    def "sums the growth of the young generation between collections"() {
+        expect:
+        probe.allocatedDuring([
+            "0.512: [GC (Allocation Failure) [PSYoungGen: 1000K->100K(1200K)] 1000K->120K(4000K), 0.0010 secs]",
+            "0.733: [GC (Allocation Failure) [PSYoungGen: 1100K->200K(1200K)] 1120K->240K(4000K), 0.0010 secs]",
+            "0.810: [Full GC (Ergonomics) [PSYoungGen: 700K->0K(1200K)] [ParOldGen: 2000K->1500K(2800K)] 2700K->1500K(4000K), 0.0100 secs]"
+        ]) == 1000 + 1000 + 500
+
+        and:
+        probe.allocatedDuring(["1.100: [GC (Allocation Failure) 1.100: [ParNew: 900K->50K(1200K), 0.0010 secs] 2400K->1550K(4000K), 0.0011 secs]"]) == 900
+    }
+
+    def "ignores lines that are not young generation collections"() {
+        expect:
+        probe.allocatedDuring([
+            "Java HotSpot(TM) 64-Bit Server VM (25.121-b13) for linux-amd64 JRE (1.8.0_121-b13)",
+            "CommandLine flags: -XX:+PrintGCDetails -Xloggc:gc.log",
+            "Heap",
+            " PSYoungGen      total 1200K, used 300K"
+        ]) == 0
+    }
+
+    def "records the allocation of measured builds per version"() {
+        def projectDir = tmpDir.createDir("project")
+        def gcLog = projectDir.file("gc.log")
+        def spec = Stub(BuildExperimentSpec) {
+            getDisplayName() >> "4.0"
+        }
+        def warmUp = new DefaultBuildExperimentInvocationInfo(spec, projectDir, BuildExperimentRunner.Phase.WARMUP, 1, 1)
+        def measurement = new DefaultBuildExperimentInvocationInfo(spec, projectDir, BuildExperimentRunner.Phase.MEASUREMENT, 1, 1)
+        def operation = new MeasuredOperation(start: DateTime.now(), end: DateTime.now(), totalTime: Duration.millis(1))
+
+        when:
+        gcLog.text = "[GC (Allocation Failure) [PSYoungGen: 1000K->100K(1200K)] 1000K->120K(4000K), 0.0010 secs]\n"
+        probe.beforeInvocation(warmUp)
+        gcLog << "[GC (Allocation Failure) [PSYoungGen: 1100K->200K(1200K)] 1120K->240K(4000K), 0.0010 secs]\n"
+        probe.afterInvocation(warmUp, operation, null)
+        probe.beforeInvocation(measurement)
+        gcLog << "[GC (Allocation Failure) [PSYoungGen: 2200K->300K(1200K)] 2240K->340K(4000K), 0.0010 secs]\n"
+        gcLog << "[GC (Allocation Failure) [PSYoungGen: 13"
+        probe.afterInvocation(measurement, operation, null)
+
+        then:
+        probe.getAllocations("4.0") == [DataAmount.kbytes(2000G)]
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.launcher.daemon.server;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.classpath.ClassPath;
@@ -49,6 +50,7 @@ import org.gradle.launcher.daemon.server.exec.LogToClient;
 import org.gradle.launcher.daemon.server.exec.RequestStopIfSingleUsedDaemon;
 import org.gradle.launcher.daemon.server.exec.ResetDeprecationLogger;
 import org.gradle.launcher.daemon.server.exec.ReturnResult;
+import org.gradle.launcher.daemon.server.exec.ShrinkInMemoryCaches;
 import org.gradle.launcher.daemon.server.exec.StartBuildOrRespondWithBusy;
 import org.gradle.launcher.daemon.server.exec.WatchForDisconnection;
 import org.gradle.launcher.daemon.server.health.DaemonHealthCheck;
@@ -130,7 +132,7 @@ public class DaemonServices extends DefaultServiceRegistry {
         return new DaemonHealthStats(runningStats, executorFactory);
     }
 
-    protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(DaemonContext daemonContext, ProcessEnvironment processEnvironment, DaemonHealthStats healthStats, DaemonHealthCheck healthCheck, BuildExecuter buildActionExecuter, DaemonRunningStats runningStats) {
+    protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(DaemonContext daemonContext, ProcessEnvironment processEnvironment, DaemonHealthStats healthStats, DaemonHealthCheck healthCheck, DaemonMemoryStatus memoryStatus, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, BuildExecuter buildActionExecuter, DaemonRunningStats runningStats) {
         File daemonLog = getDaemonLogFile();
         DaemonDiagnostics daemonDiagnostics = new DaemonDiagnostics(daemonLog, daemonContext.getPid());
         return ImmutableList.of(
@@ -142,6 +144,7 @@ public class DaemonServices extends DefaultServiceRegistry {
             new EstablishBuildEnvironment(processEnvironment),
             new LogToClient(loggingManager, daemonDiagnostics), // from this point down, logging is sent back to the client
             new LogAndCheckHealth(healthStats, healthCheck),
+            new ShrinkInMemoryCaches(memoryStatus, inMemoryCacheDecoratorFactory),
             new ForwardClientInput(),
             new RequestStopIfSingleUsedDaemon(),
             new ResetDeprecationLogger(),
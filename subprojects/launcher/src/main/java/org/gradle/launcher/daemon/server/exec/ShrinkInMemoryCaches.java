@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
+import org.gradle.launcher.daemon.server.api.DaemonCommandAction;
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
+import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus;
+
+/**
+ * Reduces the memory budget of the in-memory caches after a build when the tenured space of the daemon is running full,
+ * so that a long-lived daemon keeps a stable heap rather than expiring.
+ */
+public class ShrinkInMemoryCaches implements DaemonCommandAction {
+    private final DaemonMemoryStatus memoryStatus;
+    private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
+
+    public ShrinkInMemoryCaches(DaemonMemoryStatus memoryStatus, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+        this.memoryStatus = memoryStatus;
+        this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
+    }
+
+    @Override
+    public void execute(DaemonCommandExecution execution) {
+        if (execution.isSingleUseDaemon()) {
+            execution.proceed();
+            return;
+        }
+
+        execution.proceed();
+
+        if (memoryStatus.isTenuredSpaceUnderPressure()) {
+            inMemoryCacheDecoratorFactory.reduceMemoryBudget();
+        }
+    }
+}
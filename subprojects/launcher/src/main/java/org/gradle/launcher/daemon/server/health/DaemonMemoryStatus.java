@@ -69,6 +69,23 @@ public class DaemonMemoryStatus {
         });
     }
 
+    /**
+     * Returns true when the usage of the tenured space is above the threshold, regardless of the garbage collection rate. The daemon can still
+     * continue to run, but should release any memory it does not strictly need.
+     */
+    public boolean isTenuredSpaceUnderPressure() {
+        GarbageCollectionStats gcStats = stats.getGcMonitor().getTenuredStats();
+
+        return exceedsThreshold(TENURED, gcStats, new Spec<GarbageCollectionStats>() {
+            @Override
+            public boolean isSatisfiedBy(GarbageCollectionStats gcStats) {
+                return tenuredUsageThreshold != 0
+                    && gcStats.getEventCount() >= 5
+                    && gcStats.getUsage() >= tenuredUsageThreshold;
+            }
+        });
+    }
+
     public boolean isPermGenSpaceExhausted() {
         GarbageCollectionStats gcStats = stats.getGcMonitor().getPermGenStats();
 
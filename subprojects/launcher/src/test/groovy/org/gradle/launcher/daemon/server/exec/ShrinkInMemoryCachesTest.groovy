@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.launcher.daemon.server.exec
+
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution
+import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus
+import spock.lang.Specification
+
+class ShrinkInMemoryCachesTest extends Specification {
+    def exec = Mock(DaemonCommandExecution)
+    def status = Mock(DaemonMemoryStatus)
+    def caches = Mock(InMemoryCacheDecoratorFactory)
+    def action = new ShrinkInMemoryCaches(status, caches)
+
+    def "does not shrink caches of single use daemon"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.isSingleUseDaemon() >> true
+        1 * exec.proceed()
+        0 * _
+    }
+
+    def "reduces memory budget after build when tenured space is under pressure"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.proceed()
+
+        then:
+        1 * status.isTenuredSpaceUnderPressure() >> true
+        1 * caches.reduceMemoryBudget()
+    }
+
+    def "does not reduce memory budget when tenured space is not under pressure"() {
+        when:
+        action.execute(exec)
+
+        then:
+        1 * exec.proceed()
+        1 * status.isTenuredSpaceUnderPressure() >> false
+        0 * caches._
+    }
+}
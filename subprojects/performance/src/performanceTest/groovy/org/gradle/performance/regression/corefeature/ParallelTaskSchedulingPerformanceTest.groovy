@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.regression.corefeature
+
+import org.gradle.performance.AbstractCrossVersionPerformanceTest
+
+class ParallelTaskSchedulingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    def "schedule tasks with outputs in parallel"() {
+        given:
+        runner.testProject = "manyProjectsWithTaskOutputs"
+        runner.tasksToRun = ['produce']
+        runner.args = ['--parallel', '--max-workers=32']
+        runner.gradleOpts = ["-Xms2g", "-Xmx2g"]
+        runner.targetVersions = ["3.5-20170221000043+0000"]
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
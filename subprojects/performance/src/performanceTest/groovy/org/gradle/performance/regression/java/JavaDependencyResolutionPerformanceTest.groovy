@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance.regression.java
+
+import org.gradle.performance.AbstractCrossVersionPerformanceTest
+import org.gradle.performance.fixture.GcLogAllocationProbe
+import spock.lang.Unroll
+
+import static org.gradle.performance.generator.JavaTestProject.LARGE_JAVA_MULTI_PROJECT
+import static org.gradle.performance.generator.JavaTestProject.MEDIUM_JAVA_MULTI_PROJECT
+
+class JavaDependencyResolutionPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    @Unroll
+    def "resolve dependencies of all projects in #testProject"() {
+        given:
+        def allocationProbe = new GcLogAllocationProbe()
+        runner.testProject = testProject
+        // A heap well below the usual daemon size, so that the young generation is collected several times per build
+        runner.gradleOpts = ["-Xms${heapSize}", "-Xmx${heapSize}"]
+        runner.tasksToRun = ['resolveDependencies']
+        runner.targetVersions = ["3.5-20170221000043+0000"]
+        runner.addInvocationCustomizer(allocationProbe)
+        runner.addBuildExperimentListener(allocationProbe)
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+        allocationProbe.assertCurrentVersionHasNotRegressed(result)
+
+        where:
+        testProject               | heapSize
+        MEDIUM_JAVA_MULTI_PROJECT | '512m'
+        LARGE_JAVA_MULTI_PROJECT  | '1g'
+    }
+}
@@ -261,6 +261,22 @@ public class JavaPlugin implements Plugin<ProjectInternal> {
     private static final Set<String> VARIANT_TYPES = ImmutableSet.of(JAR_TYPE, CLASS_DIRECTORY, RESOURCES_DIRECTORY);
     private static final Set<String> DIR_VARIANT_TYPES = ImmutableSet.of(NON_DEFAULT_JAR_TYPE, CLASS_DIRECTORY, RESOURCES_DIRECTORY);
 
+    // Stateless, so that variant matching results for schemas using this rule can be reused across builds
+    private static final Action<MultipleCandidatesDetails<String>> ARTIFACT_TYPE_DISAMBIGUATION_RULE = new Action<MultipleCandidatesDetails<String>>() {
+        @Override
+        public void execute(MultipleCandidatesDetails<String> details) {
+            // Use Jar if all are selected
+            if (details.getCandidateValues().equals(VARIANT_TYPES)) {
+                details.closestMatch(JAR_TYPE);
+                return;
+            }
+            // Use classes if dir variants are selected
+            if (details.getCandidateValues().equals(DIR_VARIANT_TYPES)) {
+                details.closestMatch(CLASS_DIRECTORY);
+            }
+        }
+    };
+
     public void apply(ProjectInternal project) {
         project.getPluginManager().apply(JavaBasePlugin.class);
 
@@ -280,20 +296,7 @@ public class JavaPlugin implements Plugin<ProjectInternal> {
 
     private void configureCompatibilityRules(ProjectInternal project) {
         AttributeMatchingStrategy<String> matchingStrategy = project.getDependencies().getAttributesSchema().getMatchingStrategy(ArtifactAttributes.ARTIFACT_FORMAT);
-        matchingStrategy.getDisambiguationRules().add(new Action<MultipleCandidatesDetails<String>>() {
-            @Override
-            public void execute(MultipleCandidatesDetails<String> details) {
-                // Use Jar if all are selected
-                if (details.getCandidateValues().equals(VARIANT_TYPES)) {
-                    details.closestMatch(JAR_TYPE);
-                    return;
-                }
-                // Use classes if dir variants are selected
-                if (details.getCandidateValues().equals(DIR_VARIANT_TYPES)) {
-                    details.closestMatch(CLASS_DIRECTORY);
-                }
-            }
-        });
+        matchingStrategy.getDisambiguationRules().add(ARTIFACT_TYPE_DISAMBIGUATION_RULE);
     }
 
     private void configureSourceSets(JavaPluginConvention pluginConvention, final BuildOutputCleanupRegistry buildOutputCleanupRegistry) {
@@ -20,6 +20,7 @@ import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.auth.AuthScope;
@@ -40,6 +41,7 @@ import org.apache.http.impl.auth.BasicSchemeFactory;
 import org.apache.http.impl.auth.DigestSchemeFactory;
 import org.apache.http.impl.auth.KerberosSchemeFactory;
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.SystemDefaultCredentialsProvider;
 import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
@@ -64,15 +66,20 @@ import java.io.IOException;
 import java.net.ProxySelector;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 public class HttpClientConfigurer {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfigurer.class);
-    private static final int MAX_HTTP_CONNECTIONS = 20;
-
     private final HttpSettings httpSettings;
+    private final HttpConnectionPoolSettings connectionPoolSettings;
 
     public HttpClientConfigurer(HttpSettings httpSettings) {
+        this(httpSettings, HttpConnectionPoolSettings.DEFAULT);
+    }
+
+    public HttpClientConfigurer(HttpSettings httpSettings, HttpConnectionPoolSettings connectionPoolSettings) {
         this.httpSettings = httpSettings;
+        this.connectionPoolSettings = connectionPoolSettings;
     }
 
     public void configure(HttpClientBuilder builder) {
@@ -83,8 +90,23 @@ public class HttpClientConfigurer {
         configureProxy(builder, credentialsProvider, httpSettings);
         configureUserAgent(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
-        builder.setMaxConnTotal(MAX_HTTP_CONNECTIONS);
-        builder.setMaxConnPerRoute(MAX_HTTP_CONNECTIONS);
+        configureConnectionPool(builder);
+    }
+
+    private void configureConnectionPool(HttpClientBuilder builder) {
+        builder.setMaxConnTotal(connectionPoolSettings.getMaxConnections());
+        builder.setMaxConnPerRoute(connectionPoolSettings.getMaxConnectionsPerRoute());
+        final long keepAliveMillis = connectionPoolSettings.getKeepAliveMillis();
+        if (keepAliveMillis > 0) {
+            builder.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    long serverKeepAliveMillis = super.getKeepAliveDuration(response, context);
+                    return serverKeepAliveMillis > 0 ? Math.min(serverKeepAliveMillis, keepAliveMillis) : keepAliveMillis;
+                }
+            });
+            builder.evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory) {
@@ -47,11 +47,23 @@ public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    // HTTP contexts are not thread safe, but the client and its connection pool can be shared by concurrent requests
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
     private final HttpSettings settings;
+    private final HttpConnectionPoolSettings connectionPoolSettings;
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, HttpConnectionPoolSettings.DEFAULT);
+    }
+
+    public HttpClientHelper(HttpSettings settings, HttpConnectionPoolSettings connectionPoolSettings) {
         this.settings = settings;
+        this.connectionPoolSettings = connectionPoolSettings;
     }
 
     public CloseableHttpResponse performRawHead(String source, boolean revalidate) {
@@ -108,9 +120,10 @@ public class HttpClientHelper implements Closeable {
 
     public CloseableHttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
+        BasicHttpContext context = httpContext.get();
+        context.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return getClient().execute(request, httpContext);
+        return getClient().execute(request, context);
     }
 
     private CloseableHttpResponse processResponse(String source, String method, CloseableHttpResponse response) {
@@ -131,7 +144,7 @@ public class HttpClientHelper implements Closeable {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
             builder.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
-            new HttpClientConfigurer(settings).configure(builder);
+            new HttpClientConfigurer(settings, connectionPoolSettings).configure(builder);
             this.client = builder.build();
         }
         return client;
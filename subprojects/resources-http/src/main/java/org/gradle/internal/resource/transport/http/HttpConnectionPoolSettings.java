@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+/**
+ * Settings for the pool of persistent connections used by an HTTP client.
+ */
+public class HttpConnectionPoolSettings {
+    /**
+     * Keeps up to 20 connections per route and keeps connections alive for as long as the server allows.
+     */
+    public static final HttpConnectionPoolSettings DEFAULT = new HttpConnectionPoolSettings(20, 20, -1);
+
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final long keepAliveMillis;
+
+    /**
+     * @param maxConnections the maximum number of open connections.
+     * @param maxConnectionsPerRoute the maximum number of open connections to a single host.
+     * @param keepAliveMillis the time to keep an idle connection open when the server does not specify a keep-alive timeout, or a value {@code <= 0} to keep idle connections open indefinitely.
+     * Idle connections are closed after that time in any case.
+     */
+    public HttpConnectionPoolSettings(int maxConnections, int maxConnectionsPerRoute, long keepAliveMillis) {
+        if (maxConnections < 1 || maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException(String.format("Invalid number of connections: %d total, %d per route", maxConnections, maxConnectionsPerRoute));
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = Math.min(maxConnections, maxConnectionsPerRoute);
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d connections (%d per route), keep-alive %d ms", maxConnections, maxConnectionsPerRoute, keepAliveMillis);
+    }
+}
@@ -16,37 +16,71 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
-import org.gradle.internal.Factory;
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
-import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.actor.Actor;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
+import org.gradle.internal.time.TimeProvider;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.gradle.internal.time.Clock.prettyTime;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors.
+ *
+ * <p>When balancing, test classes are queued, and each processor is kept supplied with at most {@value #MAX_PENDING_TEST_CLASSES} test classes
+ * at a time, so that a processor that receives slow test classes does not hold up the others. Queued test classes are handed out in the given
+ * order, falling back to the order in which they were received. The processors created by the factory must notify the given listener once for
+ * each test class they receive, after they have run it.</p>
+ *
+ * <p>When not balancing, for test frameworks that only run the test classes once the processor is stopped, each test class is handed to the
+ * next processor in turn as soon as it is received.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    private static final Logger LOGGER = Logging.getLogger(MaxNParallelTestClassProcessor.class);
+    private static final int MAX_PENDING_TEST_CLASSES = 2;
+
     private final int maxProcessors;
-    private final Factory<TestClassProcessor> factory;
+    private final Transformer<TestClassProcessor, TestClassProcessedListener> factory;
     private final ActorFactory actorFactory;
+    private final TimeProvider timeProvider;
+    private final boolean balance;
+    private final Object lock = new Object();
+    private final PriorityQueue<QueuedTestClass> queue;
+    private final List<QueuedTestClass> received = new ArrayList<QueuedTestClass>();
+    private final List<ProcessorSlot> slots = new ArrayList<ProcessorSlot>();
     private TestResultProcessor resultProcessor;
-    private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
-    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+    public MaxNParallelTestClassProcessor(int maxProcessors, Transformer<TestClassProcessor, TestClassProcessedListener> factory, ActorFactory actorFactory,
+                                          final Comparator<? super TestClassRunInfo> testClassOrder, TimeProvider timeProvider, boolean balance) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.timeProvider = timeProvider;
+        this.balance = balance;
+        this.queue = new PriorityQueue<QueuedTestClass>(11, new Comparator<QueuedTestClass>() {
+            @Override
+            public int compare(QueuedTestClass o1, QueuedTestClass o2) {
+                int result = testClassOrder.compare(o1.testClass, o2.testClass);
+                return result != 0 ? result : o1.index - o2.index;
+            }
+        });
     }
 
     @Override
@@ -58,27 +92,146 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        synchronized (lock) {
+            QueuedTestClass queuedTestClass = new QueuedTestClass(testClass, received.size());
+            received.add(queuedTestClass);
+            queue.add(queuedTestClass);
+            if (slots.size() < maxProcessors && !hasIdleSlot()) {
+                startProcessor();
+            }
+            dispatch();
+        }
+    }
+
+    private boolean hasIdleSlot() {
+        for (ProcessorSlot slot : slots) {
+            if (slot.pending.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startProcessor() {
+        ProcessorSlot slot = new ProcessorSlot();
+        TestClassProcessor processor = factory.transform(slot);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        slot.processor = processor;
+        slots.add(slot);
+        processor.startProcessing(resultProcessor);
+    }
+
+    private void dispatch() {
+        while (!queue.isEmpty()) {
+            ProcessorSlot slot = leastBusySlot();
+            if (slot == null) {
+                break;
+            }
+            slot.start(queue.poll());
+        }
+        if (queue.isEmpty()) {
+            lock.notifyAll();
+        }
+    }
+
+    private ProcessorSlot leastBusySlot() {
+        ProcessorSlot leastBusy = null;
+        for (ProcessorSlot slot : slots) {
+            if (leastBusy == null || slot.pending.size() < leastBusy.pending.size()) {
+                leastBusy = slot;
+            }
         }
-        processor.processTestClass(testClass);
+        if (leastBusy == null || balance && leastBusy.pending.size() >= MAX_PENDING_TEST_CLASSES) {
+            return null;
+        }
+        return leastBusy;
     }
 
     @Override
     public void stop() {
+        synchronized (lock) {
+            while (!queue.isEmpty()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
+        if (balance && slots.size() > 1) {
+            reportDistribution();
+        }
+    }
+
+    private void reportDistribution() {
+        long[] roundRobinBusy = new long[slots.size()];
+        for (QueuedTestClass testClass : received) {
+            roundRobinBusy[testClass.index % roundRobinBusy.length] += testClass.duration;
+        }
+        long roundRobinMaxBusy = 0;
+        for (long busy : roundRobinBusy) {
+            roundRobinMaxBusy = Math.max(roundRobinMaxBusy, busy);
+        }
+        long maxBusy = 0;
+        long minBusy = Long.MAX_VALUE;
+        for (ProcessorSlot slot : slots) {
+            maxBusy = Math.max(maxBusy, slot.busy);
+            minBusy = Math.min(minBusy, slot.busy);
+        }
+        LOGGER.info("Ran {} test classes in {} test processes. Busiest process: {}, least busy process: {}. Estimated busiest process with round-robin assignment: {}.",
+            received.size(), slots.size(), prettyTime(maxBusy), prettyTime(minBusy), prettyTime(roundRobinMaxBusy));
+    }
+
+    private static class QueuedTestClass {
+        final TestClassRunInfo testClass;
+        final int index;
+        long startTime;
+        long duration;
+
+        QueuedTestClass(TestClassRunInfo testClass, int index) {
+            this.testClass = testClass;
+            this.index = index;
+        }
+    }
+
+    private class ProcessorSlot implements TestClassProcessedListener {
+        final LinkedList<QueuedTestClass> pending = new LinkedList<QueuedTestClass>();
+        TestClassProcessor processor;
+        long lastProcessedTime;
+        long busy;
+
+        void start(QueuedTestClass testClass) {
+            testClass.startTime = timeProvider.getCurrentTimeForDuration();
+            pending.add(testClass);
+            processor.processTestClass(testClass.testClass);
+        }
+
+        @Override
+        public void testClassProcessed() {
+            if (!balance) {
+                // The test classes have not run yet, so keep assigning them in turn
+                return;
+            }
+            synchronized (lock) {
+                QueuedTestClass current = pending.poll();
+                if (current == null) {
+                    return;
+                }
+                // A test class handed out while the previous one was still running only starts once that one has been processed
+                long now = timeProvider.getCurrentTimeForDuration();
+                current.duration = now - Math.max(current.startTime, lastProcessedTime);
+                lastProcessedTime = now;
+                busy += current.duration;
+                dispatch();
+            }
+        }
     }
 }
@@ -18,10 +18,12 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.dispatch.StreamCompletion;
 import org.gradle.internal.operations.BuildOperationWorkerRegistry;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.process.JavaForkOptions;
@@ -33,6 +35,7 @@ import org.gradle.util.CollectionUtils;
 import java.io.File;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ForkingTestClassProcessor implements TestClassProcessor {
     private final WorkerProcessFactory workerFactory;
@@ -42,12 +45,13 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
     private final BuildOperationWorkerRegistry.Operation owner;
+    private final ProcessedTestClasses processedTestClasses;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
     private BuildOperationWorkerRegistry.Completion workerCompletion;
 
-    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner) {
+    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner, TestClassProcessedListener processedListener) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
@@ -55,6 +59,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.owner = owner;
+        this.processedTestClasses = new ProcessedTestClasses(processedListener);
     }
 
     @Override
@@ -64,12 +69,21 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
-        if (remoteProcessor == null) {
-            workerCompletion = owner.operationStart();
-            remoteProcessor = forkProcess();
-        }
+        processedTestClasses.dispatched();
+        boolean dispatched = false;
+        try {
+            if (remoteProcessor == null) {
+                workerCompletion = owner.operationStart();
+                remoteProcessor = forkProcess();
+            }
 
-        remoteProcessor.processTestClass(testClass);
+            remoteProcessor.processTestClass(testClass);
+            dispatched = true;
+        } finally {
+            if (!dispatched) {
+                processedTestClasses.testClassProcessed();
+            }
+        }
     }
 
     RemoteTestClassProcessor forkProcess() {
@@ -86,6 +100,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(TestClassProcessedListener.class, processedTestClasses);
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
@@ -125,4 +140,34 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             }
         }
     }
+
+    /**
+     * Forwards the notifications of the worker process. When the connection to the worker ends, notifies for the test classes the worker
+     * did not report, for example because it crashed, so that the listener is not left waiting for them.
+     */
+    private static class ProcessedTestClasses implements TestClassProcessedListener, StreamCompletion {
+        private final TestClassProcessedListener listener;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        ProcessedTestClasses(TestClassProcessedListener listener) {
+            this.listener = listener;
+        }
+
+        void dispatched() {
+            pending.incrementAndGet();
+        }
+
+        @Override
+        public void testClassProcessed() {
+            pending.decrementAndGet();
+            listener.testClassProcessed();
+        }
+
+        @Override
+        public void endStream() {
+            for (int i = pending.getAndSet(0); i > 0; i--) {
+                listener.testClassProcessed();
+            }
+        }
+    }
 }
@@ -16,21 +16,25 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.Transformer
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.internal.actor.Actor
 import org.gradle.internal.actor.ActorFactory
-import spock.lang.Specification
-import org.gradle.internal.Factory
+import org.gradle.internal.time.TimeProvider
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
-class MaxNParallelTestClassProcessorTest extends Specification {
-    private final Factory<TestClassProcessor> factory = Mock()
+class MaxNParallelTestClassProcessorTest extends ConcurrentSpec {
+    private final Transformer<TestClassProcessor, TestClassProcessedListener> factory = Mock()
     private final TestResultProcessor resultProcessor = Mock()
     private final TestResultProcessor asyncResultProcessor = Mock()
     private final Actor resultProcessorActor = Mock()
     private final ActorFactory actorFactory = Mock()
-    private final MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+    private final Comparator<TestClassRunInfo> order = { a, b -> 0 } as Comparator
+    private final TimeProvider timeProvider = Stub()
+    private final MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, order, timeProvider, true)
 
     def createsThreadSafeWrapperForResultProcessorOnStart() {
         when:
@@ -48,7 +52,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.stop()
 
         then:
-        0 * factory.create()
+        0 * factory.transform(_)
         1 * resultProcessorActor.stop()
     }
 
@@ -70,7 +74,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.processTestClass(test)
 
         then:
-        1 * factory.create() >> processor1
+        1 * factory.transform(_) >> processor1
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
@@ -100,7 +104,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.processTestClass(test)
 
         then:
-        1 * factory.create() >> processor1
+        1 * factory.transform(_) >> processor1
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
@@ -110,7 +114,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.processTestClass(test)
 
         then:
-        1 * factory.create() >> processor2
+        1 * factory.transform(_) >> processor2
         1 * actorFactory.createActor(processor2) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
         1 * asyncProcessor2.startProcessing(asyncResultProcessor)
@@ -124,14 +128,10 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
+    def reusesIdleProcessorInsteadOfStartingAnotherOne() {
         TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor processor2 = Mock()
+        TestClassProcessedListener listener1
         TestClassProcessor asyncProcessor1 = Mock()
-        TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
 
         startProcessor()
 
@@ -139,32 +139,154 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.processTestClass(test)
 
         then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
-        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * factory.transform(_) >> { TestClassProcessedListener listener -> listener1 = listener; Stub(TestClassProcessor) }
+        1 * actorFactory.createActor(_) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }
         1 * asyncProcessor1.processTestClass(test)
 
         when:
+        listener1.testClassProcessed()
         processor.processTestClass(test)
 
         then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        0 * factory.transform(_)
+        1 * asyncProcessor1.processTestClass(test)
+    }
+
+    def keepsTwoTestClassesPendingPerProcessor() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassRunInfo test4 = Mock()
+        TestClassRunInfo test5 = Mock()
+        TestClassRunInfo test6 = Mock()
+        def listeners = []
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+
+        startProcessor()
 
         when:
-        processor.processTestClass(test)
+        [test1, test2, test3, test4, test5, test6].each { processor.processTestClass(it) }
 
         then:
-        1 * asyncProcessor1.processTestClass(test)
+        2 * factory.transform(_) >> { TestClassProcessedListener listener -> listeners << listener; Stub(TestClassProcessor) }
+        2 * actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        1 * asyncProcessor1.processTestClass(test1)
+        1 * asyncProcessor2.processTestClass(test2)
+        1 * asyncProcessor1.processTestClass(test3)
+        1 * asyncProcessor2.processTestClass(test4)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
 
         when:
-        processor.processTestClass(test)
+        listeners[1].testClassProcessed()
 
         then:
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test5)
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        listeners[1].testClassProcessed()
+
+        then:
+        1 * asyncProcessor2.processTestClass(test6)
+    }
+
+    def handsEachTestClassToNextProcessorInTurnWhenNotBalancing() {
+        TestClassRunInfo test1 = Mock()
+        TestClassRunInfo test2 = Mock()
+        TestClassRunInfo test3 = Mock()
+        TestClassRunInfo test4 = Mock()
+        TestClassRunInfo test5 = Mock()
+        def listeners = []
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, order, timeProvider, false)
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        [test1, test2, test3].each { processor.processTestClass(it) }
+        listeners[0].testClassProcessed()
+        listeners[0].testClassProcessed()
+        [test4, test5].each { processor.processTestClass(it) }
+
+        then:
+        2 * factory.transform(_) >> { TestClassProcessedListener listener -> listeners << listener; Stub(TestClassProcessor) }
+        2 * actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        1 * asyncProcessor1.processTestClass(test1)
+        1 * asyncProcessor2.processTestClass(test2)
+        1 * asyncProcessor1.processTestClass(test3)
+        1 * asyncProcessor2.processTestClass(test4)
+        1 * asyncProcessor1.processTestClass(test5)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
+    def handsOutQueuedTestClassesInGivenOrder() {
+        TestClassRunInfo slow = Stub() { getTestClassName() >> "slow" }
+        TestClassRunInfo medium = Stub() { getTestClassName() >> "medium" }
+        TestClassRunInfo fast = Stub() { getTestClassName() >> "fast" }
+        TestClassRunInfo fastest = Stub() { getTestClassName() >> "fastest" }
+        def durations = [slow: 3, medium: 2, fast: 1, fastest: 0]
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, { a, b -> durations[b.testClassName] <=> durations[a.testClassName] } as Comparator, timeProvider, true)
+        TestClassProcessedListener listener1
+        TestClassProcessor asyncProcessor1 = Mock()
+        actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        [fastest, fast, medium, slow].each { processor.processTestClass(it) }
+
+        then:
+        1 * factory.transform(_) >> { TestClassProcessedListener listener -> listener1 = listener; Stub(TestClassProcessor) }
+        1 * actorFactory.createActor(_) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }
+        1 * asyncProcessor1.processTestClass(fastest)
+        1 * asyncProcessor1.processTestClass(fast)
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        listener1.testClassProcessed()
+
+        then:
+        1 * asyncProcessor1.processTestClass(slow)
+
+        when:
+        listener1.testClassProcessed()
+
+        then:
+        1 * asyncProcessor1.processTestClass(medium)
+    }
+
+    def stopWaitsUntilAllQueuedTestClassesHaveBeenHandedOut() {
+        TestClassRunInfo test = Mock()
+        def listeners = []
+        TestClassProcessor asyncProcessor = Mock()
+
+        startProcessor()
+        _ * factory.transform(_) >> { TestClassProcessedListener listener -> listeners << listener; Stub(TestClassProcessor) }
+        _ * actorFactory.createActor(_) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor }
+        5.times { processor.processTestClass(test) }
+
+        when:
+        async {
+            start {
+                thread.block()
+                instant.processed
+                listeners[0].testClassProcessed()
+            }
+            processor.stop()
+            instant.stopped
+        }
+
+        then:
+        instant.stopped > instant.processed
+        1 * asyncProcessor.processTestClass(test)
+        2 * asyncProcessor.stop()
     }
 }
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.testing.worker
 import org.gradle.api.Action
 import org.gradle.api.internal.classpath.Module
 import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
@@ -37,8 +38,9 @@ class ForkingTestClassProcessorTest extends Specification {
     WorkerProcess workerProcess = Mock(WorkerProcess)
     ModuleRegistry moduleRegistry = Mock(ModuleRegistry)
     BuildOperationWorkerRegistry.Operation owner = Mock(BuildOperationWorkerRegistry.Operation)
+    TestClassProcessedListener processedListener = Mock(TestClassProcessedListener)
     @Subject
-        processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerProcessFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), moduleRegistry, owner])
+        processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerProcessFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), moduleRegistry, owner, processedListener])
 
     def "acquires worker lease and starts worker process on first test"() {
         def test1 = Mock(TestClassRunInfo)
@@ -75,6 +77,56 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * workerProcessBuilder.setImplementationClasspath(_) >> { assert it[0].size() == 17 }
     }
 
+    def "reports test class as processed when it cannot be sent to the worker process"() {
+        def test = Mock(TestClassRunInfo)
+
+        when:
+        processor.processTestClass(test)
+
+        then:
+        1 * owner.operationStart() >> Mock(BuildOperationWorkerRegistry.Completion)
+        1 * processor.forkProcess() >> { throw new RuntimeException("broken") }
+        1 * processedListener.testClassProcessed()
+        thrown(RuntimeException)
+    }
+
+    def "reports test classes the worker process did not get to as processed when the connection ends"() {
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+        def connection = Mock(ObjectConnection)
+        def processedTestClasses
+
+        given:
+        _ * workerProcessFactory.create(_) >> workerProcessBuilder
+        _ * workerProcessBuilder.build() >> workerProcess
+        _ * workerProcess.getConnection() >> connection
+        _ * connection.addOutgoing(_) >> Stub(RemoteTestClassProcessor)
+        _ * connection.addIncoming(TestClassProcessedListener, _) >> { processedTestClasses = it[1] }
+        _ * moduleRegistry.getModule(_) >> { module(it[0]) }
+        _ * moduleRegistry.getExternalModule(_) >> { module(it[0]) }
+        _ * owner.operationStart() >> Mock(BuildOperationWorkerRegistry.Completion)
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processedTestClasses.testClassProcessed()
+
+        then:
+        1 * processedListener.testClassProcessed()
+
+        when:
+        processedTestClasses.endStream()
+
+        then:
+        1 * processedListener.testClassProcessed()
+
+        when:
+        processedTestClasses.endStream()
+
+        then:
+        0 * processedListener.testClassProcessed()
+    }
+
     def module(String module) {
         return Stub(Module) {
             _ * getImplementationClasspath() >> {
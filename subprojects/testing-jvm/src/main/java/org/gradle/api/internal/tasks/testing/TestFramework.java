@@ -44,4 +44,10 @@ public interface TestFramework {
      * executed before starting each worker process.
      */
     Action<WorkerProcessBuilder> getWorkerConfigurationAction();
+
+    /**
+     * Returns true when the test processor runs each test class as it receives it, or false when it runs all of the test classes when it is
+     * stopped.
+     */
+    boolean isRunsTestClassesWhenReceived();
 }
@@ -17,9 +17,12 @@
 package org.gradle.api.internal.tasks.testing.detection;
 
 import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Transformer;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
@@ -34,10 +37,12 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.operations.BuildOperationWorkerRegistry;
 import org.gradle.internal.progress.BuildOperationExecutor;
+import org.gradle.internal.time.TimeProvider;
 import org.gradle.internal.time.TrueTimeProvider;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
 import java.io.File;
+import java.util.Comparator;
 import java.util.Set;
 
 /**
@@ -53,14 +58,17 @@ public class DefaultTestExecuter implements TestExecuter {
     private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
     private final BuildOperationExecutor buildOperationExecutor;
     private final int maxWorkerCount;
+    private final Comparator<? super TestClassRunInfo> testClassOrder;
 
-    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry buildOperationWorkerRegistry, BuildOperationExecutor buildOperationExecutor, int maxWorkerCount) {
+    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry buildOperationWorkerRegistry, BuildOperationExecutor buildOperationExecutor, int maxWorkerCount,
+                               Comparator<? super TestClassRunInfo> testClassOrder) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
         this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
         this.buildOperationExecutor = buildOperationExecutor;
         this.maxWorkerCount = maxWorkerCount;
+        this.testClassOrder = testClassOrder;
     }
 
     @Override
@@ -69,20 +77,21 @@ public class DefaultTestExecuter implements TestExecuter {
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
         final BuildOperationWorkerRegistry.Operation currentOperation = buildOperationWorkerRegistry.getCurrent();
         final Set<File> classpath = ImmutableSet.copyOf(testTask.getClasspath());
-        final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, currentOperation);
-            }
-        };
-        Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
+        Transformer<TestClassProcessor, TestClassProcessedListener> reforkingProcessorFactory = new Transformer<TestClassProcessor, TestClassProcessedListener>() {
+            public TestClassProcessor transform(final TestClassProcessedListener processedListener) {
+                Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                    public TestClassProcessor create() {
+                        return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                            classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, currentOperation, processedListener);
+                    }
+                };
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
             }
         };
 
+        TimeProvider timeProvider = new TrueTimeProvider();
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(getMaxParallelForks(testTask),
-            reforkingProcessorFactory, actorFactory);
+            reforkingProcessorFactory, actorFactory, testClassOrder, timeProvider, testFramework.isRunsTestClassesWhenReceived());
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -98,7 +107,7 @@ public class DefaultTestExecuter implements TestExecuter {
 
         final Object testTaskOperationId = buildOperationExecutor.getCurrentOperation().getParentId();
 
-        new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider(), testTaskOperationId, testTask.getPath(), "Gradle Test Run " + testTask.getIdentityPath()).run();
+        new TestMainAction(detector, processor, testResultProcessor, timeProvider, testTaskOperationId, testTask.getPath(), "Gradle Test Run " + testTask.getIdentityPath()).run();
     }
 
     private int getMaxParallelForks(Test testTask) {
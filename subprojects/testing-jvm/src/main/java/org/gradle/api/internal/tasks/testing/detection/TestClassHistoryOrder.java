@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory;
+
+import java.util.Comparator;
+
+/**
+ * Orders test classes using the history of the test task: test classes that failed in their most recent execution come first,
+ * followed by test classes without history, followed by the others. Within each group, the slowest test classes come first.
+ */
+public class TestClassHistoryOrder implements Comparator<TestClassRunInfo> {
+    private final TestClassHistory history;
+
+    public TestClassHistoryOrder(TestClassHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+        TestClassHistory.Entry entry1 = history.get(o1.getTestClassName());
+        TestClassHistory.Entry entry2 = history.get(o2.getTestClassName());
+        int rank1 = rank(entry1);
+        int rank2 = rank(entry2);
+        if (rank1 != rank2) {
+            return rank1 - rank2;
+        }
+        if (entry1 == null || entry2 == null) {
+            return 0;
+        }
+        long duration1 = entry1.getDuration();
+        long duration2 = entry2.getDuration();
+        return duration1 > duration2 ? -1 : duration1 < duration2 ? 1 : 0;
+    }
+
+    private static int rank(TestClassHistory.Entry entry) {
+        if (entry == null) {
+            return 1;
+        }
+        return entry.isFailed() ? 0 : 2;
+    }
+}
@@ -59,6 +59,11 @@ public class JUnitTestFramework implements TestFramework {
         };
     }
 
+    @Override
+    public boolean isRunsTestClassesWhenReceived() {
+        return true;
+    }
+
     @Override
     public JUnitOptions getOptions() {
         return options;
@@ -19,7 +19,6 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 import org.gradle.api.Action;
 import org.gradle.api.tasks.testing.TestOutputEvent;
 
-import java.io.IOException;
 import java.io.Writer;
 
 public class InMemoryTestResultsProvider extends TestOutputStoreBackedResultsProvider {
@@ -83,8 +82,4 @@ public class InMemoryTestResultsProvider extends TestOutputStoreBackedResultsPro
     public boolean isHasResults() {
         return results.iterator().hasNext();
     }
-
-    @Override
-    public void close() throws IOException {
-    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The duration and outcome of the most recent execution of each test class of a test task, kept across executions of the task.
+ * Uses the same encoding as {@link TestResultSerializer}.
+ */
+public class TestClassHistory {
+    private static final Logger LOGGER = Logging.getLogger(TestClassHistory.class);
+    private static final int HISTORY_VERSION = 1;
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * Reads the history from the given file. Returns an empty history when the file does not exist or cannot be read.
+     */
+    public static TestClassHistory read(File historyFile) {
+        TestClassHistory history = new TestClassHistory();
+        if (!historyFile.isFile()) {
+            return history;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(historyFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                int version = decoder.readSmallInt();
+                if (version != HISTORY_VERSION) {
+                    return history;
+                }
+                int count = decoder.readSmallInt();
+                for (int i = 0; i < count; i++) {
+                    String className = decoder.readString();
+                    long duration = decoder.readSmallLong();
+                    boolean failed = decoder.readBoolean();
+                    history.entries.put(className, new Entry(duration, failed));
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            // Only used to order test execution, so carry on without it
+            LOGGER.debug("Could not read test history from {}.", historyFile, e);
+            history.entries.clear();
+        }
+        return history;
+    }
+
+    /**
+     * Writes the history to the given file. Logs a warning and removes the file when it cannot be written.
+     */
+    public void write(File historyFile) {
+        try {
+            OutputStream outputStream = new FileOutputStream(historyFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(HISTORY_VERSION);
+                encoder.writeSmallInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallLong(entry.getValue().getDuration());
+                    encoder.writeBoolean(entry.getValue().isFailed());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (Exception e) {
+            // Only used to order test execution, so carry on without it
+            LOGGER.warn("Could not write test history to {}.", historyFile, e);
+            historyFile.delete();
+        }
+    }
+
+    /**
+     * Records the given results, replacing the history of the test classes they belong to.
+     */
+    public void update(Collection<TestClassResult> results) {
+        for (TestClassResult result : results) {
+            entries.put(result.getClassName(), new Entry(result.getDuration(), result.getFailuresCount() > 0));
+        }
+    }
+
+    /**
+     * Forgets the test classes that no longer have a class file in the given directory.
+     */
+    public void retainTestClassesIn(File testClassesDir) {
+        Iterator<String> classNames = entries.keySet().iterator();
+        while (classNames.hasNext()) {
+            String className = classNames.next();
+            if (!new File(testClassesDir, className.replace('.', '/') + ".class").isFile()) {
+                classNames.remove();
+            }
+        }
+    }
+
+    @Nullable
+    public Entry get(String className) {
+        return entries.get(className);
+    }
+
+    public static class Entry {
+        private final long duration;
+        private final boolean failed;
+
+        public Entry(long duration, boolean failed) {
+            this.duration = duration;
+            this.failed = failed;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+}
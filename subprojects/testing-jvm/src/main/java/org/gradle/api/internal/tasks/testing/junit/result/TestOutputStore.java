@@ -16,29 +16,54 @@
 
 package org.gradle.api.internal.tasks.testing.junit.result;
 
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Stores the output of the tests in a data file, along with an index of the regions of the data file that contain the output of each test class and test.
+ *
+ * <p>The index is a sequence of fixed size records: a header, then one record per test class sorted by class id, then one record per test sorted by class id and test id.
+ * It is read in place with a binary search. Both files are mapped into memory when reading, except on Windows, where a mapped file cannot be deleted until the mapping has been garbage collected.</p>
+ */
 public class TestOutputStore {
+    private static final int MIN_READ_BUFFER_SIZE = 4096;
+    private static final int MAX_READ_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_MAPPED_REGION_SIZE = 256 * 1024 * 1024;
+
+    private static final int INDEX_VERSION = 2;
+    // version, class count, test count
+    private static final int INDEX_HEADER_SIZE = 12;
+    // class id, first test record, test count, stdout start and stop, stderr start and stop
+    private static final int CLASS_RECORD_SIZE = 48;
+    // test id, stdout start and stop, stderr start and stop
+    private static final int TEST_RECORD_SIZE = 40;
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
+    private final boolean memoryMappingEnabled;
 
     public TestOutputStore(File resultsDir) {
+        this(resultsDir, !OperatingSystem.current().isWindows());
+    }
+
+    TestOutputStore(File resultsDir, boolean memoryMappingEnabled) {
         this.resultsDir = resultsDir;
         this.messageStorageCharset = Charset.forName("UTF-8");
+        this.memoryMappingEnabled = memoryMappingEnabled;
     }
 
     File getOutputsFile() {
@@ -133,93 +158,97 @@ public class TestOutputStore {
         }
 
         private void writeIndex() {
-            Output indexOutput;
+            List<Long> classIds = new ArrayList<Long>(index.keySet());
+            Collections.sort(classIds);
+            int testCount = 0;
+            for (Map<Long, TestCaseRegion> regions : index.values()) {
+                testCount += regions.size();
+            }
+
+            DataOutputStream indexOutput;
             try {
-                indexOutput = new Output(new FileOutputStream(getIndexFile()));
+                indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile())));
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
 
-
             try {
-                indexOutput.writeInt(index.size(), true);
-
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
+                try {
+                    indexOutput.writeInt(INDEX_VERSION);
+                    indexOutput.writeInt(classIds.size());
+                    indexOutput.writeInt(testCount);
+
+                    int firstTest = 0;
+                    for (Long classId : classIds) {
+                        Map<Long, TestCaseRegion> regions = index.get(classId);
+                        Region stdOut = new Region();
+                        Region stdErr = new Region();
+                        for (TestCaseRegion region : regions.values()) {
+                            include(stdOut, region.stdOutRegion);
+                            include(stdErr, region.stdErrRegion);
+                        }
+
+                        indexOutput.writeLong(classId);
+                        indexOutput.writeInt(firstTest);
+                        indexOutput.writeInt(regions.size());
+                        writeRegion(indexOutput, stdOut);
+                        writeRegion(indexOutput, stdErr);
+                        firstTest += regions.size();
                     }
+
+                    for (Long classId : classIds) {
+                        Map<Long, TestCaseRegion> regions = index.get(classId);
+                        List<Long> testIds = new ArrayList<Long>(regions.keySet());
+                        Collections.sort(testIds);
+                        for (Long testId : testIds) {
+                            TestCaseRegion region = regions.get(testId);
+                            indexOutput.writeLong(testId);
+                            writeRegion(indexOutput, region.stdOutRegion);
+                            writeRegion(indexOutput, region.stdErrRegion);
+                        }
+                    }
+                } finally {
+                    indexOutput.close();
                 }
-            } finally {
-                indexOutput.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
-    }
-
-    public Writer writer() {
-        return new Writer();
-    }
-
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-    }
-
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
-
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
 
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
+        private void include(Region target, Region region) {
+            if (region.start < 0) {
+                return;
             }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
+            if (target.start < 0 || region.start < target.start) {
+                target.start = region.start;
             }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
+            if (region.stop > target.stop) {
+                target.stop = region.stop;
             }
-
-            children.put(key, index);
         }
 
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
+        private void writeRegion(DataOutputStream indexOutput, Region region) throws IOException {
+            indexOutput.writeLong(region.start);
+            indexOutput.writeLong(region.stop);
         }
     }
 
+    public Writer writer() {
+        return new Writer();
+    }
+
+    /**
+     * Reads the output of the tests. A reader can be used by several threads concurrently.
+     *
+     * <p>The index is accessed in place, either mapped into memory or loaded into a single buffer, so the heap used by a reader does not grow with the number of tests.</p>
+     */
     public class Reader implements Closeable {
-        private final Index index;
+        private final ByteBuffer index;
+        private final int classCount;
         private final RandomAccessFile dataFile;
+        private final FileChannel dataChannel;
+        private final ByteBuffer[] mappedData;
+        private final long dataSize;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -230,42 +259,34 @@ public class TestOutputStore {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' exists but the index file '%s' does not", outputsFile, indexFile));
                 }
 
-                Input input;
+                index = readIndex(indexFile);
+                classCount = index.getInt(4);
+
+                RandomAccessFile file;
                 try {
-                    input = new Input(new FileInputStream(indexFile));
+                    file = new RandomAccessFile(outputsFile, "r");
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
-
-                IndexBuilder rootBuilder = null;
-                try {
-                    int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
-                    for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
-                        long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
+                if (memoryMappingEnabled) {
+                    try {
+                        try {
+                            FileChannel channel = file.getChannel();
+                            dataSize = channel.size();
+                            mappedData = map(channel, dataSize);
+                        } finally {
+                            file.close();
                         }
-
-                        rootBuilder.add(classId, classBuilder.build());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                } finally {
-                    input.close();
-                }
-
-                index = rootBuilder.build();
-
-                try {
-                    dataFile = new RandomAccessFile(getOutputsFile(), "r");
-                } catch (FileNotFoundException e) {
-                    throw new UncheckedIOException(e);
+                    dataFile = null;
+                    dataChannel = null;
+                } else {
+                    dataFile = file;
+                    dataChannel = file.getChannel();
+                    mappedData = null;
+                    dataSize = -1;
                 }
             } else { // no outputs file
                 if (indexFile.exists()) {
@@ -273,10 +294,54 @@ public class TestOutputStore {
                 }
 
                 index = null;
+                classCount = 0;
                 dataFile = null;
+                dataChannel = null;
+                mappedData = null;
+                dataSize = -1;
             }
         }
 
+        private ByteBuffer readIndex(File indexFile) {
+            try {
+                RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    long size = channel.size();
+                    if (size < INDEX_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                        throw invalidIndex(indexFile);
+                    }
+                    ByteBuffer buffer;
+                    if (memoryMappingEnabled) {
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    } else {
+                        buffer = ByteBuffer.allocate((int) size);
+                        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                            // keep reading
+                        }
+                        buffer.flip();
+                    }
+                    if (buffer.limit() != size || buffer.getInt(0) != INDEX_VERSION) {
+                        throw invalidIndex(indexFile);
+                    }
+                    long classes = buffer.getInt(4);
+                    long tests = buffer.getInt(8);
+                    if (classes < 0 || tests < 0 || INDEX_HEADER_SIZE + classes * CLASS_RECORD_SIZE + tests * TEST_RECORD_SIZE != size) {
+                        throw invalidIndex(indexFile);
+                    }
+                    return buffer;
+                } finally {
+                    file.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private IllegalStateException invalidIndex(File indexFile) {
+            return new IllegalStateException(String.format("Test outputs index file '%s' has an unexpected format", indexFile));
+        }
+
         @Override
         public void close() throws IOException {
             if (dataFile != null) {
@@ -285,17 +350,16 @@ public class TestOutputStore {
         }
 
         public boolean hasOutput(long classId, TestOutputEvent.Destination destination) {
-            if (dataFile == null) {
+            if (index == null) {
                 return false;
             }
 
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
+            int classRecord = findClass(classId);
+            if (classRecord < 0) {
                 return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
             }
+            boolean stdout = destination == TestOutputEvent.Destination.StdOut;
+            return index.getLong(classRecord + 16 + (stdout ? 0 : 16)) >= 0;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -310,24 +374,77 @@ public class TestOutputStore {
             doRead(classId, testId, false, destination, writer);
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            if (dataFile == null) {
-                return;
+        /**
+         * Returns the offset of the record for the given class, or -1 when the class has no output.
+         */
+        private int findClass(long classId) {
+            int low = 0;
+            int high = classCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int record = INDEX_HEADER_SIZE + mid * CLASS_RECORD_SIZE;
+                long id = index.getLong(record);
+                if (id < classId) {
+                    low = mid + 1;
+                } else if (id > classId) {
+                    high = mid - 1;
+                } else {
+                    return record;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the offset of the record for the given test of the given class record, or -1 when the test has no output.
+         */
+        private int findTest(int classRecord, long testId) {
+            int testsStart = INDEX_HEADER_SIZE + classCount * CLASS_RECORD_SIZE;
+            int low = index.getInt(classRecord + 8);
+            int high = low + index.getInt(classRecord + 12) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int record = testsStart + mid * TEST_RECORD_SIZE;
+                long id = index.getLong(record);
+                if (id < testId) {
+                    low = mid + 1;
+                } else if (id > testId) {
+                    high = mid - 1;
+                } else {
+                    return record;
+                }
             }
+            return -1;
+        }
 
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
+        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
+            if (index == null) {
+                return;
             }
 
-            if (targetIndex == null) {
+            int classRecord = findClass(classId);
+            if (classRecord < 0) {
                 return;
             }
 
             boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+            int regionOffset;
+            if (testId == 0) {
+                regionOffset = classRecord + 16;
+            } else {
+                int testRecord = findTest(classRecord, testId);
+                if (testRecord < 0) {
+                    return;
+                }
+                regionOffset = testRecord + 8;
+            }
+            if (!stdout) {
+                regionOffset += 16;
+            }
+            long regionStart = index.getLong(regionOffset);
+            long regionStop = index.getLong(regionOffset + 8);
 
-            if (region.start < 0) {
+            if (regionStart < 0) {
                 return;
             }
 
@@ -335,9 +452,10 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                long maxPos = regionStop - regionStart;
+                int bufferSize = (int) Math.max(MIN_READ_BUFFER_SIZE, Math.min(MAX_READ_BUFFER_SIZE, maxPos + MIN_READ_BUFFER_SIZE));
+                InputStream data = mappedData != null ? new MappedInputStream(mappedData, dataSize, regionStart) : new PositionalInputStream(dataChannel, regionStart);
+                KryoBackedDecoder decoder = new KryoBackedDecoder(data, bufferSize);
                 while (decoder.getReadPosition() <= maxPos) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
@@ -387,4 +505,91 @@ public class TestOutputStore {
     public Reader reader() {
         return new Reader();
     }
+
+    private static ByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        // Map the file in regions, as a single mapping cannot exceed 2GB
+        ByteBuffer[] regions = new ByteBuffer[(int) ((size + MAX_MAPPED_REGION_SIZE - 1) / MAX_MAPPED_REGION_SIZE)];
+        for (int i = 0; i < regions.length; i++) {
+            long position = i * MAX_MAPPED_REGION_SIZE;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPED_REGION_SIZE, size - position));
+        }
+        return regions;
+    }
+
+    /**
+     * Reads a file that has been mapped into memory in regions, starting from a given position.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final ByteBuffer[] regions;
+        private final long size;
+        private long position;
+
+        MappedInputStream(ByteBuffer[] regions, long size, long position) {
+            this.regions = regions;
+            this.size = size;
+            this.position = position;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            // Use a view of the region, so that several streams can read the same region concurrently
+            ByteBuffer region = regions[(int) (position / MAX_MAPPED_REGION_SIZE)].duplicate();
+            region.position((int) (position % MAX_MAPPED_REGION_SIZE));
+            int count = Math.min(length, region.remaining());
+            region.get(bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int read() {
+            byte[] bytes = new byte[1];
+            int read = read(bytes, 0, 1);
+            return read <= 0 ? -1 : bytes[0] & 0xff;
+        }
+
+        @Override
+        public long skip(long n) {
+            position += n;
+            return n;
+        }
+    }
+
+    /**
+     * Reads a file from a given position without moving the position of the underlying channel, so that several streams can read the same channel concurrently.
+     */
+    private static class PositionalInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        PositionalInputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] bytes = new byte[1];
+            int read = read(bytes, 0, 1);
+            return read <= 0 ? -1 : bytes[0] & 0xff;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            position += n;
+            return n;
+        }
+    }
 }
@@ -17,27 +17,43 @@
 package org.gradle.api.internal.tasks.testing.junit.result;
 
 import org.gradle.api.Action;
-import org.gradle.api.UncheckedIOException;
 
 import java.io.IOException;
 
 abstract public class TestOutputStoreBackedResultsProvider implements TestResultsProvider {
     private final TestOutputStore outputStore;
+    private final Object lock = new Object();
+    private TestOutputStore.Reader reader;
 
     public TestOutputStoreBackedResultsProvider(TestOutputStore outputStore) {
         this.outputStore = outputStore;
     }
 
+    /**
+     * Runs the given action with a reader that is opened on first use and shared until this provider is closed,
+     * as opening a reader reads the whole output index.
+     */
     protected void withReader(Action<TestOutputStore.Reader> action) {
-        try {
-            TestOutputStore.Reader reader = outputStore.reader();
-            try {
-                action.execute(reader);
-            } finally {
-                reader.close();
+        TestOutputStore.Reader reader;
+        synchronized (lock) {
+            if (this.reader == null) {
+                this.reader = outputStore.reader();
+            }
+            reader = this.reader;
+        }
+        action.execute(reader);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } finally {
+                    reader = null;
+                }
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
 }
@@ -120,6 +120,11 @@ public class TestNGTestFramework implements TestFramework {
         };
     }
 
+    @Override
+    public boolean isRunsTestClassesWhenReceived() {
+        return false;
+    }
+
     @Override
     public TestNGOptions getOptions() {
         return options;
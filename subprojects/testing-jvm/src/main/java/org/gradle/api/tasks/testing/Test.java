@@ -36,6 +36,7 @@ import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassHistoryOrder;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -43,6 +44,7 @@ import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
 import org.gradle.api.internal.tasks.testing.junit.result.Binary2JUnitXmlReportGenerator;
 import org.gradle.api.internal.tasks.testing.junit.result.InMemoryTestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputAssociation;
 import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
@@ -599,6 +601,9 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
+        File historyFile = new File(getTemporaryDir(), "history.bin");
+        TestClassHistory history = TestClassHistory.read(historyFile);
+
         Map<String, TestClassResult> results = new HashMap<String, TestClassResult>();
         TestOutputStore testOutputStore = new TestOutputStore(binaryResultsDir);
 
@@ -619,7 +624,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
             testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getModuleRegistry(),
                 getServices().get(BuildOperationWorkerRegistry.class),
                 getServices().get(BuildOperationExecutor.class),
-                getServices().get(StartParameter.class).getMaxWorkerCount());
+                getServices().get(StartParameter.class).getMaxWorkerCount(),
+                new TestClassHistoryOrder(history));
         }
 
         JavaVersion javaVersion = getJavaVersion();
@@ -639,6 +645,10 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
 
+        history.update(results.values());
+        history.retainTestClassesIn(getTestClassesDir());
+        history.write(historyFile);
+
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore);
 
         try {
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult
+import org.gradle.api.tasks.testing.TestResult
+import spock.lang.Specification
+
+class TestClassHistoryOrderTest extends Specification {
+    def history = new TestClassHistory()
+    def order = new TestClassHistoryOrder(history)
+
+    def setup() {
+        history.update([
+            result("FastFailed", 100, TestResult.ResultType.FAILURE),
+            result("SlowFailed", 2000, TestResult.ResultType.FAILURE),
+            result("Fast", 100, TestResult.ResultType.SUCCESS),
+            result("Medium", 1000, TestResult.ResultType.SUCCESS),
+            result("Slow", 3000, TestResult.ResultType.SUCCESS)
+        ])
+    }
+
+    def "orders failed test classes first, then test classes without history, then slowest first"() {
+        expect:
+        sort("Fast", "New1", "Slow", "FastFailed", "Medium", "New2", "SlowFailed") == ["SlowFailed", "FastFailed", "New1", "New2", "Slow", "Medium", "Fast"]
+    }
+
+    private static TestClassResult result(String className, long duration, TestResult.ResultType resultType) {
+        return new TestClassResult(1, className, 1000).add(new TestMethodResult(1, "test", resultType, duration, 1000 + duration))
+    }
+
+    private List<String> sort(String... classNames) {
+        def testClasses = classNames.collect { String name -> Stub(TestClassRunInfo) { getTestClassName() >> name } }
+        return testClasses.sort(false, order)*.testClassName
+    }
+}
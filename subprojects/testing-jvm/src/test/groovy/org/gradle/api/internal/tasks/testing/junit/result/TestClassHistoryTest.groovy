@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestClassHistoryTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def "can write and read history"() {
+        def file = tmp.file("history.bin")
+        def history = new TestClassHistory()
+        history.update([result("Passed", 100, TestResult.ResultType.SUCCESS), result("Failed", 200, TestResult.ResultType.FAILURE)])
+
+        when:
+        history.write(file)
+        def read = TestClassHistory.read(file)
+
+        then:
+        read.get("Passed").duration == 100
+        !read.get("Passed").failed
+        read.get("Failed").duration == 200
+        read.get("Failed").failed
+        read.get("Unknown") == null
+    }
+
+    def "update replaces history of the test classes that ran and keeps the others"() {
+        def history = new TestClassHistory()
+        history.update([result("Class1", 100, TestResult.ResultType.FAILURE), result("Class2", 200, TestResult.ResultType.SUCCESS)])
+
+        when:
+        history.update([result("Class1", 300, TestResult.ResultType.SUCCESS)])
+
+        then:
+        history.get("Class1").duration == 300
+        !history.get("Class1").failed
+        history.get("Class2").duration == 200
+    }
+
+    def "reads empty history when file is missing or cannot be read"() {
+        def file = tmp.file("history.bin")
+
+        expect:
+        TestClassHistory.read(file).get("Class1") == null
+
+        when:
+        file.bytes = [1, 2, 3] as byte[]
+
+        then:
+        TestClassHistory.read(file).get("Class1") == null
+    }
+
+    def "forgets test classes without a class file"() {
+        def testClassesDir = tmp.createDir("classes")
+        testClassesDir.createFile("org/gradle/Present.class")
+        testClassesDir.createFile("org/gradle/Outer\$Inner.class")
+        def history = new TestClassHistory()
+        history.update([result("org.gradle.Present", 100, TestResult.ResultType.SUCCESS),
+                        result("org.gradle.Outer\$Inner", 200, TestResult.ResultType.SUCCESS),
+                        result("org.gradle.Removed", 300, TestResult.ResultType.FAILURE)])
+
+        when:
+        history.retainTestClassesIn(testClassesDir)
+
+        then:
+        history.get("org.gradle.Present").duration == 100
+        history.get("org.gradle.Outer\$Inner").duration == 200
+        history.get("org.gradle.Removed") == null
+    }
+
+    def "does not fail when history cannot be written"() {
+        def file = tmp.createDir("history.bin")
+        def history = new TestClassHistory()
+        history.update([result("Class1", 100, TestResult.ResultType.SUCCESS)])
+
+        when:
+        history.write(file)
+
+        then:
+        noExceptionThrown()
+    }
+
+    private static TestClassResult result(String className, long duration, TestResult.ResultType resultType) {
+        def result = new TestClassResult(1, className, 1000)
+        def method = new TestMethodResult(1, "test", resultType, duration, 1000 + duration)
+        if (resultType == TestResult.ResultType.FAILURE) {
+            method.addFailure("message", "stack-trace", "ExceptionType")
+        }
+        result.add(method)
+        return result
+    }
+}
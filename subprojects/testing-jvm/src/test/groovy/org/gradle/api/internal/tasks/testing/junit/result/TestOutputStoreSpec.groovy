@@ -169,6 +169,95 @@ class TestOutputStoreSpec extends WorkspaceTest {
         thrown(IllegalStateException)
     }
 
+    def "exception if index file has unexpected format"() {
+        when:
+        output.outputsFile.createNewFile()
+        output.indexFile.text = "broken"
+        output.reader()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "output for class includes output of tests that started writing to the stream later"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdErr, "[err-1]"))
+        writer.onOutput(1, 2, output(StdOut, "[out-2]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-1]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-2][out-1]"
+        collectAllOutput(reader, 1, StdErr) == "[err-1]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "reads the same output when memory mapping is #description"() {
+        when:
+        def store = new TestOutputStore(testDirectory, memoryMapping)
+        def writer = store.writer()
+        writer.onOutput(3, output(StdOut, "[out-1]"))
+        writer.onOutput(3, 7, output(StdOut, "[out-2]"))
+        writer.onOutput(1, 2, output(StdErr, "[err-3]"))
+        writer.onOutput(3, 5, output(StdOut, "[out-4]"))
+        writer.close()
+        def reader = store.reader()
+
+        then:
+        collectAllOutput(reader, 3, StdOut) == "[out-1][out-2][out-4]"
+        collectOutput(reader, 3, StdOut) == "[out-1]"
+        collectOutput(reader, 3, 5, StdOut) == "[out-4]"
+        collectOutput(reader, 3, 7, StdOut) == "[out-2]"
+        collectOutput(reader, 1, 2, StdErr) == "[err-3]"
+        collectOutput(reader, 2, 2, StdErr) == ""
+        reader.hasOutput(1, StdErr)
+        !reader.hasOutput(1, StdOut)
+
+        cleanup:
+        reader?.close()
+
+        where:
+        memoryMapping | description
+        true          | "enabled"
+        false         | "disabled"
+    }
+
+    def "reader can be shared by several threads"() {
+        given:
+        def writer = output.writer()
+        100.times { classId ->
+            20.times { writer.onOutput(classId, 1, output(StdOut, "[$classId-$it]")) }
+        }
+        writer.close()
+        def reader = output.reader()
+        def failures = Collections.synchronizedList([])
+
+        when:
+        def threads = (0..<4).collect { threadId ->
+            Thread.start {
+                try {
+                    100.times { classId ->
+                        def expected = (0..<20).collect { "[$classId-$it]" }.join("")
+                        assert collectAllOutput(reader, classId, StdOut) == expected
+                    }
+                } catch (Throwable t) {
+                    failures << t
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        failures.empty
+
+        cleanup:
+        reader?.close()
+    }
+
     String collectAllOutput(TestOutputStore.Reader reader, long classId, TestOutputEvent.Destination destination) {
         def writer = new StringWriter()
         reader.writeAllOutput(classId, destination, writer)
@@ -53,6 +53,11 @@ public class TestNGTestFrameworkTest extends Specification {
         framework.detector
     }
 
+    void "runs test classes only when the test class processor is stopped"() {
+        expect:
+        !createFramework().runsTestClassesWhenReceived
+    }
+
     def "can configure TestNG with an Action"() {
         when:
         testTask.useTestNG({TestNGOptions options ->
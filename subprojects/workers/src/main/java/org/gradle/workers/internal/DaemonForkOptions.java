@@ -127,6 +127,28 @@ public class DaemonForkOptions {
         return Sets.newLinkedHashSet(allowedPackages);
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        DaemonForkOptions other = (DaemonForkOptions) obj;
+        return getHeapSizeMb(minHeapSize) == getHeapSizeMb(other.minHeapSize)
+                && getHeapSizeMb(maxHeapSize) == getHeapSizeMb(other.maxHeapSize)
+                && getNormalizedJvmArgs(jvmArgs).equals(getNormalizedJvmArgs(other.jvmArgs))
+                && getNormalizedClasspath(classpath).equals(getNormalizedClasspath(other.classpath))
+                && getNormalizedSharedPackages(sharedPackages).equals(getNormalizedSharedPackages(other.sharedPackages));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getHeapSizeMb(minHeapSize), getHeapSizeMb(maxHeapSize), getNormalizedJvmArgs(jvmArgs),
+                getNormalizedClasspath(classpath), getNormalizedSharedPackages(sharedPackages));
+    }
+
     public String toString() {
         return Objects.toStringHelper(this).add("minHeapSize", minHeapSize).add("maxHeapSize", maxHeapSize).add("jvmArgs", jvmArgs).add("classpath", classpath).toString();
     }
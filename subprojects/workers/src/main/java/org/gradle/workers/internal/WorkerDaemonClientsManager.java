@@ -16,34 +16,77 @@
 
 package org.gradle.workers.internal;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.util.CollectionUtils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Keeps track of the worker daemons of a build session.
+ *
+ * <p>Idle daemons are indexed by their fork options. A request is routed to an idle daemon started with exactly the requested fork options
+ * when there is one, as that daemon has already loaded the same implementation classpath. Otherwise any compatible idle daemon is used.</p>
+ *
+ * <p>When {@value #PRESTART_PROPERTY} is set to N, the first daemon started for a set of fork options is followed by N further daemons
+ * for the same options, which are started in the background and added to the idle pool.</p>
+ */
 public class WorkerDaemonClientsManager {
 
+    public static final String PRESTART_PROPERTY = "org.gradle.workers.daemon.prestart";
+
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonFactory.class);
 
     private final Object lock = new Object();
     private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
     private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
+    private final ListMultimap<DaemonForkOptions, WorkerDaemonClient> idleClientsByForkOptions = ArrayListMultimap.create();
+    private final Set<DaemonForkOptions> prestartedForkOptions = new HashSet<DaemonForkOptions>();
 
-    private WorkerDaemonStarter workerDaemonStarter;
+    private final WorkerDaemonStarter workerDaemonStarter;
+    private final ExecutorFactory executorFactory;
+    private final int prestartCount;
+    private StoppableExecutor prestartExecutor;
+    private boolean stopped;
 
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter) {
+        this(workerDaemonStarter, null, 0);
+    }
+
+    public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, @Nullable ExecutorFactory executorFactory, int prestartCount) {
         this.workerDaemonStarter = workerDaemonStarter;
+        this.executorFactory = executorFactory;
+        this.prestartCount = executorFactory == null ? 0 : prestartCount;
     }
 
     public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+        synchronized (lock) {
+            List<WorkerDaemonClient> sameOptions = idleClientsByForkOptions.get(forkOptions);
+            if (!sameOptions.isEmpty()) {
+                // most recently released first, it is the most likely to still be warm
+                WorkerDaemonClient candidate = sameOptions.remove(sameOptions.size() - 1);
+                idleClients.remove(candidate);
+                return candidate;
+            }
+            WorkerDaemonClient candidate = reserveIdleClient(forkOptions, idleClients);
+            if (candidate != null) {
+                idleClientsByForkOptions.remove(candidate.getForkOptions(), candidate);
+            }
+            return candidate;
+        }
     }
 
     WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
@@ -65,22 +108,77 @@ public class WorkerDaemonClientsManager {
         WorkerDaemonClient client = workerDaemonStarter.startDaemon(workerProtocolImplementationClass, workingDir, forkOptions);
         synchronized (lock) {
             allClients.add(client);
+            if (prestartCount > 0 && !stopped && prestartedForkOptions.add(forkOptions)) {
+                prestart(workerProtocolImplementationClass, workingDir, forkOptions);
+            }
         }
         return client;
     }
 
+    private void prestart(final Class<? extends WorkerProtocol> workerProtocolImplementationClass, final File workingDir, final DaemonForkOptions forkOptions) {
+        if (prestartExecutor == null) {
+            prestartExecutor = executorFactory.create("Worker daemon prestart");
+        }
+        for (int i = 0; i < prestartCount; i++) {
+            prestartExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (lock) {
+                        if (stopped) {
+                            return;
+                        }
+                    }
+                    WorkerDaemonClient client;
+                    try {
+                        client = workerDaemonStarter.startDaemon(workerProtocolImplementationClass, workingDir, forkOptions);
+                    } catch (Exception e) {
+                        LOGGER.info("Could not prestart worker daemon with fork options {}.", forkOptions, e);
+                        return;
+                    }
+                    synchronized (lock) {
+                        if (stopped) {
+                            client.stop();
+                            return;
+                        }
+                        allClients.add(client);
+                        addIdleClient(client);
+                    }
+                }
+            });
+        }
+    }
+
     public void release(WorkerDaemonClient client) {
         synchronized (lock) {
-            idleClients.add(client);
+            addIdleClient(client);
         }
     }
 
+    private void addIdleClient(WorkerDaemonClient client) {
+        idleClients.add(client);
+        idleClientsByForkOptions.put(client.getForkOptions(), client);
+    }
+
     public void stop() {
+        StoppableExecutor executor;
+        synchronized (lock) {
+            stopped = true;
+            executor = prestartExecutor;
+            prestartExecutor = null;
+        }
+        if (executor != null) {
+            // wait for daemons that are being started, they stop themselves once started
+            executor.stop();
+        }
         synchronized (lock) {
             LOGGER.debug("Stopping {} worker daemon(s).", allClients.size());
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} worker daemon(s).", allClients.size());
             allClients.clear();
+            idleClients.clear();
+            idleClientsByForkOptions.clear();
+            prestartedForkOptions.clear();
+            stopped = false;
         }
     }
 
@@ -99,6 +197,9 @@ public class WorkerDaemonClientsManager {
             });
             List<WorkerDaemonClient> clientsToStop = selectionFunction.transform(new ArrayList<WorkerDaemonClient>(sortedClients));
             idleClients.removeAll(clientsToStop);
+            for (WorkerDaemonClient client : clientsToStop) {
+                idleClientsByForkOptions.remove(client.getForkOptions(), client);
+            }
             allClients.removeAll(clientsToStop);
             LOGGER.debug("Stopping {} worker daemon(s).", clientsToStop.size());
             CompositeStoppable.stoppable(clientsToStop).stop();
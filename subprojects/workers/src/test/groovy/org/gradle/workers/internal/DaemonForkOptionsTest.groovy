@@ -173,4 +173,22 @@ class DaemonForkOptionsTest extends Specification {
         settings1.isCompatibleWith(settings2)
         !settings1.isCompatibleWith(settings3)
     }
+
+    def "is equal to options with the same normalized settings"() {
+        def settings1 = new DaemonForkOptions("1024m", "2g", ["-server", " -esa"], [new File("lib/lib1.jar")], ["foo.bar"])
+        def settings2 = new DaemonForkOptions("1g", "2048m", ["-server", "-esa", "-server"], [new File("lib/lib1.jar")], ["foo.bar"])
+
+        expect:
+        settings1 == settings2
+        settings1.hashCode() == settings2.hashCode()
+    }
+
+    def "is not equal to compatible options with different settings"() {
+        def settings1 = new DaemonForkOptions("128m", "1g", ["-server"], [new File("lib/lib1.jar"), new File("lib/lib2.jar")], [])
+        def settings2 = new DaemonForkOptions("128m", "1g", ["-server"], [new File("lib/lib1.jar")], [])
+
+        expect:
+        settings1.isCompatibleWith(settings2)
+        settings1 != settings2
+    }
 }
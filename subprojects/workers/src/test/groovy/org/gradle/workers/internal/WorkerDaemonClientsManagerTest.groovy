@@ -17,6 +17,8 @@
 package org.gradle.workers.internal
 
 import org.gradle.api.Transformer
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -149,4 +151,86 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
         0 * client2.stop()
         1 * client3.stop()
     }
+
+    def "prefers idle client started with the same fork options over a compatible one"() {
+        def requested = new DaemonForkOptions("128m", "512m", ["-server"], [new File("lib.jar")], [])
+        def larger = new DaemonForkOptions("256m", "1g", ["-server"], [new File("lib.jar"), new File("other.jar")], [])
+        def largerClient = client(larger)
+        def sameClient = client(new DaemonForkOptions("128m", "512m", ["-server"], [new File("lib.jar")], []))
+        starter.startDaemon(serverImpl.class, workingDir, _) >>> [largerClient, sameClient]
+
+        when:
+        manager.reserveNewClient(serverImpl.class, workingDir, larger)
+        manager.reserveNewClient(serverImpl.class, workingDir, requested)
+        manager.release(sameClient)
+        manager.release(largerClient)
+
+        then:
+        manager.reserveIdleClient(requested) == sameClient
+        manager.reserveIdleClient(requested) == largerClient
+        manager.reserveIdleClient(requested) == null
+    }
+
+    def "prestarts daemons the first time fork options are used"() {
+        def forkOptions = new DaemonForkOptions("128m", "512m", [])
+        def client1 = client(forkOptions)
+        def client2 = client(forkOptions)
+        def client3 = client(forkOptions)
+        def starter = Mock(WorkerDaemonStarter)
+        def manager = new WorkerDaemonClientsManager(starter, inlineExecutorFactory(), 2)
+
+        when:
+        def client = manager.reserveNewClient(serverImpl.class, workingDir, forkOptions)
+
+        then:
+        client == client1
+        3 * starter.startDaemon(serverImpl.class, workingDir, forkOptions) >>> [client1, client2, client3]
+
+        and:
+        manager.reserveIdleClient(forkOptions) == client3
+        manager.reserveIdleClient(forkOptions) == client2
+
+        when:
+        manager.reserveNewClient(serverImpl.class, workingDir, forkOptions)
+
+        then:
+        1 * starter.startDaemon(serverImpl.class, workingDir, forkOptions) >> client(forkOptions)
+    }
+
+    def "stops prestarted daemons"() {
+        def forkOptions = new DaemonForkOptions("128m", "512m", [])
+        def client1 = Mock(WorkerDaemonClient) { getForkOptions() >> forkOptions }
+        def client2 = Mock(WorkerDaemonClient) { getForkOptions() >> forkOptions }
+        def starter = Stub(WorkerDaemonStarter) {
+            startDaemon(serverImpl.class, workingDir, forkOptions) >>> [client1, client2]
+        }
+        def manager = new WorkerDaemonClientsManager(starter, inlineExecutorFactory(), 1)
+
+        when:
+        manager.reserveNewClient(serverImpl.class, workingDir, forkOptions)
+        manager.stop()
+
+        then:
+        1 * client1.stop()
+        1 * client2.stop()
+
+        and:
+        manager.reserveIdleClient(forkOptions) == null
+    }
+
+    private WorkerDaemonClient client(DaemonForkOptions forkOptions) {
+        return Stub(WorkerDaemonClient) {
+            getForkOptions() >> forkOptions
+            isCompatibleWith(_) >> { DaemonForkOptions required -> forkOptions.isCompatibleWith(required) }
+        }
+    }
+
+    private ExecutorFactory inlineExecutorFactory() {
+        def executor = Stub(StoppableExecutor) {
+            execute(_) >> { Runnable runnable -> runnable.run() }
+        }
+        return Stub(ExecutorFactory) {
+            create(_) >> executor
+        }
+    }
 }